@@ -0,0 +1,90 @@
+"""
+Exporte des fixtures de dispatch calculées par src.optimizer sur les CSV de data_raw.
+
+Le backend Java (DispatchEngine) est validé contre ces fixtures : mêmes entrées,
+mêmes sorties à la tolérance près. A relancer après toute modification de optimizer.py :
+
+    python scripts/export_dispatch_fixtures.py
+"""
+import csv
+import sys
+from pathlib import Path
+
+# Ajouter le répertoire racine au path
+project_root = Path(__file__).parent.parent
+sys.path.insert(0, str(project_root))
+
+from src.optimizer import optimize_horizon
+
+DATA_RAW = project_root / "data_raw"
+OUTPUT_DIR = project_root.parent / "backend_common" / "src" / "test" / "resources" / "dispatch"
+
+# Consommation CHU ramenée à l'échelle du PV pour alterner surplus et déficit
+CONSUMPTION_SCALE = 0.25
+
+SCENARIOS = [
+    {
+        "name": "casablanca",
+        "pv_file": "casablanca_pv_2024_6h.csv",
+        "params": {"BATTERY_CAP_KWH": 2000.0, "ROUND_TRIP_EFFICIENCY": 1.0},
+        "initial_soc_kwh": 1000.0,
+    },
+    {
+        "name": "zone_a_sahara",
+        "pv_file": "zone_a_sahara_pv_2024_6h.csv",
+        "params": {"BATTERY_CAP_KWH": 5000.0, "ROUND_TRIP_EFFICIENCY": 0.9},
+        "initial_soc_kwh": 750.0,
+    },
+]
+
+
+def read_column(path: Path, column: str) -> list[float]:
+    with path.open(newline="", encoding="utf-8") as handle:
+        return [float(row[column]) for row in csv.DictReader(handle)]
+
+
+def main() -> None:
+    critical = read_column(DATA_RAW / "chu_critique_non_critique.csv", "conso_critique_kWh")
+    non_critical = read_column(DATA_RAW / "chu_critique_non_critique.csv", "conso_non_critique_kWh")
+    # Entrées arrondies comme dans la fixture : Java et Python calculent sur les mêmes valeurs
+    pred = [round((c + n) * CONSUMPTION_SCALE, 6) for c, n in zip(critical, non_critical)]
+
+    OUTPUT_DIR.mkdir(parents=True, exist_ok=True)
+    for scenario in SCENARIOS:
+        pv = [round(value, 6) for value in read_column(DATA_RAW / scenario["pv_file"], "pv_prod_kWh")]
+        size = min(len(pred), len(pv))
+        result = optimize_horizon(
+            pred_kwh=pred[:size],
+            pv_kwh=pv[:size],
+            soc_kwh=scenario["initial_soc_kwh"],
+            battery_params=scenario["params"],
+        )
+
+        output = OUTPUT_DIR / f"{scenario['name']}.csv"
+        with output.open("w", newline="", encoding="utf-8") as handle:
+            params = scenario["params"]
+            handle.write(
+                f"# BATTERY_CAP_KWH={params['BATTERY_CAP_KWH']},"
+                f"ROUND_TRIP_EFFICIENCY={params['ROUND_TRIP_EFFICIENCY']},"
+                f"INITIAL_SOC_KWH={scenario['initial_soc_kwh']}\n"
+            )
+            writer = csv.writer(handle)
+            writer.writerow([
+                "pred_kWh", "pv_kWh", "grid_import_kWh", "battery_charge_kWh",
+                "battery_discharge_kWh", "soc_next", "note",
+            ])
+            for i in range(size):
+                writer.writerow([
+                    f"{pred[i]:.6f}",
+                    f"{pv[i]:.6f}",
+                    f"{result['grid_import_kWh'][i]:.6f}",
+                    f"{result['battery_charge_kWh'][i]:.6f}",
+                    f"{result['battery_discharge_kWh'][i]:.6f}",
+                    f"{result['soc_next'][i]:.6f}",
+                    result["note"][i],
+                ])
+        print(f"{output}: {size} pas")
+
+
+if __name__ == "__main__":
+    main()
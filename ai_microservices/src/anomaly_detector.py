@@ -144,6 +144,27 @@ def detect_anomaly(
     anomaly_score = ANOMALY_MODEL.score_samples(features_scaled)[0]
     is_anomaly = anomaly_score < ANOMALY_THRESHOLD
     
+    anomaly_type, recommendation = _classify_anomaly(
+        consumption, predicted_consumption, pv_production, expected_pv, soc, bool(is_anomaly)
+    )
+    
+    return {
+        "is_anomaly": bool(is_anomaly),
+        "anomaly_score": float(anomaly_score),
+        "anomaly_type": anomaly_type,
+        "recommendation": recommendation,
+    }
+
+
+def _classify_anomaly(
+    consumption: float,
+    predicted_consumption: float,
+    pv_production: float,
+    expected_pv: float,
+    soc: float,
+    is_anomaly: bool,
+) -> tuple[str, str]:
+    """Classifie le type d'anomalie et produit la recommandation associée"""
     # Classifier le type d'anomalie
     anomaly_type = "normal"
     if is_anomaly:
@@ -170,11 +191,53 @@ def detect_anomaly(
     elif anomaly_type == "battery_low":
         recommendation = "Check battery health and charging system"
     
-    return {
-        "is_anomaly": bool(is_anomaly),
-        "anomaly_score": float(anomaly_score),
-        "anomaly_type": anomaly_type,
-        "recommendation": recommendation,
-    }
+    return anomaly_type, recommendation
 
 
+def detect_anomalies_batch(
+    consumption: list[float],
+    predicted_consumption: list[float],
+    pv_production: list[float],
+    expected_pv: list[float],
+    soc: list[float],
+    temperature: list[float],
+    irradiance: list[float],
+) -> list[Dict]:
+    """Détecte les anomalies sur tout un horizon en un seul passage du modèle"""
+    ensure_anomaly_model_loaded()
+    
+    consumption_arr = np.asarray(consumption, dtype=float)
+    predicted_arr = np.asarray(predicted_consumption, dtype=float)
+    pv_arr = np.asarray(pv_production, dtype=float)
+    expected_arr = np.asarray(expected_pv, dtype=float)
+    
+    # Même matrice que prepare_anomaly_features, construite en une fois
+    features = np.column_stack([
+        consumption_arr,
+        predicted_arr,
+        pv_arr,
+        expected_arr,
+        np.asarray(soc, dtype=float),
+        np.asarray(temperature, dtype=float),
+        np.asarray(irradiance, dtype=float),
+        np.abs(consumption_arr - predicted_arr),
+        np.abs(pv_arr - expected_arr),
+        consumption_arr / np.maximum(predicted_arr, 0.1),
+        pv_arr / np.maximum(expected_arr, 0.1),
+    ])
+    
+    scores = ANOMALY_MODEL.score_samples(ANOMALY_SCALER.transform(features))
+    
+    results = []
+    for i, score in enumerate(scores):
+        is_anomaly = bool(score < ANOMALY_THRESHOLD)
+        anomaly_type, recommendation = _classify_anomaly(
+            consumption[i], predicted_consumption[i], pv_production[i], expected_pv[i], soc[i], is_anomaly
+        )
+        results.append({
+            "is_anomaly": is_anomaly,
+            "anomaly_score": float(score),
+            "anomaly_type": anomaly_type,
+            "recommendation": recommendation,
+        })
+    return results
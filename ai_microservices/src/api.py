@@ -85,6 +85,29 @@ class OptimizeRequest(BaseModel):
     SOC_MAX: Optional[float] = None
     CHARGE_MAX_KW: Optional[float] = None
     DISCHARGE_MAX_KW: Optional[float] = None
+    ROUND_TRIP_EFFICIENCY: Optional[float] = None
+
+
+class PredictBatchRequest(BaseModel):
+    datetimes: List[datetime]
+    temperature_C: List[float]
+    irradiance_kWh_m2: List[float]
+    pv_prod_kWh: List[float]
+    patients: float
+    soc_batterie_kWh: Optional[List[Optional[float]]] = None
+    event: Optional[str] = Field(default=None, description="Event descriptor")
+
+
+class OptimizeBatchRequest(BaseModel):
+    pred_kWh: List[float]
+    pv_kWh: List[float]
+    soc_kwh: float
+    BATTERY_CAP_KWH: Optional[float] = None
+    SOC_MIN: Optional[float] = None
+    SOC_MAX: Optional[float] = None
+    CHARGE_MAX_KW: Optional[float] = None
+    DISCHARGE_MAX_KW: Optional[float] = None
+    ROUND_TRIP_EFFICIENCY: Optional[float] = None
 
 
 def ensure_artifacts_loaded(force: bool = False) -> None:
@@ -152,9 +175,15 @@ def _compute_lag_features(history: pd.DataFrame) -> Dict[str, float]:
 def _build_feature_vector(payload: PredictRequest) -> pd.DataFrame:
     ensure_artifacts_loaded()
     history = get_history()
-    feature_values = {feature: 0.0 for feature in FEATURE_LIST}
-
     base_lags = _compute_lag_features(history)
+    row = _build_feature_row(payload, history, base_lags)
+    return pd.DataFrame([row], columns=FEATURE_LIST)
+
+
+def _build_feature_row(
+    payload: PredictRequest, history: pd.DataFrame, base_lags: Dict[str, float]
+) -> List[float]:
+    feature_values = {feature: 0.0 for feature in FEATURE_LIST}
     feature_values.update(base_lags)
 
     dt = payload.datetime
@@ -202,8 +231,7 @@ def _build_feature_vector(payload: PredictRequest) -> pd.DataFrame:
             detail=f"Model missing required feature columns: {missing_required}",
         )
 
-    df = pd.DataFrame([[feature_values.get(col, 0.0) for col in FEATURE_LIST]], columns=FEATURE_LIST)
-    return df
+    return [feature_values.get(col, 0.0) for col in FEATURE_LIST]
 
 
 @app.on_event("startup")
@@ -272,6 +300,59 @@ def optimize(request: OptimizeRequest) -> Dict[str, Union[float, str]]:
     return result
 
 
+@app.post("/predict/batch")
+def predict_batch(payload: PredictBatchRequest) -> Dict[str, object]:
+    """Prédit la consommation pour tout un horizon en un seul appel"""
+    ensure_artifacts_loaded()
+    if MODEL is None or SCALER is None:
+        raise HTTPException(status_code=500, detail="Model not loaded.")
+    size = len(payload.datetimes)
+    if any(len(values) != size for values in (payload.temperature_C, payload.irradiance_kWh_m2, payload.pv_prod_kWh)):
+        raise HTTPException(status_code=422, detail="All feature arrays must have the same length.")
+    try:
+        history = get_history()
+        base_lags = _compute_lag_features(history)
+        rows = []
+        for i, dt in enumerate(payload.datetimes):
+            soc = payload.soc_batterie_kWh[i] if payload.soc_batterie_kWh and i < len(payload.soc_batterie_kWh) else None
+            step = PredictRequest(
+                datetime=dt,
+                temperature_C=payload.temperature_C[i],
+                irradiance_kWh_m2=payload.irradiance_kWh_m2[i],
+                pv_prod_kWh=payload.pv_prod_kWh[i],
+                patients=payload.patients,
+                soc_batterie_kWh=soc,
+                event=payload.event,
+            )
+            rows.append(_build_feature_row(step, history, base_lags))
+        features = pd.DataFrame(rows, columns=FEATURE_LIST)
+        predictions = MODEL.predict(SCALER.transform(features)) if rows else []
+    except HTTPException:
+        raise
+    except Exception as exc:
+        LOGGER.error("Batch prediction failed: %s", exc)
+        raise HTTPException(status_code=500, detail="Prediction failure.")
+    return {"predictions_kWh": [float(value) for value in predictions]}
+
+
+@app.post("/optimize/batch")
+def optimize_batch(request: OptimizeBatchRequest) -> Dict[str, list]:
+    """Optimise le dispatch sur tout un horizon (SOC chaîné pas à pas)"""
+    if len(request.pred_kWh) != len(request.pv_kWh):
+        raise HTTPException(status_code=422, detail="pred_kWh and pv_kWh must have the same length.")
+    params = {
+        key: value
+        for key, value in request.model_dump().items()
+        if key.isupper() and value is not None
+    }
+    return optimizer.optimize_horizon(
+        pred_kwh=request.pred_kWh,
+        pv_kwh=request.pv_kWh,
+        soc_kwh=request.soc_kwh,
+        battery_params=params or None,
+    )
+
+
 @app.post("/retrain")
 def retrain() -> Dict[str, object]:
     try:
@@ -302,6 +383,23 @@ class PvPredictRequest(BaseModel):
         return dt
 
 
+class PvPredictBatchRequest(BaseModel):
+    datetimes: List[datetime]
+    irradiance_kWh_m2: List[float]
+    temperature_C: List[float]
+    surface_m2: float
+    historical_pv: Optional[list[float]] = Field(default=None, description="PV history preceding the horizon")
+
+    @field_validator("datetimes", mode="before")
+    @classmethod
+    def ensure_datetimes(cls, values: List[datetime]) -> List[datetime]:
+        converted = []
+        for value in values:
+            dt = value if isinstance(value, datetime) else datetime.fromisoformat(value)
+            converted.append(dt.replace(tzinfo=timezone.utc) if dt.tzinfo is None else dt.astimezone(timezone.utc))
+        return converted
+
+
 class AnomalyDetectionRequest(BaseModel):
     consumption: float
     predicted_consumption: float
@@ -312,6 +410,16 @@ class AnomalyDetectionRequest(BaseModel):
     irradiance_kWh_m2: float
 
 
+class AnomalyDetectionBatchRequest(BaseModel):
+    consumption: List[float]
+    predicted_consumption: List[float]
+    pv_production: List[float]
+    expected_pv: List[float]
+    soc: List[float]
+    temperature_C: List[float]
+    irradiance_kWh_m2: List[float]
+
+
 class ClusterRequest(BaseModel):
     establishment_type: str
     number_of_beds: int
@@ -383,6 +491,49 @@ def detect_anomalies_endpoint(payload: AnomalyDetectionRequest) -> Dict[str, obj
         raise HTTPException(status_code=500, detail=f"Anomaly detection failed: {exc}")
 
 
+@app.post("/predict/pv/batch")
+def predict_pv_batch_endpoint(payload: PvPredictBatchRequest) -> Dict[str, object]:
+    """Prédit la production PV pour tout un horizon en un seul appel"""
+    size = len(payload.datetimes)
+    if len(payload.irradiance_kWh_m2) != size or len(payload.temperature_C) != size:
+        raise HTTPException(status_code=422, detail="All feature arrays must have the same length.")
+    try:
+        predictions = pv_predictor.predict_pv_batch(
+            datetimes=[pd.Timestamp(dt) for dt in payload.datetimes],
+            irradiance_kWh_m2=payload.irradiance_kWh_m2,
+            temperature_C=payload.temperature_C,
+            surface_m2=payload.surface_m2,
+            historical_pv=payload.historical_pv,
+        )
+        return {"predicted_pv_kWh": predictions}
+    except Exception as exc:
+        LOGGER.error("Batch PV prediction failed: %s", exc)
+        raise HTTPException(status_code=500, detail=f"PV prediction failed: {exc}")
+
+
+@app.post("/detect/anomalies/batch")
+def detect_anomalies_batch_endpoint(payload: AnomalyDetectionBatchRequest) -> Dict[str, object]:
+    """Détecte les anomalies pour tout un horizon en un seul appel"""
+    columns = payload.model_dump()
+    size = len(payload.consumption)
+    if any(len(values) != size for values in columns.values()):
+        raise HTTPException(status_code=422, detail="All feature arrays must have the same length.")
+    try:
+        results = anomaly_detector.detect_anomalies_batch(
+            consumption=payload.consumption,
+            predicted_consumption=payload.predicted_consumption,
+            pv_production=payload.pv_production,
+            expected_pv=payload.expected_pv,
+            soc=payload.soc,
+            temperature=payload.temperature_C,
+            irradiance=payload.irradiance_kWh_m2,
+        )
+        return {"results": results}
+    except Exception as exc:
+        LOGGER.error("Batch anomaly detection failed: %s", exc)
+        raise HTTPException(status_code=500, detail=f"Anomaly detection failed: {exc}")
+
+
 @app.post("/cluster/establishments")
 def cluster_establishments_endpoint(payload: ClusterRequest) -> Dict[str, object]:
     """Clustérise un établissement"""
@@ -18,6 +18,7 @@ class BatteryParams:
     soc_max: float = 0.95
     charge_max_kw: float = 200.0
     discharge_max_kw: float = 200.0
+    round_trip_efficiency: float = 1.0
 
     @classmethod
     def from_dict(cls, data: Optional[Dict[str, float]]) -> "BatteryParams":
@@ -31,6 +32,9 @@ class BatteryParams:
             discharge_max_kw=float(
                 data.get("DISCHARGE_MAX_KW", cls.discharge_max_kw)
             ),
+            round_trip_efficiency=float(
+                data.get("ROUND_TRIP_EFFICIENCY", cls.round_trip_efficiency)
+            ),
         )
 
 
@@ -69,20 +73,24 @@ def optimize_step(
 
     max_charge_kwh = params.charge_max_kw * step_hours
     max_discharge_kwh = params.discharge_max_kw * step_hours
+    # Rendement aller-retour réparti à parts égales entre charge et décharge
+    efficiency = float(np.sqrt(params.round_trip_efficiency))
 
     if surplus_pv > 0:
         available_capacity = max(params.soc_max * params.capacity_kwh - soc_next, 0.0)
-        charge_possible = min(surplus_pv, available_capacity, max_charge_kwh)
+        charge_possible = min(surplus_pv, available_capacity / efficiency, max_charge_kwh)
         battery_charge = max(charge_possible, 0.0)
-        soc_next += battery_charge
+        soc_next += battery_charge * efficiency
         note = "PV surplus used to charge battery."
     else:
         available_discharge = max(
             soc_next - params.soc_min * params.capacity_kwh, 0.0
         )
-        discharge_required = min(remaining_demand, available_discharge, max_discharge_kwh)
+        discharge_required = min(
+            remaining_demand, available_discharge * efficiency, max_discharge_kwh
+        )
         battery_discharge = max(discharge_required, 0.0)
-        soc_next -= battery_discharge
+        soc_next -= battery_discharge / efficiency
         remaining_demand -= battery_discharge
         note = (
             "Battery discharged to support demand."
@@ -100,3 +108,35 @@ def optimize_step(
         "note": note,
     }
 
+
+def optimize_horizon(
+    pred_kwh: list[float],
+    pv_kwh: list[float],
+    soc_kwh: float,
+    step_hours: float = 6.0,
+    battery_params: Optional[Dict[str, float]] = None,
+) -> Dict[str, list]:
+    """
+    Enchaîne optimize_step sur tout un horizon, le SOC de sortie d'un pas
+    servant de SOC d'entrée au pas suivant.
+    """
+    result: Dict[str, list] = {
+        "grid_import_kWh": [],
+        "battery_charge_kWh": [],
+        "battery_discharge_kWh": [],
+        "soc_next": [],
+        "note": [],
+    }
+    soc = soc_kwh
+    for pred, pv in zip(pred_kwh, pv_kwh):
+        step = optimize_step(
+            pred_kwh=pred,
+            pv_kwh=pv,
+            soc_kwh=soc,
+            step_hours=step_hours,
+            battery_params=battery_params,
+        )
+        for key in result:
+            result[key].append(step[key])
+        soc = step["soc_next"]
+    return result
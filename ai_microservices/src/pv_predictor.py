@@ -229,3 +229,51 @@ def predict_pv(
     return max(0.0, prediction)
 
 
+def predict_pv_batch(
+    datetimes: list[pd.Timestamp],
+    irradiance_kWh_m2: list[float],
+    temperature_C: list[float],
+    surface_m2: float,
+    historical_pv: Optional[list[float]] = None,
+) -> list[float]:
+    """
+    Prédit la production PV sur tout un horizon.
+
+    Les lags de chaque pas sont calculés à partir des prédictions précédentes
+    (comme le fait la boucle pas à pas côté backend), en partant de
+    l'historique fourni. Seules les 4 dernières valeurs sont conservées.
+    """
+    ensure_pv_model_loaded()
+    
+    reference_surface = 1000.0
+    history = list(historical_pv[-4:]) if historical_pv else []
+    row = pd.DataFrame([[0.0] * len(PV_FEATURE_LIST)], columns=PV_FEATURE_LIST)
+    
+    predictions = []
+    for dt, irradiance, temperature in zip(datetimes, irradiance_kWh_m2, temperature_C):
+        values = {
+            "hour": dt.hour,
+            "dayofweek": dt.dayofweek,
+            "month": dt.month,
+            "is_weekend": 1 if dt.dayofweek >= 5 else 0,
+            "is_night": 1 if dt.hour < 6 or dt.hour >= 18 else 0,
+            "temperature_C": temperature,
+            "irradiance_kWh_m2": irradiance,
+            "lag_6h": history[-1] if len(history) > 0 else 0.0,
+            "lag_12h": history[-2] if len(history) > 1 else 0.0,
+            "lag_24h": history[-4] if len(history) > 3 else 0.0,
+            "roll_mean_24h": float(np.mean(history[-4:])) if len(history) >= 4 else 0.0,
+            "roll_std_24h": float(np.std(history[-4:])) if len(history) >= 4 else 0.0,
+        }
+        for feature in PV_FEATURE_LIST:
+            row.at[0, feature] = values.get(feature, 0.0)
+        
+        prediction = PV_MODEL.predict(PV_SCALER.transform(row))[0]
+        prediction = max(0.0, prediction * (surface_m2 / reference_surface))
+        predictions.append(float(prediction))
+        
+        history.append(prediction)
+        if len(history) > 4:
+            history.pop(0)
+    
+    return predictions
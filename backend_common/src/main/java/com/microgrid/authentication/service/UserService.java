@@ -5,6 +5,7 @@ import com.microgrid.model.Establishment;
 import com.microgrid.model.User;
 import com.microgrid.repository.EstablishmentRepository;
 import com.microgrid.repository.UserRepository;
+import com.microgrid.service.ComprehensiveResultsCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -22,6 +23,9 @@ public class UserService {
     @Autowired
     private EstablishmentRepository establishmentRepository;
     
+    @Autowired
+    private ComprehensiveResultsCache comprehensiveResultsCache;
+    
     @Transactional(readOnly = true)
     public UserResponse getCurrentUser(String email) {
         User user = userRepository.findByEmail(email)
@@ -101,6 +105,7 @@ public class UserService {
         // Delete all establishments first
         List<Establishment> establishments = establishmentRepository.findByUserId(user.getId());
         establishmentRepository.deleteAll(establishments);
+        establishments.forEach(establishment -> comprehensiveResultsCache.invalidate(establishment.getId()));
         
         // Then delete the user
         userRepository.delete(user);
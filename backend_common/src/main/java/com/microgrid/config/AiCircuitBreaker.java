@@ -0,0 +1,141 @@
+package com.microgrid.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Disjoncteur sur les appels au microservice AI (intercepteur du RestTemplate partagé).
+ *
+ * Après {@code failureThreshold} échecs consécutifs (erreur réseau ou réponse 5xx), le circuit
+ * s'ouvre : les appels échouent immédiatement, sans toucher au réseau, et les services passent
+ * directement à leurs fallbacks (dispatch local, formules). Après {@code openMs}, un seul appel
+ * de test est laissé passer (semi-ouvert) : s'il réussit le circuit se referme, sinon il se rouvre.
+ *
+ * Un appel interrompu par l'appelant (job annulé, flux abandonné) n'est pas un échec du microservice :
+ * il ne compte pas et libère seulement l'appel de test éventuel. Un délai de lecture dépassé
+ * (SocketTimeoutException) reste un échec.
+ */
+@Component
+public class AiCircuitBreaker implements ClientHttpRequestInterceptor {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    @Value("${ai.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold = 5;
+
+    @Value("${ai.circuit-breaker.open-ms:30000}")
+    private long openMs = 30000;
+
+    private Clock clock = Clock.systemUTC();
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+    private long rejectedCalls;
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        if (!acquire()) {
+            throw new IOException("Circuit AI ouvert, appel " + request.getURI().getPath() + " court-circuité");
+        }
+
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            if (response.getStatusCode().is5xxServerError()) {
+                onFailure();
+            } else {
+                onSuccess();
+            }
+            return response;
+        } catch (IOException | RuntimeException e) {
+            if (isInterruption(e)) {
+                onInterrupted();
+            } else {
+                onFailure();
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isInterruption(Exception e) {
+        return Thread.currentThread().isInterrupted()
+            || e instanceof ClosedByInterruptException
+            || (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException));
+    }
+
+    /**
+     * @return true si l'appel peut partir
+     */
+    private synchronized boolean acquire() {
+        if (state == State.OPEN && clock.millis() - openedAt >= openMs) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        rejectedCalls++;
+        return false;
+    }
+
+    private synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            System.out.println("Circuit AI refermé");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    private synchronized void onInterrupted() {
+        probeInFlight = false;
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                System.err.println("Circuit AI ouvert après " + consecutiveFailures
+                    + " échec(s), nouvel essai dans " + openMs + " ms");
+            }
+            state = State.OPEN;
+            openedAt = clock.millis();
+            probeInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * État du disjoncteur pour /api/public/health
+     */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("state", state.name());
+        values.put("consecutiveFailures", consecutiveFailures);
+        values.put("rejectedCalls", rejectedCalls);
+        if (state == State.OPEN) {
+            values.put("retryInMs", Math.max(0, openedAt + openMs - clock.millis()));
+        }
+        return values;
+    }
+}
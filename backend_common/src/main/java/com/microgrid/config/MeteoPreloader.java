@@ -0,0 +1,39 @@
+package com.microgrid.config;
+
+import com.microgrid.service.CsvMeteoReaderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Préchargement des données météo des quatre zones au démarrage.
+ *
+ * Les ApplicationRunner s'exécutent avant que Spring Boot ne passe l'état de readiness à
+ * ACCEPTING_TRAFFIC : l'instance n'est annoncée prête qu'une fois les séries chargées (archives
+ * mappées, ou CSV convertis au premier démarrage), et le premier /simulate d'une zone ne paie
+ * plus le chargement.
+ */
+@Component
+public class MeteoPreloader implements ApplicationRunner {
+
+    @Autowired
+    private CsvMeteoReaderService csvMeteoReaderService;
+
+    @Value("${meteo.preload.enabled:true}")
+    private boolean enabled;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            csvMeteoReaderService.preload();
+        } catch (RuntimeException e) {
+            // Chargement paresseux à la première requête, comme sans préchargement
+            System.err.println("Erreur lors du préchargement météo: " + e.getMessage());
+        }
+    }
+}
@@ -1,29 +1,85 @@
 package com.microgrid.config;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.ClientHttpRequestFactory;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.concurrent.TimeUnit;
+
 /**
- * Configuration pour RestTemplate utilisé pour appeler le microservice AI
+ * Configuration pour RestTemplate utilisé pour appeler le microservice AI.
+ *
+ * Un seul client HTTP partagé par tous les services AI : pool de connexions persistantes
+ * (keep-alive) limité par route, timeouts de connexion et de lecture, disjoncteur (AiCircuitBreaker).
  */
 @Configuration
 public class RestTemplateConfig {
 
+    @Value("${ai.http.pool.max-total:100}")
+    private int maxTotal;
+
+    @Value("${ai.http.pool.max-per-route:50}")
+    private int maxPerRoute;
+
+    @Value("${ai.http.connect-timeout-ms:5000}")
+    private long connectTimeoutMs;
+
+    @Value("${ai.http.read-timeout-ms:30000}")
+    private long readTimeoutMs;
+
+    /**
+     * Attente maximale d'une connexion libre dans le pool
+     */
+    @Value("${ai.http.pool.acquire-timeout-ms:5000}")
+    private long acquireTimeoutMs;
+
+    /**
+     * Durée de vie d'une connexion inactive (inférieure au keep-alive d'uvicorn, 5 s par défaut)
+     */
+    @Value("${ai.http.keep-alive-ms:4000}")
+    private long keepAliveMs;
+
     @Bean
-    public RestTemplate restTemplate() {
-        RestTemplate restTemplate = new RestTemplate();
-        
-        // Configuration du timeout
-        ClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        ((SimpleClientHttpRequestFactory) factory).setConnectTimeout(5000);
-        ((SimpleClientHttpRequestFactory) factory).setReadTimeout(10000);
-        restTemplate.setRequestFactory(factory);
-        
-        return restTemplate;
+    public PoolingHttpClientConnectionManager aiConnectionManager() {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(maxTotal)
+            .setMaxConnPerRoute(maxPerRoute)
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(1))
+                .build())
+            .build();
     }
-}
 
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient aiHttpClient(PoolingHttpClientConnectionManager aiConnectionManager) {
+        return HttpClients.custom()
+            .setConnectionManager(aiConnectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(acquireTimeoutMs))
+                .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .setDefaultKeepAlive(keepAliveMs, TimeUnit.MILLISECONDS)
+                .build())
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.ofMilliseconds(keepAliveMs))
+            .build();
+    }
 
+    @Bean
+    public RestTemplate restTemplate(CloseableHttpClient aiHttpClient, AiCircuitBreaker aiCircuitBreaker) {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(aiHttpClient));
+        restTemplate.getInterceptors().add(aiCircuitBreaker);
+        return restTemplate;
+    }
+}
@@ -1,23 +1,60 @@
 package com.microgrid.controller;
 
+import com.microgrid.config.AiCircuitBreaker;
+import com.microgrid.service.CsvMeteoReaderService;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/public")
 @CrossOrigin(origins = {"http://localhost:4200", "http://localhost:3000"})
 public class HealthController {
-    
+
+    @Autowired
+    private PoolingHttpClientConnectionManager aiConnectionManager;
+
+    @Autowired
+    private AiCircuitBreaker aiCircuitBreaker;
+
+    @Autowired
+    private CsvMeteoReaderService csvMeteoReaderService;
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> health() {
         return ResponseEntity.ok(Map.of(
             "status", "UP",
             "service", "microgrid-backend",
-            "timestamp", System.currentTimeMillis()
+            "timestamp", System.currentTimeMillis(),
+            "aiHttpPool", poolStats(),
+            "aiCircuitBreaker", aiCircuitBreaker.snapshot(),
+            "meteo", csvMeteoReaderService.status()
         ));
     }
-}
 
+    /**
+     * État du pool de connexions vers le microservice AI (total et par route)
+     */
+    private Map<String, Object> poolStats() {
+        Map<String, Object> pool = toMap(aiConnectionManager.getTotalStats());
+        Map<String, Object> routes = new LinkedHashMap<>();
+        aiConnectionManager.getRoutes().forEach(route ->
+            routes.put(route.getTargetHost().toURI(), toMap(aiConnectionManager.getStats(route))));
+        pool.put("routes", routes);
+        return pool;
+    }
 
+    private static Map<String, Object> toMap(PoolStats stats) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("leased", stats.getLeased());
+        values.put("pending", stats.getPending());
+        values.put("available", stats.getAvailable());
+        values.put("max", stats.getMax());
+        return values;
+    }
+}
@@ -1,6 +1,7 @@
 package com.microgrid.establishment.controller;
 
 import com.microgrid.service.AutoTrainingService;
+import com.microgrid.service.PredictionCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -19,6 +20,9 @@ public class AiTrainingController {
     @Autowired
     private AutoTrainingService autoTrainingService;
 
+    @Autowired
+    private PredictionCache predictionCache;
+
     /**
      * Déclenche manuellement l'entraînement du modèle ML
      * POST /api/ai/retrain
@@ -56,6 +60,13 @@ public class AiTrainingController {
                 : "Never"
         ));
     }
-}
-
 
+    /**
+     * Statistiques du cache de prédictions (hits, misses, évictions)
+     * GET /api/ai/cache
+     */
+    @GetMapping("/cache")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(predictionCache.stats());
+    }
+}
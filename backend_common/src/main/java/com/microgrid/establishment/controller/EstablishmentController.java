@@ -1,18 +1,27 @@
 package com.microgrid.establishment.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microgrid.establishment.dto.*;
 import com.microgrid.establishment.service.EstablishmentService;
+import com.microgrid.exception.CapacityExceededException;
+import com.microgrid.exception.ValidationException;
 import com.microgrid.service.*;
 import com.microgrid.model.Establishment;
 import java.util.Map;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import java.util.HashMap;
 
@@ -21,17 +30,37 @@ import java.util.HashMap;
 @CrossOrigin(origins = {"http://localhost:4200", "http://localhost:3000"})
 public class EstablishmentController {
     
+    /**
+     * Durée maximale d'un flux SSE de simulation multi-scénarios
+     */
+    private static final long SWEEP_TIMEOUT_MS = 10 * 60 * 1000L;
+    
+    /**
+     * Durée maximale d'un flux SSE d'avancement de job (les jobs servent aux simulations longues)
+     */
+    @Value("${simulation.jobs.events-timeout-ms:3600000}")
+    private long jobEventsTimeoutMs = 3600000L;
+    
     @Autowired
     private EstablishmentService establishmentService;
     
     @Autowired
     private SimulationService simulationService;
     
+    @Autowired
+    private SimulationSweepService simulationSweepService;
+    
+    @Autowired
+    private SimulationJobService simulationJobService;
+    
     @Autowired
     private SizingService sizingService;
     
     @Autowired
-    private PvCalculationService pvCalculationService;
+    private SizingOptimizerService sizingOptimizerService;
+    
+    @Autowired
+    private ParetoFrontService paretoFrontService;
     
     @Autowired
     private ConsumptionEstimationService consumptionEstimationService;
@@ -46,13 +75,13 @@ public class EstablishmentController {
     private LongTermPredictionService longTermPredictionService;
     
     @Autowired
-    private AnomalyDetectionService anomalyDetectionService;
-    
+    private ComprehensiveResultsService comprehensiveResultsService;
+
     @Autowired
-    private MeteoDataService meteoDataService;
+    private ComprehensiveResultsCache comprehensiveResultsCache;
     
     @Autowired
-    private ComprehensiveResultsService comprehensiveResultsService;
+    private ObjectMapper objectMapper;
 
     /**
      * Helper: if Authentication is missing (permitAll), fetch by ID directly.
@@ -190,90 +219,303 @@ public class EstablishmentController {
                 establishment,
                 request.getStartDate(),
                 request.getDays(),
+                request.getTimeStep(),
                 batteryCapacity,
                 initialSoc
             );
             
-            // Convertir en DTO avec détection d'anomalies
+            // Les anomalies sont déjà détectées par l'étape dédiée de la simulation
             SimulationResponse response = new SimulationResponse();
-            List<SimulationResponse.SimulationStep> stepList = new java.util.ArrayList<>();
-            
-            for (SimulationService.SimulationStep step : result.steps) {
-                // Détecter anomalie pour ce pas
-                boolean hasAnomaly = false;
-                String anomalyType = null;
-                Double anomalyScore = null;
-                String anomalyRecommendation = null;
-                
+            response.setSteps(result);
+            response.setSummary(simulationSummary(establishment, result.totalConsumption, result.totalPvProduction,
+                result.totalGridImport, result.averageAutonomy, result.totalSavings));
+            
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * Simulation diffusée au fil du calcul, pour les longues périodes : un pas par ligne NDJSON
+     * (Accept: application/x-ndjson) ou par Server-Sent Event "step" (Accept: text/event-stream),
+     * puis le résumé ("summary"). Le premier pas part dès la première journée simulée et la mémoire
+     * ne dépend plus de la durée simulée (tranches de simulation.stream.max-chunk-days jours au plus).
+     * POST /api/establishments/{id}/simulate/stream
+     */
+    @PostMapping(value = "/{id}/simulate/stream",
+            produces = {SimulationStreamWriter.NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public ResponseEntity<StreamingResponseBody> simulateEstablishmentStream(
+            @PathVariable Long id,
+            @Valid @RequestBody SimulationRequest request,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            Authentication authentication) {
+        try {
+            if (authentication == null || authentication.getName() == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+            String email = authentication.getName();
+            Establishment establishment = establishmentService.getEstablishmentEntity(id, email);
+            
+            double batteryCapacity = request.getBatteryCapacityKwh() != null 
+                ? request.getBatteryCapacityKwh() 
+                : 500.0;
+            double initialSoc = request.getInitialSocKwh() != null 
+                ? request.getInitialSocKwh() 
+                : batteryCapacity * 0.5; // 50% par défaut
+            boolean serverSentEvents = accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+            
+            StreamingResponseBody body = output -> {
+                SimulationStreamWriter writer = new SimulationStreamWriter(objectMapper, output, serverSentEvents);
+                SimulationService.SimulationTotals totals;
                 try {
-                    double expectedPv = pvCalculationService.calculatePvProductionFromIrradiance(
-                        establishment.getInstallableSurfaceM2() != null ? establishment.getInstallableSurfaceM2() : 0.0,
-                        meteoDataService.getAverageIrradiance(convertIrradiationClass(establishment.getIrradiationClass())) / 4.0
-                    );
-                    
-                    AnomalyDetectionService.AnomalyResult anomalyResult = anomalyDetectionService.detectAnomaly(
-                        step.predictedConsumption,
-                        step.predictedConsumption,
-                        step.pvProduction,
-                        expectedPv,
-                        step.socBattery,
-                        20.0, // Température moyenne
-                        meteoDataService.getAverageIrradiance(convertIrradiationClass(establishment.getIrradiationClass())) / 4.0
+                    totals = simulationService.simulateInChunks(
+                        establishment,
+                        request.getStartDate(),
+                        request.getDays(),
+                        request.getTimeStep(),
+                        batteryCapacity,
+                        initialSoc,
+                        chunk -> {
+                            try {
+                                writer.writeChunk(chunk);
+                            } catch (java.io.IOException e) {
+                                // Client déconnecté : arrêter la simulation
+                                throw new java.io.UncheckedIOException(e);
+                            }
+                        }
                     );
-                    
-                    if (anomalyResult.isAnomaly) {
-                        hasAnomaly = true;
-                        anomalyType = anomalyResult.anomalyType;
-                        anomalyScore = anomalyResult.anomalyScore;
-                        anomalyRecommendation = anomalyResult.recommendation;
-                    }
-                } catch (Exception e) {
-                    // Ignorer erreurs
+                } catch (java.io.UncheckedIOException e) {
+                    throw e.getCause();
+                } catch (RuntimeException e) {
+                    writer.writeError(e.getMessage());
+                    return;
                 }
-                
-                SimulationResponse.SimulationStep stepDto = new SimulationResponse.SimulationStep(
-                    step.datetime,
-                    step.predictedConsumption,
-                    step.pvProduction,
-                    step.socBattery,
-                    step.gridImport,
-                    step.batteryCharge,
-                    step.batteryDischarge,
-                    step.note,
-                    hasAnomaly,
-                    anomalyType,
-                    anomalyScore,
-                    anomalyRecommendation
-                );
-                stepList.add(stepDto);
+                writer.writeSummary(simulationSummary(establishment, totals.totalConsumption, totals.totalPvProduction,
+                    totals.totalGridImport, totals.averageAutonomy, totals.totalSavings));
+            };
+            
+            return ResponseEntity.ok()
+                .contentType(serverSentEvents
+                    ? MediaType.TEXT_EVENT_STREAM
+                    : MediaType.parseMediaType(SimulationStreamWriter.NDJSON_VALUE))
+                .body(body);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * Simulation d'ensemble Monte-Carlo : bandes P10/P50/P90 (SOC minimal et import réseau par jour,
+     * import total, autonomie) sur des traces météo tirées des données de la zone
+     * POST /api/establishments/{id}/simulate/ensemble
+     */
+    @PostMapping("/{id}/simulate/ensemble")
+    public ResponseEntity<SimulationService.EnsembleResult> simulateEnsemble(
+            @PathVariable Long id,
+            @Valid @RequestBody SimulationEnsembleRequest request,
+            Authentication authentication) {
+        try {
+            if (authentication == null || authentication.getName() == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
             }
+            Establishment establishment = establishmentService.getEstablishmentEntity(id, authentication.getName());
+            
+            double batteryCapacity = request.getBatteryCapacityKwh() != null 
+                ? request.getBatteryCapacityKwh() 
+                : 500.0;
+            double initialSoc = request.getInitialSocKwh() != null 
+                ? request.getInitialSocKwh() 
+                : batteryCapacity * 0.5; // 50% par défaut
             
-            response.setSteps(stepList);
+            return ResponseEntity.ok(simulationService.simulateEnsemble(
+                establishment,
+                request.getStartDate(),
+                request.getDays(),
+                request.getTimeStep(),
+                request.getMembers(),
+                request.getSeed(),
+                batteryCapacity,
+                initialSoc
+            ));
+        } catch (ValidationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * Aperçu annuel rapide par jours types : totaux de l'année reconstitués à partir de quelques jours
+     * représentatifs, avec l'écart estimé par rapport à la simulation complète
+     * GET /api/establishments/{id}/simulate/preview
+     */
+    @GetMapping("/{id}/simulate/preview")
+    public ResponseEntity<SimulationService.PreviewResult> simulatePreview(
+            @PathVariable Long id,
+            @RequestParam(required = false) Integer typicalDays,
+            @RequestParam(required = false) Double batteryCapacityKwh,
+            Authentication authentication) {
+        try {
+            Establishment establishment = getEstablishmentOptionalAuth(id, authentication);
             
-            // Calculer recommandations pour le summary
-            double monthlyConsumption = establishment.getMonthlyConsumptionKwh() != null
-                ? establishment.getMonthlyConsumptionKwh()
-                : consumptionEstimationService.estimateMonthlyConsumption(
-                    establishment.getType(), establishment.getNumberOfBeds());
+            double batteryCapacity = batteryCapacityKwh != null
+                ? batteryCapacityKwh
+                : sizingService.calculateRecommendedBatteryCapacityFromMonthly(
+                    establishment.getMonthlyConsumptionKwh() != null
+                        ? establishment.getMonthlyConsumptionKwh()
+                        : consumptionEstimationService.estimateMonthlyConsumption(
+                            establishment.getType(), establishment.getNumberOfBeds()));
             
-            com.microgrid.model.MoroccanCity.IrradiationClass irradiationClass = 
-                convertIrradiationClass(establishment.getIrradiationClass());
+            SimulationService.PreviewResult preview = typicalDays != null
+                ? simulationService.simulatePreview(establishment, typicalDays, batteryCapacity)
+                : simulationService.simulatePreview(establishment, batteryCapacity);
+            return ResponseEntity.ok(preview);
+        } catch (ValidationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * Lance une simulation en arrière-plan et retourne immédiatement l'identifiant du job (202).
+     * Suivi : GET .../jobs/{jobId} (polling) ou .../jobs/{jobId}/events (Server-Sent Events),
+     * résultat : GET .../jobs/{jobId}/result, annulation : DELETE .../jobs/{jobId}.
+     * POST /api/establishments/{id}/simulate/jobs
+     */
+    @PostMapping("/{id}/simulate/jobs")
+    public ResponseEntity<SimulationJobService.JobStatus> submitSimulationJob(
+            @PathVariable Long id,
+            @Valid @RequestBody SimulationRequest request,
+            Authentication authentication) {
+        try {
+            if (authentication == null || authentication.getName() == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+            String email = authentication.getName();
+            Establishment establishment = establishmentService.getEstablishmentEntity(id, email);
             
-            double recommendedPv = sizingService.calculateRecommendedPvPower(
-                monthlyConsumption, irradiationClass);
-            double recommendedBattery = sizingService.calculateRecommendedBatteryCapacityFromMonthly(
-                monthlyConsumption);
+            double batteryCapacity = request.getBatteryCapacityKwh() != null 
+                ? request.getBatteryCapacityKwh() 
+                : 500.0;
+            double initialSoc = request.getInitialSocKwh() != null 
+                ? request.getInitialSocKwh() 
+                : batteryCapacity * 0.5; // 50% par défaut
             
-            response.setSummary(new SimulationResponse.SimulationSummary(
-                result.totalConsumption,
-                result.totalPvProduction,
-                result.totalGridImport,
-                result.averageAutonomy,
-                result.totalSavings,
-                recommendedPv,
-                recommendedBattery
-            ));
+            SimulationJobService.JobStatus job = simulationJobService.submit(
+                establishment,
+                email,
+                request.getStartDate(),
+                request.getDays(),
+                request.getTimeStep(),
+                batteryCapacity,
+                initialSoc
+            );
+            return ResponseEntity.accepted()
+                .location(java.net.URI.create("/api/establishments/" + id + "/simulate/jobs/" + job.jobId))
+                .body(job);
+        } catch (CapacityExceededException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * État d'un job de simulation (avancement, ETA)
+     * GET /api/establishments/{id}/simulate/jobs/{jobId}
+     */
+    @GetMapping("/{id}/simulate/jobs/{jobId}")
+    public ResponseEntity<SimulationJobService.JobStatus> getSimulationJob(
+            @PathVariable Long id,
+            @PathVariable String jobId,
+            Authentication authentication) {
+        try {
+            if (authentication == null || authentication.getName() == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+            return ResponseEntity.ok(simulationJobService.getStatus(jobId, id, authentication.getName()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * Avancement d'un job en Server-Sent Events : "progress" à chaque tranche simulée,
+     * puis "completed", "failed" ou "cancelled"
+     * GET /api/establishments/{id}/simulate/jobs/{jobId}/events
+     */
+    @GetMapping(value = "/{id}/simulate/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> getSimulationJobEvents(
+            @PathVariable Long id,
+            @PathVariable String jobId,
+            Authentication authentication) {
+        try {
+            if (authentication == null || authentication.getName() == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+            SseEmitter emitter = new SseEmitter(jobEventsTimeoutMs);
+            Runnable unsubscribe = simulationJobService.subscribe(jobId, id, authentication.getName(), job -> {
+                try {
+                    if (job.status.isFinished()) {
+                        emitter.send(SseEmitter.event().name(job.status.name().toLowerCase()).data(job));
+                        emitter.complete();
+                    } else {
+                        emitter.send(SseEmitter.event().name("progress").data(job));
+                    }
+                } catch (java.io.IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+            });
+            // Client déconnecté : le job continue, seul l'abonnement est retiré
+            emitter.onTimeout(unsubscribe);
+            emitter.onError(e -> unsubscribe.run());
+            
+            return ResponseEntity.ok(emitter);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * Résultat d'un job terminé (même format que /simulate) ; 409 tant qu'il n'est pas disponible
+     * GET /api/establishments/{id}/simulate/jobs/{jobId}/result
+     */
+    @GetMapping("/{id}/simulate/jobs/{jobId}/result")
+    public ResponseEntity<SimulationResponse> getSimulationJobResult(
+            @PathVariable Long id,
+            @PathVariable String jobId,
+            Authentication authentication) {
+        try {
+            if (authentication == null || authentication.getName() == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+            String email = authentication.getName();
+            SimulationService.SimulationResult result = simulationJobService.getResult(jobId, id, email);
+            if (result == null) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            Establishment establishment = establishmentService.getEstablishmentEntity(id, email);
             
+            SimulationResponse response = new SimulationResponse();
+            response.setSteps(result);
+            response.setSummary(simulationSummary(establishment, result.totalConsumption, result.totalPvProduction,
+                result.totalGridImport, result.averageAutonomy, result.totalSavings));
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
@@ -282,6 +524,122 @@ public class EstablishmentController {
         }
     }
     
+    /**
+     * Annule un job en attente ou en cours (les appels AI en cours sont interrompus)
+     * DELETE /api/establishments/{id}/simulate/jobs/{jobId}
+     */
+    @DeleteMapping("/{id}/simulate/jobs/{jobId}")
+    public ResponseEntity<SimulationJobService.JobStatus> cancelSimulationJob(
+            @PathVariable Long id,
+            @PathVariable String jobId,
+            Authentication authentication) {
+        try {
+            if (authentication == null || authentication.getName() == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+            return ResponseEntity.ok(simulationJobService.cancel(jobId, id, authentication.getName()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * Résumé d'une simulation : totaux et recommandations de dimensionnement
+     */
+    private SimulationResponse.SimulationSummary simulationSummary(
+            Establishment establishment,
+            double totalConsumption,
+            double totalPvProduction,
+            double totalGridImport,
+            double averageAutonomy,
+            double totalSavings) {
+        double monthlyConsumption = establishment.getMonthlyConsumptionKwh() != null
+            ? establishment.getMonthlyConsumptionKwh()
+            : consumptionEstimationService.estimateMonthlyConsumption(
+                establishment.getType(), establishment.getNumberOfBeds());
+        
+        com.microgrid.model.MoroccanCity.IrradiationClass irradiationClass = 
+            convertIrradiationClass(establishment.getIrradiationClass());
+        
+        double recommendedPv = sizingService.calculateRecommendedPvPower(
+            monthlyConsumption, irradiationClass);
+        double recommendedBattery = sizingService.calculateRecommendedBatteryCapacityFromMonthly(
+            monthlyConsumption);
+        
+        return new SimulationResponse.SimulationSummary(
+            totalConsumption,
+            totalPvProduction,
+            totalGridImport,
+            averageAutonomy,
+            totalSavings,
+            recommendedPv,
+            recommendedBattery
+        );
+    }
+    
+    /**
+     * Simule en parallèle une grille de scénarios batterie (capacités x SOC initiaux).
+     * Chaque scénario terminé est envoyé en Server-Sent Event "scenario", puis un événement "complete".
+     * POST /api/establishments/{id}/simulate/sweep
+     */
+    @PostMapping(value = "/{id}/simulate/sweep", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> simulateSweep(
+            @PathVariable Long id,
+            @Valid @RequestBody SimulationSweepRequest request,
+            Authentication authentication) {
+        try {
+            if (authentication == null || authentication.getName() == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+            String email = authentication.getName();
+            Establishment establishment = establishmentService.getEstablishmentEntity(id, email);
+            
+            SseEmitter emitter = new SseEmitter(SWEEP_TIMEOUT_MS);
+            CompletableFuture<Void> sweep = simulationSweepService.sweep(
+                establishment,
+                request.getStartDate(),
+                request.getDays(),
+                request.getBatteryCapacitiesKwh(),
+                request.getInitialSocFractions(),
+                scenario -> {
+                    try {
+                        emitter.send(SseEmitter.event().name("scenario").data(scenario));
+                    } catch (java.io.IOException e) {
+                        throw new java.io.UncheckedIOException(e);
+                    }
+                }
+            );
+            int scenarioCount = request.getBatteryCapacitiesKwh().size() * request.getInitialSocFractions().size();
+            sweep.whenComplete((ignored, error) -> {
+                if (error != null) {
+                    emitter.completeWithError(error);
+                    return;
+                }
+                try {
+                    emitter.send(SseEmitter.event().name("complete").data(Map.of("scenarios", scenarioCount)));
+                    emitter.complete();
+                } catch (java.io.IOException e) {
+                    emitter.completeWithError(e);
+                }
+            });
+            // Client déconnecté ou délai dépassé : ne plus lancer de scénarios
+            emitter.onTimeout(() -> sweep.cancel(false));
+            emitter.onError(e -> sweep.cancel(false));
+            
+            return ResponseEntity.ok(emitter);
+        } catch (CapacityExceededException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        } catch (ValidationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
     /**
      * Calcule les recommandations de dimensionnement pour un établissement avec IA
      * GET /api/establishments/{id}/recommendations
@@ -466,30 +824,32 @@ public class EstablishmentController {
             double totalAnomalyScore = 0.0;
             java.util.Map<String, Integer> anomalyTypeCount = new java.util.HashMap<>();
 
-            for (SimulationService.SimulationStep step : simulationResult.steps) {
-                boolean isAnomaly = step.hasAnomaly != null && step.hasAnomaly;
+            for (int step = 0; step < simulationResult.size; step++) {
+                boolean isAnomaly = simulationResult.hasAnomaly(step);
+                double anomalyScore = simulationResult.anomalyScore[step];
+                String anomalyType = simulationResult.anomalyType(step);
                 AnomalyGraphResponse.AnomalyDataPoint dataPoint = new AnomalyGraphResponse.AnomalyDataPoint(
-                    step.datetime,
+                    simulationResult.datetime(step),
                     isAnomaly,
-                    step.anomalyType,
-                    step.anomalyScore != null ? step.anomalyScore : 0.0,
-                    step.anomalyRecommendation,
-                    step.predictedConsumption,
-                    step.predictedConsumption,
-                    step.pvProduction,
-                    step.pvProduction,
-                    step.socBattery
+                    anomalyType,
+                    Double.isNaN(anomalyScore) ? 0.0 : anomalyScore,
+                    simulationResult.anomalyRecommendation(step),
+                    simulationResult.predictedConsumption[step],
+                    simulationResult.predictedConsumption[step],
+                    simulationResult.pvProduction[step],
+                    simulationResult.pvProduction[step],
+                    simulationResult.socBattery[step]
                 );
                 anomalyDataList.add(dataPoint);
 
                 if (isAnomaly) {
                     totalAnomalies++;
-                    if (step.anomalyScore != null) {
-                        totalAnomalyScore += Math.abs(step.anomalyScore);
+                    if (!Double.isNaN(anomalyScore)) {
+                        totalAnomalyScore += Math.abs(anomalyScore);
                     }
-                    if (step.anomalyType != null) {
-                        anomalyTypeCount.put(step.anomalyType, anomalyTypeCount.getOrDefault(step.anomalyType, 0) + 1);
-                        switch (step.anomalyType) {
+                    if (anomalyType != null) {
+                        anomalyTypeCount.put(anomalyType, anomalyTypeCount.getOrDefault(anomalyType, 0) + 1);
+                        switch (anomalyType) {
                             case "high_consumption" -> highConsumptionAnomalies++;
                             case "low_consumption" -> lowConsumptionAnomalies++;
                             case "pv_malfunction" -> pvMalfunctionAnomalies++;
@@ -547,6 +907,74 @@ public class EstablishmentController {
         }
     }
 
+    /**
+     * Optimise le dimensionnement PV x batterie x onduleur par simulation de la série temporelle,
+     * sous contraintes de budget et de surface installable de l'établissement
+     * POST /api/establishments/{id}/recommendations/sizing
+     */
+    @PostMapping("/{id}/recommendations/sizing")
+    public ResponseEntity<SizingOptimizerService.OptimizationResult> optimizeSizing(
+            @PathVariable Long id,
+            @Valid @RequestBody SizingOptimizationRequest request,
+            Authentication authentication) {
+        try {
+            if (authentication == null || authentication.getName() == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+            Establishment establishment = establishmentService.getEstablishmentEntity(id, authentication.getName());
+            
+            return ResponseEntity.ok(sizingOptimizerService.optimize(
+                establishment,
+                request.getStartDate(),
+                request.getDays(),
+                request.getObjective(),
+                request.getPvPowersKwc(),
+                request.getBatteryCapacitiesKwh(),
+                request.getInverterRatios(),
+                request.getTop()
+            ));
+        } catch (ValidationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Front de Pareto des dimensionnements non dominés (coût, autonomie, résilience, CO2 évité),
+     * mis en cache par révision de l'établissement
+     * POST /api/establishments/{id}/recommendations/pareto
+     */
+    @PostMapping("/{id}/recommendations/pareto")
+    public ResponseEntity<ParetoFrontService.ParetoFront> getParetoFront(
+            @PathVariable Long id,
+            @Valid @RequestBody ParetoFrontRequest request,
+            Authentication authentication) {
+        try {
+            if (authentication == null || authentication.getName() == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+            Establishment establishment = establishmentService.getEstablishmentEntity(id, authentication.getName());
+            
+            return ResponseEntity.ok(paretoFrontService.paretoFront(
+                establishment,
+                request.getStartDate(),
+                request.getDays(),
+                request.getPvPowersKwc(),
+                request.getBatteryCapacitiesKwh(),
+                request.getInverterRatios()
+            ));
+        } catch (ValidationException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     /**
      * Récupère les recommandations ML pour un établissement.
      * GET /api/establishments/{id}/recommendations/ml
@@ -683,7 +1111,10 @@ public class EstablishmentController {
             System.out.println("   - With Auth Check: " + withAuth);
             
             // Calculer tous les résultats BASÉS SUR LES DONNÉES EXACTES DE CET ÉTABLISSEMENT
-            Map<String, Object> results = comprehensiveResultsService.calculateAllResults(establishment);
+            // (mémorisés par révision de l'établissement et version du modèle ML)
+            Establishment target = establishment;
+            Map<String, Object> results = comprehensiveResultsCache.get(
+                target, () -> comprehensiveResultsService.calculateAllResults(target));
             
             // Ajouter l'ID de l'établissement dans la réponse pour confirmation
             results.put("establishmentId", establishment.getId());
@@ -0,0 +1,30 @@
+package com.microgrid.establishment.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Front de Pareto coût / autonomie / résilience / CO2 sur une grille PV x batterie x onduleur
+ * (grilles vides = grilles automatiques)
+ */
+@Data
+public class ParetoFrontRequest {
+    
+    @NotNull(message = "La date de début est requise")
+    private LocalDateTime startDate;
+    
+    @Min(value = 1, message = "Le nombre de jours doit être au moins 1")
+    private int days = 365; // Par défaut un an
+    
+    private List<@NotNull @DecimalMin(value = "0.0", message = "La puissance PV doit être positive") Double> pvPowersKwc;
+    
+    private List<@NotNull @DecimalMin(value = "0.0", message = "La capacité batterie doit être positive") Double> batteryCapacitiesKwh;
+    
+    // Puissance onduleur / puissance PV
+    private List<@NotNull @DecimalMin(value = "0.1", message = "Le ratio onduleur doit être au moins 0.1") Double> inverterRatios;
+}
@@ -0,0 +1,36 @@
+package com.microgrid.establishment.dto;
+
+import com.microgrid.service.SimulationTimeGrid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Simulation d'ensemble Monte-Carlo : traces météo tirées des données de la zone
+ */
+@Data
+public class SimulationEnsembleRequest {
+    
+    @NotNull(message = "La date de début est requise")
+    private LocalDateTime startDate;
+    
+    @Min(value = 1, message = "Le nombre de jours doit être au moins 1")
+    private int days = 365; // Par défaut un an
+    
+    @Min(value = 0, message = "La capacité batterie doit être positive")
+    private Double batteryCapacityKwh = 500.0;
+    
+    @Min(value = 0, message = "Le SOC initial doit être positif")
+    private Double initialSocKwh; // Par défaut 50% de la capacité
+    
+    // Pas de simulation : MIN_15, HOUR_1, HOUR_6 (défaut) ou DAY_1
+    private SimulationTimeGrid.Resolution timeStep = SimulationTimeGrid.Resolution.HOUR_6;
+    
+    @Min(value = 1, message = "Au moins un membre est requis")
+    private int members = 200;
+    
+    // Graine du tirage (mêmes bandes pour une même graine)
+    private long seed = 42L;
+}
@@ -1,5 +1,6 @@
 package com.microgrid.establishment.dto;
 
+import com.microgrid.service.SimulationTimeGrid;
 import lombok.Data;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
@@ -19,6 +20,9 @@ public class SimulationRequest {
     
     @Min(value = 0, message = "Le SOC initial doit être positif")
     private Double initialSocKwh = 250.0; // Par défaut 50% de 500 kWh
+    
+    // Pas de simulation : MIN_15, HOUR_1, HOUR_6 (défaut), DAY_1 ou ADAPTIVE
+    private SimulationTimeGrid.Resolution timeStep = SimulationTimeGrid.Resolution.HOUR_6;
 }
 
 
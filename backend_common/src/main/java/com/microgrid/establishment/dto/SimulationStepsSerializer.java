@@ -0,0 +1,64 @@
+package com.microgrid.establishment.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.microgrid.service.SimulationService;
+
+import java.io.IOException;
+
+/**
+ * Sérialise un SimulationResult colonnaire en tableau JSON de pas, sans objet intermédiaire.
+ *
+ * Format de l'ancien DTO SimulationResponse.SimulationStep, plus la durée du pas (variable en mode adaptatif) :
+ * {datetime, stepHours, predictedConsumption, pvProduction, socBattery, gridImport, batteryCharge,
+ *  batteryDischarge, note, hasAnomaly, anomalyType, anomalyScore, anomalyRecommendation}
+ */
+public class SimulationStepsSerializer extends StdSerializer<SimulationService.SimulationResult> {
+
+    public SimulationStepsSerializer() {
+        super(SimulationService.SimulationResult.class);
+    }
+
+    @Override
+    public void serialize(SimulationService.SimulationResult result, JsonGenerator gen,
+                          SerializerProvider provider) throws IOException {
+        gen.writeStartArray();
+        for (int step = 0; step < result.size; step++) {
+            writeStep(result, step, gen, provider);
+        }
+        gen.writeEndArray();
+    }
+
+    /**
+     * Écrit un pas en objet JSON (aussi utilisé par la simulation diffusée, sans SerializerProvider :
+     * la date passe alors par le codec du générateur)
+     */
+    public static void writeStep(SimulationService.SimulationResult result, int step, JsonGenerator gen,
+                                 SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        if (provider != null) {
+            provider.defaultSerializeField("datetime", result.datetime(step), gen);
+        } else {
+            gen.writeObjectField("datetime", result.datetime(step));
+        }
+        gen.writeNumberField("stepHours", result.stepHours[step]);
+        gen.writeNumberField("predictedConsumption", result.predictedConsumption[step]);
+        gen.writeNumberField("pvProduction", result.pvProduction[step]);
+        gen.writeNumberField("socBattery", result.socBattery[step]);
+        gen.writeNumberField("gridImport", result.gridImport[step]);
+        gen.writeNumberField("batteryCharge", result.batteryCharge[step]);
+        gen.writeNumberField("batteryDischarge", result.batteryDischarge[step]);
+        gen.writeStringField("note", result.note(step));
+        gen.writeBooleanField("hasAnomaly", result.hasAnomaly(step));
+        gen.writeStringField("anomalyType", result.anomalyType(step));
+        double anomalyScore = result.anomalyScore[step];
+        if (Double.isNaN(anomalyScore)) {
+            gen.writeNullField("anomalyScore");
+        } else {
+            gen.writeNumberField("anomalyScore", anomalyScore);
+        }
+        gen.writeStringField("anomalyRecommendation", result.anomalyRecommendation(step));
+        gen.writeEndObject();
+    }
+}
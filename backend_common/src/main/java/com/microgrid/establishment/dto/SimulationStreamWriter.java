@@ -0,0 +1,79 @@
+package com.microgrid.establishment.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microgrid.service.SimulationService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Écrit une simulation diffusée au fil des tranches calculées :
+ * <ul>
+ *   <li>NDJSON : un objet pas par ligne (même format que SimulationStepsSerializer), puis
+ *       {@code {"summary": ...}} ou {@code {"error": ...}}</li>
+ *   <li>Server-Sent Events : événements "step", puis "summary" ou "error"</li>
+ * </ul>
+ * Chaque tranche est envoyée (flush) dès qu'elle est écrite ; rien n'est conservé entre tranches.
+ */
+public class SimulationStreamWriter {
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private final JsonGenerator gen;
+    private final boolean serverSentEvents;
+
+    public SimulationStreamWriter(ObjectMapper objectMapper, OutputStream output, boolean serverSentEvents)
+            throws IOException {
+        this.gen = objectMapper.getFactory().createGenerator(output);
+        this.gen.setRootValueSeparator(null);
+        this.serverSentEvents = serverSentEvents;
+    }
+
+    /**
+     * Écrit tous les pas d'une tranche puis les envoie au client
+     */
+    public void writeChunk(SimulationService.SimulationResult chunk) throws IOException {
+        for (int step = 0; step < chunk.size; step++) {
+            startEvent("step");
+            SimulationStepsSerializer.writeStep(chunk, step, gen, null);
+            endEvent();
+        }
+        gen.flush();
+    }
+
+    public void writeSummary(SimulationResponse.SimulationSummary summary) throws IOException {
+        writeLast("summary", summary);
+    }
+
+    /**
+     * Erreur après le début de la réponse (statut HTTP déjà envoyé)
+     */
+    public void writeError(String message) throws IOException {
+        writeLast("error", Map.of("message", message != null ? message : "Simulation interrompue"));
+    }
+
+    private void writeLast(String name, Object value) throws IOException {
+        startEvent(name);
+        if (serverSentEvents) {
+            gen.writeObject(value);
+        } else {
+            gen.writeStartObject();
+            gen.writeObjectField(name, value);
+            gen.writeEndObject();
+        }
+        endEvent();
+        gen.close();
+    }
+
+    private void startEvent(String name) throws IOException {
+        if (serverSentEvents) {
+            gen.writeRaw("event: " + name + "\ndata: ");
+        }
+    }
+
+    private void endEvent() throws IOException {
+        gen.writeRaw(serverSentEvents ? "\n\n" : "\n");
+    }
+}
@@ -0,0 +1,31 @@
+package com.microgrid.establishment.dto;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Grille de scénarios batterie (capacités x SOC initiaux) à simuler pour un établissement
+ */
+@Data
+public class SimulationSweepRequest {
+    
+    @NotNull(message = "La date de début est requise")
+    private LocalDateTime startDate;
+    
+    @Min(value = 1, message = "Le nombre de jours doit être au moins 1")
+    private int days = 7; // Par défaut 7 jours
+    
+    @NotEmpty(message = "Au moins une capacité batterie est requise")
+    private List<@NotNull @DecimalMin(value = "0.0", message = "La capacité batterie doit être positive") Double> batteryCapacitiesKwh;
+    
+    // SOC initial en fraction de la capacité (0 à 1)
+    @NotEmpty(message = "Au moins un SOC initial est requis")
+    private List<@NotNull @DecimalMin("0.0") @DecimalMax("1.0") Double> initialSocFractions = List.of(0.5);
+}
@@ -0,0 +1,37 @@
+package com.microgrid.establishment.dto;
+
+import com.microgrid.service.SizingOptimizerService;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Optimisation du dimensionnement PV x batterie x onduleur (grilles vides = grilles automatiques)
+ */
+@Data
+public class SizingOptimizationRequest {
+    
+    @NotNull(message = "La date de début est requise")
+    private LocalDateTime startDate;
+    
+    @Min(value = 1, message = "Le nombre de jours doit être au moins 1")
+    private int days = 365; // Par défaut un an
+    
+    // NPV (défaut, maximisée) ou LCOE (minimisé)
+    @NotNull
+    private SizingOptimizerService.Objective objective = SizingOptimizerService.Objective.NPV;
+    
+    private List<@NotNull @DecimalMin(value = "0.0", message = "La puissance PV doit être positive") Double> pvPowersKwc;
+    
+    private List<@NotNull @DecimalMin(value = "0.0", message = "La capacité batterie doit être positive") Double> batteryCapacitiesKwh;
+    
+    // Puissance onduleur / puissance PV
+    private List<@NotNull @DecimalMin(value = "0.1", message = "Le ratio onduleur doit être au moins 0.1") Double> inverterRatios;
+    
+    @Min(value = 1, message = "Au moins un candidat doit être retourné")
+    private int top = 10;
+}
@@ -7,6 +7,7 @@ import com.microgrid.model.Establishment;
 import com.microgrid.model.User;
 import com.microgrid.repository.EstablishmentRepository;
 import com.microgrid.repository.UserRepository;
+import com.microgrid.service.ComprehensiveResultsCache;
 import com.microgrid.service.LocationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -28,6 +29,9 @@ public class EstablishmentService {
     @Autowired
     private LocationService locationService;
     
+    @Autowired
+    private ComprehensiveResultsCache comprehensiveResultsCache;
+    
     @Transactional
     public EstablishmentResponse createEstablishment(String userEmail, EstablishmentRequest request) {
         // Validations métier
@@ -183,6 +187,7 @@ public class EstablishmentService {
         establishment.setSelectedControllerPrice(request.getSelectedControllerPrice());
         
         establishment = establishmentRepository.save(establishment);
+        comprehensiveResultsCache.invalidate(id);
         
         return EstablishmentResponse.fromEntity(establishment);
     }
@@ -201,6 +206,7 @@ public class EstablishmentService {
         }
         
         establishmentRepository.delete(establishment);
+        comprehensiveResultsCache.invalidate(id);
     }
     
     /**
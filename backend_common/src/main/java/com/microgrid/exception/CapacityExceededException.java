@@ -0,0 +1,11 @@
+package com.microgrid.exception;
+
+/**
+ * Exception levée quand une limite de concurrence est atteinte (traduite en HTTP 429)
+ */
+public class CapacityExceededException extends RuntimeException {
+    
+    public CapacityExceededException(String message) {
+        super(message);
+    }
+}
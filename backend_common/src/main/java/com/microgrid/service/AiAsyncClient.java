@@ -0,0 +1,208 @@
+package com.microgrid.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Version asynchrone des appels batch au microservice AI, avec regroupement des requêtes identiques.
+ *
+ * Chaque appel part sur un thread virtuel (le RestTemplate partagé reste bloquant, mais ne monopolise
+ * plus de thread) et retourne un CompletableFuture, ce qui permet d'enchaîner les étapes du pipeline
+ * de simulation sans attendre. Une requête identique à une requête encore en cours (même endpoint,
+ * mêmes features) ne repart pas sur le réseau : elle attend la même réponse.
+ *
+ * Chaque appelant reçoit son propre future : l'annuler (simulation annulée) le détache de la requête,
+ * qui n'est interrompue (thread virtuel interrompu, socket fermée) que lorsque plus aucun appelant
+ * ne l'attend.
+ */
+@Service
+public class AiAsyncClient {
+
+    @Autowired
+    private AiMicroserviceClient aiMicroserviceClient;
+
+    @Autowired
+    private PvPredictionService pvPredictionService;
+
+    @Autowired
+    private AnomalyDetectionService anomalyDetectionService;
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("ai-call-", 0).factory());
+
+    private final Map<RequestKey, Call<?>> inFlight = new ConcurrentHashMap<>();
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Voir {@link PvPredictionService#predictPvProductionBatch}
+     */
+    public CompletableFuture<double[]> predictPvProductionBatch(
+            List<LocalDateTime> datetimes, double[] irradianceKwhM2, double[] temperatureC,
+            double surfaceM2, List<Double> historicalPv) {
+        RequestKey key = new RequestKey("/predict/pv/batch",
+            datetimes, irradianceKwhM2, temperatureC, surfaceM2, historicalPv);
+        return this.<double[]>coalesce(key, () -> pvPredictionService.predictPvProductionBatch(
+                datetimes, irradianceKwhM2, temperatureC, surfaceM2, historicalPv), double[]::clone);
+    }
+
+    /**
+     * Voir {@link AiMicroserviceClient#predictConsumptionBatch}
+     */
+    public CompletableFuture<double[]> predictConsumptionBatch(
+            List<LocalDateTime> datetimes, double[] temperatureC, double[] irradianceKwhM2,
+            double[] pvProdKwh, double patients, String event) {
+        RequestKey key = new RequestKey("/predict/batch",
+            datetimes, temperatureC, irradianceKwhM2, pvProdKwh, patients, event);
+        return this.<double[]>coalesce(key, () -> aiMicroserviceClient.predictConsumptionBatch(
+                datetimes, temperatureC, irradianceKwhM2, pvProdKwh, patients, event), double[]::clone);
+    }
+
+    /**
+     * Voir {@link AnomalyDetectionService#detectAnomaliesBatch}. La liste retournée est partagée
+     * entre les appelants regroupés et n'est pas modifiable.
+     */
+    public CompletableFuture<List<AnomalyDetectionService.AnomalyResult>> detectAnomaliesBatch(
+            double[] consumption, double[] predictedConsumption, double[] pvProduction, double[] expectedPv,
+            double[] soc, double[] temperatureC, double[] irradianceKwhM2) {
+        RequestKey key = new RequestKey("/detect/anomalies/batch",
+            consumption, predictedConsumption, pvProduction, expectedPv, soc, temperatureC, irradianceKwhM2);
+        return coalesce(key, () -> Collections.unmodifiableList(anomalyDetectionService.detectAnomaliesBatch(
+            consumption, predictedConsumption, pvProduction, expectedPv, soc, temperatureC, irradianceKwhM2)),
+            Function.identity());
+    }
+
+    /**
+     * Nombre de requêtes actuellement en cours (une par clé)
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Future propre à l'appelant ({@code view} appliquée à la réponse partagée), rattaché à la
+     * requête en cours pour la même clé ou à une nouvelle requête
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> coalesce(RequestKey key, Supplier<T> request, Function<T, T> view) {
+        Call<T> call;
+        while (true) {
+            Call<T> created = new Call<>();
+            Call<T> existing = (Call<T>) inFlight.putIfAbsent(key, created);
+            if (existing == null) {
+                call = created;
+                start(key, call, request);
+                break;
+            }
+            if (existing.join()) {
+                call = existing;
+                break;
+            }
+            // Requête abandonnée par tous ses appelants : la remplacer
+            inFlight.remove(key, existing);
+        }
+        Call<T> joined = call;
+        CompletableFuture<T> caller = call.result.thenApply(view);
+        caller.whenComplete((ignored, error) -> {
+            if (caller.isCancelled()) {
+                release(key, joined);
+            }
+        });
+        return caller;
+    }
+
+    private <T> void start(RequestKey key, Call<T> call, Supplier<T> request) {
+        call.task = executor.submit(() -> {
+            if (call.result.isDone()) {
+                return; // Annulée avant de partir
+            }
+            // Retirer la clé avant de répondre : une requête arrivée après la réponse repart sur le réseau
+            T value;
+            try {
+                value = request.get();
+            } catch (Throwable e) {
+                inFlight.remove(key, call);
+                call.result.completeExceptionally(e);
+                return;
+            }
+            inFlight.remove(key, call);
+            call.result.complete(value);
+        });
+    }
+
+    /**
+     * Un appelant a annulé son future : interrompre la requête s'il était le dernier à l'attendre
+     */
+    private void release(RequestKey key, Call<?> call) {
+        if (call.waiters.decrementAndGet() > 0 || call.result.isDone()) {
+            return;
+        }
+        inFlight.remove(key, call);
+        call.result.cancel(false);
+        Future<?> task = call.task;
+        if (task != null) {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Requête en cours et nombre d'appelants qui l'attendent (0 = abandonnée, ne plus s'y rattacher)
+     */
+    private static final class Call<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final AtomicInteger waiters = new AtomicInteger(1);
+        volatile Future<?> task;
+
+        boolean join() {
+            int count;
+            do {
+                count = waiters.get();
+                if (count == 0) {
+                    return false;
+                }
+            } while (!waiters.compareAndSet(count, count + 1));
+            return true;
+        }
+    }
+
+    /**
+     * Clé d'une requête : endpoint + features (tableaux comparés par contenu)
+     */
+    private static final class RequestKey {
+        private final Object[] parts;
+        private final int hash;
+
+        RequestKey(Object... parts) {
+            this.parts = parts;
+            this.hash = Arrays.deepHashCode(parts);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof RequestKey key && hash == key.hash && Arrays.deepEquals(parts, key.parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
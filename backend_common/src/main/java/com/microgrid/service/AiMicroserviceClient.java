@@ -1,6 +1,7 @@
 package com.microgrid.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -8,7 +9,9 @@ import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -20,14 +23,37 @@ public class AiMicroserviceClient {
     @Value("${ai.microservice.url:http://localhost:8000}")
     private String aiMicroserviceUrl;
 
-    private final RestTemplate restTemplate;
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private PredictionCache predictionCache;
     private final ObjectMapper objectMapper;
 
     public AiMicroserviceClient() {
-        this.restTemplate = new RestTemplate();
         this.objectMapper = new ObjectMapper();
     }
 
+    /**
+     * Résultat d'une optimisation de dispatch sur tout un horizon (une valeur par pas)
+     */
+    public static class DispatchBatchResult {
+        public final double[] gridImport;
+        public final double[] batteryCharge;
+        public final double[] batteryDischarge;
+        public final double[] socNext;
+        public final List<String> notes;
+
+        public DispatchBatchResult(double[] gridImport, double[] batteryCharge, double[] batteryDischarge,
+                                   double[] socNext, List<String> notes) {
+            this.gridImport = gridImport;
+            this.batteryCharge = batteryCharge;
+            this.batteryDischarge = batteryDischarge;
+            this.socNext = socNext;
+            this.notes = notes;
+        }
+    }
+
     /**
      * Prédit la consommation future
      * 
@@ -49,6 +75,23 @@ public class AiMicroserviceClient {
             Double socBatterieKwh,
             String event) {
         
+        PredictionCache.FeatureKey key = predictionCache.key("/predict", 1)
+            .add(datetime).add(temperatureC).add(irradianceKwhM2).add(pvProdKwh).add(patients).add(socBatterieKwh)
+            .label(event)
+            .build();
+        return predictionCache.get(key, () -> requestConsumption(
+            datetime, temperatureC, irradianceKwhM2, pvProdKwh, patients, socBatterieKwh, event));
+    }
+
+    private double requestConsumption(
+            LocalDateTime datetime,
+            double temperatureC,
+            double irradianceKwhM2,
+            double pvProdKwh,
+            double patients,
+            Double socBatterieKwh,
+            String event) {
+        
         try {
             Map<String, Object> requestBody = new HashMap<>();
             requestBody.put("datetime", datetime.format(DateTimeFormatter.ISO_DATE_TIME));
@@ -128,6 +171,152 @@ public class AiMicroserviceClient {
             throw new RuntimeException("Error calling AI microservice /optimize: " + e.getMessage(), e);
         }
     }
-}
 
+    /**
+     * Prédit la consommation pour tout un horizon en un seul appel (/predict/batch)
+     * 
+     * @param datetimes Dates/heures de prédiction
+     * @param temperatureC Températures en °C (une par pas)
+     * @param irradianceKwhM2 Irradiances en kWh/m² (une par pas)
+     * @param pvProdKwh Productions PV en kWh (une par pas)
+     * @param patients Nombre de patients
+     * @param event Événement (optionnel)
+     * @return Prédictions de consommation en kWh, une par pas
+     */
+    public double[] predictConsumptionBatch(
+            List<LocalDateTime> datetimes,
+            double[] temperatureC,
+            double[] irradianceKwhM2,
+            double[] pvProdKwh,
+            double patients,
+            String event) {
+        
+        PredictionCache.FeatureKey key = predictionCache.key("/predict/batch", datetimes.size())
+            .addDatetimes(datetimes).add(temperatureC).add(irradianceKwhM2).add(pvProdKwh).add(patients)
+            .label(event)
+            .build();
+        return predictionCache.get(key, () -> requestConsumptionBatch(
+            datetimes, temperatureC, irradianceKwhM2, pvProdKwh, patients, event)).clone();
+    }
+
+    private double[] requestConsumptionBatch(
+            List<LocalDateTime> datetimes,
+            double[] temperatureC,
+            double[] irradianceKwhM2,
+            double[] pvProdKwh,
+            double patients,
+            String event) {
+        
+        try {
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("datetimes", formatDatetimes(datetimes));
+            requestBody.put("temperature_C", temperatureC);
+            requestBody.put("irradiance_kWh_m2", irradianceKwhM2);
+            requestBody.put("pv_prod_kWh", pvProdKwh);
+            requestBody.put("patients", patients);
+            if (event != null) {
+                requestBody.put("event", event);
+            }
+
+            Map<String, Object> body = postForMap("/predict/batch", requestBody);
+            double[] predictions = toDoubleArray(body.get("predictions_kWh"), datetimes.size());
+            if (predictions != null) {
+                return predictions;
+            }
+            
+            throw new RuntimeException("Failed to get batch prediction from AI microservice");
+        } catch (Exception e) {
+            throw new RuntimeException("Error calling AI microservice /predict/batch: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Optimise le dispatch sur tout un horizon en un seul appel (/optimize/batch).
+     * Le SOC de sortie de chaque pas est chaîné côté microservice.
+     * 
+     * @param predKwh Consommations prédites en kWh
+     * @param pvKwh Productions PV en kWh
+     * @param initialSocKwh État de charge initial en kWh
+     * @param batteryParams Paramètres batterie (optionnel)
+     * @return Résultat d'optimisation par pas
+     */
+    public DispatchBatchResult optimizeDispatchBatch(
+            double[] predKwh,
+            double[] pvKwh,
+            double initialSocKwh,
+            Map<String, Double> batteryParams) {
+        
+        try {
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("pred_kWh", predKwh);
+            requestBody.put("pv_kWh", pvKwh);
+            requestBody.put("soc_kwh", initialSocKwh);
+            
+            if (batteryParams != null) {
+                requestBody.putAll(batteryParams);
+            }
+
+            Map<String, Object> body = postForMap("/optimize/batch", requestBody);
+            int size = predKwh.length;
+            double[] gridImport = toDoubleArray(body.get("grid_import_kWh"), size);
+            double[] batteryCharge = toDoubleArray(body.get("battery_charge_kWh"), size);
+            double[] batteryDischarge = toDoubleArray(body.get("battery_discharge_kWh"), size);
+            double[] socNext = toDoubleArray(body.get("soc_next"), size);
+            
+            if (gridImport != null && batteryCharge != null && batteryDischarge != null && socNext != null) {
+                List<String> notes = new ArrayList<>(size);
+                Object rawNotes = body.get("note");
+                for (int i = 0; i < size; i++) {
+                    Object note = rawNotes instanceof List<?> list && i < list.size() ? list.get(i) : null;
+                    notes.add(note != null ? note.toString() : "");
+                }
+                return new DispatchBatchResult(gridImport, batteryCharge, batteryDischarge, socNext, notes);
+            }
+            
+            throw new RuntimeException("Failed to get batch optimization from AI microservice");
+        } catch (Exception e) {
+            throw new RuntimeException("Error calling AI microservice /optimize/batch: " + e.getMessage(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> postForMap(String path, Map<String, Object> requestBody) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+
+        ResponseEntity<Map> response = restTemplate.exchange(
+            aiMicroserviceUrl + path, HttpMethod.POST, entity, Map.class);
+
+        if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
+            throw new RuntimeException("Unexpected response " + response.getStatusCode() + " from " + path);
+        }
+        return response.getBody();
+    }
 
+    static List<String> formatDatetimes(List<LocalDateTime> datetimes) {
+        List<String> formatted = new ArrayList<>(datetimes.size());
+        for (LocalDateTime datetime : datetimes) {
+            formatted.add(datetime.format(DateTimeFormatter.ISO_DATE_TIME));
+        }
+        return formatted;
+    }
+
+    /**
+     * Convertit une liste JSON de nombres en tableau primitif, null si la taille ne correspond pas
+     */
+    static double[] toDoubleArray(Object value, int expectedSize) {
+        if (!(value instanceof List<?> list) || list.size() != expectedSize) {
+            return null;
+        }
+        double[] result = new double[expectedSize];
+        for (int i = 0; i < expectedSize; i++) {
+            Object item = list.get(i);
+            if (!(item instanceof Number number)) {
+                return null;
+            }
+            result[i] = number.doubleValue();
+        }
+        return result;
+    }
+}
@@ -1,11 +1,14 @@
 package com.microgrid.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -17,11 +20,11 @@ public class AnomalyDetectionService {
     @Value("${ai.microservice.url:http://localhost:8000}")
     private String aiMicroserviceUrl;
 
-    private final RestTemplate restTemplate;
+    @Autowired
+    private RestTemplate restTemplate;
 
-    public AnomalyDetectionService() {
-        this.restTemplate = new RestTemplate();
-    }
+    @Autowired
+    private PredictionCache predictionCache;
 
     /**
      * Résultat de la détection d'anomalie
@@ -61,6 +64,29 @@ public class AnomalyDetectionService {
             double temperatureC,
             double irradianceKwhM2) {
         
+        PredictionCache.FeatureKey key = predictionCache.key("/detect/anomalies", 1)
+            .add(consumption).add(predictedConsumption).add(pvProduction).add(expectedPv).add(soc)
+            .add(temperatureC).add(irradianceKwhM2)
+            .build();
+        try {
+            return predictionCache.get(key, () -> requestAnomaly(
+                consumption, predictedConsumption, pvProduction, expectedPv, soc, temperatureC, irradianceKwhM2));
+        } catch (Exception e) {
+            // En cas d'erreur, retourner "pas d'anomalie" pour ne pas bloquer
+            System.err.println(e.getMessage());
+            return new AnomalyResult(false, 0.0, "normal", "Anomaly detection service unavailable");
+        }
+    }
+
+    private AnomalyResult requestAnomaly(
+            double consumption,
+            double predictedConsumption,
+            double pvProduction,
+            double expectedPv,
+            double soc,
+            double temperatureC,
+            double irradianceKwhM2) {
+        
         try {
             Map<String, Object> requestBody = new HashMap<>();
             requestBody.put("consumption", consumption);
@@ -91,11 +117,98 @@ public class AnomalyDetectionService {
             
             throw new RuntimeException("Failed to get anomaly detection from AI microservice");
         } catch (Exception e) {
-            // En cas d'erreur, retourner "pas d'anomalie" pour ne pas bloquer
-            System.err.println("Error calling AI microservice /detect/anomalies: " + e.getMessage());
-            return new AnomalyResult(false, 0.0, "normal", "Anomaly detection service unavailable");
+            throw new RuntimeException("Error calling AI microservice /detect/anomalies: " + e.getMessage(), e);
         }
     }
-}
 
+    /**
+     * Détecte les anomalies pour tout un horizon en un seul appel (/detect/anomalies/batch)
+     * 
+     * Tous les tableaux doivent avoir la même longueur (un élément par pas).
+     * En cas d'erreur, retourne "pas d'anomalie" pour chaque pas pour ne pas bloquer.
+     * La liste retournée depuis le cache n'est pas modifiable.
+     * 
+     * @return Résultats de détection, un par pas
+     */
+    public List<AnomalyResult> detectAnomaliesBatch(
+            double[] consumption,
+            double[] predictedConsumption,
+            double[] pvProduction,
+            double[] expectedPv,
+            double[] soc,
+            double[] temperatureC,
+            double[] irradianceKwhM2) {
+        
+        int size = consumption.length;
+        PredictionCache.FeatureKey key = predictionCache.key("/detect/anomalies/batch", size)
+            .add(consumption).add(predictedConsumption).add(pvProduction).add(expectedPv).add(soc)
+            .add(temperatureC).add(irradianceKwhM2)
+            .build();
+        try {
+            return predictionCache.get(key, () -> List.copyOf(requestAnomaliesBatch(
+                consumption, predictedConsumption, pvProduction, expectedPv, soc, temperatureC, irradianceKwhM2)));
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            List<AnomalyResult> fallback = new ArrayList<>(size);
+            AnomalyResult unavailable = new AnomalyResult(false, 0.0, "normal", "Anomaly detection service unavailable");
+            for (int i = 0; i < size; i++) {
+                fallback.add(unavailable);
+            }
+            return fallback;
+        }
+    }
+
+    private List<AnomalyResult> requestAnomaliesBatch(
+            double[] consumption,
+            double[] predictedConsumption,
+            double[] pvProduction,
+            double[] expectedPv,
+            double[] soc,
+            double[] temperatureC,
+            double[] irradianceKwhM2) {
+        
+        int size = consumption.length;
+        try {
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("consumption", consumption);
+            requestBody.put("predicted_consumption", predictedConsumption);
+            requestBody.put("pv_production", pvProduction);
+            requestBody.put("expected_pv", expectedPv);
+            requestBody.put("soc", soc);
+            requestBody.put("temperature_C", temperatureC);
+            requestBody.put("irradiance_kWh_m2", irradianceKwhM2);
 
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+
+            String url = aiMicroserviceUrl + "/detect/anomalies/batch";
+            ResponseEntity<Map> response = restTemplate.exchange(
+                url, HttpMethod.POST, entity, Map.class);
+
+            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null
+                    && response.getBody().get("results") instanceof List<?> rawResults
+                    && rawResults.size() == size) {
+                List<AnomalyResult> results = new ArrayList<>(size);
+                for (Object raw : rawResults) {
+                    Map<?, ?> body = (Map<?, ?>) raw;
+                    Object isAnomaly = body.get("is_anomaly");
+                    Object anomalyScore = body.get("anomaly_score");
+                    Object anomalyType = body.get("anomaly_type");
+                    Object recommendation = body.get("recommendation");
+                    results.add(new AnomalyResult(
+                        Boolean.TRUE.equals(isAnomaly),
+                        anomalyScore instanceof Number number ? number.doubleValue() : 0.0,
+                        anomalyType != null ? anomalyType.toString() : "normal",
+                        recommendation != null ? recommendation.toString() : "No action needed"
+                    ));
+                }
+                return results;
+            }
+            
+            throw new RuntimeException("Failed to get batch anomaly detection from AI microservice");
+        } catch (Exception e) {
+            throw new RuntimeException("Error calling AI microservice /detect/anomalies/batch: " + e.getMessage(), e);
+        }
+    }
+}
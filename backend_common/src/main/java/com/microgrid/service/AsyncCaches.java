@@ -0,0 +1,51 @@
+package com.microgrid.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Chargement d'une entrée d'AsyncCache hors du verrou de la map.
+ *
+ * {@code Cache.get(key, mappingFunction)} exécute la fonction sous le verrou du bin de la clé : un appel
+ * AI de plusieurs secondes y bloquerait les clés voisines, les invalidations et les suppressions.
+ * Ici seul un future vide est inséré sous le verrou ; le premier appelant exécute le loader sur son
+ * propre thread et les appels concurrents pour la même clé attendent ce future. Un échec n'est pas
+ * mis en cache.
+ */
+final class AsyncCaches {
+
+    private AsyncCaches() {
+    }
+
+    static <K, V> V get(AsyncCache<K, V> cache, K key, Supplier<? extends V> loader) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> future = cache.get(key, (ignored, executor) -> created);
+        if (future == created) {
+            try {
+                created.complete(loader.get());
+            } catch (RuntimeException | Error e) {
+                // Transmis aux appels en attente sous forme d'annulation : Caffeine retire l'entrée sans
+                // journaliser de trace à chaque échec (microservice AI arrêté, circuit ouvert...)
+                CancellationException failure = new CancellationException(e.getMessage());
+                failure.initCause(e);
+                created.completeExceptionally(failure);
+                throw e;
+            }
+        }
+        try {
+            return future.join();
+        } catch (CancellationException e) {
+            // Échec du loader d'un autre appelant : même exception que s'il avait été exécuté ici
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -22,6 +22,9 @@ public class AutoTrainingService {
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private PredictionCache predictionCache;
+
     private LocalDateTime lastTrainingDate;
     private boolean trainingInProgress = false;
 
@@ -69,6 +72,8 @@ public class AutoTrainingService {
             if (response != null && "ok".equals(response.get("status"))) {
                 System.out.println("Retraining successful. Metrics: " + response.get("metrics"));
                 lastTrainingDate = LocalDateTime.now();
+                // Nouveau modèle : les prédictions en cache ne sont plus valides
+                predictionCache.invalidateAll();
                 return response;
             } else {
                 throw new RuntimeException("Retraining failed: " + response);
@@ -1,5 +1,6 @@
 package com.microgrid.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -17,11 +18,8 @@ public class ClusteringService {
     @Value("${ai.microservice.url:http://localhost:8000}")
     private String aiMicroserviceUrl;
 
-    private final RestTemplate restTemplate;
-
-    public ClusteringService() {
-        this.restTemplate = new RestTemplate();
-    }
+    @Autowired
+    private RestTemplate restTemplate;
 
     /**
      * Résultat du clustering
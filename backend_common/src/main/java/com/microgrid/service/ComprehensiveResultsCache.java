@@ -0,0 +1,106 @@
+package com.microgrid.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.microgrid.model.Establishment;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Résultats complets (ComprehensiveResultsService#calculateAllResults) mémorisés par établissement.
+ *
+ * La clé comprend la révision de l'établissement (updatedAt) et la version du modèle ML (PredictionCache,
+ * incrémentée à chaque réentraînement) : une autre révision ou un nouveau modèle donne une nouvelle clé.
+ * Les entrées de l'établissement sont en outre retirées par EstablishmentService à sa modification ou à
+ * sa suppression. Le calcul (appel AI distant, aperçu par jours types) s'exécute hors du verrou du cache
+ * (AsyncCaches) : une invalidation n'attend pas un calcul en cours. Chaque appel reçoit une copie de la map,
+ * que l'appelant peut compléter.
+ */
+@Service
+public class ComprehensiveResultsCache {
+
+    @Autowired
+    private PredictionCache predictionCache;
+
+    @Value("${results.cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${results.cache.size:1000}")
+    private long cacheSize = 1000;
+
+    @Value("${results.cache.ttl-minutes:60}")
+    private long cacheTtlMinutes = 60;
+
+    private AsyncCache<Key, Map<String, Object>> cache;
+
+    /**
+     * Révision de l'établissement pour une version du modèle
+     */
+    private static final class Key {
+        final long establishmentId;
+        final LocalDateTime revision;
+        final long modelVersion;
+
+        Key(long establishmentId, LocalDateTime revision, long modelVersion) {
+            this.establishmentId = establishmentId;
+            this.revision = revision;
+            this.modelVersion = modelVersion;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key
+                && establishmentId == key.establishmentId
+                && modelVersion == key.modelVersion
+                && revision.equals(key.revision);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(establishmentId, revision, modelVersion);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+            .maximumSize(cacheSize)
+            .expireAfterWrite(Duration.ofMinutes(cacheTtlMinutes))
+            .buildAsync();
+    }
+
+    /**
+     * Résultats en cache pour la révision courante de l'établissement, sinon calculés par {@code loader}
+     * (un seul calcul par révision à la fois). Sans révision (établissement non persisté), rien
+     * n'est mis en cache.
+     */
+    public Map<String, Object> get(Establishment establishment, Supplier<Map<String, Object>> loader) {
+        Long id = establishment.getId();
+        LocalDateTime revision = establishment.getUpdatedAt();
+        if (!enabled || cache == null || id == null || revision == null) {
+            return loader.get();
+        }
+        Key key = new Key(id, revision, predictionCache.modelVersion());
+        Map<String, Object> results = AsyncCaches.get(cache, key, () -> Collections.unmodifiableMap(loader.get()));
+        return new HashMap<>(results);
+    }
+
+    /**
+     * Retire les résultats de l'établissement (modification ou suppression)
+     */
+    public void invalidate(Long establishmentId) {
+        if (cache != null && establishmentId != null) {
+            cache.asMap().keySet().removeIf(key -> key.establishmentId == establishmentId);
+        }
+    }
+}
@@ -29,6 +29,13 @@ public class ComprehensiveResultsService {
     @Lazy
     private MlRecommendationService mlRecommendationService;
 
+    @Autowired
+    @Lazy
+    private SimulationService simulationService;
+
+    @Autowired
+    private EquipmentCatalogService equipmentCatalogService;
+
     // Constantes
     private static final double CO2_EMISSION_FACTOR = 0.7; // kg CO2/kWh (mix énergétique Maroc)
     private static final double CO2_PER_TREE = 20.0; // kg CO2/an par arbre
@@ -266,63 +273,53 @@ public class ComprehensiveResultsService {
     /**
      * Estime le coût d'installation standardisé
      * Formule unique utilisée dans toute l'application pour garantir la cohérence
-     * Utilise les prix réels des équipements sélectionnés si disponibles, sinon prix moyens
+     * Utilise la nomenclature la moins chère du catalogue d'équipements (équipements sélectionnés
+     * imposés), sinon prix moyens
      * 
      * @param pvPower Puissance PV en kWc
      * @param batteryCapacity Capacité batterie en kWh
-     * @param establishment Établissement (optionnel, pour récupérer les prix réels des équipements)
+     * @param establishment Établissement (optionnel, pour imposer les équipements sélectionnés et leurs prix)
      * @return Coût total d'installation en DH
      */
     public double estimateInstallationCost(double pvPower, double batteryCapacity, Establishment establishment) {
-        double pvCost;
-        double batteryCost;
-        double inverterCost;
-        double controllerCost = 0.0;
-        
-        // Utiliser les prix réels des équipements sélectionnés si disponibles
-        if (establishment != null && establishment.getSelectedPanelPrice() != null 
-            && establishment.getSelectedBatteryPrice() != null 
-            && establishment.getSelectedInverterPrice() != null) {
-            
-            // Calculer le coût total des équipements sélectionnés
-            // Pour les panneaux : prix unitaire * nombre de panneaux nécessaires
-            // Estimation : 1 panneau = 0.4 kWc (400W), donc nombre = pvPower / 0.4
-            // Le prix dans la liste est pour 1 panneau de 400W
-            double panelPowerKw = 0.4; // 400W = 0.4 kWc par panneau
-            double panelsNeeded = Math.ceil(pvPower / panelPowerKw); // Arrondir vers le haut
-            pvCost = establishment.getSelectedPanelPrice() * panelsNeeded;
-            
-            // Pour la batterie : prix unitaire pour une batterie de capacité donnée
-            // Les batteries dans la liste sont de 10kWh, 12kWh, 15kWh, 20kWh
-            // On calcule le nombre de batteries nécessaires
-            double batteryUnitCapacity = 10.0; // Capacité unitaire moyenne (kWh)
-            double batteriesNeeded = Math.ceil(batteryCapacity / batteryUnitCapacity);
-            batteryCost = establishment.getSelectedBatteryPrice() * batteriesNeeded;
-            
-            // Pour l'onduleur : prix unitaire (déjà dimensionné pour la puissance)
-            // Les onduleurs dans la liste sont de 5kW, 8kW, 10kW, 15kW
-            // On utilise le prix de l'onduleur sélectionné (supposé adapté à la puissance)
-            inverterCost = establishment.getSelectedInverterPrice();
-            
-            // Pour le régulateur : prix unitaire
-            if (establishment.getSelectedControllerPrice() != null) {
-                controllerCost = establishment.getSelectedControllerPrice();
-            }
+        return estimateInstallationCost(pvPower, batteryCapacity, pvPower, establishment);
+    }
+
+    /**
+     * Estime le coût d'installation avec un onduleur dimensionné séparément du champ PV
+     * 
+     * @param inverterPower Puissance onduleur en kW
+     */
+    public double estimateInstallationCost(double pvPower, double batteryCapacity, double inverterPower,
+                                           Establishment establishment) {
+        // Nomenclature la moins chère du catalogue (équipements sélectionnés imposés)
+        EquipmentCatalogService.BillOfMaterials billOfMaterials =
+            equipmentCatalogService.solve(pvPower, batteryCapacity, inverterPower, establishment);
+        return installationCost(billOfMaterials, pvPower, batteryCapacity, inverterPower);
+    }
+
+    /**
+     * Coût d'installation d'une nomenclature déjà résolue : équipements + INSTALLATION_PERCENTAGE
+     * (prix moyens si le catalogue est indisponible)
+     */
+    private static double installationCost(EquipmentCatalogService.BillOfMaterials billOfMaterials,
+                                           double pvPower, double batteryCapacity, double inverterPower) {
+        double equipmentCost;
+        if (billOfMaterials != null) {
+            equipmentCost = billOfMaterials.equipmentCost;
         } else {
-            // Fallback sur prix moyens
-            pvCost = pvPower * PV_COST_PER_KW;
-            batteryCost = batteryCapacity * BATTERY_COST_PER_KWH;
-            inverterCost = pvPower * INVERTER_COST_PER_KW;
+            // Fallback sur prix moyens (catalogue indisponible)
+            equipmentCost = pvPower * PV_COST_PER_KW
+                + batteryCapacity * BATTERY_COST_PER_KWH
+                + inverterPower * INVERTER_COST_PER_KW;
         }
-        
-        double equipmentCost = pvCost + batteryCost + inverterCost + controllerCost;
         double installationCost = equipmentCost * INSTALLATION_PERCENTAGE;
         
         return equipmentCost + installationCost;
     }
     
     /**
-     * Surcharge pour compatibilité (utilise prix moyens)
+     * Surcharge pour compatibilité (sans équipements sélectionnés)
      */
     public double estimateInstallationCost(double pvPower, double batteryCapacity) {
         return estimateInstallationCost(pvPower, batteryCapacity, null);
@@ -421,8 +418,11 @@ public class ComprehensiveResultsService {
         double currentSavings = sizingService.calculateAnnualSavings(monthlyConsumption, currentAutonomy, 1.2);
         double annualSavings = totalSavingsWithNewMicrogrid - currentSavings; // Gain réel
         
-        // Coût installation (utilise les prix réels des équipements si disponibles)
-        double installationCost = estimateInstallationCost(recommendedPvPower, recommendedBattery, establishment);
+        // Coût installation (nomenclature du catalogue, équipements sélectionnés imposés)
+        EquipmentCatalogService.BillOfMaterials billOfMaterials = equipmentCatalogService.solve(
+            recommendedPvPower, recommendedBattery, recommendedPvPower, establishment);
+        double installationCost = installationCost(
+            billOfMaterials, recommendedPvPower, recommendedBattery, recommendedPvPower);
         
         // Coût NET d'installation (nouveau microgrid - valeur résiduelle existant)
         double netInstallationCost = installationCost - existingPvCost;
@@ -453,6 +453,9 @@ public class ComprehensiveResultsService {
         // Comparaison avant/après
         Map<String, Object> beforeAfter = calculateBeforeAfterComparison(establishment, autonomy);
         
+        // Simulation annuelle rapide par jours types (batterie recommandée)
+        Map<String, Object> annualSimulation = calculateAnnualSimulationPreview(establishment, recommendedBattery);
+        
         // Résultat complet
         Map<String, Object> result = new HashMap<>();
         result.put("environmental", environmental);
@@ -460,11 +463,17 @@ public class ComprehensiveResultsService {
         result.put("financial", financial);
         result.put("resilience", resilience);
         result.put("beforeAfter", beforeAfter);
+        if (annualSimulation != null) {
+            result.put("annualSimulation", annualSimulation);
+        }
         result.put("recommendedPvPower", recommendedPvPower);
         result.put("recommendedBatteryCapacity", recommendedBattery);
         result.put("autonomy", autonomy);
         result.put("annualSavings", annualSavings);
         result.put("installationCost", installationCost);
+        if (billOfMaterials != null) {
+            result.put("billOfMaterials", billOfMaterials);
+        }
         if (existingPvCost > 0) {
             result.put("netInstallationCost", netInstallationCost);
             result.put("existingPvCost", existingPvCost);
@@ -474,6 +483,33 @@ public class ComprehensiveResultsService {
         return result;
     }
 
+    /**
+     * Totaux annuels de la simulation par jours types (SimulationService#simulatePreview) avec l'écart
+     * estimé sur le modèle de substitution sans AI (indicatif, optimiste)
+     * 
+     * @return null si la simulation n'est pas disponible (service AI ou données météo)
+     */
+    private Map<String, Object> calculateAnnualSimulationPreview(Establishment establishment, double batteryCapacity) {
+        try {
+            SimulationService.PreviewResult preview = simulationService.simulatePreview(establishment, batteryCapacity);
+            Map<String, Object> annualSimulation = new HashMap<>();
+            annualSimulation.put("typicalDays", preview.typicalDays.size());
+            annualSimulation.put("batteryCapacity", batteryCapacity);
+            annualSimulation.put("totalConsumption", preview.totalConsumption);
+            annualSimulation.put("totalPvProduction", preview.totalPvProduction);
+            annualSimulation.put("totalGridImport", preview.totalGridImport);
+            annualSimulation.put("averageAutonomy", preview.averageAutonomy);
+            annualSimulation.put("totalSavings", preview.totalSavings);
+            annualSimulation.put("surrogatePvProductionErrorPercent", preview.surrogateError.pvProductionPercent);
+            annualSimulation.put("surrogateGridImportErrorPercent", preview.surrogateError.gridImportPercent);
+            annualSimulation.put("surrogateAutonomyErrorPoints", preview.surrogateError.autonomyPoints);
+            return annualSimulation;
+        } catch (Exception e) {
+            System.err.println("⚠️ Aperçu de simulation annuelle indisponible: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Convertit IrradiationClass string en enum
      */
@@ -4,21 +4,26 @@ import com.microgrid.model.MoroccanCity;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.HashMap;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Service pour lire les données météorologiques depuis les fichiers CSV
+ * Service pour lire les données météorologiques depuis les fichiers CSV.
+ *
+ * Chaque CSV est converti une fois en archive binaire (WeatherArchive, dans {@code meteo.archive.path}),
+ * ensuite mappée en mémoire : les démarrages suivants ne reparsent plus le CSV.
  */
 @Service
 public class CsvMeteoReaderService {
@@ -26,10 +31,24 @@ public class CsvMeteoReaderService {
     @Value("${meteo.data.path:../ai_microservices/data_raw}")
     private String meteoDataPath;
 
+    /**
+     * Dossier des archives binaires (vide = pas d'archive, CSV parsé en mémoire à chaque démarrage)
+     */
+    @Value("${meteo.archive.path:}")
+    private String meteoArchivePath = "";
+
+    private volatile boolean preloaded;
+
     private final MeteoDataService meteoDataService;
     
-    // Cache pour éviter de recharger les fichiers à chaque fois
-    private final Map<String, Map<LocalDateTime, MeteoData>> cache = new ConcurrentHashMap<>();
+    // Cache pour éviter de recharger les fichiers à chaque fois (une série primitive par fichier)
+    private final Map<String, WeatherSeries> cache = new ConcurrentHashMap<>();
+
+    // Série par zone, pour ne pas recalculer le nom de fichier à chaque pas de simulation
+    private final Map<MoroccanCity.IrradiationClass, WeatherSeries> seriesByZone = new ConcurrentHashMap<>();
+
+    // Jours types par zone et par nombre de jours ("A:12"), calculés une fois par série
+    private final Map<String, TypicalDays> typicalDaysCache = new ConcurrentHashMap<>();
 
     public CsvMeteoReaderService(MeteoDataService meteoDataService) {
         this.meteoDataService = meteoDataService;
@@ -51,42 +70,92 @@ public class CsvMeteoReaderService {
     /**
      * Lit les données météo pour un datetime et une classe d'irradiation donnés
      * 
-     * @param datetime Date et heure
+     * @param datetime Date et heure (ramenée au début de son pas de 6h)
      * @param irradiationClass Classe d'irradiation
-     * @return Données météo (température, irradiance) ou null si non trouvé
+     * @return Données météo du pas de 6h (température moyenne, irradiance du pas) ou null si non trouvé
      */
     public MeteoData getMeteoData(LocalDateTime datetime, MoroccanCity.IrradiationClass irradiationClass) {
-        String fileName = meteoDataService.getMeteoFileName(irradiationClass);
-        Map<LocalDateTime, MeteoData> fileData = cache.computeIfAbsent(fileName, this::loadCsvFile);
-        
-        if (fileData == null || fileData.isEmpty()) {
-            return null;
-        }
+        LocalDateTime stepStart = datetime.truncatedTo(ChronoUnit.HOURS).withHour(datetime.getHour() / 6 * 6);
+        return getMeteoData(stepStart, Duration.ofSeconds(WeatherSeries.DEFAULT_STEP_SECONDS), irradiationClass);
+    }
+
+    /**
+     * Données météo rééchantillonnées sur un pas de simulation quelconque, quelle que soit la
+     * résolution du fichier (15 min, 1h, 6h...)
+     *
+     * @param start Début du pas
+     * @param step Durée du pas
+     * @param irradiationClass Classe d'irradiation
+     * @return Température moyenne et irradiance (énergie) du pas, ou null si aucune donnée
+     */
+    public MeteoData getMeteoData(LocalDateTime start, Duration step, MoroccanCity.IrradiationClass irradiationClass) {
+        WeatherSeries series = irradiationClass != null
+            ? seriesByZone.computeIfAbsent(irradiationClass, this::loadSeries)
+            : loadSeries(null);
+        return series.resample(start, step.getSeconds());
+    }
 
-        // Chercher la ligne la plus proche (arrondi à 6h)
-        LocalDateTime roundedDateTime = roundTo6Hours(datetime);
-        
-        // Chercher exactement ce datetime
-        MeteoData exact = fileData.get(roundedDateTime);
-        if (exact != null) {
-            return exact;
+    /**
+     * Jours types de la série météo d'une zone (voir TypicalDays), mis en cache
+     *
+     * @param count Nombre de jours types
+     * @return Jours types, ou null si la série ne contient aucun jour complet
+     */
+    public TypicalDays typicalDays(MoroccanCity.IrradiationClass irradiationClass, int count) {
+        MoroccanCity.IrradiationClass zone = irradiationClass != null ? irradiationClass : MoroccanCity.IrradiationClass.C;
+        String key = zone + ":" + count;
+        TypicalDays typicalDays = typicalDaysCache.get(key);
+        if (typicalDays == null) {
+            typicalDays = TypicalDays.cluster(seriesByZone.computeIfAbsent(zone, this::loadSeries), count);
+            if (typicalDays != null) {
+                typicalDaysCache.put(key, typicalDays);
+            }
         }
+        return typicalDays;
+    }
 
-        // Si non trouvé, chercher le plus proche
-        LocalDateTime closest = findClosestDateTime(fileData.keySet(), roundedDateTime);
-        if (closest != null) {
-            return fileData.get(closest);
+    /**
+     * Charge les fichiers des quatre zones en parallèle (préchargement au démarrage)
+     */
+    public void preload() {
+        long start = System.nanoTime();
+        List<CompletableFuture<?>> loads = new ArrayList<>();
+        for (MoroccanCity.IrradiationClass irradiationClass : MoroccanCity.IrradiationClass.values()) {
+            loads.add(CompletableFuture.runAsync(() -> seriesByZone.computeIfAbsent(irradiationClass, this::loadSeries)));
         }
+        CompletableFuture.allOf(loads.toArray(new CompletableFuture[0])).join();
+        preloaded = true;
+        System.out.println("Données météo préchargées en " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * État des fichiers météo chargés, pour /api/public/health
+     */
+    public Map<String, Object> status() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("preloaded", preloaded);
+        Map<String, Object> files = new LinkedHashMap<>();
+        cache.forEach((fileName, series) -> {
+            Map<String, Object> file = new LinkedHashMap<>();
+            file.put("rows", series.getRows());
+            file.put("slots", series.size());
+            file.put("duplicates", series.getDuplicates());
+            file.put("stepSeconds", series.getStepSeconds());
+            file.put("mapped", series.isMapped());
+            files.put(fileName, file);
+        });
+        values.put("files", files);
+        return values;
+    }
 
-        return null;
+    private WeatherSeries loadSeries(MoroccanCity.IrradiationClass irradiationClass) {
+        return cache.computeIfAbsent(meteoDataService.getMeteoFileName(irradiationClass), this::loadCsvFile);
     }
 
     /**
      * Charge un fichier CSV météo en mémoire
      */
-    private Map<LocalDateTime, MeteoData> loadCsvFile(String fileName) {
-        Map<LocalDateTime, MeteoData> data = new HashMap<>();
-        
+    private WeatherSeries loadCsvFile(String fileName) {
         try {
             Path filePath = Paths.get(meteoDataPath, fileName);
             
@@ -97,112 +166,68 @@ public class CsvMeteoReaderService {
                     filePath = alternativePath;
                 } else {
                     System.err.println("Fichier météo non trouvé: " + fileName);
-                    return data;
+                    return new WeatherSeries.Builder().build();
                 }
             }
 
-            try (BufferedReader reader = new BufferedReader(new FileReader(filePath.toFile()))) {
-                String line = reader.readLine(); // Skip header
-                if (line == null) {
-                    return data;
+            long sourceSize = Files.size(filePath);
+            long sourceModified = Files.getLastModifiedTime(filePath).toMillis();
+            Path archivePath = meteoArchivePath.isBlank() ? null
+                : Paths.get(meteoArchivePath, fileName.replaceFirst("\\.csv$", "") + ".bin");
+            if (archivePath != null) {
+                WeatherSeries archived = WeatherArchive.map(archivePath, sourceSize, sourceModified);
+                if (archived != null) {
+                    System.out.println("Fichier météo chargé: " + fileName + " (" + describe(archived) + ", archive)");
+                    return archived;
                 }
+            }
+
+            MeteoCsvLoader loader = new MeteoCsvLoader(fileName);
+            WeatherSeries series;
+            try (InputStream input = Files.newInputStream(filePath)) {
+                series = loader.load(input);
+            }
+            System.out.println("Fichier météo chargé: " + fileName + " (" + describe(series) + ", "
+                + loader.getInvalidRows() + " lignes ignorées"
+                + (loader.getRowsPerDay() > 0 ? ", dates sans heure: " + loader.getRowsPerDay() + " lignes/jour" : "") + ")");
+            if (series.getDuplicates() > 0) {
+                System.err.println("Attention: " + series.getDuplicates() + " lignes de " + fileName
+                    + " écrasées par une autre ligne du même créneau");
+            }
 
-                int lineNumber = 1;
-                while ((line = reader.readLine()) != null) {
-                    lineNumber++;
-                    try {
-                        String[] parts = line.split(",");
-                        if (parts.length < 3) {
-                            continue;
-                        }
-
-                        // Parser datetime (peut être en format MM/dd/yyyy ou ISO)
-                        LocalDateTime dateTime = parseDateTime(parts[0].trim());
-                        if (dateTime == null) {
-                            continue;
-                        }
-
-                        double temperature = Double.parseDouble(parts[1].trim());
-                        double irradiance = Double.parseDouble(parts[2].trim());
-
-                        // Arrondir à 6h pour la clé
-                        LocalDateTime rounded = roundTo6Hours(dateTime);
-                        data.put(rounded, new MeteoData(temperature, irradiance));
-                    } catch (Exception e) {
-                        // Ignorer les lignes invalides
-                        System.err.println("Erreur ligne " + lineNumber + " dans " + fileName + ": " + e.getMessage());
+            if (archivePath != null) {
+                // Archive pour les prochains démarrages ; la série servie est déjà celle du fichier mappé
+                try {
+                    WeatherArchive.write(archivePath, series, sourceSize, sourceModified);
+                    WeatherSeries archived = WeatherArchive.map(archivePath, sourceSize, sourceModified);
+                    if (archived != null) {
+                        return archived;
                     }
+                } catch (IOException e) {
+                    System.err.println("Archive météo non écrite pour " + fileName + ": " + e.getMessage());
                 }
             }
-
-            System.out.println("Fichier météo chargé: " + fileName + " (" + data.size() + " lignes)");
+            return series;
         } catch (IOException e) {
             System.err.println("Erreur lors du chargement du fichier météo " + fileName + ": " + e.getMessage());
         }
 
-        return data;
-    }
-
-    /**
-     * Parse un datetime depuis différents formats
-     */
-    private LocalDateTime parseDateTime(String dateTimeStr) {
-        // Essayer différents formats
-        DateTimeFormatter[] formatters = {
-            DateTimeFormatter.ofPattern("M/d/yyyy"),
-            DateTimeFormatter.ofPattern("MM/dd/yyyy"),
-            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
-            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss"),
-            DateTimeFormatter.ISO_DATE_TIME
-        };
-
-        for (DateTimeFormatter formatter : formatters) {
-            try {
-                return LocalDateTime.parse(dateTimeStr, formatter);
-            } catch (DateTimeParseException e) {
-                // Essayer le suivant
-            }
-        }
-
-        return null;
+        return new WeatherSeries.Builder().build();
     }
 
-    /**
-     * Arrondit un datetime à l'heure la plus proche multiple de 6
-     */
-    private LocalDateTime roundTo6Hours(LocalDateTime datetime) {
-        int hour = datetime.getHour();
-        int roundedHour = (hour / 6) * 6;
-        return datetime.withHour(roundedHour).withMinute(0).withSecond(0).withNano(0);
-    }
-
-    /**
-     * Trouve le datetime le plus proche dans un ensemble
-     */
-    private LocalDateTime findClosestDateTime(java.util.Set<LocalDateTime> dateTimes, LocalDateTime target) {
-        if (dateTimes.isEmpty()) {
-            return null;
-        }
-
-        LocalDateTime closest = null;
-        long minDiff = Long.MAX_VALUE;
-
-        for (LocalDateTime dt : dateTimes) {
-            long diff = Math.abs(java.time.Duration.between(target, dt).toHours());
-            if (diff < minDiff) {
-                minDiff = diff;
-                closest = dt;
-            }
-        }
-
-        return closest;
+    private static String describe(WeatherSeries series) {
+        return series.getRows() + " lignes, " + series.size() + " créneaux de " + series.getStepSeconds() / 60
+            + " min, " + series.getDuplicates() + " doublons";
     }
 
     /**
      * Vide le cache (utile pour recharger les données)
      */
     public void clearCache() {
+        seriesByZone.clear();
+        typicalDaysCache.clear();
         cache.clear();
+        preloaded = false;
     }
 }
 
@@ -0,0 +1,179 @@
+package com.microgrid.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+/**
+ * Moteur de dispatch énergétique en Java (équivalent de optimizer.py / endpoint /optimize).
+ *
+ * Règles par pas : le PV couvre d'abord la demande, le surplus charge la batterie
+ * (dans la limite de SOC_MAX et de CHARGE_MAX_KW), sinon la batterie se décharge
+ * (dans la limite de SOC_MIN et de DISCHARGE_MAX_KW) et le reste est importé du réseau.
+ * Le rendement aller-retour est réparti à parts égales entre charge et décharge.
+ *
+ * Calcul sur tableaux primitifs pour tout l'horizon : aucune allocation par pas,
+ * les notes sont renvoyées sous forme de codes (voir {@link #NOTES}).
+ */
+@Service
+public class DispatchEngine {
+
+    public static final byte NOTE_PV_SURPLUS = 0;
+    public static final byte NOTE_BATTERY_DISCHARGED = 1;
+    public static final byte NOTE_BATTERY_PRESERVED = 2;
+
+    /**
+     * Libellés des notes, identiques à ceux du microservice Python
+     */
+    public static final String[] NOTES = {
+        "PV surplus used to charge battery.",
+        "Battery discharged to support demand.",
+        "Battery preserved due to SOC limits."
+    };
+
+    /**
+     * Paramètres batterie (mêmes clés et valeurs par défaut que BatteryParams côté Python)
+     */
+    public static class BatteryParams {
+        public final double capacityKwh;
+        public final double socMin;
+        public final double socMax;
+        public final double chargeMaxKw;
+        public final double dischargeMaxKw;
+        public final double roundTripEfficiency;
+
+        public BatteryParams(double capacityKwh, double socMin, double socMax,
+                             double chargeMaxKw, double dischargeMaxKw, double roundTripEfficiency) {
+            this.capacityKwh = capacityKwh;
+            this.socMin = socMin;
+            this.socMax = socMax;
+            this.chargeMaxKw = chargeMaxKw;
+            this.dischargeMaxKw = dischargeMaxKw;
+            this.roundTripEfficiency = roundTripEfficiency;
+        }
+
+        public static BatteryParams fromMap(Map<String, Double> params) {
+            Map<String, Double> values = params != null ? params : Map.of();
+            return new BatteryParams(
+                values.getOrDefault("BATTERY_CAP_KWH", 500.0),
+                values.getOrDefault("SOC_MIN", 0.15),
+                values.getOrDefault("SOC_MAX", 0.95),
+                values.getOrDefault("CHARGE_MAX_KW", 200.0),
+                values.getOrDefault("DISCHARGE_MAX_KW", 200.0),
+                values.getOrDefault("ROUND_TRIP_EFFICIENCY", 1.0)
+            );
+        }
+    }
+
+    /**
+     * Calcule le dispatch de tout l'horizon, le SOC de sortie d'un pas servant de SOC d'entrée au suivant.
+     * Les tableaux de sortie sont fournis par l'appelant (taille >= predKwh.length).
+     *
+     * @param predKwh Consommation prévue par pas (kWh)
+     * @param pvKwh Production PV par pas (kWh)
+     * @param initialSocKwh SOC initial (kWh)
+     * @param stepHours Durée d'un pas (heures)
+     * @param params Paramètres batterie
+     * @param gridImport Sortie : import réseau (kWh)
+     * @param batteryCharge Sortie : énergie PV envoyée en charge (kWh)
+     * @param batteryDischarge Sortie : énergie fournie par la batterie à la demande (kWh)
+     * @param socNext Sortie : SOC en fin de pas (kWh)
+     * @param notes Sortie : code de note par pas (optionnel)
+     */
+    public void dispatch(
+            double[] predKwh,
+            double[] pvKwh,
+            double initialSocKwh,
+            double stepHours,
+            BatteryParams params,
+            double[] gridImport,
+            double[] batteryCharge,
+            double[] batteryDischarge,
+            double[] socNext,
+            byte[] notes) {
+        dispatch(predKwh, pvKwh, initialSocKwh, stepHours, null, params,
+            gridImport, batteryCharge, batteryDischarge, socNext, notes);
+    }
+
+    /**
+     * Dispatch sur un horizon à pas variables (simulation adaptative) : les limites de charge et de
+     * décharge de chaque pas sont proportionnelles à sa durée.
+     *
+     * @param stepHours Durée de chaque pas (heures)
+     */
+    public void dispatch(
+            double[] predKwh,
+            double[] pvKwh,
+            double initialSocKwh,
+            double[] stepHours,
+            BatteryParams params,
+            double[] gridImport,
+            double[] batteryCharge,
+            double[] batteryDischarge,
+            double[] socNext,
+            byte[] notes) {
+        dispatch(predKwh, pvKwh, initialSocKwh, 0.0, stepHours, params,
+            gridImport, batteryCharge, batteryDischarge, socNext, notes);
+    }
+
+    private void dispatch(
+            double[] predKwh,
+            double[] pvKwh,
+            double initialSocKwh,
+            double constantStepHours,
+            double[] stepHours,
+            BatteryParams params,
+            double[] gridImport,
+            double[] batteryCharge,
+            double[] batteryDischarge,
+            double[] socNext,
+            byte[] notes) {
+
+        double capacity = params.capacityKwh;
+        double socFloor = params.socMin * capacity;
+        double socCeiling = params.socMax * capacity;
+        double maxChargeKwh = params.chargeMaxKw * constantStepHours;
+        double maxDischargeKwh = params.dischargeMaxKw * constantStepHours;
+        double efficiency = Math.sqrt(params.roundTripEfficiency);
+        double soc = initialSocKwh;
+
+        for (int i = 0; i < predKwh.length; i++) {
+            if (stepHours != null) {
+                maxChargeKwh = params.chargeMaxKw * stepHours[i];
+                maxDischargeKwh = params.dischargeMaxKw * stepHours[i];
+            }
+            double demand = Math.max(predKwh[i], 0.0);
+            double pvAvailable = Math.max(pvKwh[i], 0.0);
+            soc = Math.min(Math.max(soc, 0.0), capacity);
+
+            double pvUsed = Math.min(demand, pvAvailable);
+            double remainingDemand = demand - pvUsed;
+            double surplusPv = pvAvailable - pvUsed;
+
+            double charge = 0.0;
+            double discharge = 0.0;
+            byte note;
+            if (surplusPv > 0) {
+                double availableCapacity = Math.max(socCeiling - soc, 0.0);
+                charge = Math.max(Math.min(Math.min(surplusPv, availableCapacity / efficiency), maxChargeKwh), 0.0);
+                soc += charge * efficiency;
+                note = NOTE_PV_SURPLUS;
+            } else {
+                double availableDischarge = Math.max(soc - socFloor, 0.0);
+                discharge = Math.max(Math.min(Math.min(remainingDemand, availableDischarge * efficiency), maxDischargeKwh), 0.0);
+                soc -= discharge / efficiency;
+                remainingDemand -= discharge;
+                note = discharge > 0 ? NOTE_BATTERY_DISCHARGED : NOTE_BATTERY_PRESERVED;
+            }
+            soc = Math.min(Math.max(soc, socFloor), capacity);
+
+            gridImport[i] = Math.max(remainingDemand, 0.0);
+            batteryCharge[i] = charge;
+            batteryDischarge[i] = discharge;
+            socNext[i] = soc;
+            if (notes != null) {
+                notes[i] = note;
+            }
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.microgrid.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microgrid.model.Establishment;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Catalogue des équipements (equipment_prices.json) chargé une fois au démarrage, indexé par catégorie,
+ * identifiant, type, puissance nominale et prix unitaire (DH par kWc, kWh, kW ou A).
+ *
+ * Le solveur de nomenclature ({@link #solve}) choisit l'ensemble compatible le moins cher couvrant une
+ * puissance PV, une capacité batterie et une puissance onduleur :
+ * - un seul modèle de panneaux par champ PV et un seul modèle de batteries par parc ;
+ * - batteries dont la profondeur de décharge couvre la plage de SOC simulée par DispatchEngine (15-95 %) ;
+ * - onduleurs hybrides dès qu'il y a une batterie, modèles combinables entre eux (couverture de la
+ *   puissance au moindre coût par programmation dynamique au pas de POWER_STEP_KW) ;
+ * - les équipements sélectionnés par l'établissement s'imposent, à leur prix enregistré.
+ */
+@Service
+public class EquipmentCatalogService {
+
+    /** Profondeur de décharge minimale (%) : plage SOC_MIN-SOC_MAX de DispatchEngine */
+    private static final double MIN_DEPTH_OF_DISCHARGE = 80.0;
+    /** Pas de puissance de la couverture onduleurs (kW) */
+    private static final double POWER_STEP_KW = 0.5;
+    private static final String HYBRID = "HYBRID";
+
+    @Value("${equipment.catalog.resource:equipment_prices.json}")
+    private String catalogResource = "equipment_prices.json";
+
+    private final Map<String, Item> byId = new HashMap<>();
+    private final Map<String, List<Item>> byType = new HashMap<>();
+    private final Map<Category, Index> indexes = new EnumMap<>(Category.class);
+
+    public enum Category {
+        PANEL("solar_panels", "power_w", 0.001),
+        BATTERY("batteries", "capacity_kwh", 1.0),
+        INVERTER("inverters", "power_kw", 1.0),
+        CONTROLLER("controllers", "current_a", 1.0);
+
+        private final String section;
+        private final String ratingField;
+        private final double ratingScale;
+
+        Category(String section, String ratingField, double ratingScale) {
+            this.section = section;
+            this.ratingField = ratingField;
+            this.ratingScale = ratingScale;
+        }
+    }
+
+    /**
+     * Modèle du catalogue
+     */
+    public static class Item {
+        public final String id;
+        public final String name;
+        public final Category category;
+        public final String type;
+        public final double priceDh;
+        /** Puissance ou capacité unitaire : kWc (panneaux), kWh (batteries), kW (onduleurs), A (régulateurs) */
+        public final double rating;
+        /** Prix par unité de rating (DH/kWc, DH/kWh, DH/kW, DH/A) */
+        public final double pricePerUnit;
+        public final double efficiency;
+        /** Profondeur de décharge (%), batteries uniquement */
+        public final double depthOfDischarge;
+        public final int warrantyYears;
+
+        Item(String id, String name, Category category, String type, double priceDh, double rating,
+             double efficiency, double depthOfDischarge, int warrantyYears) {
+            this.id = id;
+            this.name = name;
+            this.category = category;
+            this.type = type;
+            this.priceDh = priceDh;
+            this.rating = rating;
+            this.pricePerUnit = priceDh / rating;
+            this.efficiency = efficiency;
+            this.depthOfDischarge = depthOfDischarge;
+            this.warrantyYears = warrantyYears;
+        }
+    }
+
+    /**
+     * Ligne de nomenclature
+     */
+    public static class Line {
+        public final Item item;
+        public final int quantity;
+        public final double unitPrice;
+        public final double cost;
+
+        Line(Item item, int quantity, double unitPrice) {
+            this.item = item;
+            this.quantity = quantity;
+            this.unitPrice = unitPrice;
+            this.cost = quantity * unitPrice;
+        }
+    }
+
+    /**
+     * Nomenclature la moins chère pour un dimensionnement (hors installation)
+     */
+    public static class BillOfMaterials {
+        public final List<Line> lines;
+        public final double installedPvKwc;
+        public final double installedBatteryKwh;
+        public final double installedInverterKw;
+        public final double panelsCost;
+        public final double batteriesCost;
+        public final double invertersCost;
+        public final double controllersCost;
+        public final double equipmentCost;
+
+        BillOfMaterials(List<Line> lines) {
+            this.lines = Collections.unmodifiableList(lines);
+            this.installedPvKwc = installed(lines, Category.PANEL);
+            this.installedBatteryKwh = installed(lines, Category.BATTERY);
+            this.installedInverterKw = installed(lines, Category.INVERTER);
+            this.panelsCost = cost(lines, Category.PANEL);
+            this.batteriesCost = cost(lines, Category.BATTERY);
+            this.invertersCost = cost(lines, Category.INVERTER);
+            this.controllersCost = cost(lines, Category.CONTROLLER);
+            this.equipmentCost = panelsCost + batteriesCost + invertersCost + controllersCost;
+        }
+
+        private static double installed(List<Line> lines, Category category) {
+            return lines.stream().filter(line -> line.item.category == category)
+                .mapToDouble(line -> line.quantity * line.item.rating).sum();
+        }
+
+        private static double cost(List<Line> lines, Category category) {
+            return lines.stream().filter(line -> line.item.category == category).mapToDouble(line -> line.cost).sum();
+        }
+    }
+
+    /**
+     * Modèles d'une catégorie triés par rating (recherche par plage) et par prix unitaire
+     */
+    private static final class Index {
+        final List<Item> byRating;
+        final double[] ratings;
+        final List<Item> byUnitPrice;
+
+        Index(List<Item> items) {
+            List<Item> sorted = new ArrayList<>(items);
+            sorted.sort(Comparator.comparingDouble((Item item) -> item.rating).thenComparing(item -> item.id));
+            this.byRating = Collections.unmodifiableList(sorted);
+            this.ratings = sorted.stream().mapToDouble(item -> item.rating).toArray();
+            List<Item> cheapest = new ArrayList<>(items);
+            cheapest.sort(Comparator.comparingDouble((Item item) -> item.pricePerUnit).thenComparing(item -> item.id));
+            this.byUnitPrice = Collections.unmodifiableList(cheapest);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        JsonNode root;
+        try (InputStream input = new ClassPathResource(catalogResource).getInputStream()) {
+            root = new ObjectMapper().readTree(input);
+        } catch (Exception e) {
+            System.err.println("⚠️ Catalogue d'équipements indisponible (" + catalogResource + "): " + e.getMessage());
+            return;
+        }
+        for (Category category : Category.values()) {
+            List<Item> items = new ArrayList<>();
+            for (JsonNode node : root.path(category.section)) {
+                double rating = node.path(category.ratingField).asDouble() * category.ratingScale;
+                double price = node.path("price_dh").asDouble();
+                if (rating <= 0 || price <= 0) {
+                    System.err.println("⚠️ Équipement ignoré (puissance ou prix manquant): " + node.path("id").asText());
+                    continue;
+                }
+                Item item = new Item(node.path("id").asText(), node.path("name").asText(), category,
+                    node.path("type").asText(), price, rating, node.path("efficiency").asDouble(),
+                    node.path("depth_of_discharge").asDouble(), node.path("warranty_years").asInt());
+                items.add(item);
+                byId.put(item.id, item);
+            }
+            Index index = new Index(items);
+            indexes.put(category, index);
+            for (Item item : index.byRating) {
+                byType.computeIfAbsent(typeKey(category, item.type), key -> new ArrayList<>()).add(item);
+            }
+        }
+        byType.replaceAll((key, items) -> Collections.unmodifiableList(items));
+        System.out.println("✅ Catalogue d'équipements chargé: " + byId.size() + " modèles");
+    }
+
+    public boolean isLoaded() {
+        return !byId.isEmpty();
+    }
+
+    public Optional<Item> find(String id) {
+        return Optional.ofNullable(id != null ? byId.get(id) : null);
+    }
+
+    /**
+     * Modèles de la catégorie par rating croissant
+     */
+    public List<Item> items(Category category) {
+        Index index = indexes.get(category);
+        return index != null ? index.byRating : List.of();
+    }
+
+    /**
+     * Modèles de la catégorie et du type (ex. INVERTER / HYBRID) par rating croissant
+     */
+    public List<Item> itemsOfType(Category category, String type) {
+        return byType.getOrDefault(typeKey(category, type), List.of());
+    }
+
+    /**
+     * Modèles dont le rating est compris entre min et max (inclus), par rating croissant
+     */
+    public List<Item> itemsByRating(Category category, double min, double max) {
+        Index index = indexes.get(category);
+        if (index == null || min > max) {
+            return List.of();
+        }
+        return index.byRating.subList(lowerBound(index.ratings, min), upperBound(index.ratings, max));
+    }
+
+    /**
+     * Modèles de la catégorie par prix unitaire croissant (prix par watt pour les panneaux, à 1/1000 près)
+     */
+    public List<Item> itemsByUnitPrice(Category category) {
+        Index index = indexes.get(category);
+        return index != null ? index.byUnitPrice : List.of();
+    }
+
+    /**
+     * Nomenclature compatible la moins chère couvrant le dimensionnement
+     *
+     * @param establishment Établissement (équipements sélectionnés), peut être null
+     * @return null si le catalogue n'est pas chargé ou si aucun modèle compatible ne couvre une composante
+     */
+    public BillOfMaterials solve(double pvKwc, double batteryKwh, double inverterKw, Establishment establishment) {
+        if (!isLoaded()) {
+            return null;
+        }
+        List<Line> lines = new ArrayList<>();
+        if (pvKwc > 0) {
+            Item selected = selected(establishment != null ? establishment.getSelectedPanelId() : null, Category.PANEL);
+            List<Item> candidates = selected != null ? List.of(selected) : items(Category.PANEL);
+            if (!addCheapestSingleModel(lines, candidates, pvKwc,
+                    establishment != null ? establishment.getSelectedPanelPrice() : null, selected)) {
+                return null;
+            }
+        }
+        if (batteryKwh > 0) {
+            Item selected = selected(establishment != null ? establishment.getSelectedBatteryId() : null, Category.BATTERY);
+            List<Item> candidates = selected != null ? List.of(selected) : items(Category.BATTERY).stream()
+                .filter(item -> item.depthOfDischarge >= MIN_DEPTH_OF_DISCHARGE).toList();
+            if (!addCheapestSingleModel(lines, candidates, batteryKwh,
+                    establishment != null ? establishment.getSelectedBatteryPrice() : null, selected)) {
+                return null;
+            }
+        }
+        if (inverterKw > 0) {
+            Item selected = selected(establishment != null ? establishment.getSelectedInverterId() : null, Category.INVERTER);
+            List<Item> candidates = selected != null ? List.of(selected)
+                : batteryKwh > 0 ? itemsOfType(Category.INVERTER, HYBRID) : items(Category.INVERTER);
+            if (!addCheapestCover(lines, candidates, inverterKw,
+                    establishment != null ? establishment.getSelectedInverterPrice() : null, selected)) {
+                return null;
+            }
+        }
+        Item controller = selected(establishment != null ? establishment.getSelectedControllerId() : null, Category.CONTROLLER);
+        if (controller != null) {
+            // Hors sélection, les onduleurs hybrides intègrent la régulation MPPT
+            lines.add(new Line(controller, 1, price(controller, establishment.getSelectedControllerPrice(), controller)));
+        }
+        return new BillOfMaterials(lines);
+    }
+
+    /**
+     * Modèle unique le moins cher couvrant la cible (à coût égal, le plus petit rating)
+     */
+    private boolean addCheapestSingleModel(List<Line> lines, List<Item> candidates, double target,
+                                           Double selectedPrice, Item selected) {
+        Item best = null;
+        int bestQuantity = 0;
+        double bestCost = Double.POSITIVE_INFINITY;
+        for (Item item : candidates) {
+            int quantity = units(target, item.rating);
+            double cost = quantity * price(item, selectedPrice, selected);
+            if (cost < bestCost) {
+                best = item;
+                bestQuantity = quantity;
+                bestCost = cost;
+            }
+        }
+        if (best == null) {
+            return false;
+        }
+        lines.add(new Line(best, bestQuantity, price(best, selectedPrice, selected)));
+        return true;
+    }
+
+    /**
+     * Combinaison de modèles la moins chère dont la puissance cumulée couvre la cible : sac à dos non
+     * borné de couverture, cover[c] = coût minimal pour au moins c pas de POWER_STEP_KW, O(cible x modèles)
+     */
+    private boolean addCheapestCover(List<Line> lines, List<Item> candidates, double target,
+                                     Double selectedPrice, Item selected) {
+        if (candidates.isEmpty()) {
+            return false;
+        }
+        int models = candidates.size();
+        int[] steps = new int[models];
+        double[] prices = new double[models];
+        for (int model = 0; model < models; model++) {
+            steps[model] = Math.max(1, (int) Math.round(candidates.get(model).rating / POWER_STEP_KW));
+            prices[model] = price(candidates.get(model), selectedPrice, selected);
+        }
+        int needed = units(target, POWER_STEP_KW);
+        double[] cover = new double[needed + 1];
+        int[] choice = new int[needed + 1];
+        for (int c = 1; c <= needed; c++) {
+            cover[c] = Double.POSITIVE_INFINITY;
+            for (int model = 0; model < models; model++) {
+                double cost = prices[model] + cover[Math.max(0, c - steps[model])];
+                if (cost < cover[c]) {
+                    cover[c] = cost;
+                    choice[c] = model;
+                }
+            }
+        }
+        int[] quantities = new int[models];
+        for (int c = needed; c > 0; c = Math.max(0, c - steps[choice[c]])) {
+            quantities[choice[c]]++;
+        }
+        for (int model = 0; model < models; model++) {
+            if (quantities[model] > 0) {
+                lines.add(new Line(candidates.get(model), quantities[model], prices[model]));
+            }
+        }
+        return true;
+    }
+
+    private Item selected(String id, Category category) {
+        Item item = id != null ? byId.get(id) : null;
+        return item != null && item.category == category ? item : null;
+    }
+
+    /**
+     * Prix enregistré par l'établissement pour l'équipement sélectionné, sinon prix catalogue
+     */
+    private static double price(Item item, Double selectedPrice, Item selected) {
+        return item == selected && selectedPrice != null && selectedPrice > 0 ? selectedPrice : item.priceDh;
+    }
+
+    private static int units(double target, double rating) {
+        return (int) Math.ceil(target / rating - 1e-9);
+    }
+
+    private static String typeKey(Category category, String type) {
+        return category + ":" + type;
+    }
+
+    private static int lowerBound(double[] values, double key) {
+        int index = Arrays.binarySearch(values, key);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && values[index - 1] == key) {
+            index--;
+        }
+        return index;
+    }
+
+    private static int upperBound(double[] values, double key) {
+        int index = Arrays.binarySearch(values, key);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index < values.length - 1 && values[index + 1] == key) {
+            index++;
+        }
+        return index + 1;
+    }
+}
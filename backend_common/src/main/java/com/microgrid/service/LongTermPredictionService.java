@@ -1,5 +1,6 @@
 package com.microgrid.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -18,11 +19,11 @@ public class LongTermPredictionService {
     @Value("${ai.microservice.url:http://localhost:8000}")
     private String aiMicroserviceUrl;
 
-    private final RestTemplate restTemplate;
+    @Autowired
+    private RestTemplate restTemplate;
     private final ConsumptionEstimationService consumptionEstimationService;
 
     public LongTermPredictionService(ConsumptionEstimationService consumptionEstimationService) {
-        this.restTemplate = new RestTemplate();
         this.consumptionEstimationService = consumptionEstimationService;
     }
 
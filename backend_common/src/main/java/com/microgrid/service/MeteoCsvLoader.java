@@ -0,0 +1,511 @@
+package com.microgrid.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Lecture d'un fichier CSV météo (datetime, température, irradiance) directement depuis les octets.
+ *
+ * Pas de String par ligne ni de split : les champs sont délimités dans le buffer de lecture, les dates
+ * au format M/d/yyyy ou yyyy-MM-dd[ HH:mm:ss] et les nombres décimaux courants sont décodés chiffre
+ * par chiffre. Le format de date est détecté une seule fois, sur la première ligne de données ;
+ * les autres formats passent par des DateTimeFormatter partagés, essayés une fois pour le fichier.
+ *
+ * Fichiers sans heure (data_raw : "1/1/2024" sur quatre lignes consécutives) : le créneau dans la
+ * journée est déduit de l'ordre des lignes. Le nombre de lignes par jour est le plus fréquent parmi
+ * les suites de lignes d'une même date (4 pour un fichier 6h), la k-ième ligne du jour tombe au
+ * créneau k * 24h / lignes par jour. Une ligne en trop dans une journée écrase le dernier créneau
+ * et compte comme doublon.
+ *
+ * Non thread-safe : une instance par fichier.
+ */
+public class MeteoCsvLoader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // Formats de secours (formatters immuables, créés une seule fois)
+    private static final DateTimeFormatter[] DATE_TIME_FORMATTERS = {
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss"),
+        DateTimeFormatter.ISO_DATE_TIME
+    };
+    private static final DateTimeFormatter[] DATE_FORMATTERS = {
+        DateTimeFormatter.ofPattern("M/d/yyyy"),
+        DateTimeFormatter.ofPattern("MM/dd/yyyy")
+    };
+
+    // Puissances de 10 exactement représentables en double
+    private static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+        }
+    }
+
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final long INVALID = Long.MIN_VALUE;
+    private static final int SECONDS_PER_DAY = 86400;
+    // Au-delà, une date sans heure est lue comme un pas d'une minute
+    private static final int MAX_ROWS_PER_DAY = SECONDS_PER_DAY / WeatherSeries.MIN_STEP_SECONDS;
+
+    private enum DateFormat { UNKNOWN, US_DATE, ISO, FORMATTER }
+
+    private final String fileName;
+    private DateFormat dateFormat = DateFormat.UNKNOWN;
+    private DateTimeFormatter formatter;
+    private boolean formatterHasTime;
+    private int position;
+    private boolean hasTime;
+    private int rows;
+    private int invalidRows;
+
+    // Lignes sans heure, placées dans la journée en fin de lecture
+    private long[] dateOnlyDays = new long[0];
+    private int[] dateOnlyOrdinals = new int[0];
+    private double[] dateOnlyTemperatures = new double[0];
+    private double[] dateOnlyIrradiances = new double[0];
+    private int dateOnlyCount;
+    private long runDay = INVALID;
+    private int runLength;
+    private final int[] runLengths = new int[MAX_ROWS_PER_DAY + 1];
+    private int rowsPerDay;
+
+    public MeteoCsvLoader(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * Lit tout le flux (ligne d'en-tête comprise) dans une série météo
+     */
+    public WeatherSeries load(InputStream input) throws IOException {
+        WeatherSeries.Builder builder = new WeatherSeries.Builder();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int start = 0;
+        int end = 0;
+        int scan = 0;
+        int lineNumber = 0;
+        boolean eof = false;
+
+        while (true) {
+            int newline = -1;
+            for (int i = scan; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    newline = i;
+                    break;
+                }
+            }
+
+            if (newline < 0) {
+                if (eof) {
+                    if (start < end) {
+                        parseLine(buffer, start, end, ++lineNumber, builder);
+                    }
+                    break;
+                }
+                // Ligne incomplète : la ramener en début de buffer et lire la suite
+                int pending = end - start;
+                if (pending == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                } else if (start > 0) {
+                    System.arraycopy(buffer, start, buffer, 0, pending);
+                }
+                start = 0;
+                end = pending;
+                scan = pending;
+                int read = input.read(buffer, end, buffer.length - end);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    end += read;
+                }
+                continue;
+            }
+
+            parseLine(buffer, start, newline, ++lineNumber, builder);
+            start = newline + 1;
+            scan = start;
+        }
+        addDateOnlyRows(builder);
+        return builder.build();
+    }
+
+    /**
+     * Nombre de lignes de données lues
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Nombre de lignes ignorées (date ou nombre invalide)
+     */
+    public int getInvalidRows() {
+        return invalidRows;
+    }
+
+    /**
+     * Lignes par jour déduites pour les dates sans heure (0 si toutes les lignes ont une heure)
+     */
+    public int getRowsPerDay() {
+        return rowsPerDay;
+    }
+
+    private void parseLine(byte[] line, int from, int to, int lineNumber, WeatherSeries.Builder builder) {
+        if (to > from && line[to - 1] == '\r') {
+            to--;
+        }
+        if (lineNumber == 1) {
+            return; // En-tête
+        }
+
+        int firstComma = indexOf(line, ',', from, to);
+        int secondComma = firstComma < 0 ? -1 : indexOf(line, ',', firstComma + 1, to);
+        if (secondComma < 0) {
+            return;
+        }
+        int thirdComma = indexOf(line, ',', secondComma + 1, to);
+        int irradianceEnd = thirdComma < 0 ? to : thirdComma;
+        rows++;
+
+        long epochSecond = parseEpochSecond(line, from, firstComma);
+        if (epochSecond == INVALID) {
+            invalidRows++;
+            return;
+        }
+
+        try {
+            double temperature = parseDouble(line, firstComma + 1, secondComma);
+            double irradiance = parseDouble(line, secondComma + 1, irradianceEnd);
+            if (hasTime) {
+                builder.add(epochSecond, temperature, irradiance);
+            } else {
+                addDateOnly(epochSecond, temperature, irradiance);
+            }
+        } catch (NumberFormatException e) {
+            invalidRows++;
+            System.err.println("Erreur ligne " + lineNumber + " dans " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ligne sans heure : rang dans la suite de lignes consécutives de la même date
+     */
+    private void addDateOnly(long day, double temperature, double irradiance) {
+        if (day != runDay) {
+            closeRun();
+            runDay = day;
+        }
+        if (dateOnlyCount == dateOnlyDays.length) {
+            int capacity = Math.max(1024, dateOnlyCount * 2);
+            dateOnlyDays = Arrays.copyOf(dateOnlyDays, capacity);
+            dateOnlyOrdinals = Arrays.copyOf(dateOnlyOrdinals, capacity);
+            dateOnlyTemperatures = Arrays.copyOf(dateOnlyTemperatures, capacity);
+            dateOnlyIrradiances = Arrays.copyOf(dateOnlyIrradiances, capacity);
+        }
+        dateOnlyDays[dateOnlyCount] = day;
+        dateOnlyOrdinals[dateOnlyCount] = runLength++;
+        dateOnlyTemperatures[dateOnlyCount] = temperature;
+        dateOnlyIrradiances[dateOnlyCount] = irradiance;
+        dateOnlyCount++;
+    }
+
+    private void closeRun() {
+        if (runLength > 0) {
+            runLengths[Math.min(runLength, MAX_ROWS_PER_DAY)]++;
+        }
+        runLength = 0;
+    }
+
+    /**
+     * Place les lignes sans heure dans la journée, au pas de 24h / lignes par jour
+     */
+    private void addDateOnlyRows(WeatherSeries.Builder builder) {
+        closeRun();
+        if (dateOnlyCount == 0) {
+            return;
+        }
+        // Longueur de journée la plus fréquente (la plus grande en cas d'égalité : pas d'écrasement)
+        rowsPerDay = 1;
+        for (int length = 2; length <= MAX_ROWS_PER_DAY; length++) {
+            if (runLengths[length] >= runLengths[rowsPerDay]) {
+                rowsPerDay = length;
+            }
+        }
+        int slotSeconds = SECONDS_PER_DAY / rowsPerDay;
+        for (int i = 0; i < dateOnlyCount; i++) {
+            int slot = Math.min(dateOnlyOrdinals[i], rowsPerDay - 1);
+            builder.add(dateOnlyDays[i] + (long) slot * slotSeconds, dateOnlyTemperatures[i], dateOnlyIrradiances[i]);
+        }
+    }
+
+    /**
+     * Horodatage (secondes epoch) de la date en début de ligne, ou INVALID
+     */
+    private long parseEpochSecond(byte[] line, int from, int to) {
+        while (from < to && line[from] == ' ') {
+            from++;
+        }
+        while (to > from && line[to - 1] == ' ') {
+            to--;
+        }
+
+        if (dateFormat == DateFormat.UNKNOWN) {
+            dateFormat = detectFormat(line, from, to);
+        }
+        long epochSecond = switch (dateFormat) {
+            case US_DATE -> parseUsDate(line, from, to);
+            case ISO -> parseIsoDate(line, from, to);
+            default -> INVALID;
+        };
+        return epochSecond != INVALID ? epochSecond : parseWithFormatters(new String(line, from, to - from, StandardCharsets.ISO_8859_1));
+    }
+
+    private DateFormat detectFormat(byte[] line, int from, int to) {
+        if (parseUsDate(line, from, to) != INVALID) {
+            return DateFormat.US_DATE;
+        }
+        if (parseIsoDate(line, from, to) != INVALID) {
+            return DateFormat.ISO;
+        }
+        return DateFormat.FORMATTER;
+    }
+
+    /**
+     * M/d/yyyy ou MM/dd/yyyy, éventuellement suivi de " HH:mm[:ss]"
+     */
+    private long parseUsDate(byte[] line, int from, int to) {
+        position = from;
+        int month = readNumber(line, to, 2);
+        if (month < 0 || !expect(line, to, '/')) {
+            return INVALID;
+        }
+        int day = readNumber(line, to, 2);
+        if (day < 0 || !expect(line, to, '/')) {
+            return INVALID;
+        }
+        int yearStart = position;
+        int year = readNumber(line, to, 4);
+        if (position - yearStart != 4) {
+            return INVALID;
+        }
+        return withOptionalTime(line, to, year, month, day);
+    }
+
+    /**
+     * yyyy-MM-dd, éventuellement suivi de " HH:mm[:ss[.fff]]" ou "THH:mm[:ss[.fff]]"
+     */
+    private long parseIsoDate(byte[] line, int from, int to) {
+        position = from;
+        int year = readNumber(line, to, 4);
+        if (position - from != 4 || !expect(line, to, '-')) {
+            return INVALID;
+        }
+        int month = readNumber(line, to, 2);
+        if (month < 0 || !expect(line, to, '-')) {
+            return INVALID;
+        }
+        int day = readNumber(line, to, 2);
+        if (day < 0) {
+            return INVALID;
+        }
+        return withOptionalTime(line, to, year, month, day);
+    }
+
+    private long withOptionalTime(byte[] line, int to, int year, int month, int day) {
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return INVALID;
+        }
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        hasTime = position < to;
+        if (hasTime) {
+            if (line[position] != ' ' && line[position] != 'T') {
+                return INVALID;
+            }
+            position++;
+            hour = readNumber(line, to, 2);
+            if (hour < 0 || hour > 23 || !expect(line, to, ':')) {
+                return INVALID;
+            }
+            minute = readNumber(line, to, 2);
+            if (minute < 0 || minute > 59) {
+                return INVALID;
+            }
+            if (position < to && line[position] == ':') {
+                position++;
+                second = readNumber(line, to, 2);
+                if (second < 0 || second > 59) {
+                    return INVALID;
+                }
+            }
+            if (position < to && expect(line, to, '.')) {
+                while (position < to && isDigit(line[position])) {
+                    position++;
+                }
+            }
+            if (position < to) {
+                return INVALID;
+            }
+        }
+        return epochDay(year, month, day) * 86400 + hour * 3600 + minute * 60 + second;
+    }
+
+    /**
+     * Formats de secours : le premier formatter qui réussit est retenu pour les lignes suivantes
+     */
+    private long parseWithFormatters(String value) {
+        if (formatter != null) {
+            long epochSecond = parseWith(formatter, formatterHasTime, value);
+            if (epochSecond != INVALID) {
+                hasTime = formatterHasTime;
+                return epochSecond;
+            }
+        }
+        for (DateTimeFormatter candidate : DATE_TIME_FORMATTERS) {
+            long epochSecond = parseWith(candidate, true, value);
+            if (epochSecond != INVALID) {
+                formatter = candidate;
+                formatterHasTime = true;
+                hasTime = true;
+                return epochSecond;
+            }
+        }
+        for (DateTimeFormatter candidate : DATE_FORMATTERS) {
+            long epochSecond = parseWith(candidate, false, value);
+            if (epochSecond != INVALID) {
+                formatter = candidate;
+                formatterHasTime = false;
+                hasTime = false;
+                return epochSecond;
+            }
+        }
+        return INVALID;
+    }
+
+    private static long parseWith(DateTimeFormatter formatter, boolean hasTime, String value) {
+        try {
+            if (hasTime) {
+                return LocalDateTime.parse(value, formatter).toEpochSecond(ZoneOffset.UTC);
+            }
+            return LocalDate.parse(value, formatter).toEpochDay() * 86400;
+        } catch (DateTimeParseException e) {
+            return INVALID;
+        }
+    }
+
+    /**
+     * Lit au plus {@code maxDigits} chiffres à partir de {@code position}, -1 si aucun
+     */
+    private int readNumber(byte[] line, int to, int maxDigits) {
+        int value = 0;
+        int digits = 0;
+        while (position < to && digits < maxDigits && isDigit(line[position])) {
+            value = value * 10 + (line[position] - '0');
+            position++;
+            digits++;
+        }
+        return digits == 0 ? -1 : value;
+    }
+
+    private boolean expect(byte[] line, int to, char separator) {
+        if (position < to && line[position] == separator) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Nombre décimal sans exposant décodé directement, arrondi exact comme Double.parseDouble :
+     * division exacte si la mantisse tient sur 53 bits. Les autres cas (mantisse plus longue,
+     * exposant, NaN) passent par Double.parseDouble.
+     */
+    static double parseDouble(byte[] line, int from, int to) {
+        while (from < to && line[from] == ' ') {
+            from++;
+        }
+        while (to > from && line[to - 1] == ' ') {
+            to--;
+        }
+
+        int i = from;
+        boolean negative = false;
+        if (i < to && (line[i] == '-' || line[i] == '+')) {
+            negative = line[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        boolean anyDigit = false;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean fraction = false;
+        for (; i < to; i++) {
+            byte b = line[i];
+            if (isDigit(b)) {
+                anyDigit = true;
+                if (mantissa != 0 || b != '0') {
+                    digits++;
+                }
+                // Au-delà de 19 chiffres la mantisse ne tient plus sur 64 bits : Double.parseDouble
+                mantissa = digits > 19 ? mantissa : mantissa * 10 + (b - '0');
+                if (fraction) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+
+        if (i == to && anyDigit && digits <= 19 && fractionDigits < POWERS_OF_TEN.length
+                && mantissa >= 0 && mantissa <= MAX_EXACT_MANTISSA) {
+            double value = mantissa / POWERS_OF_TEN[fractionDigits];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(new String(line, from, to - from, StandardCharsets.ISO_8859_1));
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static int indexOf(byte[] line, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (line[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> Year.isLeap(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /**
+     * Jour epoch d'une date valide (équivalent de LocalDate.of(...).toEpochDay() sans allocation)
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
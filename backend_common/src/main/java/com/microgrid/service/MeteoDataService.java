@@ -3,6 +3,7 @@ package com.microgrid.service;
 import com.microgrid.model.MoroccanCity;
 import org.springframework.stereotype.Service;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -12,6 +13,22 @@ import java.util.Map;
 @Service
 public class MeteoDataService {
 
+    // Fichiers par zone, construits une fois (appelé à chaque chargement de zone)
+    private static final Map<MoroccanCity.IrradiationClass, String> METEO_FILES =
+        new EnumMap<>(MoroccanCity.IrradiationClass.class);
+    private static final Map<MoroccanCity.IrradiationClass, String> PV_FILES =
+        new EnumMap<>(MoroccanCity.IrradiationClass.class);
+    static {
+        METEO_FILES.put(MoroccanCity.IrradiationClass.A, "zone_a_sahara_meteo_2024_6h.csv");
+        METEO_FILES.put(MoroccanCity.IrradiationClass.B, "zone_b_centre_meteo_2024_6h.csv");
+        METEO_FILES.put(MoroccanCity.IrradiationClass.C, "casablanca_meteo_2024_6h.csv");
+        METEO_FILES.put(MoroccanCity.IrradiationClass.D, "zone_d_rif_meteo_2024_6h.csv");
+        PV_FILES.put(MoroccanCity.IrradiationClass.A, "zone_a_sahara_pv_2024_6h.csv");
+        PV_FILES.put(MoroccanCity.IrradiationClass.B, "zone_b_centre_pv_2024_6h.csv");
+        PV_FILES.put(MoroccanCity.IrradiationClass.C, "casablanca_pv_2024_6h.csv");
+        PV_FILES.put(MoroccanCity.IrradiationClass.D, "zone_d_rif_pv_2024_6h.csv");
+    }
+
     /**
      * Mappe la classe d'irradiation vers le nom du fichier de données météo
      * 
@@ -19,13 +36,7 @@ public class MeteoDataService {
      * @return Nom du fichier CSV correspondant
      */
     public String getMeteoFileName(MoroccanCity.IrradiationClass irradiationClass) {
-        Map<MoroccanCity.IrradiationClass, String> fileMap = new HashMap<>();
-        fileMap.put(MoroccanCity.IrradiationClass.A, "zone_a_sahara_meteo_2024_6h.csv");
-        fileMap.put(MoroccanCity.IrradiationClass.B, "zone_b_centre_meteo_2024_6h.csv");
-        fileMap.put(MoroccanCity.IrradiationClass.C, "casablanca_meteo_2024_6h.csv");
-        fileMap.put(MoroccanCity.IrradiationClass.D, "zone_d_rif_meteo_2024_6h.csv");
-        
-        return fileMap.getOrDefault(irradiationClass, "casablanca_meteo_2024_6h.csv");
+        return METEO_FILES.getOrDefault(irradiationClass, "casablanca_meteo_2024_6h.csv");
     }
 
     /**
@@ -35,13 +46,7 @@ public class MeteoDataService {
      * @return Nom du fichier CSV correspondant
      */
     public String getPvFileName(MoroccanCity.IrradiationClass irradiationClass) {
-        Map<MoroccanCity.IrradiationClass, String> fileMap = new HashMap<>();
-        fileMap.put(MoroccanCity.IrradiationClass.A, "zone_a_sahara_pv_2024_6h.csv");
-        fileMap.put(MoroccanCity.IrradiationClass.B, "zone_b_centre_pv_2024_6h.csv");
-        fileMap.put(MoroccanCity.IrradiationClass.C, "casablanca_pv_2024_6h.csv");
-        fileMap.put(MoroccanCity.IrradiationClass.D, "zone_d_rif_pv_2024_6h.csv");
-        
-        return fileMap.getOrDefault(irradiationClass, "casablanca_pv_2024_6h.csv");
+        return PV_FILES.getOrDefault(irradiationClass, "casablanca_pv_2024_6h.csv");
     }
 
     /**
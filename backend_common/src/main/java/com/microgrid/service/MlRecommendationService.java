@@ -26,11 +26,8 @@ public class MlRecommendationService {
     @Autowired
     private ComprehensiveResultsService comprehensiveResultsService;
 
-    private final RestTemplate restTemplate;
-
-    public MlRecommendationService() {
-        this.restTemplate = new RestTemplate();
-    }
+    @Autowired
+    private RestTemplate restTemplate;
 
     /**
      * Résultat des recommandations ML
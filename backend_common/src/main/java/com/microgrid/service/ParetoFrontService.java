@@ -0,0 +1,224 @@
+package com.microgrid.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.microgrid.exception.ValidationException;
+import com.microgrid.model.Establishment;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Front de Pareto des dimensionnements d'un établissement sur les quatre objectifs du score global :
+ * coût d'installation (minimisé), autonomie, résilience (heures d'autonomie sur batterie en consommation
+ * critique) et CO2 évité (maximisés).
+ *
+ * Les candidats de la grille PV x batterie x onduleur sont évalués en parallèle par
+ * {@link SizingOptimizerService#evaluateAll}. Le front est extrait par tri non dominé : candidats triés
+ * par ordre lexicographique des objectifs, chacun comparé aux seuls membres du front déjà retenus
+ * (un candidat dominé l'est par un membre du front, qui le précède dans l'ordre).
+ *
+ * Le front est mis en cache par révision de l'établissement (updatedAt), version du modèle ML
+ * (PredictionCache, incrémentée à chaque réentraînement) et paramètres de la grille : toute modification
+ * de l'établissement ou tout nouveau modèle donne une nouvelle clé. L'évaluation de la grille (et ses
+ * appels AI) s'exécute hors du verrou du cache (AsyncCaches).
+ */
+@Service
+public class ParetoFrontService {
+
+    private static final int OBJECTIVES = 4;
+
+    @Autowired
+    private SizingOptimizerService sizingOptimizerService;
+
+    @Autowired
+    private ComprehensiveResultsService comprehensiveResultsService;
+
+    @Autowired
+    private PredictionCache predictionCache;
+
+    @Value("${simulation.pareto.cache-size:256}")
+    private long cacheSize = 256;
+
+    @Value("${simulation.pareto.cache-ttl-minutes:60}")
+    private long cacheTtlMinutes = 60;
+
+    private AsyncCache<String, ParetoFront> cache;
+
+    /**
+     * Dimensionnement non dominé
+     */
+    public static class Design {
+        public final double pvPowerKwc;
+        public final double batteryCapacityKwh;
+        public final double inverterPowerKw;
+        public final double installationCost;
+        public final double npv;
+        public final double annualSavings;
+        public final double autonomy;
+        public final double criticalAutonomyHours;
+        public final double co2Avoided;
+        /** Score global (ComprehensiveResultsService#calculateGlobalScore) du dimensionnement */
+        public final double globalScore;
+
+        Design(SizingOptimizerService.Candidate candidate, double criticalAutonomyHours, double co2Avoided,
+               double globalScore) {
+            this.pvPowerKwc = candidate.pvPowerKwc;
+            this.batteryCapacityKwh = candidate.batteryCapacityKwh;
+            this.inverterPowerKw = candidate.inverterPowerKw;
+            this.installationCost = candidate.installationCost;
+            this.npv = candidate.npv;
+            this.annualSavings = candidate.annualSavings;
+            this.autonomy = candidate.autonomy;
+            this.criticalAutonomyHours = criticalAutonomyHours;
+            this.co2Avoided = co2Avoided;
+            this.globalScore = globalScore;
+        }
+    }
+
+    /**
+     * Front de Pareto d'un établissement, par coût d'installation croissant
+     */
+    public static class ParetoFront {
+        public final Long establishmentId;
+        /** Révision de l'établissement (updatedAt) pour laquelle le front a été calculé */
+        public final LocalDateTime revision;
+        /** Candidats évalués (respectant budget et surface) */
+        public final int candidates;
+        public final List<Design> designs;
+        public final LocalDateTime computedAt;
+        public final long elapsedMs;
+
+        ParetoFront(Long establishmentId, LocalDateTime revision, int candidates, List<Design> designs, long elapsedMs) {
+            this.establishmentId = establishmentId;
+            this.revision = revision;
+            this.candidates = candidates;
+            this.designs = Collections.unmodifiableList(designs);
+            this.computedAt = LocalDateTime.now();
+            this.elapsedMs = elapsedMs;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+            .maximumSize(cacheSize)
+            .expireAfterWrite(Duration.ofMinutes(cacheTtlMinutes))
+            .buildAsync();
+    }
+
+    /**
+     * Front de Pareto de l'établissement (mêmes grilles par défaut que l'optimisation du dimensionnement)
+     *
+     * @throws ValidationException si la grille dépasse simulation.sizing.max-candidates
+     */
+    public ParetoFront paretoFront(
+            Establishment establishment,
+            LocalDateTime startDate,
+            int days,
+            List<Double> pvPowersKwc,
+            List<Double> batteryCapacitiesKwh,
+            List<Double> inverterRatios) {
+        String key = establishment.getId() + "@" + establishment.getUpdatedAt() + "#" + predictionCache.modelVersion()
+            + ":" + startDate + ":" + days
+            + ":" + pvPowersKwc + ":" + batteryCapacitiesKwh + ":" + inverterRatios;
+        return AsyncCaches.get(cache, key, () -> compute(
+            establishment, startDate, days, pvPowersKwc, batteryCapacitiesKwh, inverterRatios));
+    }
+
+    private ParetoFront compute(
+            Establishment establishment,
+            LocalDateTime startDate,
+            int days,
+            List<Double> pvPowersKwc,
+            List<Double> batteryCapacitiesKwh,
+            List<Double> inverterRatios) {
+        long started = System.nanoTime();
+        List<SizingOptimizerService.Candidate> candidates = sizingOptimizerService.evaluateAll(
+            establishment, startDate, days, pvPowersKwc, batteryCapacitiesKwh, inverterRatios);
+
+        // Objectifs à maximiser : -coût, autonomie, heures critiques, CO2 évité
+        double[][] objectives = new double[candidates.size()][];
+        double[] criticalHours = new double[candidates.size()];
+        double[] co2Avoided = new double[candidates.size()];
+        IntStream.range(0, candidates.size()).parallel().forEach(index -> {
+            SizingOptimizerService.Candidate candidate = candidates.get(index);
+            criticalHours[index] = (Double) comprehensiveResultsService
+                .calculateResilienceMetrics(establishment, candidate.batteryCapacityKwh).get("criticalAutonomyHours");
+            co2Avoided[index] = (Double) comprehensiveResultsService
+                .calculateEnvironmentalImpact(establishment, candidate.autonomy).get("co2Avoided");
+            objectives[index] = new double[] {
+                -candidate.installationCost, candidate.autonomy, criticalHours[index], co2Avoided[index]};
+        });
+
+        List<Design> designs = new ArrayList<>();
+        for (int index : nonDominated(objectives)) {
+            SizingOptimizerService.Candidate candidate = candidates.get(index);
+            Map<String, Object> score = comprehensiveResultsService.calculateGlobalScore(establishment,
+                candidate.autonomy, candidate.annualSavings, candidate.batteryCapacityKwh, co2Avoided[index]);
+            designs.add(new Design(candidate, criticalHours[index], co2Avoided[index], (Double) score.get("score")));
+        }
+        designs.sort(Comparator.comparingDouble((Design design) -> design.installationCost)
+            .thenComparing(Comparator.comparingDouble((Design design) -> design.autonomy).reversed()));
+        return new ParetoFront(establishment.getId(), establishment.getUpdatedAt(), candidates.size(), designs,
+            (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Indices des vecteurs non dominés (tous les objectifs maximisés ; de vecteurs identiques, seul le
+     * premier est retenu). Tri lexicographique puis comparaison aux seuls membres du front :
+     * O(n log n + n x taille du front).
+     */
+    static int[] nonDominated(double[][] objectives) {
+        Integer[] order = new Integer[objectives.length];
+        for (int index = 0; index < order.length; index++) {
+            order[index] = index;
+        }
+        Arrays.sort(order, (a, b) -> {
+            for (int objective = 0; objective < OBJECTIVES; objective++) {
+                int comparison = Double.compare(objectives[b][objective], objectives[a][objective]);
+                if (comparison != 0) {
+                    return comparison;
+                }
+            }
+            return Integer.compare(a, b);
+        });
+        List<Integer> front = new ArrayList<>();
+        for (int candidate : order) {
+            boolean dominated = false;
+            for (int member : front) {
+                if (covers(objectives[member], objectives[candidate])) {
+                    dominated = true;
+                    break;
+                }
+            }
+            if (!dominated) {
+                front.add(candidate);
+            }
+        }
+        return front.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * true si {@code a} est au moins aussi bon que {@code b} sur tous les objectifs
+     */
+    private static boolean covers(double[] a, double[] b) {
+        for (int objective = 0; objective < OBJECTIVES; objective++) {
+            if (a[objective] < b[objective]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,227 @@
+package com.microgrid.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache des prédictions du microservice AI (/predict, /predict/pv, /detect/anomalies et leurs versions batch).
+ *
+ * Ces endpoints sont des fonctions pures de leurs features tant que les modèles ne changent pas :
+ * la clé est le vecteur de features quantifié (pas {@code ai.cache.quantum}) plus la version du modèle,
+ * incrémentée à chaque réentraînement réussi. Le cache est borné en nombre de pas mis en cache
+ * (une requête batch de n pas pèse n) et les entrées expirent après {@code ai.cache.ttl-minutes}.
+ * Les échecs ne sont jamais mis en cache (les fallbacks restent côté appelant). L'appel AI est exécuté
+ * hors du verrou du cache (AsyncCaches) : il ne bloque ni les autres clés ni l'invalidation.
+ */
+@Service
+public class PredictionCache {
+
+    @Value("${ai.cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${ai.cache.max-rows:200000}")
+    private long maxRows = 200000;
+
+    @Value("${ai.cache.ttl-minutes:60}")
+    private long ttlMinutes = 60;
+
+    @Value("${ai.cache.quantum:0.001}")
+    private double quantum = 0.001;
+
+    private final AtomicLong modelVersion = new AtomicLong();
+    private AsyncCache<FeatureKey, Object> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+            .maximumWeight(maxRows)
+            .weigher((FeatureKey key, Object value) -> key.rows)
+            .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+            .recordStats()
+            .buildAsync();
+    }
+
+    /**
+     * Commence une clé pour un endpoint, avec la version courante du modèle
+     */
+    public KeyBuilder key(String endpoint, int rows) {
+        return new KeyBuilder(endpoint, rows);
+    }
+
+    /**
+     * Retourne la prédiction en cache, ou la calcule avec {@code loader} (une seule fois
+     * par clé, les appels concurrents attendent). Une exception du loader n'est pas mise en cache.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(FeatureKey key, Supplier<T> loader) {
+        if (!enabled || cache == null) {
+            return loader.get();
+        }
+        return (T) AsyncCaches.get(cache, key, loader);
+    }
+
+    /**
+     * Invalide toutes les prédictions (nouveau modèle)
+     */
+    public void invalidateAll() {
+        modelVersion.incrementAndGet();
+        if (cache != null) {
+            cache.synchronous().invalidateAll();
+        }
+    }
+
+    /**
+     * Version courante du modèle (incrémentée à chaque invalidation)
+     */
+    public long modelVersion() {
+        return modelVersion.get();
+    }
+
+    /**
+     * Compteurs du cache pour /api/ai/cache
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("enabled", enabled);
+        values.put("modelVersion", modelVersion.get());
+        if (cache != null) {
+            CacheStats stats = cache.synchronous().stats();
+            values.put("hits", stats.hitCount());
+            values.put("misses", stats.missCount());
+            values.put("hitRate", stats.hitRate());
+            values.put("evictions", stats.evictionCount());
+            values.put("entries", cache.synchronous().estimatedSize());
+            values.put("cachedRows", cache.synchronous().policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L));
+            values.put("maxRows", maxRows);
+        }
+        return values;
+    }
+
+    /**
+     * Construit une clé : les nombres sont quantifiés, les dates converties en secondes UTC
+     */
+    public final class KeyBuilder {
+        private final String endpoint;
+        private final int rows;
+        private long[] features = new long[16];
+        private int size;
+        private final List<Object> labels = new ArrayList<>(2);
+
+        private KeyBuilder(String endpoint, int rows) {
+            this.endpoint = endpoint;
+            this.rows = Math.max(1, rows);
+        }
+
+        public KeyBuilder add(double value) {
+            return addRaw(Math.round(value / quantum));
+        }
+
+        public KeyBuilder add(double[] values) {
+            if (values == null) {
+                return addRaw(-1);
+            }
+            addRaw(values.length);
+            for (double value : values) {
+                add(value);
+            }
+            return this;
+        }
+
+        public KeyBuilder add(Double value) {
+            return value == null ? addRaw(Long.MIN_VALUE) : add(value.doubleValue());
+        }
+
+        public KeyBuilder add(LocalDateTime datetime) {
+            return addRaw(datetime.toEpochSecond(ZoneOffset.UTC));
+        }
+
+        public KeyBuilder addDatetimes(List<LocalDateTime> datetimes) {
+            addRaw(datetimes.size());
+            for (LocalDateTime datetime : datetimes) {
+                add(datetime);
+            }
+            return this;
+        }
+
+        public KeyBuilder addValues(List<Double> values) {
+            if (values == null) {
+                return addRaw(-1);
+            }
+            addRaw(values.size());
+            for (Double value : values) {
+                add(value);
+            }
+            return this;
+        }
+
+        public KeyBuilder label(String label) {
+            labels.add(label);
+            return this;
+        }
+
+        public FeatureKey build() {
+            return new FeatureKey(endpoint, modelVersion.get(), Arrays.copyOf(features, size), labels.toArray(), rows);
+        }
+
+        private KeyBuilder addRaw(long value) {
+            if (size == features.length) {
+                features = Arrays.copyOf(features, size * 2);
+            }
+            features[size++] = value;
+            return this;
+        }
+    }
+
+    /**
+     * Clé de cache : endpoint, version du modèle, features quantifiées et libellés (événement...)
+     */
+    public static final class FeatureKey {
+        private final String endpoint;
+        private final long modelVersion;
+        private final long[] features;
+        private final Object[] labels;
+        private final int rows;
+        private final int hash;
+
+        private FeatureKey(String endpoint, long modelVersion, long[] features, Object[] labels, int rows) {
+            this.endpoint = endpoint;
+            this.modelVersion = modelVersion;
+            this.features = features;
+            this.labels = labels;
+            this.rows = rows;
+            this.hash = Objects.hash(endpoint, modelVersion, Arrays.hashCode(features), Arrays.hashCode(labels));
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof FeatureKey key
+                && hash == key.hash
+                && modelVersion == key.modelVersion
+                && endpoint.equals(key.endpoint)
+                && Arrays.equals(features, key.features)
+                && Arrays.equals(labels, key.labels);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
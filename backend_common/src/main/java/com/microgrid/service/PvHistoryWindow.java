@@ -0,0 +1,59 @@
+package com.microgrid.service;
+
+/**
+ * Historique PV borné pour les lags du modèle ML (lag_6h, lag_12h, lag_24h, roll_24h).
+ *
+ * Le modèle n'utilise que les 4 derniers pas de 6h : on garde donc un buffer
+ * circulaire de taille fixe, mis à jour en place à chaque pas, au lieu de
+ * reconstruire tout l'historique de la simulation à chaque appel.
+ *
+ * Non thread-safe : une instance par simulation.
+ */
+public class PvHistoryWindow {
+
+    /**
+     * Nombre de pas utilisés par le modèle PV (24h = 4 pas de 6h)
+     */
+    public static final int CAPACITY = 4;
+
+    private final double[] ring = new double[CAPACITY];
+    private int next;
+    private int size;
+
+    /**
+     * Ajoute la production PV du dernier pas (écrase la plus ancienne si le buffer est plein)
+     */
+    public void push(double pvProduction) {
+        ring[next] = pvProduction;
+        next = (next + 1) % CAPACITY;
+        if (size < CAPACITY) {
+            size++;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Valeurs du plus ancien au plus récent, au format attendu par /predict/pv
+     * (nouveau tableau de CAPACITY valeurs au plus à chaque appel)
+     *
+     * @return Historique ordonné, ou null si vide
+     */
+    public double[] toArray() {
+        if (size == 0) {
+            return null;
+        }
+        double[] out = new double[size];
+        int start = (next - size + CAPACITY) % CAPACITY;
+        for (int i = 0; i < size; i++) {
+            out[i] = ring[(start + i) % CAPACITY];
+        }
+        return out;
+    }
+}
@@ -21,11 +21,11 @@ public class PvPredictionService {
     @Value("${ai.microservice.url:http://localhost:8000}")
     private String aiMicroserviceUrl;
 
-    private final RestTemplate restTemplate;
+    @Autowired
+    private RestTemplate restTemplate;
 
-    public PvPredictionService() {
-        this.restTemplate = new RestTemplate();
-    }
+    @Autowired
+    private PredictionCache predictionCache;
 
     /**
      * Prédit la production PV avec ML
@@ -44,6 +44,44 @@ public class PvPredictionService {
             double surfaceM2,
             List<Double> historicalPv) {
         
+        double[] history = historicalPv == null || historicalPv.isEmpty()
+            ? null
+            : historicalPv.stream().mapToDouble(Double::doubleValue).toArray();
+        return predictPvProduction(datetime, irradianceKwhM2, temperatureC, surfaceM2, history);
+    }
+
+    /**
+     * Prédit la production PV avec ML à partir d'un historique borné
+     * (voir {@link PvHistoryWindow}) : seuls les derniers pas sont envoyés.
+     * 
+     * @param datetime Date/heure
+     * @param irradianceKwhM2 Irradiance en kWh/m²
+     * @param temperatureC Température en °C
+     * @param surfaceM2 Surface PV en m²
+     * @param historicalPv Historique de production PV, du plus ancien au plus récent (optionnel)
+     * @return Prédiction de production PV en kWh
+     */
+    public double predictPvProduction(
+            LocalDateTime datetime,
+            double irradianceKwhM2,
+            double temperatureC,
+            double surfaceM2,
+            double[] historicalPv) {
+        
+        PredictionCache.FeatureKey key = predictionCache.key("/predict/pv", 1)
+            .add(datetime).add(irradianceKwhM2).add(temperatureC).add(surfaceM2).add(historicalPv)
+            .build();
+        return predictionCache.get(key, () -> requestPvProduction(
+            datetime, irradianceKwhM2, temperatureC, surfaceM2, historicalPv));
+    }
+
+    private double requestPvProduction(
+            LocalDateTime datetime,
+            double irradianceKwhM2,
+            double temperatureC,
+            double surfaceM2,
+            double[] historicalPv) {
+        
         try {
             Map<String, Object> requestBody = new HashMap<>();
             requestBody.put("datetime", datetime.format(DateTimeFormatter.ISO_DATE_TIME));
@@ -51,7 +89,7 @@ public class PvPredictionService {
             requestBody.put("temperature_C", temperatureC);
             requestBody.put("surface_m2", surfaceM2);
             
-            if (historicalPv != null && !historicalPv.isEmpty()) {
+            if (historicalPv != null && historicalPv.length > 0) {
                 requestBody.put("historical_pv", historicalPv);
             }
 
@@ -76,6 +114,69 @@ public class PvPredictionService {
             throw new RuntimeException("Error calling AI microservice /predict/pv: " + e.getMessage(), e);
         }
     }
-}
 
+    /**
+     * Prédit la production PV pour tout un horizon en un seul appel (/predict/pv/batch).
+     * Les lags de chaque pas sont calculés côté microservice à partir des prédictions précédentes.
+     * 
+     * @param datetimes Dates/heures (une par pas)
+     * @param irradianceKwhM2 Irradiances en kWh/m²
+     * @param temperatureC Températures en °C
+     * @param surfaceM2 Surface PV en m²
+     * @param historicalPv Historique de production PV précédant l'horizon (optionnel)
+     * @return Prédictions de production PV en kWh, une par pas
+     */
+    public double[] predictPvProductionBatch(
+            List<LocalDateTime> datetimes,
+            double[] irradianceKwhM2,
+            double[] temperatureC,
+            double surfaceM2,
+            List<Double> historicalPv) {
+        
+        PredictionCache.FeatureKey key = predictionCache.key("/predict/pv/batch", datetimes.size())
+            .addDatetimes(datetimes).add(irradianceKwhM2).add(temperatureC).add(surfaceM2).addValues(historicalPv)
+            .build();
+        return predictionCache.get(key, () -> requestPvProductionBatch(
+            datetimes, irradianceKwhM2, temperatureC, surfaceM2, historicalPv)).clone();
+    }
+
+    private double[] requestPvProductionBatch(
+            List<LocalDateTime> datetimes,
+            double[] irradianceKwhM2,
+            double[] temperatureC,
+            double surfaceM2,
+            List<Double> historicalPv) {
+        
+        try {
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("datetimes", AiMicroserviceClient.formatDatetimes(datetimes));
+            requestBody.put("irradiance_kWh_m2", irradianceKwhM2);
+            requestBody.put("temperature_C", temperatureC);
+            requestBody.put("surface_m2", surfaceM2);
+            
+            if (historicalPv != null && !historicalPv.isEmpty()) {
+                requestBody.put("historical_pv", historicalPv);
+            }
 
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+
+            String url = aiMicroserviceUrl + "/predict/pv/batch";
+            ResponseEntity<Map> response = restTemplate.exchange(
+                url, HttpMethod.POST, entity, Map.class);
+
+            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+                double[] predictions = AiMicroserviceClient.toDoubleArray(
+                    response.getBody().get("predicted_pv_kWh"), datetimes.size());
+                if (predictions != null) {
+                    return predictions;
+                }
+            }
+            
+            throw new RuntimeException("Failed to get batch PV prediction from AI microservice");
+        } catch (Exception e) {
+            throw new RuntimeException("Error calling AI microservice /predict/pv/batch: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.microgrid.service;
+
+import com.microgrid.exception.CapacityExceededException;
+import com.microgrid.model.Establishment;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Service pour exécuter des simulations en arrière-plan (jobs) : la requête HTTP retourne
+ * immédiatement un identifiant, le client suit l'avancement puis récupère le résultat.
+ *
+ * Les jobs tournent sur un pool borné (simulation.jobs.parallelism threads) précédé d'une file
+ * bornée (simulation.jobs.queue-capacity) : au-delà, la soumission est refusée (HTTP 429) au lieu
+ * d'accumuler du travail. La simulation avance par tranches de jours (voir
+ * SimulationService#simulateInChunks), chaque tranche met à jour l'avancement et l'ETA.
+ *
+ * Les jobs terminés (résultat, échec ou annulation) sont conservés simulation.jobs.result-ttl-minutes
+ * puis supprimés. Annuler un job interrompt son thread, ce qui annule les appels AI en cours.
+ */
+@Service
+public class SimulationJobService {
+
+    @Autowired
+    private SimulationService simulationService;
+
+    @Value("${simulation.jobs.parallelism:2}")
+    private int parallelism = 2;
+
+    @Value("${simulation.jobs.queue-capacity:16}")
+    private int queueCapacity = 16;
+
+    @Value("${simulation.jobs.result-ttl-minutes:30}")
+    private long resultTtlMinutes = 30;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == COMPLETED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    /**
+     * État d'un job à un instant donné, envoyé au client (polling ou Server-Sent Events)
+     */
+    public static class JobStatus {
+        public final String jobId;
+        public final Long establishmentId;
+        public final Status status;
+        public final int totalDays;
+        public final int completedDays;
+        public final int completedSteps;
+        /** Fraction des jours simulés (0 à 1) */
+        public final double progress;
+        /** Temps restant estimé en secondes (null tant qu'aucune tranche n'est terminée) */
+        public final Long etaSeconds;
+        public final Instant submittedAt;
+        public final Instant startedAt;
+        public final Instant finishedAt;
+        /** Suppression du job et de son résultat (null tant qu'il n'est pas terminé) */
+        public final Instant expiresAt;
+        public final String error;
+
+        JobStatus(Job job, Duration resultTtl) {
+            synchronized (job) {
+                this.jobId = job.id;
+                this.establishmentId = job.establishmentId;
+                this.status = job.status;
+                this.totalDays = job.days;
+                this.completedDays = job.completedDays;
+                this.completedSteps = job.completedSteps;
+                this.progress = job.days == 0 ? 1.0 : (double) job.completedDays / job.days;
+                this.etaSeconds = job.status == Status.RUNNING && job.completedDays > 0
+                    ? Math.round(Duration.between(job.startedAt, Instant.now()).toMillis() / 1000.0
+                        * (job.days - job.completedDays) / job.completedDays)
+                    : null;
+                this.submittedAt = job.submittedAt;
+                this.startedAt = job.startedAt;
+                this.finishedAt = job.finishedAt;
+                this.expiresAt = job.finishedAt != null ? job.finishedAt.plus(resultTtl) : null;
+                this.error = job.error;
+            }
+        }
+    }
+
+    /**
+     * Job de simulation ; champs modifiés sous le verrou du job
+     */
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final String ownerEmail;
+        final Long establishmentId;
+        final int days;
+        final Instant submittedAt = Instant.now();
+        final List<Consumer<JobStatus>> listeners = new CopyOnWriteArrayList<>();
+        Status status = Status.QUEUED;
+        int completedDays;
+        int completedSteps;
+        Instant startedAt;
+        Instant finishedAt;
+        String error;
+        SimulationService.SimulationResult result;
+        Future<?> future;
+
+        Job(String ownerEmail, Long establishmentId, int days) {
+            this.ownerEmail = ownerEmail;
+            this.establishmentId = establishmentId;
+            this.days = days;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.max(1, parallelism);
+        // Threads virtuels : l'interruption d'un job ferme les sockets des appels AI bloquants
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+            virtualThreads
+                ? Thread.ofVirtual().name("simulation-job-", 0).factory()
+                : Executors.defaultThreadFactory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Soumet une simulation en arrière-plan
+     *
+     * @param establishment Établissement
+     * @param ownerEmail Utilisateur propriétaire (seul autorisé à consulter ou annuler le job)
+     * @param startDate Date de début
+     * @param days Nombre de jours à simuler
+     * @param resolution Pas de simulation
+     * @param batteryCapacityKwh Capacité batterie en kWh
+     * @param initialSocKwh État de charge initial en kWh
+     * @return État initial du job (QUEUED)
+     * @throws CapacityExceededException si la file d'attente est pleine
+     */
+    public JobStatus submit(
+            Establishment establishment,
+            String ownerEmail,
+            LocalDateTime startDate,
+            int days,
+            SimulationTimeGrid.Resolution resolution,
+            double batteryCapacityKwh,
+            double initialSocKwh) {
+        Job job = new Job(ownerEmail, establishment.getId(), days);
+        jobs.put(job.id, job);
+        try {
+            Future<?> future = executor.submit(() -> run(job, establishment, startDate, resolution,
+                batteryCapacityKwh, initialSocKwh));
+            synchronized (job) {
+                job.future = future;
+            }
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw new CapacityExceededException("File des simulations en arrière-plan pleine");
+        }
+        return status(job);
+    }
+
+    /**
+     * État d'un job
+     *
+     * @throws RuntimeException si le job est inconnu, expiré ou appartient à un autre utilisateur
+     */
+    public JobStatus getStatus(String jobId, Long establishmentId, String ownerEmail) {
+        return status(find(jobId, establishmentId, ownerEmail));
+    }
+
+    /**
+     * Résultat d'un job terminé avec succès (tous les pas et les totaux de la période),
+     * null s'il n'est pas (encore) disponible
+     */
+    public SimulationService.SimulationResult getResult(String jobId, Long establishmentId, String ownerEmail) {
+        Job job = find(jobId, establishmentId, ownerEmail);
+        synchronized (job) {
+            return job.result;
+        }
+    }
+
+    /**
+     * Annule un job en attente ou en cours (sans effet s'il est déjà terminé)
+     */
+    public JobStatus cancel(String jobId, Long establishmentId, String ownerEmail) {
+        Job job = find(jobId, establishmentId, ownerEmail);
+        Future<?> future;
+        synchronized (job) {
+            if (job.status.isFinished()) {
+                return status(job);
+            }
+            future = job.future;
+            job.status = Status.CANCELLED;
+            job.finishedAt = Instant.now();
+        }
+        if (future != null) {
+            future.cancel(true);
+        }
+        executor.purge(); // Retirer de la file un job qui n'a pas démarré
+        notifyListeners(job);
+        return status(job);
+    }
+
+    /**
+     * Abonne {@code listener} aux changements d'état du job (tranche terminée, fin du job).
+     * L'état courant est transmis immédiatement ; rien n'est transmis après l'état final.
+     *
+     * @return Action de désabonnement
+     */
+    public Runnable subscribe(String jobId, Long establishmentId, String ownerEmail, Consumer<JobStatus> listener) {
+        Job job = find(jobId, establishmentId, ownerEmail);
+        JobStatus current;
+        synchronized (job) {
+            if (!job.status.isFinished()) {
+                job.listeners.add(listener);
+            }
+            current = status(job);
+        }
+        listener.accept(current);
+        return () -> job.listeners.remove(listener);
+    }
+
+    /**
+     * Supprime les jobs terminés depuis plus de simulation.jobs.result-ttl-minutes
+     */
+    @Scheduled(fixedDelayString = "${simulation.jobs.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        Instant limit = Instant.now().minus(resultTtl());
+        jobs.values().removeIf(job -> {
+            synchronized (job) {
+                return job.finishedAt != null && job.finishedAt.isBefore(limit);
+            }
+        });
+    }
+
+    private void run(Job job, Establishment establishment, LocalDateTime startDate,
+                     SimulationTimeGrid.Resolution resolution, double batteryCapacityKwh, double initialSocKwh) {
+        synchronized (job) {
+            if (job.status != Status.QUEUED) {
+                return; // Annulé pendant l'attente
+            }
+            job.status = Status.RUNNING;
+            job.startedAt = Instant.now();
+        }
+        notifyListeners(job);
+
+        List<SimulationService.SimulationResult> chunks = new ArrayList<>();
+        try {
+            SimulationService.SimulationTotals totals = simulationService.simulateInChunks(
+                establishment, startDate, job.days, resolution, batteryCapacityKwh, initialSocKwh, chunk -> {
+                    chunks.add(chunk);
+                    double hours = 0;
+                    for (int step = 0; step < chunk.size; step++) {
+                        hours += chunk.stepHours[step];
+                    }
+                    synchronized (job) {
+                        if (job.status != Status.RUNNING) {
+                            throw new CancellationException("Simulation annulée");
+                        }
+                        job.completedSteps += chunk.size;
+                        job.completedDays += (int) Math.round(hours / 24.0);
+                    }
+                    notifyListeners(job);
+                });
+            SimulationService.SimulationResult result = SimulationService.SimulationResult.concat(chunks);
+            result.totalConsumption = totals.totalConsumption;
+            result.totalPvProduction = totals.totalPvProduction;
+            result.totalGridImport = totals.totalGridImport;
+            result.averageAutonomy = totals.averageAutonomy;
+            result.totalSavings = totals.totalSavings;
+            finish(job, Status.COMPLETED, result, null);
+        } catch (CancellationException e) {
+            finish(job, Status.CANCELLED, null, null);
+        } catch (RuntimeException e) {
+            System.err.println("Simulation job " + job.id + " failed: " + e.getMessage());
+            finish(job, Status.FAILED, null, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    private void finish(Job job, Status status, SimulationService.SimulationResult result, String error) {
+        synchronized (job) {
+            if (job.status != Status.RUNNING) {
+                return; // Déjà annulé
+            }
+            job.status = status;
+            job.result = result;
+            job.error = error;
+            job.finishedAt = Instant.now();
+        }
+        notifyListeners(job);
+    }
+
+    private void notifyListeners(Job job) {
+        JobStatus current = status(job);
+        for (Consumer<JobStatus> listener : job.listeners) {
+            try {
+                listener.accept(current);
+            } catch (RuntimeException e) {
+                // Client SSE déconnecté : ne plus le notifier
+                job.listeners.remove(listener);
+            }
+        }
+        if (current.status.isFinished()) {
+            job.listeners.clear();
+        }
+    }
+
+    private Job find(String jobId, Long establishmentId, String ownerEmail) {
+        Job job = jobs.get(jobId);
+        if (job == null || !job.establishmentId.equals(establishmentId) || !job.ownerEmail.equals(ownerEmail)) {
+            throw new RuntimeException("Job de simulation introuvable: " + jobId);
+        }
+        return job;
+    }
+
+    private JobStatus status(Job job) {
+        return new JobStatus(job, resultTtl());
+    }
+
+    private Duration resultTtl() {
+        return Duration.ofMinutes(resultTtlMinutes);
+    }
+}
@@ -1,15 +1,33 @@
 package com.microgrid.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.microgrid.exception.ValidationException;
 import com.microgrid.model.Establishment;
 import com.microgrid.model.MoroccanCity;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 /**
  * Service pour simuler la consommation, production PV et SOC batterie sur une période
@@ -39,40 +57,389 @@ public class SimulationService {
     private PvPredictionService pvPredictionService;
 
     @Autowired
-    private AnomalyDetectionService anomalyDetectionService;
+    private DispatchEngine dispatchEngine;
+
+    @Autowired
+    private AiAsyncClient aiAsyncClient;
 
     /**
-     * Résultat d'une simulation pour un pas de temps
+     * Mode batch : un seul appel au microservice AI par étape du pipeline (PV, consommation,
+     * dispatch) pour tout l'horizon, au lieu d'un appel par étape et par pas de 6h.
+     * La détection d'anomalies est batch dans les deux modes.
      */
-    public static class SimulationStep {
-        public LocalDateTime datetime;
-        public double predictedConsumption;
-        public double pvProduction;
-        public double socBattery;
-        public double gridImport;
-        public double batteryCharge;
-        public double batteryDischarge;
-        public String note;
-        public Boolean hasAnomaly;
-        public String anomalyType;
-        public Double anomalyScore;
-        public String anomalyRecommendation;
-    }
+    @Value("${simulation.batch.enabled:true}")
+    private boolean batchEnabled = true;
+
+    /**
+     * Moteur de dispatch : "local" (DispatchEngine, sans appel réseau) ou "remote" (/optimize).
+     * En mode remote, DispatchEngine reste le fallback si le microservice est indisponible.
+     */
+    @Value("${simulation.dispatch.engine:local}")
+    private String dispatchEngineMode = "local";
+
+    /**
+     * Rendement aller-retour de la batterie (réparti à parts égales entre charge et décharge),
+     * transmis aux deux moteurs de dispatch
+     */
+    @Value("${simulation.dispatch.round-trip-efficiency:1.0}")
+    private double roundTripEfficiency = 1.0;
+
+    /**
+     * Taille des tranches du pipeline batch (en pas de 6h, 0 = horizon entier) : la consommation
+     * d'une tranche est prédite pendant que la PV de la tranche suivante est calculée, et la
+     * détection d'anomalies part en parallèle sur toutes les tranches. Utile seulement si le
+     * microservice traite plusieurs requêtes en parallèle (plusieurs workers uvicorn).
+     */
+    @Value("${simulation.pipeline.chunk-steps:0}")
+    private int pipelineChunkSteps = 0;
+
+    /**
+     * Simulation diffusée (simulateInChunks) : taille maximale d'une tranche en jours. La première
+     * tranche fait un jour (premier pas envoyé au plus tôt), chaque tranche suivante double jusqu'à
+     * ce maximum, qui borne la mémoire quelle que soit la durée simulée.
+     */
+    @Value("${simulation.stream.max-chunk-days:32}")
+    private int streamMaxChunkDays = 32;
+
+    /**
+     * Simulation d'ensemble (simulateEnsemble) : nombre maximal de membres, fenêtre de tirage des jours
+     * météo (± jours autour du jour simulé, même saison) et écart-type relatif de la perturbation
+     * journalière de l'irradiance
+     */
+    @Value("${simulation.ensemble.max-members:2000}")
+    private int ensembleMaxMembers = 2000;
+
+    @Value("${simulation.ensemble.window-days:15}")
+    private int ensembleWindowDays = 15;
+
+    @Value("${simulation.ensemble.irradiance-sigma:0.15}")
+    private double ensembleIrradianceSigma = 0.15;
+
+    private static final int MAX_PREVIEW_TYPICAL_DAYS = 60;
+    private static final int PREVIEW_ERROR_CACHE_SIZE = 256;
 
     /**
-     * Résultat complet d'une simulation
+     * Aperçu annuel (simulatePreview) : nombre de jours types par défaut
+     */
+    @Value("${simulation.preview.typical-days:12}")
+    private int previewTypicalDays = 12;
+
+    /**
+     * Écarts de substitution des aperçus (simulatePreview), par zone, jours types, surface, consommation et batterie
+     */
+    private final Cache<String, SurrogateError> surrogateErrors = Caffeine.newBuilder()
+        .maximumSize(PREVIEW_ERROR_CACHE_SIZE)
+        .build();
+
+    /**
+     * Durée du pas d'entraînement des modèles AI (PV, consommation, anomalies), en heures.
+     * Sur une grille d'un autre pas, PV et consommation sont prédites sur les créneaux de 6h
+     * recouvrant la grille puis réparties sur ses pas (voir prepareInputsOnModelSlots) ; pour la
+     * détection d'anomalies, les énergies sont ramenées à leur équivalent sur 6h.
+     */
+    private static final double MODEL_STEP_HOURS = 6.0;
+    private static final int MODEL_STEP_SECONDS = SimulationTimeGrid.Resolution.HOUR_6.stepSeconds;
+
+    /**
+     * Résultat complet d'une simulation, stocké en colonnes (un tableau par grandeur, un indice par pas).
+     * 
+     * Les notes et libellés d'anomalies sont internés (quelques valeurs distinctes par simulation),
+     * les anomalies sont un BitSet et un score absent vaut NaN.
+     * Sérialisé en JSON pas par pas par SimulationStepsSerializer.
      */
     public static class SimulationResult {
-        public List<SimulationStep> steps = new ArrayList<>();
+        public final int size;
+        /** Date/heure de chaque pas (secondes epoch, LocalDateTime en UTC) */
+        public final long[] datetimes;
+        /** Durée de chaque pas en heures (6h par défaut) */
+        public final double[] stepHours;
+        public final double[] predictedConsumption;
+        public final double[] pvProduction;
+        public final double[] socBattery;
+        public final double[] gridImport;
+        public final double[] batteryCharge;
+        public final double[] batteryDischarge;
+        public final double[] anomalyScore;
+        public final BitSet anomalies = new BitSet();
+        private final short[] noteCodes;
+        private final short[] anomalyTypeCodes;
+        private final short[] anomalyRecommendationCodes;
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Short> stringCodes = new HashMap<>();
+        public double totalConsumption;
+        public double totalPvProduction;
+        public double totalGridImport;
+        public double averageAutonomy;
+        public double totalSavings;
+
+        public SimulationResult(int size) {
+            this.size = size;
+            this.datetimes = new long[size];
+            this.stepHours = new double[size];
+            Arrays.fill(stepHours, MODEL_STEP_HOURS);
+            this.predictedConsumption = new double[size];
+            this.pvProduction = new double[size];
+            this.socBattery = new double[size];
+            this.gridImport = new double[size];
+            this.batteryCharge = new double[size];
+            this.batteryDischarge = new double[size];
+            this.anomalyScore = new double[size];
+            this.noteCodes = new short[size];
+            this.anomalyTypeCodes = new short[size];
+            this.anomalyRecommendationCodes = new short[size];
+            Arrays.fill(anomalyScore, Double.NaN);
+            strings.add(null); // code 0 = valeur absente
+        }
+
+        public LocalDateTime datetime(int step) {
+            return LocalDateTime.ofEpochSecond(datetimes[step], 0, ZoneOffset.UTC);
+        }
+
+        public void setDatetime(int step, LocalDateTime datetime) {
+            datetimes[step] = datetime.toEpochSecond(ZoneOffset.UTC);
+        }
+
+        public String note(int step) {
+            return strings.get(noteCodes[step]);
+        }
+
+        public void setNote(int step, String note) {
+            noteCodes[step] = intern(note);
+        }
+
+        public boolean hasAnomaly(int step) {
+            return anomalies.get(step);
+        }
+
+        public String anomalyType(int step) {
+            return strings.get(anomalyTypeCodes[step]);
+        }
+
+        public String anomalyRecommendation(int step) {
+            return strings.get(anomalyRecommendationCodes[step]);
+        }
+
+        /**
+         * Renseigne le résultat de détection d'anomalie d'un pas (score NaN = absent)
+         */
+        public void setAnomaly(int step, boolean isAnomaly, String type, double score, String recommendation) {
+            anomalies.set(step, isAnomaly);
+            anomalyTypeCodes[step] = intern(type);
+            anomalyScore[step] = score;
+            anomalyRecommendationCodes[step] = intern(recommendation);
+        }
+
+        /**
+         * Résultat unique formé de tranches successives (simulation par tranches), totaux non renseignés
+         */
+        public static SimulationResult concat(List<SimulationResult> parts) {
+            int size = 0;
+            for (SimulationResult part : parts) {
+                size += part.size;
+            }
+            SimulationResult result = new SimulationResult(size);
+            int offset = 0;
+            for (SimulationResult part : parts) {
+                System.arraycopy(part.datetimes, 0, result.datetimes, offset, part.size);
+                System.arraycopy(part.stepHours, 0, result.stepHours, offset, part.size);
+                System.arraycopy(part.predictedConsumption, 0, result.predictedConsumption, offset, part.size);
+                System.arraycopy(part.pvProduction, 0, result.pvProduction, offset, part.size);
+                System.arraycopy(part.socBattery, 0, result.socBattery, offset, part.size);
+                System.arraycopy(part.gridImport, 0, result.gridImport, offset, part.size);
+                System.arraycopy(part.batteryCharge, 0, result.batteryCharge, offset, part.size);
+                System.arraycopy(part.batteryDischarge, 0, result.batteryDischarge, offset, part.size);
+                System.arraycopy(part.anomalyScore, 0, result.anomalyScore, offset, part.size);
+                for (int step = 0; step < part.size; step++) {
+                    result.anomalies.set(offset + step, part.anomalies.get(step));
+                    result.noteCodes[offset + step] = result.intern(part.note(step));
+                    result.anomalyTypeCodes[offset + step] = result.intern(part.anomalyType(step));
+                    result.anomalyRecommendationCodes[offset + step] = result.intern(part.anomalyRecommendation(step));
+                }
+                offset += part.size;
+            }
+            return result;
+        }
+
+        private short intern(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Short code = stringCodes.get(value);
+            if (code == null) {
+                if (strings.size() > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Too many distinct labels in simulation result");
+                }
+                code = (short) strings.size();
+                strings.add(value);
+                stringCodes.put(value, code);
+            }
+            return code;
+        }
+    }
+
+    /**
+     * Totaux d'une simulation diffusée par tranches (les pas ne sont pas conservés)
+     */
+    public static class SimulationTotals {
+        public int steps;
         public double totalConsumption;
         public double totalPvProduction;
         public double totalGridImport;
         public double averageAutonomy;
         public double totalSavings;
+        public double finalSocKwh;
+    }
+
+    /**
+     * P10, P50 et P90 d'une grandeur sur les membres d'un ensemble
+     */
+    public static class Percentiles {
+        public final double p10;
+        public final double p50;
+        public final double p90;
+
+        Percentiles(double p10, double p50, double p90) {
+            this.p10 = p10;
+            this.p50 = p50;
+            this.p90 = p90;
+        }
+    }
+
+    /**
+     * Bandes P10/P50/P90 d'une grandeur journalière (un indice par jour)
+     */
+    public static class Band {
+        public final double[] p10;
+        public final double[] p50;
+        public final double[] p90;
+
+        Band(int days) {
+            this.p10 = new double[days];
+            this.p50 = new double[days];
+            this.p90 = new double[days];
+        }
     }
 
     /**
-     * Simule le comportement énergétique sur une période
+     * Résultat d'une simulation d'ensemble : bandes de percentiles par jour et sur toute la période.
+     * L'autonomie d'un membre est la part de la consommation couverte sans le réseau (PV et batterie), en %.
+     */
+    public static class EnsembleResult {
+        public final int members;
+        public final List<LocalDate> dates;
+        /** SOC minimal atteint dans la journée (kWh) */
+        public final Band minSocKwh;
+        /** Import réseau de la journée (kWh) */
+        public final Band gridImportKwh;
+        public final Percentiles totalGridImportKwh;
+        public final Percentiles autonomy;
+        public final Percentiles finalSocKwh;
+
+        EnsembleResult(int members, List<LocalDate> dates, Band minSocKwh, Band gridImportKwh,
+                       Percentiles totalGridImportKwh, Percentiles autonomy, Percentiles finalSocKwh) {
+            this.members = members;
+            this.dates = dates;
+            this.minSocKwh = minSocKwh;
+            this.gridImportKwh = gridImportKwh;
+            this.totalGridImportKwh = totalGridImportKwh;
+            this.autonomy = autonomy;
+            this.finalSocKwh = finalSocKwh;
+        }
+    }
+
+    /**
+     * Écart d'un aperçu par jours types mesuré sur le modèle de substitution sans appel AI (PV par
+     * formule, consommation constante) : n'inclut ni l'écart dû au regroupement de la consommation ni
+     * celui de la PV AI, c'est une estimation optimiste de l'écart à la simulation complète
+     */
+    public static class SurrogateError {
+        /** Écart relatif de l'irradiance journalière reconstituée par les jours types (%) */
+        public final double irradiancePercent;
+        /** Écart relatif de la production PV annuelle (%) */
+        public final double pvProductionPercent;
+        /** Écart relatif de l'import réseau annuel (%) */
+        public final double gridImportPercent;
+        /** Écart d'autonomie (points de %) */
+        public final double autonomyPoints;
+
+        SurrogateError(double irradiancePercent, double pvProductionPercent, double gridImportPercent,
+                     double autonomyPoints) {
+            this.irradiancePercent = irradiancePercent;
+            this.pvProductionPercent = pvProductionPercent;
+            this.gridImportPercent = gridImportPercent;
+            this.autonomyPoints = autonomyPoints;
+        }
+    }
+
+    /**
+     * Aperçu annuel : totaux de l'année reconstitués à partir des jours types simulés
+     */
+    public static class PreviewResult {
+        public final List<LocalDate> typicalDays;
+        /** Nombre de jours de l'année représentés par chaque jour type */
+        public final double[] weights;
+        /** Jours de l'année reconstitués */
+        public final int days;
+        /** Pas effectivement simulés */
+        public final int simulatedSteps;
+        public final double totalConsumption;
+        public final double totalPvProduction;
+        public final double totalGridImport;
+        public final double averageAutonomy;
+        public final double totalSavings;
+        public final SurrogateError surrogateError;
+
+        PreviewResult(TypicalDays typicalDays, int simulatedSteps, double[] totals, SurrogateError surrogateError) {
+            this.typicalDays = typicalDays.days;
+            this.weights = typicalDays.weights;
+            this.days = typicalDays.dayCount();
+            this.simulatedSteps = simulatedSteps;
+            this.totalConsumption = totals[0];
+            this.totalPvProduction = totals[1];
+            this.totalGridImport = totals[2];
+            this.averageAutonomy = autonomy(totals);
+            this.totalSavings = totals[1] * 1.2; // 1.2 DH/kWh
+            this.surrogateError = surrogateError;
+        }
+    }
+
+    /**
+     * Entrées d'une simulation indépendantes de la batterie (météo, PV, consommation).
+     * Traitées en lecture seule : partagées sans copie entre scénarios exécutés en parallèle.
+     */
+    public static class SimulationInputs {
+        public final int size;
+        public final List<LocalDateTime> datetimes;
+        final long[] epochDatetimes;
+        final double[] stepHours;
+        final double[] temperature;
+        final double[] irradiance;
+        final double[] pvProduction;
+        final double[] expectedPv;
+        final double[] consumption;
+
+        SimulationInputs(List<LocalDateTime> datetimes, long[] epochDatetimes, double[] temperature,
+                         double[] irradiance, double[] pvProduction, double[] expectedPv, double[] consumption) {
+            this(datetimes, epochDatetimes, filled(epochDatetimes.length, MODEL_STEP_HOURS), temperature,
+                irradiance, pvProduction, expectedPv, consumption);
+        }
+
+        SimulationInputs(List<LocalDateTime> datetimes, long[] epochDatetimes, double[] stepHours, double[] temperature,
+                         double[] irradiance, double[] pvProduction, double[] expectedPv, double[] consumption) {
+            this.size = epochDatetimes.length;
+            this.datetimes = Collections.unmodifiableList(datetimes);
+            this.epochDatetimes = epochDatetimes;
+            this.stepHours = stepHours;
+            this.temperature = temperature;
+            this.irradiance = irradiance;
+            this.pvProduction = pvProduction;
+            this.expectedPv = expectedPv;
+            this.consumption = consumption;
+        }
+    }
+
+    /**
+     * Simule le comportement énergétique sur une période, au pas de 6h
      * 
      * @param establishment Établissement
      * @param startDate Date de début
@@ -87,78 +454,459 @@ public class SimulationService {
             int days,
             double batteryCapacityKwh,
             double initialSocKwh) {
+        return simulate(establishment, startDate, days, SimulationTimeGrid.Resolution.HOUR_6,
+            batteryCapacityKwh, initialSocKwh);
+    }
+
+    /**
+     * Simule le comportement énergétique sur une période, à la résolution demandée.
+     * Le coût est linéaire en nombre de pas (météo rééchantillonnée en O(1) par pas).
+     * 
+     * @param resolution Pas de simulation (15 min, 1h, 6h, 1 jour ou adaptatif)
+     */
+    public SimulationResult simulate(
+            Establishment establishment,
+            LocalDateTime startDate,
+            int days,
+            SimulationTimeGrid.Resolution resolution,
+            double batteryCapacityKwh,
+            double initialSocKwh) {
+        SimulationTimeGrid grid = timeGrid(establishment, startDate, days, resolution, batteryCapacityKwh, initialSocKwh);
+        if (batchEnabled) {
+            return simulate(prepareInputs(establishment, grid), batteryCapacityKwh, initialSocKwh, true);
+        }
+        return simulatePerStep(establishment, grid, batteryCapacityKwh, initialSocKwh, new PvHistoryWindow());
+    }
+
+    /**
+     * Simule une période par tranches de jours successives, transmises à {@code onChunk} dès
+     * qu'elles sont calculées, sans garder les pas des tranches précédentes : seuls le SOC et
+     * l'historique PV (lags du modèle) passent d'une tranche à la suivante.
+     * 
+     * Mêmes résultats que {@link #simulate(Establishment, LocalDateTime, int, SimulationTimeGrid.Resolution, double, double)}
+     * pour le dispatch et la PV ; la consommation, les anomalies et la grille adaptative sont
+     * calculées par tranche (comme avec simulation.pipeline.chunk-steps). Une exception levée par
+     * {@code onChunk} (client déconnecté) ou l'interruption du thread (job annulé) arrête la simulation.
+     * 
+     * @param onChunk Appelé pour chaque tranche, dans l'ordre chronologique
+     * @return Totaux sur toute la période
+     */
+    public SimulationTotals simulateInChunks(
+            Establishment establishment,
+            LocalDateTime startDate,
+            int days,
+            SimulationTimeGrid.Resolution resolution,
+            double batteryCapacityKwh,
+            double initialSocKwh,
+            Consumer<SimulationResult> onChunk) {
+        SimulationTotals totals = new SimulationTotals();
+        PvHistoryWindow pvHistory = new PvHistoryWindow();
+        double soc = initialSocKwh;
+        int chunkDays = 1;
+        for (int day = 0; day < days; day += chunkDays, chunkDays = Math.min(chunkDays * 2, Math.max(streamMaxChunkDays, 1))) {
+            checkInterrupted();
+            int length = Math.min(chunkDays, days - day);
+            SimulationTimeGrid grid = timeGrid(establishment, startDate.plusDays(day), length, resolution,
+                batteryCapacityKwh, soc).anchoredAt(startDate);
+            SimulationResult chunk = batchEnabled
+                ? simulate(prepareInputs(establishment, grid, pvHistory), batteryCapacityKwh, soc, true)
+                : simulatePerStep(establishment, grid, batteryCapacityKwh, soc, pvHistory);
+            
+            totals.steps += chunk.size;
+            totals.totalConsumption += chunk.totalConsumption;
+            totals.totalPvProduction += chunk.totalPvProduction;
+            totals.totalGridImport += chunk.totalGridImport;
+            if (chunk.size > 0) {
+                soc = chunk.socBattery[chunk.size - 1];
+            }
+            onChunk.accept(chunk);
+        }
+        totals.finalSocKwh = soc;
+        totals.averageAutonomy = totals.totalConsumption == 0 ? 0.0
+            : (totals.totalPvProduction / totals.totalConsumption) * 100.0;
+        totals.totalSavings = totals.totalPvProduction * 1.2; // 1.2 DH/kWh
+        return totals;
+    }
+
+    /**
+     * Simulation d'ensemble Monte-Carlo : {@code members} traces météo tirées des données du CSV,
+     * résumées en bandes P10/P50/P90 (SOC minimal et import réseau par jour, import total, autonomie).
+     * 
+     * Les entrées de la trace de référence (météo CSV, PV et consommation) sont préparées une seule fois,
+     * avec les appels AI habituels. Chaque membre remplace chaque jour par un jour tiré dans une fenêtre
+     * de ± simulation.ensemble.window-days jours (même saison), dont la production PV est multipliée par
+     * un facteur journalier 1 + N(0, simulation.ensemble.irradiance-sigma) ; la consommation reste celle
+     * du jour simulé. Le dispatch des membres tourne en parallèle avec le moteur local, sur des tableaux
+     * réutilisés par thread (aucune allocation par pas ni par membre hors générateur aléatoire).
+     * 
+     * @param resolution Pas de simulation (fixe, le mode adaptatif n'est pas disponible)
+     * @param members Nombre de traces météo
+     * @param seed Graine : un même appel donne les mêmes bandes
+     * @throws ValidationException si le nombre de membres ou la résolution ne sont pas acceptés
+     */
+    public EnsembleResult simulateEnsemble(
+            Establishment establishment,
+            LocalDateTime startDate,
+            int days,
+            SimulationTimeGrid.Resolution resolution,
+            int members,
+            long seed,
+            double batteryCapacityKwh,
+            double initialSocKwh) {
+        if (members < 1 || members > ensembleMaxMembers) {
+            throw new ValidationException(
+                "Nombre de membres invalide (" + members + "), maximum " + ensembleMaxMembers);
+        }
+        if (resolution == SimulationTimeGrid.Resolution.ADAPTIVE) {
+            throw new ValidationException("Le pas adaptatif n'est pas disponible pour une simulation d'ensemble");
+        }
+        SimulationTimeGrid grid = SimulationTimeGrid.uniform(startDate, days, resolution.stepSeconds);
+        SimulationInputs inputs = prepareInputs(establishment, grid);
+        int stepsPerDay = grid.size / days;
+        double stepHours = grid.stepHours(0);
+        DispatchEngine.BatteryParams params = DispatchEngine.BatteryParams.fromMap(buildBatteryParams(batteryCapacityKwh));
+        double totalConsumption = 0.0;
+        for (double value : inputs.consumption) {
+            totalConsumption += value;
+        }
+        double consumptionTotal = totalConsumption;
+        
+        // Une colonne par membre : valeurs[jour * members + membre]
+        double[] minSoc = new double[days * members];
+        double[] dailyImport = new double[days * members];
+        double[] totalImport = new double[members];
+        double[] finalSoc = new double[members];
+        int workers = Math.min(members, Runtime.getRuntime().availableProcessors());
+        IntStream.range(0, workers).parallel().forEach(worker -> {
+            double[] pv = new double[grid.size];
+            double[] gridImport = new double[grid.size];
+            double[] charge = new double[grid.size];
+            double[] discharge = new double[grid.size];
+            double[] soc = new double[grid.size];
+            for (int member = worker * members / workers; member < (worker + 1) * members / workers; member++) {
+                SplittableRandom random = new SplittableRandom(seed + member);
+                for (int day = 0; day < days; day++) {
+                    int source = ensembleSourceDay(random, day, days, ensembleWindowDays);
+                    double factor = Math.max(0.0, 1.0 + ensembleIrradianceSigma * random.nextGaussian());
+                    for (int step = 0; step < stepsPerDay; step++) {
+                        pv[day * stepsPerDay + step] = inputs.pvProduction[source * stepsPerDay + step] * factor;
+                    }
+                }
+                dispatchEngine.dispatch(inputs.consumption, pv, initialSocKwh, stepHours, params,
+                    gridImport, charge, discharge, soc, null);
+                
+                double memberImport = 0.0;
+                for (int day = 0; day < days; day++) {
+                    double dayMinSoc = Double.MAX_VALUE;
+                    double dayImport = 0.0;
+                    for (int step = day * stepsPerDay; step < (day + 1) * stepsPerDay; step++) {
+                        dayMinSoc = Math.min(dayMinSoc, soc[step]);
+                        dayImport += gridImport[step];
+                    }
+                    minSoc[day * members + member] = dayMinSoc;
+                    dailyImport[day * members + member] = dayImport;
+                    memberImport += dayImport;
+                }
+                totalImport[member] = memberImport;
+                finalSoc[member] = soc[grid.size - 1];
+            }
+        });
+        
+        double[] autonomy = new double[members];
+        for (int member = 0; member < members; member++) {
+            autonomy[member] = consumptionTotal == 0 ? 0.0 : (1.0 - totalImport[member] / consumptionTotal) * 100.0;
+        }
+        List<LocalDate> dates = new ArrayList<>(days);
+        Band minSocBand = new Band(days);
+        Band importBand = new Band(days);
+        for (int day = 0; day < days; day++) {
+            dates.add(startDate.toLocalDate().plusDays(day));
+            setBand(minSocBand, day, percentiles(minSoc, day * members, members));
+            setBand(importBand, day, percentiles(dailyImport, day * members, members));
+        }
+        return new EnsembleResult(members, dates, minSocBand, importBand,
+            percentiles(totalImport, 0, members), percentiles(autonomy, 0, members),
+            percentiles(finalSoc, 0, members));
+    }
+
+    /**
+     * Jour météo source d'un jour simulé, uniforme sur la fenêtre ± windowDays tronquée à l'horizon
+     * (un tirage ramené aux bornes surreprésenterait le premier et le dernier jour)
+     */
+    static int ensembleSourceDay(SplittableRandom random, int day, int days, int windowDays) {
+        return random.nextInt(Math.max(0, day - windowDays), Math.min(days - 1, day + windowDays) + 1);
+    }
+
+    /**
+     * Aperçu annuel avec le nombre de jours types par défaut (simulation.preview.typical-days)
+     */
+    public PreviewResult simulatePreview(Establishment establishment, double batteryCapacityKwh) {
+        return simulatePreview(establishment, previewTypicalDays, batteryCapacityKwh);
+    }
+
+    /**
+     * Aperçu annuel rapide : seuls les jours types de la zone (CsvMeteoReaderService#typicalDays) passent
+     * par le pipeline (PV et consommation AI, dispatch), au pas de 6h ; les totaux de l'année sont la
+     * somme des jours types pondérés par le nombre de jours qu'ils représentent. Chaque jour type est
+     * simulé deux fois, la seconde en partant du SOC de fin de la première (régime journalier établi).
+     * 
+     * L'écart est estimé sur un modèle de substitution sans appel AI (PV par formule, consommation
+     * constante, dispatch local) : toute l'année jour par jour, comparée aux mêmes jours types pondérés
+     * ({@link SurrogateError}). Il est mis en cache par zone, nombre de jours types, surface,
+     * consommation et batterie.
+     * 
+     * @param typicalDayCount Nombre de jours types (12 à 24 conseillé)
+     * @throws ValidationException si le nombre de jours types est hors de [1, 60]
+     * @throws IllegalStateException si aucune donnée météo n'est disponible pour la zone
+     */
+    public PreviewResult simulatePreview(Establishment establishment, int typicalDayCount, double batteryCapacityKwh) {
+        if (typicalDayCount < 1 || typicalDayCount > MAX_PREVIEW_TYPICAL_DAYS) {
+            throw new ValidationException(
+                "Nombre de jours types invalide (" + typicalDayCount + "), maximum " + MAX_PREVIEW_TYPICAL_DAYS);
+        }
+        MoroccanCity.IrradiationClass irradiationClass = convertIrradiationClass(establishment.getIrradiationClass());
+        TypicalDays typicalDays = csvMeteoReaderService.typicalDays(irradiationClass, typicalDayCount);
+        if (typicalDays == null) {
+            throw new IllegalStateException("Données météo indisponibles pour les jours types");
+        }
+        int stepSeconds = SimulationTimeGrid.Resolution.HOUR_6.stepSeconds;
+        int stepsPerDay = 86400 / stepSeconds;
+        DispatchEngine.BatteryParams params = DispatchEngine.BatteryParams.fromMap(buildBatteryParams(batteryCapacityKwh));
+        
+        SimulationInputs inputs = prepareInputs(establishment, SimulationTimeGrid.ofDays(typicalDays.days, stepSeconds));
+        double[] totals = weightedTypicalDays(inputs.consumption, inputs.pvProduction, stepsPerDay,
+            typicalDays.weights, params);
+        
+        double surface = establishment.getInstallableSurfaceM2() != null ? establishment.getInstallableSurfaceM2() : 0.0;
+        double dailyConsumption = dailyConsumption(establishment);
+        String key = irradiationClass + ":" + typicalDayCount + ":" + surface + ":" + dailyConsumption + ":" + batteryCapacityKwh;
+        SurrogateError surrogateError = surrogateErrors.get(key, ignored -> surrogateError(
+            typicalDays, irradiationClass, surface, dailyConsumption, stepSeconds, params));
         
-        SimulationResult result = new SimulationResult();
+        return new PreviewResult(typicalDays, inputs.size, totals, surrogateError);
+    }
+
+    /**
+     * Écart des jours types pondérés sur le modèle de substitution : année complète puis jours types
+     */
+    private SurrogateError surrogateError(TypicalDays typicalDays, MoroccanCity.IrradiationClass irradiationClass,
+                                          double surface, double dailyConsumption, int stepSeconds,
+                                          DispatchEngine.BatteryParams params) {
+        int stepsPerDay = 86400 / stepSeconds;
+        int dayCount = typicalDays.dayCount();
+        double[] pv = new double[dayCount * stepsPerDay];
+        double[] consumption = filled(dayCount * stepsPerDay, dailyConsumption / stepsPerDay);
+        for (int step = 0; step < pv.length; step++) {
+            CsvMeteoReaderService.MeteoData meteo = csvMeteoReaderService.getMeteoData(
+                typicalDays.firstDay.atStartOfDay().plusSeconds((long) step * stepSeconds),
+                Duration.ofSeconds(stepSeconds), irradiationClass);
+            pv[step] = meteo != null ? pvCalculationService.calculatePvProductionFromIrradiance(surface, meteo.irradiance) : 0.0;
+        }
+        double[] gridImport = new double[pv.length];
+        double[] soc = new double[pv.length];
+        dispatchEngine.dispatch(consumption, pv, params.capacityKwh * 0.5, stepSeconds / 3600.0, params,
+            gridImport, new double[pv.length], new double[pv.length], soc, null);
+        double[] full = {sum(consumption), sum(pv), sum(gridImport)};
+        
+        double[] typicalPv = new double[typicalDays.days.size() * stepsPerDay];
+        for (int day = 0; day < typicalDays.days.size(); day++) {
+            int source = (int) ChronoUnit.DAYS.between(typicalDays.firstDay, typicalDays.days.get(day));
+            System.arraycopy(pv, source * stepsPerDay, typicalPv, day * stepsPerDay, stepsPerDay);
+        }
+        double[] approximated = weightedTypicalDays(
+            Arrays.copyOf(consumption, typicalPv.length), typicalPv, stepsPerDay, typicalDays.weights, params);
+        return new SurrogateError(
+            typicalDays.irradianceError * 100.0,
+            relativeError(approximated[1], full[1]),
+            relativeError(approximated[2], full[2]),
+            Math.abs(autonomy(approximated) - autonomy(full)));
+    }
+
+    /**
+     * Totaux {consommation, PV, import réseau} des jours types pondérés : chaque jour est dispatché deux
+     * fois, la seconde en partant du SOC de fin de la première
+     */
+    private double[] weightedTypicalDays(double[] consumption, double[] pv, int stepsPerDay, double[] weights,
+                                         DispatchEngine.BatteryParams params) {
+        double[] dayConsumption = new double[stepsPerDay];
+        double[] dayPv = new double[stepsPerDay];
+        double[] gridImport = new double[stepsPerDay];
+        double[] charge = new double[stepsPerDay];
+        double[] discharge = new double[stepsPerDay];
+        double[] soc = new double[stepsPerDay];
+        double stepHours = 24.0 / stepsPerDay;
+        double[] totals = new double[3];
+        for (int day = 0; day < weights.length; day++) {
+            System.arraycopy(consumption, day * stepsPerDay, dayConsumption, 0, stepsPerDay);
+            System.arraycopy(pv, day * stepsPerDay, dayPv, 0, stepsPerDay);
+            double initialSoc = params.capacityKwh * 0.5;
+            for (int pass = 0; pass < 2; pass++) {
+                dispatchEngine.dispatch(dayConsumption, dayPv, initialSoc, stepHours, params,
+                    gridImport, charge, discharge, soc, null);
+                initialSoc = soc[stepsPerDay - 1];
+            }
+            totals[0] += weights[day] * sum(dayConsumption);
+            totals[1] += weights[day] * sum(dayPv);
+            totals[2] += weights[day] * sum(gridImport);
+        }
+        return totals;
+    }
+
+    private static double sum(double[] values) {
+        double total = 0.0;
+        for (double value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    /**
+     * Autonomie (%) de totaux {consommation, PV, import réseau} : PV / consommation, comme averageAutonomy
+     */
+    private static double autonomy(double[] totals) {
+        return totals[0] == 0 ? 0.0 : totals[1] / totals[0] * 100.0;
+    }
+
+    private static double relativeError(double approximated, double reference) {
+        return reference == 0 ? (approximated == 0 ? 0.0 : 100.0) : Math.abs(approximated - reference) / reference * 100.0;
+    }
+
+    /**
+     * P10/P50/P90 des valeurs [from, from + count) (triées sur place), interpolation linéaire entre rangs
+     */
+    private static Percentiles percentiles(double[] values, int from, int count) {
+        Arrays.sort(values, from, from + count);
+        return new Percentiles(percentile(values, from, count, 0.1), percentile(values, from, count, 0.5),
+            percentile(values, from, count, 0.9));
+    }
+
+    private static double percentile(double[] sorted, int from, int count, double fraction) {
+        double rank = fraction * (count - 1);
+        int lower = (int) rank;
+        int upper = Math.min(lower + 1, count - 1);
+        return sorted[from + lower] + (rank - lower) * (sorted[from + upper] - sorted[from + lower]);
+    }
+
+    private static void setBand(Band band, int day, Percentiles percentiles) {
+        band.p10[day] = percentiles.p10;
+        band.p50[day] = percentiles.p50;
+        band.p90[day] = percentiles.p90;
+    }
+
+    /**
+     * Grille de pas d'une simulation.
+     * 
+     * Mode adaptatif : un premier passage au pas de 6h, sans appel AI (consommation estimée, PV par
+     * formule, moteur de dispatch local), repère les pas où une limite de la batterie est atteinte
+     * en cours de pas (batterie vidée avec import réseau, surplus PV non absorbé, puissance max).
+     * Ailleurs le dispatch est linéaire et un pas de 6h donne le même bilan que des pas fins ;
+     * ces pas critiques et leurs voisins sont donc seuls découpés au quart d'heure.
+     */
+    public SimulationTimeGrid timeGrid(
+            Establishment establishment,
+            LocalDateTime startDate,
+            int days,
+            SimulationTimeGrid.Resolution resolution,
+            double batteryCapacityKwh,
+            double initialSocKwh) {
+        SimulationTimeGrid.Resolution effective = resolution != null ? resolution : SimulationTimeGrid.Resolution.HOUR_6;
+        if (effective != SimulationTimeGrid.Resolution.ADAPTIVE) {
+            return SimulationTimeGrid.uniform(startDate, days, effective.stepSeconds);
+        }
+
+        SimulationTimeGrid coarse = SimulationTimeGrid.uniform(startDate, days, SimulationTimeGrid.ADAPTIVE_COARSE_SECONDS);
+        MoroccanCity.IrradiationClass irradiationClass = convertIrradiationClass(establishment.getIrradiationClass());
+        double dailyConsumption = dailyConsumption(establishment);
+        double surface = establishment.getInstallableSurfaceM2() != null ? establishment.getInstallableSurfaceM2() : 0.0;
+        double coarseStepHours = SimulationTimeGrid.ADAPTIVE_COARSE_SECONDS / 3600.0;
+        int steps = coarse.size;
+        double[] consumption = new double[steps];
+        double[] pv = new double[steps];
+        for (int step = 0; step < steps; step++) {
+            double[] meteo = meteo(coarse, step, irradiationClass);
+            consumption[step] = dailyConsumption * coarseStepHours / 24.0;
+            pv[step] = pvCalculationService.calculatePvProductionFromIrradiance(surface, meteo[1]);
+        }
+
+        DispatchEngine.BatteryParams params = DispatchEngine.BatteryParams.fromMap(buildBatteryParams(batteryCapacityKwh));
+        double[] gridImport = new double[steps];
+        double[] charge = new double[steps];
+        double[] discharge = new double[steps];
+        double[] soc = new double[steps];
+        dispatchEngine.dispatch(consumption, pv, initialSocKwh, coarseStepHours, params,
+            gridImport, charge, discharge, soc, null);
+
+        double maxChargeKwh = params.chargeMaxKw * coarseStepHours;
+        double maxDischargeKwh = params.dischargeMaxKw * coarseStepHours;
+        BitSet refined = new BitSet(steps);
+        for (int step = 0; step < steps; step++) {
+            double surplus = pv[step] - consumption[step];
+            boolean critical = (discharge[step] > 0 && gridImport[step] > 1e-9)
+                || (charge[step] > 0 && charge[step] < surplus - 1e-9)
+                || charge[step] >= maxChargeKwh - 1e-9
+                || discharge[step] >= maxDischargeKwh - 1e-9;
+            if (critical) {
+                refined.set(Math.max(step - 1, 0), Math.min(step + 2, steps));
+            }
+        }
+        return SimulationTimeGrid.refine(coarse, refined, SimulationTimeGrid.ADAPTIVE_FINE_SECONDS);
+    }
+
+    /**
+     * Simulation pas à pas : appels PV, consommation et dispatch par pas,
+     * puis détection d'anomalies en un seul appel. Les modèles n'étant interrogés que sur des
+     * créneaux de 6h, une grille d'un autre pas passe par les entrées préparées du mode batch.
+     */
+    SimulationResult simulatePerStep(
+            Establishment establishment,
+            SimulationTimeGrid grid,
+            double batteryCapacityKwh,
+            double initialSocKwh,
+            PvHistoryWindow pvHistory) {
+        if (!grid.isUniform(MODEL_STEP_SECONDS)) {
+            return simulate(prepareInputs(establishment, grid, pvHistory), batteryCapacityKwh, initialSocKwh, true);
+        }
+        
+        int totalSteps = grid.size;
+        SimulationResult result = new SimulationResult(totalSteps);
         double currentSoc = initialSocKwh;
         
         // Paramètres batterie
-        Map<String, Double> batteryParams = new HashMap<>();
-        batteryParams.put("BATTERY_CAP_KWH", batteryCapacityKwh);
-        batteryParams.put("SOC_MIN", 0.15);
-        batteryParams.put("SOC_MAX", 0.95);
-        batteryParams.put("CHARGE_MAX_KW", 200.0);
-        batteryParams.put("DISCHARGE_MAX_KW", 200.0);
+        Map<String, Double> batteryParams = buildBatteryParams(batteryCapacityKwh);
 
         // Convertir IrradiationClass
         MoroccanCity.IrradiationClass irradiationClass = convertIrradiationClass(establishment.getIrradiationClass());
         
         // Estimation consommation quotidienne si non fournie
-        double dailyConsumption = establishment.getMonthlyConsumptionKwh() != null 
-            ? establishment.getMonthlyConsumptionKwh() / 30.0
-            : consumptionEstimationService.estimateDailyConsumption(
-                establishment.getType(), establishment.getNumberOfBeds());
+        double dailyConsumption = dailyConsumption(establishment);
 
-        // Production PV quotidienne moyenne
-        double dailyPvProduction = 0.0;
-        if (establishment.getInstallableSurfaceM2() != null && establishment.getInstallableSurfaceM2() > 0) {
-            dailyPvProduction = pvCalculationService.calculateDailyPvProduction(
-                establishment.getInstallableSurfaceM2(), irradiationClass);
-        }
-
-        // Simuler chaque pas de 6 heures
-        LocalDateTime currentDate = startDate;
-        int totalSteps = days * 4; // 4 pas de 6h par jour
+        // Simuler chaque pas
+        double surface = establishment.getInstallableSurfaceM2() != null ? establishment.getInstallableSurfaceM2() : 0.0;
+        double[] temperatures = new double[totalSteps];
+        double[] irradiances = new double[totalSteps];
+        double[] expectedPv = new double[totalSteps];
         
         for (int step = 0; step < totalSteps; step++) {
-            SimulationStep simStep = new SimulationStep();
-            simStep.datetime = currentDate;
-            
-            // Lire les données météo réelles depuis CSV
-            double temperature;
-            double irradiance;
-            
-            CsvMeteoReaderService.MeteoData meteoData = csvMeteoReaderService.getMeteoData(currentDate, irradiationClass);
+            checkInterrupted();
+            LocalDateTime currentDate = grid.datetime(step);
+            result.setDatetime(step, currentDate);
             
-            if (meteoData != null) {
-                // Utiliser les données réelles du CSV
-                temperature = meteoData.temperature;
-                irradiance = meteoData.irradiance;
-            } else {
-                // Fallback sur estimation si CSV non disponible
-                temperature = 20.0 + 5.0 * Math.sin(step * Math.PI / 12); // Variation jour/nuit
-                irradiance = meteoDataService.getAverageIrradiance(irradiationClass) / 4.0; // Moyenne par pas
-                if (currentDate.getHour() < 6 || currentDate.getHour() >= 18) {
-                    irradiance = 0.0; // Nuit
-                }
-                System.out.println("Données météo CSV non disponibles pour " + currentDate + ", utilisation de l'estimation");
-            }
+            // Lire les données météo réelles depuis CSV (estimation si CSV non disponible)
+            double[] meteo = meteo(grid, step, irradiationClass);
+            double temperature = meteo[0];
+            double irradiance = meteo[1];
             
             // Production PV pour ce pas - Utiliser ML si disponible, sinon formule
             double pvProduction = 0.0;
             if (establishment.getInstallableSurfaceM2() != null && establishment.getInstallableSurfaceM2() > 0) {
                 try {
-                    // Essayer prédiction ML
-                    // Récupérer historique PV des pas précédents
-                    java.util.List<Double> historicalPvList = result.steps.stream()
-                        .map(s -> s.pvProduction)
-                        .collect(java.util.stream.Collectors.toList());
-                    
+                    // Essayer prédiction ML (historique borné aux lags du modèle)
                     pvProduction = pvPredictionService.predictPvProduction(
                         currentDate,
                         irradiance,
                         temperature,
                         establishment.getInstallableSurfaceM2(),
-                        historicalPvList.isEmpty() ? null : historicalPvList
+                        pvHistory.toArray()
                     );
                 } catch (Exception e) {
                     // Fallback sur formule simple si ML non disponible
@@ -167,13 +915,14 @@ public class SimulationService {
                         establishment.getInstallableSurfaceM2(), irradiance);
                 }
             }
-            simStep.pvProduction = pvProduction;
+            result.pvProduction[step] = pvProduction;
+            pvHistory.push(pvProduction);
             
             // Estimation patients
             double patients = consumptionEstimationService.estimatePatients(establishment.getNumberOfBeds());
             
             // Prédire consommation
-            double predictedConsumption = dailyConsumption / 4.0; // Répartir sur 4 pas (fallback)
+            double predictedConsumption = dailyConsumption / 4.0; // Répartir sur 4 périodes de 6h (fallback)
             try {
                 double aiPrediction = aiMicroserviceClient.predictConsumption(
                     currentDate, temperature, irradiance, pvProduction, patients, currentSoc, null);
@@ -190,86 +939,34 @@ public class SimulationService {
                 // Fallback sur estimation si API non disponible
                 System.err.println("AI microservice not available, using estimation: " + e.getMessage());
             }
-            simStep.predictedConsumption = predictedConsumption;
+            result.predictedConsumption[step] = predictedConsumption;
             
             // Optimiser dispatch
-            Map<String, Object> optimization = new HashMap<>();
-            try {
-                optimization = aiMicroserviceClient.optimizeDispatch(
-                    predictedConsumption, pvProduction, currentSoc, batteryParams);
-                
-                // Extraire les valeurs
-                double gridImport = getDoubleValue(optimization, "grid_import_kWh", 0.0);
-                double batteryCharge = getDoubleValue(optimization, "battery_charge_kWh", 0.0);
-                double batteryDischarge = getDoubleValue(optimization, "battery_discharge_kWh", 0.0);
-                double socNext = getDoubleValue(optimization, "soc_next", currentSoc);
-                
-                // Valider les résultats d'optimisation
-                if (!aiResultValidator.isValidOptimization(
-                        gridImport, batteryCharge, batteryDischarge, socNext, batteryCapacityKwh)) {
-                    // Utiliser le calcul simple si l'optimisation IA est invalide
-                    System.out.println("Résultat d'optimisation IA invalide, utilisation du calcul simple");
-                    optimization = calculateSimpleDispatch(predictedConsumption, pvProduction, currentSoc, batteryCapacityKwh);
-                } else {
-                    // Corriger le SOC si nécessaire
-                    socNext = aiResultValidator.correctSoc(socNext, batteryCapacityKwh);
-                    optimization.put("soc_next", socNext);
-                }
-            } catch (Exception e) {
-                // Fallback sur calcul simple si API non disponible
-                System.err.println("AI microservice not available, using simple calculation: " + e.getMessage());
-                optimization = calculateSimpleDispatch(predictedConsumption, pvProduction, currentSoc, batteryCapacityKwh);
-            }
+            Map<String, Object> optimization = isLocalDispatch()
+                ? dispatchStep(predictedConsumption, pvProduction, currentSoc, MODEL_STEP_HOURS, batteryParams)
+                : remoteDispatchStep(predictedConsumption, pvProduction, currentSoc, batteryParams, batteryCapacityKwh);
             
-            simStep.gridImport = getDoubleValue(optimization, "grid_import_kWh", 0.0);
-            simStep.batteryCharge = getDoubleValue(optimization, "battery_charge_kWh", 0.0);
-            simStep.batteryDischarge = getDoubleValue(optimization, "battery_discharge_kWh", 0.0);
-            simStep.socBattery = getDoubleValue(optimization, "soc_next", currentSoc);
-            simStep.note = (String) optimization.getOrDefault("note", "");
+            result.gridImport[step] = getDoubleValue(optimization, "grid_import_kWh", 0.0);
+            result.batteryCharge[step] = getDoubleValue(optimization, "battery_charge_kWh", 0.0);
+            result.batteryDischarge[step] = getDoubleValue(optimization, "battery_discharge_kWh", 0.0);
+            result.socBattery[step] = getDoubleValue(optimization, "soc_next", currentSoc);
+            String note = (String) optimization.getOrDefault("note", "");
             
-            // Détection d'anomalies
-            try {
-                double expectedPv = pvCalculationService.calculatePvProductionFromIrradiance(
-                    establishment.getInstallableSurfaceM2() != null ? establishment.getInstallableSurfaceM2() : 0.0,
-                    irradiance
-                );
-                
-                AnomalyDetectionService.AnomalyResult anomalyResult = anomalyDetectionService.detectAnomaly(
-                    predictedConsumption,
-                    predictedConsumption, // Utiliser la même valeur pour l'instant
-                    pvProduction,
-                    expectedPv,
-                    currentSoc,
-                    temperature,
-                    irradiance
-                );
-                
-                simStep.hasAnomaly = anomalyResult.isAnomaly;
-                simStep.anomalyType = anomalyResult.anomalyType;
-                simStep.anomalyScore = anomalyResult.anomalyScore;
-                simStep.anomalyRecommendation = anomalyResult.recommendation;
-                
-                if (anomalyResult.isAnomaly) {
-                    simStep.note = (simStep.note.isEmpty() ? "" : simStep.note + " | ") +
-                        "Anomaly detected: " + anomalyResult.anomalyType + " - " + anomalyResult.recommendation;
-                    System.out.println("Anomaly detected at " + currentDate + ": " + anomalyResult.anomalyType);
-                }
-            } catch (Exception e) {
-                // Ignorer erreurs de détection d'anomalies pour ne pas bloquer la simulation
-                System.err.println("Anomaly detection failed: " + e.getMessage());
-            }
+            // Entrées de l'étape de détection d'anomalies (après la boucle)
+            temperatures[step] = temperature;
+            irradiances[step] = irradiance;
+            expectedPv[step] = pvCalculationService.calculatePvProductionFromIrradiance(surface, irradiance);
             
-            currentSoc = simStep.socBattery;
+            result.setNote(step, note);
+            currentSoc = result.socBattery[step];
             
-            result.steps.add(simStep);
             result.totalConsumption += predictedConsumption;
             result.totalPvProduction += pvProduction;
-            result.totalGridImport += simStep.gridImport;
-            
-            // Passer au pas suivant (6 heures)
-            currentDate = currentDate.plusHours(6);
+            result.totalGridImport += result.gridImport[step];
         }
         
+        scoreAnomalies(result, expectedPv, temperatures, irradiances, initialSocKwh);
+        
         // Calculer statistiques finales
         result.averageAutonomy = calculateAverageAutonomy(result);
         result.totalSavings = calculateTotalSavings(result, 1.2); // 1.2 DH/kWh
@@ -277,49 +974,564 @@ public class SimulationService {
         return result;
     }
 
-    private double getDoubleValue(Map<String, Object> map, String key, double defaultValue) {
-        Object value = map.get(key);
-        if (value instanceof Number) {
-            return ((Number) value).doubleValue();
+    /**
+     * Prépare les entrées de la simulation qui ne dépendent pas de la batterie
+     * (météo, production PV, consommation) au pas de 6h : étapes 1 à 3 du pipeline batch.
+     * Le résultat peut être partagé entre plusieurs scénarios de batterie.
+     */
+    public SimulationInputs prepareInputs(Establishment establishment, LocalDateTime startDate, int days) {
+        return prepareInputs(establishment, SimulationTimeGrid.uniform(startDate, days, SimulationTimeGrid.Resolution.HOUR_6.stepSeconds));
+    }
+
+    /**
+     * Prépare les entrées de la simulation sur une grille de pas quelconque
+     */
+    public SimulationInputs prepareInputs(Establishment establishment, SimulationTimeGrid grid) {
+        return prepareInputs(establishment, grid, new PvHistoryWindow());
+    }
+
+    /**
+     * @param pvHistory PV des derniers pas précédant la grille (équivalent 6h), complété avec la PV
+     *                  de la grille pour la tranche suivante
+     */
+    SimulationInputs prepareInputs(Establishment establishment, SimulationTimeGrid grid, PvHistoryWindow pvHistory) {
+        if (!grid.isUniform(MODEL_STEP_SECONDS)) {
+            return prepareInputsOnModelSlots(establishment, grid, pvHistory);
         }
-        return defaultValue;
+        MoroccanCity.IrradiationClass irradiationClass = convertIrradiationClass(establishment.getIrradiationClass());
+        
+        double dailyConsumption = dailyConsumption(establishment);
+        double surface = establishment.getInstallableSurfaceM2() != null ? establishment.getInstallableSurfaceM2() : 0.0;
+        double patients = consumptionEstimationService.estimatePatients(establishment.getNumberOfBeds());
+        
+        int totalSteps = grid.size;
+        List<LocalDateTime> datetimes = new ArrayList<>(totalSteps);
+        long[] epochDatetimes = new long[totalSteps];
+        double[] stepHours = new double[totalSteps];
+        double[] temperature = new double[totalSteps];
+        double[] irradiance = new double[totalSteps];
+        
+        // 1. Données météo (lecture locale, pas d'appel réseau)
+        for (int step = 0; step < totalSteps; step++) {
+            datetimes.add(grid.datetime(step));
+            epochDatetimes[step] = grid.epochSecond(step);
+            stepHours[step] = grid.stepHours(step);
+            double[] meteo = meteo(grid, step, irradiationClass);
+            temperature[step] = meteo[0];
+            irradiance[step] = meteo[1];
+        }
+        
+        // 2-3. Production PV puis consommation, en pipeline par tranches : la PV d'une tranche
+        // dépend des 4 dernières valeurs de la précédente (lags), la consommation d'une tranche
+        // ne dépend que de sa PV et part donc dès que celle-ci est connue
+        double[] pvProduction = new double[totalSteps];
+        double[] expectedPv = new double[totalSteps];
+        for (int step = 0; step < totalSteps; step++) {
+            expectedPv[step] = pvCalculationService.calculatePvProductionFromIrradiance(surface, irradiance[step]);
+        }
+        double[] consumption = new double[totalSteps];
+        Arrays.fill(consumption, dailyConsumption / 4.0);
+        
+        AiCalls aiCalls = new AiCalls();
+        List<CompletableFuture<Void>> consumptionChunks = new ArrayList<>();
+        CompletableFuture<Void> previousPv = CompletableFuture.completedFuture(null);
+        for (int[] chunk : chunks(totalSteps)) {
+            int from = chunk[0];
+            int to = chunk[1];
+            double[] initialHistory = from == 0 && !pvHistory.isEmpty() ? pvHistory.toArray() : null;
+            CompletableFuture<Void> pv = previousPv.thenCompose(ignored -> surface > 0
+                ? predictPvChunk(aiCalls, datetimes, irradiance, temperature, surface, initialHistory,
+                    pvProduction, expectedPv, from, to)
+                : CompletableFuture.completedFuture(null));
+            consumptionChunks.add(pv.thenCompose(ignored -> predictConsumptionChunk(aiCalls,
+                datetimes, temperature, irradiance, pvProduction, patients, dailyConsumption, consumption, from, to)));
+            previousPv = pv;
+        }
+        aiCalls.join(CompletableFuture.allOf(consumptionChunks.toArray(new CompletableFuture[0])));
+        for (int step = Math.max(0, totalSteps - PvHistoryWindow.CAPACITY); step < totalSteps; step++) {
+            pvHistory.push(pvProduction[step]);
+        }
+        
+        return new SimulationInputs(datetimes, epochDatetimes, stepHours, temperature, irradiance,
+            pvProduction, expectedPv, consumption);
     }
 
-    private Map<String, Object> calculateSimpleDispatch(
-            double consumption, double pvProduction, double soc, double batteryCapacity) {
-        Map<String, Object> result = new HashMap<>();
+    /**
+     * Entrées d'une grille dont les pas ne sont pas de 6h (15 min, 1h, 1 jour, adaptatif). Les modèles AI
+     * sont entraînés au pas de 6h (heure du créneau et lags de 6 à 24h en features) : ils sont interrogés
+     * sur les créneaux de 6h recouvrant la grille (avec leurs fallbacks), puis PV et consommation de chaque
+     * créneau sont réparties sur les pas qui le recouvrent. La consommation est répartie au prorata de la
+     * durée, la PV au prorata de l'irradiance du pas dans le créneau : un pas couvrant des créneaux entiers
+     * reçoit leur somme, une nuit ne reçoit pas de PV.
+     */
+    private SimulationInputs prepareInputsOnModelSlots(
+            Establishment establishment, SimulationTimeGrid grid, PvHistoryWindow pvHistory) {
+        SimulationTimeGrid slots = grid.slots(MODEL_STEP_SECONDS);
+        SimulationInputs slotInputs = prepareInputs(establishment, slots, pvHistory);
+        Map<Long, Integer> slotIndex = new HashMap<>(slots.size * 2);
+        for (int slot = 0; slot < slots.size; slot++) {
+            slotIndex.put(slots.epochSecond(slot), slot);
+        }
+
+        MoroccanCity.IrradiationClass irradiationClass = convertIrradiationClass(establishment.getIrradiationClass());
+        double surface = establishment.getInstallableSurfaceM2() != null ? establishment.getInstallableSurfaceM2() : 0.0;
+        int totalSteps = grid.size;
+        List<LocalDateTime> datetimes = new ArrayList<>(totalSteps);
+        long[] epochDatetimes = new long[totalSteps];
+        double[] stepHours = new double[totalSteps];
+        double[] temperature = new double[totalSteps];
+        double[] irradiance = new double[totalSteps];
+        double[] expectedPv = new double[totalSteps];
+        // Irradiance des pas de la grille contenus dans chaque créneau
+        double[] coveredIrradiance = new double[slots.size];
+        for (int step = 0; step < totalSteps; step++) {
+            datetimes.add(grid.datetime(step));
+            epochDatetimes[step] = grid.epochSecond(step);
+            stepHours[step] = grid.stepHours(step);
+            double[] meteo = meteo(grid, step, irradiationClass);
+            temperature[step] = meteo[0];
+            irradiance[step] = meteo[1];
+            expectedPv[step] = pvCalculationService.calculatePvProductionFromIrradiance(surface, irradiance[step]);
+            long slotStart = Math.floorDiv(epochDatetimes[step], MODEL_STEP_SECONDS) * MODEL_STEP_SECONDS;
+            if (epochDatetimes[step] + grid.stepSeconds(step) <= slotStart + MODEL_STEP_SECONDS) {
+                coveredIrradiance[slotIndex.get(slotStart)] += irradiance[step];
+            }
+        }
+
+        double[] pvProduction = new double[totalSteps];
+        double[] consumption = new double[totalSteps];
+        for (int step = 0; step < totalSteps; step++) {
+            long start = epochDatetimes[step];
+            long end = start + grid.stepSeconds(step);
+            for (long slotStart = Math.floorDiv(start, MODEL_STEP_SECONDS) * MODEL_STEP_SECONDS; slotStart < end;
+                    slotStart += MODEL_STEP_SECONDS) {
+                int slot = slotIndex.get(slotStart);
+                double timeShare = (Math.min(end, slotStart + MODEL_STEP_SECONDS) - Math.max(start, slotStart))
+                    / (double) MODEL_STEP_SECONDS;
+                // Irradiance du créneau : celle de ses pas si elle dépasse celle du créneau (rééchantillonnage),
+                // pour que les parts de PV d'un créneau ne dépassent jamais 1
+                double slotIrradiance = Math.max(slotInputs.irradiance[slot], coveredIrradiance[slot]);
+                boolean withinSlot = start >= slotStart && end <= slotStart + MODEL_STEP_SECONDS;
+                double pvShare = withinSlot && timeShare < 1.0 && slotIrradiance > 0
+                    ? irradiance[step] / slotIrradiance
+                    : timeShare;
+                consumption[step] += slotInputs.consumption[slot] * timeShare;
+                pvProduction[step] += slotInputs.pvProduction[slot] * pvShare;
+            }
+        }
+        return new SimulationInputs(datetimes, epochDatetimes, stepHours, temperature, irradiance,
+            pvProduction, expectedPv, consumption);
+    }
+
+    /**
+     * Simule un scénario batterie sur des entrées préparées : dispatch (étape 4)
+     * puis, si demandé, détection d'anomalies (étape 5). Les entrées ne sont pas modifiées.
+     * 
+     * @param inputs Entrées partagées (voir prepareInputs)
+     * @param batteryCapacityKwh Capacité batterie en kWh
+     * @param initialSocKwh État de charge initial en kWh
+     * @param scoreAnomalies Exécuter la détection d'anomalies
+     * @return Résultat de simulation
+     */
+    public SimulationResult simulate(
+            SimulationInputs inputs,
+            double batteryCapacityKwh,
+            double initialSocKwh,
+            boolean scoreAnomalies) {
         
-        double demand = Math.max(consumption, 0.0);
-        double pvAvailable = Math.max(pvProduction, 0.0);
+        Map<String, Double> batteryParams = buildBatteryParams(batteryCapacityKwh);
+        int totalSteps = inputs.size;
+        SimulationResult result = new SimulationResult(totalSteps);
+        System.arraycopy(inputs.epochDatetimes, 0, result.datetimes, 0, totalSteps);
+        System.arraycopy(inputs.stepHours, 0, result.stepHours, 0, totalSteps);
+        System.arraycopy(inputs.pvProduction, 0, result.pvProduction, 0, totalSteps);
+        System.arraycopy(inputs.consumption, 0, result.predictedConsumption, 0, totalSteps);
+        double[] pvProduction = result.pvProduction;
+        double[] consumption = result.predictedConsumption;
         
-        double pvUsed = Math.min(demand, pvAvailable);
-        double remainingDemand = demand - pvUsed;
-        double surplusPv = pvAvailable - pvUsed;
+        // 4. Dispatch (moteur local, ou un appel avec SOC chaîné côté microservice, au pas de 6h uniquement)
+        double[] gridImport = result.gridImport;
+        double[] batteryCharge = result.batteryCharge;
+        double[] batteryDischarge = result.batteryDischarge;
+        double[] socNext = result.socBattery;
+        String[] notes = new String[totalSteps];
+        boolean aiDispatchValid = false;
+        if (!isLocalDispatch() && isModelStep(inputs.stepHours)) {
+            try {
+                AiMicroserviceClient.DispatchBatchResult dispatch = aiMicroserviceClient.optimizeDispatchBatch(
+                    consumption, pvProduction, initialSocKwh, batteryParams);
+                aiDispatchValid = true;
+                for (int step = 0; step < totalSteps && aiDispatchValid; step++) {
+                    aiDispatchValid = aiResultValidator.isValidOptimization(
+                        dispatch.gridImport[step], dispatch.batteryCharge[step], dispatch.batteryDischarge[step],
+                        dispatch.socNext[step], batteryCapacityKwh);
+                }
+                if (aiDispatchValid) {
+                    for (int step = 0; step < totalSteps; step++) {
+                        gridImport[step] = dispatch.gridImport[step];
+                        batteryCharge[step] = dispatch.batteryCharge[step];
+                        batteryDischarge[step] = dispatch.batteryDischarge[step];
+                        socNext[step] = aiResultValidator.correctSoc(dispatch.socNext[step], batteryCapacityKwh);
+                        notes[step] = dispatch.notes.get(step);
+                    }
+                } else {
+                    System.out.println("Résultat d'optimisation IA invalide, utilisation du moteur de dispatch local");
+                }
+            } catch (Exception e) {
+                System.err.println("AI microservice not available, using local dispatch engine: " + e.getMessage());
+            }
+        }
+        if (!aiDispatchValid) {
+            byte[] noteCodes = new byte[totalSteps];
+            DispatchEngine.BatteryParams params = DispatchEngine.BatteryParams.fromMap(batteryParams);
+            if (isModelStep(inputs.stepHours)) {
+                dispatchEngine.dispatch(consumption, pvProduction, initialSocKwh, MODEL_STEP_HOURS, params,
+                    gridImport, batteryCharge, batteryDischarge, socNext, noteCodes);
+            } else {
+                dispatchEngine.dispatch(consumption, pvProduction, initialSocKwh, inputs.stepHours, params,
+                    gridImport, batteryCharge, batteryDischarge, socNext, noteCodes);
+            }
+            for (int step = 0; step < totalSteps; step++) {
+                notes[step] = DispatchEngine.NOTES[noteCodes[step]];
+            }
+        }
         
-        double batteryCharge = 0.0;
-        double batteryDischarge = 0.0;
-        double socNext = soc;
+        for (int step = 0; step < totalSteps; step++) {
+            result.setNote(step, notes[step] != null ? notes[step] : "");
+            result.totalConsumption += consumption[step];
+            result.totalPvProduction += pvProduction[step];
+            result.totalGridImport += gridImport[step];
+        }
         
-        if (surplusPv > 0) {
-            double availableCapacity = Math.max(0.95 * batteryCapacity - socNext, 0.0);
-            batteryCharge = Math.min(surplusPv, availableCapacity);
-            socNext += batteryCharge;
-        } else {
-            double availableDischarge = Math.max(socNext - 0.15 * batteryCapacity, 0.0);
-            batteryDischarge = Math.min(remainingDemand, availableDischarge);
-            socNext -= batteryDischarge;
-            remainingDemand -= batteryDischarge;
+        // 5. Détection d'anomalies (un appel)
+        if (scoreAnomalies) {
+            scoreAnomalies(result, inputs.expectedPv, inputs.temperature, inputs.irradiance, initialSocKwh);
         }
         
-        result.put("grid_import_kWh", Math.max(remainingDemand, 0.0));
-        result.put("battery_charge_kWh", batteryCharge);
-        result.put("battery_discharge_kWh", batteryDischarge);
-        result.put("soc_next", Math.max(0.15 * batteryCapacity, Math.min(socNext, batteryCapacity)));
-        result.put("note", "Simple dispatch calculation");
+        result.averageAutonomy = calculateAverageAutonomy(result);
+        result.totalSavings = calculateTotalSavings(result, 1.2); // 1.2 DH/kWh
         
         return result;
     }
 
+    /**
+     * Étape de détection d'anomalies, commune aux deux modes de simulation : un seul appel
+     * batch pour tout l'horizon (SOC en début de pas, énergies en équivalent 6h), résultat écrit
+     * dans les colonnes et ajouté à la note du pas. C'est la seule détection faite pour /simulate
+     * et /anomalies.
+     */
+    private void scoreAnomalies(
+            SimulationResult result,
+            double[] expectedPv,
+            double[] temperature,
+            double[] irradiance,
+            double initialSocKwh) {
+        double[] socBefore = new double[result.size];
+        for (int step = 0; step < result.size; step++) {
+            socBefore[step] = step == 0 ? initialSocKwh : result.socBattery[step - 1];
+        }
+        List<int[]> chunks = chunks(result.size);
+        AiCalls aiCalls = new AiCalls();
+        List<CompletableFuture<List<AnomalyDetectionService.AnomalyResult>>> chunkResults = new ArrayList<>(chunks.size());
+        for (int[] chunk : chunks) {
+            int from = chunk[0];
+            int to = chunk[1];
+            double[] consumption = toModelStep(result.predictedConsumption, result.stepHours, from, to);
+            chunkResults.add(aiCalls.add(aiAsyncClient.detectAnomaliesBatch(
+                consumption,
+                consumption.clone(),
+                toModelStep(result.pvProduction, result.stepHours, from, to),
+                toModelStep(expectedPv, result.stepHours, from, to),
+                Arrays.copyOfRange(socBefore, from, to),
+                Arrays.copyOfRange(temperature, from, to),
+                toModelStep(irradiance, result.stepHours, from, to))));
+        }
+        List<AnomalyDetectionService.AnomalyResult> anomalies = new ArrayList<>(result.size);
+        for (CompletableFuture<List<AnomalyDetectionService.AnomalyResult>> chunkResult : chunkResults) {
+            anomalies.addAll(aiCalls.join(chunkResult));
+        }
+        
+        for (int step = 0; step < result.size; step++) {
+            AnomalyDetectionService.AnomalyResult anomalyResult = anomalies.get(step);
+            result.setAnomaly(step, anomalyResult.isAnomaly, anomalyResult.anomalyType,
+                anomalyResult.anomalyScore, anomalyResult.recommendation);
+            if (anomalyResult.isAnomaly) {
+                String note = result.note(step);
+                result.setNote(step, (note == null || note.isEmpty() ? "" : note + " | ") +
+                    "Anomaly detected: " + anomalyResult.anomalyType + " - " + anomalyResult.recommendation);
+            }
+        }
+    }
+
+    /**
+     * Prédit la PV des pas de 6h [from, to) en repartant des 4 dernières valeurs de la tranche précédente,
+     * avec la formule en fallback pour la tranche
+     */
+    private CompletableFuture<Void> predictPvChunk(AiCalls aiCalls,
+            List<LocalDateTime> datetimes, double[] irradiance, double[] temperature, double surface,
+            double[] initialHistory, double[] pvProduction, double[] expectedPv, int from, int to) {
+        List<Double> historicalPv = null;
+        if (initialHistory != null) {
+            historicalPv = new ArrayList<>(initialHistory.length);
+            for (double value : initialHistory) {
+                historicalPv.add(value);
+            }
+        } else if (from > 0) {
+            historicalPv = new ArrayList<>(4);
+            for (int step = Math.max(0, from - 4); step < from; step++) {
+                historicalPv.add(pvProduction[step]);
+            }
+        }
+        return aiCalls.add(aiAsyncClient.predictPvProductionBatch(
+                datetimes.subList(from, to), Arrays.copyOfRange(irradiance, from, to),
+                Arrays.copyOfRange(temperature, from, to), surface, historicalPv))
+            .handle((predictions, error) -> {
+                if (error != null) {
+                    System.err.println("PV ML batch prediction failed, using formula: " + rootMessage(error));
+                    System.arraycopy(expectedPv, from, pvProduction, from, to - from);
+                } else {
+                    System.arraycopy(predictions, 0, pvProduction, from, to - from);
+                }
+                return null;
+            });
+    }
+
+    /**
+     * Prédit la consommation des pas de 6h [from, to), estimation conservée pour la tranche en cas d'échec
+     */
+    private CompletableFuture<Void> predictConsumptionChunk(AiCalls aiCalls,
+            List<LocalDateTime> datetimes, double[] temperature, double[] irradiance, double[] pvProduction,
+            double patients, double dailyConsumption, double[] consumption, int from, int to) {
+        return aiCalls.add(aiAsyncClient.predictConsumptionBatch(
+                datetimes.subList(from, to), Arrays.copyOfRange(temperature, from, to),
+                Arrays.copyOfRange(irradiance, from, to), Arrays.copyOfRange(pvProduction, from, to), patients, null))
+            .handle((aiPredictions, error) -> {
+                if (error != null) {
+                    System.err.println("AI microservice not available, using estimation: " + rootMessage(error));
+                    return null;
+                }
+                for (int i = 0; i < to - from; i++) {
+                    double prediction = aiResultValidator.isValidConsumption(aiPredictions[i], dailyConsumption)
+                        ? aiPredictions[i]
+                        : aiResultValidator.correctConsumption(aiPredictions[i], dailyConsumption);
+                    consumption[from + i] = prediction;
+                }
+                return null;
+            });
+    }
+
+    /**
+     * Données météo d'un pas de la grille : {température, irradiance}, rééchantillonnées depuis le CSV
+     * ou estimées (profil jour/nuit) si le fichier est indisponible
+     */
+    private double[] meteo(SimulationTimeGrid grid, int step, MoroccanCity.IrradiationClass irradiationClass) {
+        LocalDateTime datetime = grid.datetime(step);
+        CsvMeteoReaderService.MeteoData meteoData = csvMeteoReaderService.getMeteoData(
+            datetime, grid.duration(step), irradiationClass);
+        if (meteoData != null) {
+            return new double[] {meteoData.temperature, meteoData.irradiance};
+        }
+        // En pas de 6h écoulés depuis le début (même profil qu'au pas de 6h)
+        double elapsed = (grid.epochSecond(step) - grid.originSecond()) / (MODEL_STEP_HOURS * 3600);
+        double temperature = 20.0 + 5.0 * Math.sin(elapsed * Math.PI / 12);
+        // Irradiance moyenne sur 6h, au prorata des heures de jour (6h-18h) couvertes par le pas
+        double irradiance = meteoDataService.getAverageIrradiance(irradiationClass) / 4.0
+            * daylightSeconds(grid.epochSecond(step), grid.stepSeconds(step)) / MODEL_STEP_SECONDS;
+        return new double[] {temperature, irradiance};
+    }
+
+    /**
+     * Secondes de jour (6h-18h) du pas [start, start + seconds)
+     */
+    private static long daylightSeconds(long start, int seconds) {
+        long end = start + seconds;
+        long daylight = 0;
+        for (long day = Math.floorDiv(start, 86400L) * 86400L; day < end; day += 86400L) {
+            daylight += Math.max(0, Math.min(end, day + 18 * 3600L) - Math.max(start, day + 6 * 3600L));
+        }
+        return daylight;
+    }
+
+    private double dailyConsumption(Establishment establishment) {
+        return establishment.getMonthlyConsumptionKwh() != null
+            ? establishment.getMonthlyConsumptionKwh() / 30.0
+            : consumptionEstimationService.estimateDailyConsumption(
+                establishment.getType(), establishment.getNumberOfBeds());
+    }
+
+    /**
+     * Énergies des pas [from, to) ramenées au pas des modèles AI (6h)
+     */
+    private static double[] toModelStep(double[] values, double[] stepHours, int from, int to) {
+        double[] scaled = new double[to - from];
+        for (int i = 0; i < scaled.length; i++) {
+            scaled[i] = values[from + i] / (stepHours[from + i] / MODEL_STEP_HOURS);
+        }
+        return scaled;
+    }
+
+    private static boolean isModelStep(double[] stepHours) {
+        for (double hours : stepHours) {
+            if (hours != MODEL_STEP_HOURS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double[] filled(int size, double value) {
+        double[] values = new double[size];
+        Arrays.fill(values, value);
+        return values;
+    }
+
+    /**
+     * Découpe l'horizon en tranches [from, to) de pipelineChunkSteps pas
+     */
+    private List<int[]> chunks(int totalSteps) {
+        int chunkSteps = pipelineChunkSteps > 0 ? pipelineChunkSteps : Math.max(totalSteps, 1);
+        List<int[]> chunks = new ArrayList<>();
+        for (int from = 0; from < totalSteps; from += chunkSteps) {
+            chunks.add(new int[] {from, Math.min(from + chunkSteps, totalSteps)});
+        }
+        return chunks;
+    }
+
+    /**
+     * Arrête la simulation si son thread a été interrompu (job annulé)
+     */
+    private static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Simulation interrompue");
+        }
+    }
+
+    /**
+     * Appels AI lancés par une étape du pipeline batch. Si le thread de simulation est interrompu
+     * pendant l'attente (job annulé), ils sont tous annulés : AiAsyncClient arrête alors les requêtes
+     * que plus aucune simulation n'attend, et les tranches suivantes ne partent plus.
+     */
+    private static final class AiCalls {
+        private final List<CompletableFuture<?>> futures = new ArrayList<>();
+        private boolean cancelled;
+
+        synchronized <T> CompletableFuture<T> add(CompletableFuture<T> future) {
+            if (cancelled) {
+                future.cancel(true);
+            } else {
+                futures.add(future);
+            }
+            return future;
+        }
+
+        synchronized void cancelAll() {
+            cancelled = true;
+            for (CompletableFuture<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        <T> T join(CompletableFuture<T> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                cancelAll();
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Simulation interrompue");
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : new CompletionException(e.getCause());
+            }
+        }
+    }
+
+    private static String rootMessage(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null
+            ? error.getCause().getMessage()
+            : error.getMessage();
+    }
+
+    /**
+     * Dispatch d'un pas via /optimize, avec le moteur local en fallback
+     */
+    private Map<String, Object> remoteDispatchStep(
+            double predictedConsumption, double pvProduction, double currentSoc,
+            Map<String, Double> batteryParams, double batteryCapacityKwh) {
+        Map<String, Object> optimization;
+        try {
+            optimization = aiMicroserviceClient.optimizeDispatch(
+                predictedConsumption, pvProduction, currentSoc, batteryParams);
+            
+            // Extraire les valeurs
+            double gridImport = getDoubleValue(optimization, "grid_import_kWh", 0.0);
+            double batteryCharge = getDoubleValue(optimization, "battery_charge_kWh", 0.0);
+            double batteryDischarge = getDoubleValue(optimization, "battery_discharge_kWh", 0.0);
+            double socNext = getDoubleValue(optimization, "soc_next", currentSoc);
+            
+            // Valider les résultats d'optimisation
+            if (!aiResultValidator.isValidOptimization(
+                    gridImport, batteryCharge, batteryDischarge, socNext, batteryCapacityKwh)) {
+                // Utiliser le moteur local si l'optimisation IA est invalide
+                System.out.println("Résultat d'optimisation IA invalide, utilisation du moteur de dispatch local");
+                optimization = dispatchStep(predictedConsumption, pvProduction, currentSoc, MODEL_STEP_HOURS, batteryParams);
+            } else {
+                // Corriger le SOC si nécessaire
+                socNext = aiResultValidator.correctSoc(socNext, batteryCapacityKwh);
+                optimization.put("soc_next", socNext);
+            }
+        } catch (Exception e) {
+            // Fallback sur le moteur local si API non disponible
+            System.err.println("AI microservice not available, using local dispatch engine: " + e.getMessage());
+            optimization = dispatchStep(predictedConsumption, pvProduction, currentSoc, MODEL_STEP_HOURS, batteryParams);
+        }
+        return optimization;
+    }
+
+    private Map<String, Double> buildBatteryParams(double batteryCapacityKwh) {
+        Map<String, Double> batteryParams = new HashMap<>();
+        batteryParams.put("BATTERY_CAP_KWH", batteryCapacityKwh);
+        batteryParams.put("SOC_MIN", 0.15);
+        batteryParams.put("SOC_MAX", 0.95);
+        batteryParams.put("CHARGE_MAX_KW", 200.0);
+        batteryParams.put("DISCHARGE_MAX_KW", 200.0);
+        batteryParams.put("ROUND_TRIP_EFFICIENCY", roundTripEfficiency);
+        return batteryParams;
+    }
+
+    private double getDoubleValue(Map<String, Object> map, String key, double defaultValue) {
+        Object value = map.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return defaultValue;
+    }
+
+    private boolean isLocalDispatch() {
+        return !"remote".equalsIgnoreCase(dispatchEngineMode);
+    }
+
+    /**
+     * Dispatch d'un pas avec le moteur local, au format de la réponse /optimize
+     */
+    private Map<String, Object> dispatchStep(
+            double consumption, double pvProduction, double soc, double stepHours, Map<String, Double> batteryParams) {
+        double[] gridImport = new double[1];
+        double[] batteryCharge = new double[1];
+        double[] batteryDischarge = new double[1];
+        double[] socNext = new double[1];
+        byte[] note = new byte[1];
+        dispatchEngine.dispatch(new double[] {consumption}, new double[] {pvProduction}, soc, stepHours,
+            DispatchEngine.BatteryParams.fromMap(batteryParams),
+            gridImport, batteryCharge, batteryDischarge, socNext, note);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("grid_import_kWh", gridImport[0]);
+        result.put("battery_charge_kWh", batteryCharge[0]);
+        result.put("battery_discharge_kWh", batteryDischarge[0]);
+        result.put("soc_next", socNext[0]);
+        result.put("note", DispatchEngine.NOTES[note[0]]);
+        return result;
+    }
+
     private double calculateAverageAutonomy(SimulationResult result) {
         if (result.totalConsumption == 0) {
             return 0.0;
@@ -0,0 +1,202 @@
+package com.microgrid.service;
+
+import com.microgrid.exception.CapacityExceededException;
+import com.microgrid.exception.ValidationException;
+import com.microgrid.model.Establishment;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Service pour simuler en parallèle une grille de scénarios batterie (capacité x SOC initial)
+ * pour un même établissement.
+ *
+ * Les entrées indépendantes de la batterie (météo, PV, consommation) sont préparées une seule
+ * fois puis partagées entre scénarios. Les scénarios tournent sur un pool dédié et borné,
+ * séparé des threads HTTP, et le nombre de sweeps simultanés est limité pour ne pas
+ * pénaliser les requêtes interactives.
+ *
+ * Avec spring.threads.virtual.enabled, chaque scénario tourne sur un thread virtuel (les appels AI
+ * bloquants ne monopolisent plus un thread du pool) et le nombre de scénarios exécutés en même temps
+ * reste borné par simulation.sweep.parallelism.
+ */
+@Service
+public class SimulationSweepService {
+
+    @Autowired
+    private SimulationService simulationService;
+
+    /**
+     * Threads du pool de scénarios (0 = moitié des coeurs, au moins 1)
+     */
+    @Value("${simulation.sweep.parallelism:0}")
+    private int parallelism;
+
+    @Value("${simulation.sweep.max-concurrent:2}")
+    private int maxConcurrentSweeps = 2;
+
+    @Value("${simulation.sweep.max-scenarios:200}")
+    private int maxScenarios = 200;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ExecutorService executor;
+    private Semaphore sweepPermits;
+
+    /**
+     * Scénarios exécutés en même temps (threads virtuels uniquement, null sinon)
+     */
+    private Semaphore scenarioSlots;
+
+    /**
+     * Résumé d'un scénario, envoyé au client dès que le scénario est terminé
+     */
+    public static class ScenarioResult {
+        public final int index;
+        public final double batteryCapacityKwh;
+        public final double initialSocKwh;
+        public final double totalConsumption;
+        public final double totalPvProduction;
+        public final double totalGridImport;
+        public final double averageAutonomy;
+        public final double totalSavings;
+        public final double finalSocKwh;
+
+        public ScenarioResult(int index, double batteryCapacityKwh, double initialSocKwh,
+                              SimulationService.SimulationResult result) {
+            this.index = index;
+            this.batteryCapacityKwh = batteryCapacityKwh;
+            this.initialSocKwh = initialSocKwh;
+            this.totalConsumption = result.totalConsumption;
+            this.totalPvProduction = result.totalPvProduction;
+            this.totalGridImport = result.totalGridImport;
+            this.averageAutonomy = result.averageAutonomy;
+            this.totalSavings = result.totalSavings;
+            this.finalSocKwh = result.size > 0 ? result.socBattery[result.size - 1] : initialSocKwh;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        if (virtualThreads) {
+            executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("simulation-sweep-", 0).factory());
+            scenarioSlots = new Semaphore(threads);
+        } else {
+            executor = new ForkJoinPool(threads);
+        }
+        sweepPermits = new Semaphore(Math.max(1, maxConcurrentSweeps));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Lance un sweep asynchrone. Chaque scénario terminé est transmis à {@code onScenario}
+     * (appelé depuis les threads du pool, dans l'ordre de fin d'exécution).
+     *
+     * Annuler le future retourné arrête le lancement des scénarios restants.
+     *
+     * @param establishment Établissement
+     * @param startDate Date de début
+     * @param days Nombre de jours à simuler
+     * @param batteryCapacitiesKwh Capacités batterie à tester (kWh)
+     * @param initialSocFractions SOC initiaux à tester (fraction de la capacité)
+     * @param onScenario Callback appelé pour chaque scénario terminé
+     * @return Future complété quand tous les scénarios sont terminés
+     * @throws CapacityExceededException si le nombre maximal de sweeps simultanés est atteint
+     */
+    public CompletableFuture<Void> sweep(
+            Establishment establishment,
+            LocalDateTime startDate,
+            int days,
+            List<Double> batteryCapacitiesKwh,
+            List<Double> initialSocFractions,
+            Consumer<ScenarioResult> onScenario) {
+
+        int scenarioCount = batteryCapacitiesKwh.size() * initialSocFractions.size();
+        if (scenarioCount > maxScenarios) {
+            throw new ValidationException(
+                "Trop de scénarios (" + scenarioCount + "), maximum " + maxScenarios);
+        }
+        if (!sweepPermits.tryAcquire()) {
+            throw new CapacityExceededException("Nombre maximal de simulations multi-scénarios en cours atteint");
+        }
+
+        CompletableFuture<Void> sweep = new CompletableFuture<>();
+
+        try {
+            CompletableFuture
+                .supplyAsync(() -> simulationService.prepareInputs(establishment, startDate, days), executor)
+                .thenCompose(inputs -> {
+                    List<CompletableFuture<Void>> scenarios = new ArrayList<>(scenarioCount);
+                    int index = 0;
+                    for (double capacity : batteryCapacitiesKwh) {
+                        for (double socFraction : initialSocFractions) {
+                            int scenarioIndex = index++;
+                            double initialSoc = capacity * socFraction;
+                            scenarios.add(CompletableFuture.runAsync(() -> {
+                                if (sweep.isDone()) {
+                                    return; // Sweep annulé ou en échec
+                                }
+                                try {
+                                    SimulationService.SimulationResult result =
+                                        simulateScenario(inputs, capacity, initialSoc);
+                                    onScenario.accept(new ScenarioResult(scenarioIndex, capacity, initialSoc, result));
+                                } catch (RuntimeException e) {
+                                    // Arrêter les scénarios restants dès le premier échec (ex: client déconnecté)
+                                    sweep.completeExceptionally(e);
+                                    throw e;
+                                }
+                            }, executor));
+                        }
+                    }
+                    return CompletableFuture.allOf(scenarios.toArray(new CompletableFuture[0]));
+                })
+                .whenComplete((ignored, error) -> {
+                    // Permis libéré quand tous les scénarios lancés sont terminés, y compris après un échec
+                    // ou une annulation (sweep déjà complété), pour ne pas dépasser max-concurrent
+                    sweepPermits.release();
+                    if (error != null) {
+                        sweep.completeExceptionally(error);
+                    } else {
+                        sweep.complete(null);
+                    }
+                });
+        } catch (RuntimeException e) {
+            // Pool arrêté : libérer le permis
+            sweepPermits.release();
+            sweep.completeExceptionally(e);
+            throw e;
+        }
+        return sweep;
+    }
+
+    private SimulationService.SimulationResult simulateScenario(
+            SimulationService.SimulationInputs inputs, double capacity, double initialSoc) {
+        if (scenarioSlots == null) {
+            return simulationService.simulate(inputs, capacity, initialSoc, false);
+        }
+        scenarioSlots.acquireUninterruptibly();
+        try {
+            return simulationService.simulate(inputs, capacity, initialSoc, false);
+        } finally {
+            scenarioSlots.release();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.microgrid.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Grille temporelle d'une simulation : début et durée de chaque pas.
+ *
+ * Pas fixe (15 min à 1 jour) ou variable (mode adaptatif : pas de 6h, découpés au quart d'heure
+ * sur les périodes critiques). Immuable.
+ */
+public final class SimulationTimeGrid {
+
+    /**
+     * Résolution demandée pour une simulation
+     */
+    public enum Resolution {
+        MIN_15(900),
+        HOUR_1(3600),
+        HOUR_6(21600),
+        DAY_1(86400),
+        /** Pas de 6h, 15 min autour des périodes critiques (batterie vide ou pleine pendant le pas) */
+        ADAPTIVE(0);
+
+        /** Durée du pas en secondes (0 = variable) */
+        public final int stepSeconds;
+
+        Resolution(int stepSeconds) {
+            this.stepSeconds = stepSeconds;
+        }
+    }
+
+    public static final int ADAPTIVE_COARSE_SECONDS = Resolution.HOUR_6.stepSeconds;
+    public static final int ADAPTIVE_FINE_SECONDS = Resolution.MIN_15.stepSeconds;
+
+    private static final int SECONDS_PER_DAY = 86400;
+
+    public final int size;
+    private final long[] starts;
+    private final int[] seconds;
+    // Début de la simulation (différent du premier pas pour une tranche de simulation diffusée)
+    private final long originSecond;
+
+    private SimulationTimeGrid(long[] starts, int[] seconds, long originSecond) {
+        this.size = starts.length;
+        this.starts = starts;
+        this.seconds = seconds;
+        this.originSecond = originSecond;
+    }
+
+    /**
+     * {@code days} jours au pas constant {@code stepSeconds} (diviseur de 24h)
+     */
+    public static SimulationTimeGrid uniform(LocalDateTime start, int days, int stepSeconds) {
+        int steps = Math.toIntExact((long) days * SECONDS_PER_DAY / stepSeconds);
+        long origin = start.toEpochSecond(ZoneOffset.UTC);
+        long[] starts = new long[steps];
+        int[] seconds = new int[steps];
+        for (int step = 0; step < steps; step++) {
+            starts[step] = origin + (long) step * stepSeconds;
+            seconds[step] = stepSeconds;
+        }
+        return new SimulationTimeGrid(starts, seconds, origin);
+    }
+
+    /**
+     * Jours non consécutifs (jours types) au pas constant {@code stepSeconds}, dans l'ordre donné
+     */
+    public static SimulationTimeGrid ofDays(List<LocalDate> days, int stepSeconds) {
+        int stepsPerDay = SECONDS_PER_DAY / stepSeconds;
+        long[] starts = new long[days.size() * stepsPerDay];
+        int[] seconds = new int[starts.length];
+        for (int day = 0; day < days.size(); day++) {
+            long dayStart = days.get(day).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+            for (int step = 0; step < stepsPerDay; step++) {
+                starts[day * stepsPerDay + step] = dayStart + (long) step * stepSeconds;
+                seconds[day * stepsPerDay + step] = stepSeconds;
+            }
+        }
+        return new SimulationTimeGrid(starts, seconds, starts.length > 0 ? starts[0] : 0L);
+    }
+
+    /**
+     * Grille au pas {@code coarseSeconds} dont les pas marqués dans {@code refined} sont découpés
+     * au pas {@code fineSeconds} (diviseur de coarseSeconds)
+     */
+    public static SimulationTimeGrid refine(SimulationTimeGrid coarse, BitSet refined, int fineSeconds) {
+        int steps = 0;
+        for (int step = 0; step < coarse.size; step++) {
+            steps += refined.get(step) ? coarse.seconds[step] / fineSeconds : 1;
+        }
+        long[] starts = new long[steps];
+        int[] seconds = new int[steps];
+        int index = 0;
+        for (int step = 0; step < coarse.size; step++) {
+            if (refined.get(step)) {
+                for (int offset = 0; offset < coarse.seconds[step]; offset += fineSeconds) {
+                    starts[index] = coarse.starts[step] + offset;
+                    seconds[index++] = fineSeconds;
+                }
+            } else {
+                starts[index] = coarse.starts[step];
+                seconds[index++] = coarse.seconds[step];
+            }
+        }
+        return new SimulationTimeGrid(starts, seconds, coarse.originSecond);
+    }
+
+    /**
+     * Même grille, rattachée à une simulation commencée à {@code origin} (tranche d'un horizon plus long)
+     */
+    public SimulationTimeGrid anchoredAt(LocalDateTime origin) {
+        return new SimulationTimeGrid(starts, seconds, origin.toEpochSecond(ZoneOffset.UTC));
+    }
+
+    /**
+     * Créneaux de {@code slotSeconds} (diviseur de 24h, alignés sur minuit) recouvrant les pas de la grille,
+     * dans l'ordre des pas et sans doublon, rattachés au même début de simulation
+     */
+    public SimulationTimeGrid slots(int slotSeconds) {
+        Set<Long> slotStarts = new LinkedHashSet<>();
+        for (int step = 0; step < size; step++) {
+            long end = starts[step] + seconds[step];
+            for (long slot = Math.floorDiv(starts[step], slotSeconds) * slotSeconds; slot < end; slot += slotSeconds) {
+                slotStarts.add(slot);
+            }
+        }
+        long[] slotArray = new long[slotStarts.size()];
+        int index = 0;
+        for (long slot : slotStarts) {
+            slotArray[index++] = slot;
+        }
+        int[] slotSecondsArray = new int[slotArray.length];
+        Arrays.fill(slotSecondsArray, slotSeconds);
+        return new SimulationTimeGrid(slotArray, slotSecondsArray, originSecond);
+    }
+
+    /**
+     * Début de la simulation (secondes epoch)
+     */
+    public long originSecond() {
+        return originSecond;
+    }
+
+    public LocalDateTime datetime(int step) {
+        return LocalDateTime.ofEpochSecond(starts[step], 0, ZoneOffset.UTC);
+    }
+
+    public long epochSecond(int step) {
+        return starts[step];
+    }
+
+    public int stepSeconds(int step) {
+        return seconds[step];
+    }
+
+    public double stepHours(int step) {
+        return seconds[step] / 3600.0;
+    }
+
+    public Duration duration(int step) {
+        return Duration.ofSeconds(seconds[step]);
+    }
+
+    /**
+     * true si tous les pas durent {@code stepSeconds}
+     */
+    public boolean isUniform(int stepSeconds) {
+        for (int value : seconds) {
+            if (value != stepSeconds) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,508 @@
+package com.microgrid.service;
+
+import com.microgrid.exception.ValidationException;
+import com.microgrid.model.Establishment;
+import com.microgrid.model.MoroccanCity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Optimiseur de dimensionnement : recherche sur une grille PV (kWc) x batterie (kWh) x onduleur (kW),
+ * chaque candidat étant évalué par dispatch sur la série temporelle de l'établissement, sous contraintes
+ * de budget (projectBudgetDh) et de surface (installableSurfaceM2).
+ *
+ * Les entrées (météo, PV, consommation) sont préparées une seule fois : la PV d'un candidat est le profil
+ * PV de l'établissement ramené à 1 kWc, multiplié par la puissance du candidat et écrêté par l'onduleur.
+ * Les couples PV x onduleur sont répartis sur tous les coeurs ; pour un couple, les batteries sont
+ * parcourues par capacité croissante. Élagage : arrêt du parcours dès que le budget est dépassé, et
+ * candidat ignoré sans dispatch quand sa borne optimiste (toute la PV consommée) ne bat pas les
+ * meilleurs candidats déjà trouvés.
+ */
+@Service
+public class SizingOptimizerService {
+
+    private static final double ELECTRICITY_PRICE_DH_PER_KWH = 1.2;
+    private static final double DISCOUNT_RATE = 0.06; // Comme l'analyse financière (ComprehensiveResultsService)
+    private static final int LIFETIME_YEARS = 20;
+    private static final double ANNUITY_FACTOR = annuityFactor();
+
+    // Grille automatique : PV jusqu'à la surface installable, batterie jusqu'à 1.5x la capacité recommandée
+    private static final int AUTO_PV_STEPS = 20;
+    private static final int AUTO_BATTERY_STEPS = 15;
+    private static final double AUTO_BATTERY_FACTOR = 1.5;
+    private static final List<Double> DEFAULT_INVERTER_RATIOS = List.of(0.8, 1.0, 1.2);
+
+    @Autowired
+    private SimulationService simulationService;
+
+    @Autowired
+    private ComprehensiveResultsService comprehensiveResultsService;
+
+    @Autowired
+    private PvCalculationService pvCalculationService;
+
+    @Autowired
+    private SizingService sizingService;
+
+    @Autowired
+    private ConsumptionEstimationService consumptionEstimationService;
+
+    @Autowired
+    private DispatchEngine dispatchEngine;
+
+    @Value("${simulation.sizing.max-candidates:50000}")
+    private int maxCandidates = 50000;
+
+    /**
+     * Rendement aller-retour de la batterie (même propriété que SimulationService)
+     */
+    @Value("${simulation.dispatch.round-trip-efficiency:1.0}")
+    private double roundTripEfficiency = 1.0;
+
+    /**
+     * Critère d'optimisation
+     */
+    public enum Objective {
+        /** Valeur actuelle nette sur 20 ans (maximisée) */
+        NPV,
+        /** Coût actualisé de l'énergie fournie par le microgrid, en DH/kWh (minimisé) */
+        LCOE
+    }
+
+    /**
+     * Dimensionnement évalué (valeurs annuelles)
+     */
+    public static class Candidate {
+        public final double pvPowerKwc;
+        public final double batteryCapacityKwh;
+        public final double inverterPowerKw;
+        public final double pvSurfaceM2;
+        public final double installationCost;
+        public final double annualGridImport;
+        public final double annualSavings;
+        public final double autonomy;
+        public final double npv;
+        public final double lcoe;
+        // Position dans la grille (départage des égalités)
+        private final int index;
+        private final double score;
+
+        Candidate(int index, double pvPowerKwc, double batteryCapacityKwh, double inverterPowerKw, double pvSurfaceM2,
+                  double installationCost, double annualConsumption, double annualGridImport, Objective objective) {
+            this.index = index;
+            this.pvPowerKwc = pvPowerKwc;
+            this.batteryCapacityKwh = batteryCapacityKwh;
+            this.inverterPowerKw = inverterPowerKw;
+            this.pvSurfaceM2 = pvSurfaceM2;
+            this.installationCost = installationCost;
+            this.annualGridImport = annualGridImport;
+            double served = annualConsumption - annualGridImport;
+            this.annualSavings = served * ELECTRICITY_PRICE_DH_PER_KWH;
+            this.autonomy = annualConsumption > 0 ? served / annualConsumption * 100.0 : 0.0;
+            this.npv = npv(installationCost, served);
+            this.lcoe = lcoe(installationCost, served);
+            this.score = score(objective, installationCost, served);
+        }
+    }
+
+    /**
+     * Résultat d'une optimisation
+     */
+    public static class OptimizationResult {
+        public final Objective objective;
+        /** Taille de la grille PV x batterie x onduleur */
+        public final int candidates;
+        /** Candidats simulés */
+        public final int evaluated;
+        /** Candidats écartés sans simulation : surface ou budget dépassés */
+        public final int prunedByConstraints;
+        /** Candidats écartés sans simulation : borne optimiste inférieure aux meilleurs candidats */
+        public final int prunedByBound;
+        public final long elapsedMs;
+        /** Meilleur candidat respectant les contraintes (null si aucun) */
+        public final Candidate best;
+        /** Meilleurs candidats, du meilleur au moins bon */
+        public final List<Candidate> top;
+        /** Dimensionnement par règles (SizingService), évalué de la même façon, contraintes ignorées */
+        public final Candidate recommended;
+
+        OptimizationResult(Objective objective, int candidates, int evaluated, int prunedByConstraints,
+                           int prunedByBound, long elapsedMs, List<Candidate> top, Candidate recommended) {
+            this.objective = objective;
+            this.candidates = candidates;
+            this.evaluated = evaluated;
+            this.prunedByConstraints = prunedByConstraints;
+            this.prunedByBound = prunedByBound;
+            this.elapsedMs = elapsedMs;
+            this.best = top.isEmpty() ? null : top.get(0);
+            this.top = top;
+            this.recommended = recommended;
+        }
+    }
+
+    /**
+     * Recherche le meilleur dimensionnement sur la grille PV x batterie x onduleur
+     *
+     * @param establishment Établissement (budget et surface installable : contraintes si renseignés)
+     * @param startDate Date de début de la série évaluée
+     * @param days Nombre de jours évalués (valeurs ramenées à l'année)
+     * @param objective Critère d'optimisation
+     * @param pvPowersKwc Puissances PV à tester (null ou vide = grille automatique jusqu'à la surface installable)
+     * @param batteryCapacitiesKwh Capacités batterie à tester (null ou vide = 0 à 1.5x la capacité recommandée)
+     * @param inverterRatios Puissance onduleur / puissance PV à tester (null ou vide = 0.8, 1.0, 1.2)
+     * @param top Nombre de meilleurs candidats retournés
+     * @throws ValidationException si la grille dépasse simulation.sizing.max-candidates
+     */
+    public OptimizationResult optimize(
+            Establishment establishment,
+            LocalDateTime startDate,
+            int days,
+            Objective objective,
+            List<Double> pvPowersKwc,
+            List<Double> batteryCapacitiesKwh,
+            List<Double> inverterRatios,
+            int top) {
+        long started = System.nanoTime();
+        DesignSpace space = designSpace(establishment, pvPowersKwc, batteryCapacitiesKwh, inverterRatios);
+        Series series = series(establishment, startDate, days);
+        Leaderboard leaderboard = new Leaderboard(Math.max(1, top));
+        int[] counts = search(establishment, space, series, objective, leaderboard::threshold, leaderboard::offer);
+
+        // Règles de dimensionnement (onduleur = puissance PV), pour comparaison
+        Scratch scratch = new Scratch(series.size());
+        series.clippedPv(space.recommendedPv, space.recommendedPv, scratch.pv);
+        Candidate recommended = evaluate(series, scratch, -1, space.recommendedPv, space.recommendedBattery,
+            space.recommendedPv, pvCalculationService.calculateRequiredSurface(space.recommendedPv),
+            comprehensiveResultsService.estimateInstallationCost(
+                space.recommendedPv, space.recommendedBattery, space.recommendedPv, establishment),
+            objective);
+
+        return new OptimizationResult(objective, space.size(), counts[0], counts[1], counts[2],
+            (System.nanoTime() - started) / 1_000_000, leaderboard.sorted(), recommended);
+    }
+
+    /**
+     * Évalue tous les candidats de la grille qui respectent les contraintes de budget et de surface,
+     * sans élagage par borne (mêmes grilles par défaut que {@link #optimize})
+     *
+     * @return Candidats dans l'ordre de la grille (PV, onduleur, batterie croissante)
+     * @throws ValidationException si la grille dépasse simulation.sizing.max-candidates
+     */
+    public List<Candidate> evaluateAll(
+            Establishment establishment,
+            LocalDateTime startDate,
+            int days,
+            List<Double> pvPowersKwc,
+            List<Double> batteryCapacitiesKwh,
+            List<Double> inverterRatios) {
+        DesignSpace space = designSpace(establishment, pvPowersKwc, batteryCapacitiesKwh, inverterRatios);
+        Series series = series(establishment, startDate, days);
+        Candidate[] candidates = new Candidate[space.size()];
+        search(establishment, space, series, Objective.NPV, () -> Double.NEGATIVE_INFINITY,
+            candidate -> candidates[candidate.index] = candidate);
+        List<Candidate> feasible = new ArrayList<>(candidates.length);
+        for (Candidate candidate : candidates) {
+            if (candidate != null) {
+                feasible.add(candidate);
+            }
+        }
+        return feasible;
+    }
+
+    /**
+     * Grille PV x batterie x onduleur (grilles automatiques si non fournies)
+     */
+    private DesignSpace designSpace(Establishment establishment, List<Double> pvPowersKwc,
+                                    List<Double> batteryCapacitiesKwh, List<Double> inverterRatios) {
+        MoroccanCity.IrradiationClass irradiationClass = establishment.getIrradiationClass() != null
+            ? MoroccanCity.IrradiationClass.valueOf(establishment.getIrradiationClass().name())
+            : MoroccanCity.IrradiationClass.C;
+        double monthlyConsumption = establishment.getMonthlyConsumptionKwh() != null
+            ? establishment.getMonthlyConsumptionKwh()
+            : consumptionEstimationService.estimateMonthlyConsumption(
+                establishment.getType(), establishment.getNumberOfBeds());
+        double recommendedPv = sizingService.calculateRecommendedPvPower(monthlyConsumption, irradiationClass);
+        double recommendedBattery = sizingService.calculateRecommendedBatteryCapacityFromMonthly(monthlyConsumption);
+        double surfaceLimit = establishment.getInstallableSurfaceM2() != null ? establishment.getInstallableSurfaceM2() : 0.0;
+
+        double[] pvValues = pvPowersKwc != null && !pvPowersKwc.isEmpty()
+            ? toArray(pvPowersKwc)
+            : steps(surfaceLimit > 0 ? pvCalculationService.calculatePvPower(surfaceLimit) : 2 * recommendedPv,
+                1, AUTO_PV_STEPS);
+        double[] batteryValues = batteryCapacitiesKwh != null && !batteryCapacitiesKwh.isEmpty()
+            ? toArray(batteryCapacitiesKwh)
+            : steps(recommendedBattery * AUTO_BATTERY_FACTOR, 0, AUTO_BATTERY_STEPS);
+        double[] ratios = toArray(inverterRatios != null && !inverterRatios.isEmpty() ? inverterRatios : DEFAULT_INVERTER_RATIOS);
+        Arrays.sort(batteryValues); // Capacités croissantes : coût croissant, arrêt au dépassement du budget
+        long candidateCount = (long) pvValues.length * batteryValues.length * ratios.length;
+        if (candidateCount > maxCandidates) {
+            throw new ValidationException(
+                "Trop de candidats (" + candidateCount + "), maximum " + maxCandidates);
+        }
+        return new DesignSpace(pvValues, batteryValues, ratios, recommendedPv, recommendedBattery);
+    }
+
+    /**
+     * Série de référence : consommation et profil PV pour 1 kWc
+     */
+    private Series series(Establishment establishment, LocalDateTime startDate, int days) {
+        SimulationService.SimulationInputs inputs = simulationService.prepareInputs(establishment, startDate, days);
+        double stepHours = SimulationTimeGrid.Resolution.HOUR_6.stepSeconds / 3600.0; // Pas de prepareInputs(establishment, startDate, days)
+        double surface = establishment.getInstallableSurfaceM2() != null ? establishment.getInstallableSurfaceM2() : 0.0;
+        double referenceKwc = pvCalculationService.calculatePvPower(surface);
+        double referencePv = 0.0;
+        double totalConsumption = 0.0;
+        for (int step = 0; step < inputs.size; step++) {
+            referencePv += inputs.pvProduction[step];
+            totalConsumption += inputs.consumption[step];
+        }
+        double[] pvPerKwc = new double[inputs.size];
+        double surfacePerKwc = pvCalculationService.calculateRequiredSurface(1.0);
+        for (int step = 0; step < inputs.size; step++) {
+            pvPerKwc[step] = referenceKwc > 0 && referencePv > 0
+                ? inputs.pvProduction[step] / referenceKwc
+                : pvCalculationService.calculatePvProductionFromIrradiance(surfacePerKwc, inputs.irradiance[step]);
+        }
+        return new Series(inputs.consumption, pvPerKwc, totalConsumption, stepHours, 365.0 / days);
+    }
+
+    /**
+     * Parcourt la grille en parallèle (un couple PV x onduleur par tâche) ; les candidats dont le score
+     * optimiste est inférieur à {@code threshold} ne sont pas simulés, les autres sont transmis à
+     * {@code sink} (appelé depuis plusieurs threads)
+     *
+     * @return {candidats simulés, écartés par les contraintes, écartés par la borne}
+     */
+    private int[] search(Establishment establishment, DesignSpace space, Series series, Objective objective,
+                         DoubleSupplier threshold, Consumer<Candidate> sink) {
+        double surfaceLimit = establishment.getInstallableSurfaceM2() != null ? establishment.getInstallableSurfaceM2() : 0.0;
+        Double budget = establishment.getProjectBudgetDh();
+        double[] batteryValues = space.batteries;
+        AtomicInteger evaluated = new AtomicInteger();
+        AtomicInteger prunedByConstraints = new AtomicInteger();
+        AtomicInteger prunedByBound = new AtomicInteger();
+        IntStream.range(0, space.pvPowers.length * space.ratios.length).parallel().forEach(pair -> {
+            double pvKwc = space.pvPowers[pair / space.ratios.length];
+            double inverterKw = pvKwc * space.ratios[pair % space.ratios.length];
+            double surface = pvCalculationService.calculateRequiredSurface(pvKwc);
+            if (surfaceLimit > 0 && surface > surfaceLimit * (1 + 1e-9)) {
+                prunedByConstraints.addAndGet(batteryValues.length);
+                return;
+            }
+            Scratch scratch = new Scratch(series.size());
+            double clippedPv = series.clippedPv(pvKwc, inverterKw, scratch.pv);
+            for (int batteryIndex = 0; batteryIndex < batteryValues.length; batteryIndex++) {
+                double battery = batteryValues[batteryIndex];
+                double cost = comprehensiveResultsService.estimateInstallationCost(pvKwc, battery, inverterKw, establishment);
+                if (budget != null && cost > budget) {
+                    prunedByConstraints.addAndGet(batteryValues.length - batteryIndex);
+                    break;
+                }
+                // Borne optimiste : toute la PV (et le SOC initial) sert la consommation
+                double servedBound = Math.min(series.totalConsumption, clippedPv + battery * 0.5) * series.annualFactor;
+                if (score(objective, cost, servedBound) < threshold.getAsDouble()) {
+                    prunedByBound.incrementAndGet();
+                    continue;
+                }
+                int index = pair * batteryValues.length + batteryIndex;
+                sink.accept(evaluate(series, scratch, index, pvKwc, battery, inverterKw, surface, cost, objective));
+                evaluated.incrementAndGet();
+            }
+        });
+        return new int[] {evaluated.get(), prunedByConstraints.get(), prunedByBound.get()};
+    }
+
+    /**
+     * Dispatch d'un candidat sur la série (PV du candidat déjà dans scratch.pv)
+     */
+    private Candidate evaluate(Series series, Scratch scratch, int index, double pvKwc, double battery,
+                               double inverterKw, double surface, double cost, Objective objective) {
+        DispatchEngine.BatteryParams params = DispatchEngine.BatteryParams.fromMap(
+            Map.of("BATTERY_CAP_KWH", battery, "ROUND_TRIP_EFFICIENCY", roundTripEfficiency));
+        dispatchEngine.dispatch(series.consumption, scratch.pv, battery * 0.5, series.stepHours, params,
+            scratch.gridImport, scratch.charge, scratch.discharge, scratch.soc, null);
+        double gridImport = 0.0;
+        for (int step = 0; step < series.size(); step++) {
+            gridImport += scratch.gridImport[step];
+        }
+        return new Candidate(index, pvKwc, battery, inverterKw, surface, cost,
+            series.totalConsumption * series.annualFactor, gridImport * series.annualFactor, objective);
+    }
+
+    /**
+     * Facteur d'actualisation d'une économie annuelle constante sur la durée de vie
+     */
+    private static double annuityFactor() {
+        double factor = 0.0;
+        for (int year = 1; year <= LIFETIME_YEARS; year++) {
+            factor += 1.0 / Math.pow(1 + DISCOUNT_RATE, year);
+        }
+        return factor;
+    }
+
+    private static double npv(double installationCost, double annualServedKwh) {
+        return annualServedKwh * ELECTRICITY_PRICE_DH_PER_KWH * ANNUITY_FACTOR - installationCost;
+    }
+
+    private static double lcoe(double installationCost, double annualServedKwh) {
+        return annualServedKwh > 0 ? installationCost / (annualServedKwh * ANNUITY_FACTOR) : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Score à maximiser (croissant avec l'énergie servie : une borne haute de l'énergie donne une borne haute du score)
+     */
+    private static double score(Objective objective, double installationCost, double annualServedKwh) {
+        return objective == Objective.LCOE
+            ? -lcoe(installationCost, annualServedKwh)
+            : npv(installationCost, annualServedKwh);
+    }
+
+    private static double[] toArray(List<Double> values) {
+        return values.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /**
+     * Valeurs régulièrement espacées max * k / count, pour k de {@code first} à count
+     */
+    private static double[] steps(double max, int first, int count) {
+        double[] values = new double[count - first + 1];
+        for (int k = first; k <= count; k++) {
+            values[k - first] = max * k / count;
+        }
+        return values;
+    }
+
+    /**
+     * Grille de conception ; batteries triées par capacité croissante
+     */
+    private static class DesignSpace {
+        final double[] pvPowers;
+        final double[] batteries;
+        final double[] ratios;
+        final double recommendedPv;
+        final double recommendedBattery;
+
+        DesignSpace(double[] pvPowers, double[] batteries, double[] ratios, double recommendedPv,
+                    double recommendedBattery) {
+            this.pvPowers = pvPowers;
+            this.batteries = batteries;
+            this.ratios = ratios;
+            this.recommendedPv = recommendedPv;
+            this.recommendedBattery = recommendedBattery;
+        }
+
+        int size() {
+            return pvPowers.length * batteries.length * ratios.length;
+        }
+    }
+
+    /**
+     * Série partagée entre candidats (lecture seule)
+     */
+    private static class Series {
+        final double[] consumption;
+        final double[] pvPerKwc;
+        final double totalConsumption;
+        final double stepHours;
+        final double annualFactor;
+
+        Series(double[] consumption, double[] pvPerKwc, double totalConsumption, double stepHours, double annualFactor) {
+            this.consumption = consumption;
+            this.pvPerKwc = pvPerKwc;
+            this.totalConsumption = totalConsumption;
+            this.stepHours = stepHours;
+            this.annualFactor = annualFactor;
+        }
+
+        int size() {
+            return consumption.length;
+        }
+
+        /**
+         * PV d'un candidat, écrêtée à la puissance onduleur ; retourne la PV totale
+         */
+        double clippedPv(double pvKwc, double inverterKw, double[] pv) {
+            double limit = inverterKw * stepHours;
+            double total = 0.0;
+            for (int step = 0; step < pv.length; step++) {
+                pv[step] = Math.min(pvPerKwc[step] * pvKwc, limit);
+                total += pv[step];
+            }
+            return total;
+        }
+    }
+
+    /**
+     * Tableaux de travail d'un couple PV x onduleur
+     */
+    private static class Scratch {
+        final double[] pv;
+        final double[] gridImport;
+        final double[] charge;
+        final double[] discharge;
+        final double[] soc;
+
+        Scratch(int size) {
+            pv = new double[size];
+            gridImport = new double[size];
+            charge = new double[size];
+            discharge = new double[size];
+            soc = new double[size];
+        }
+    }
+
+    /**
+     * Meilleurs candidats partagés entre threads ; le seuil d'élagage est le score du moins bon
+     * une fois la liste pleine
+     */
+    private static class Leaderboard {
+        private static final Comparator<Candidate> WORST_FIRST = Comparator
+            .comparingDouble((Candidate candidate) -> candidate.score)
+            .thenComparing(Comparator.comparingInt((Candidate candidate) -> candidate.index).reversed());
+
+        private final int size;
+        private final PriorityQueue<Candidate> candidates = new PriorityQueue<>(WORST_FIRST);
+        private volatile double threshold = Double.NEGATIVE_INFINITY;
+
+        Leaderboard(int size) {
+            this.size = size;
+        }
+
+        double threshold() {
+            return threshold;
+        }
+
+        synchronized void offer(Candidate candidate) {
+            if (candidates.size() < size) {
+                candidates.add(candidate);
+            } else if (WORST_FIRST.compare(candidate, candidates.peek()) > 0) {
+                candidates.poll();
+                candidates.add(candidate);
+            } else {
+                return;
+            }
+            if (candidates.size() == size) {
+                threshold = candidates.peek().score;
+            }
+        }
+
+        synchronized List<Candidate> sorted() {
+            List<Candidate> sorted = new ArrayList<>(candidates);
+            sorted.sort(WORST_FIRST.reversed());
+            return sorted;
+        }
+    }
+}
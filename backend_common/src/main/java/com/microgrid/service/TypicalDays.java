@@ -0,0 +1,252 @@
+package com.microgrid.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Jours types d'une série météo : les jours complets de la série regroupés en {@code count} classes
+ * (k-means sur le profil journalier), chaque classe représentée par son jour réel le plus proche du
+ * centre et pondérée par le nombre de jours qu'elle regroupe.
+ *
+ * Profil d'un jour : irradiance des quatre quarts de journée et température moyenne, centrés-réduits
+ * sur l'année. Le tirage initial (k-means++) utilise une graine fixe : mêmes jours types pour une même
+ * série. Immuable.
+ */
+public final class TypicalDays {
+
+    private static final int SECONDS_PER_DAY = 86400;
+    private static final int SLOTS_PER_DAY = 4;
+    private static final int FEATURES = SLOTS_PER_DAY + 1;
+    private static final int MAX_ITERATIONS = 100;
+    private static final long SEED = 42L;
+
+    /** Premier jour complet de la série */
+    public final LocalDate firstDay;
+    /** Jour réel représentant chaque classe */
+    public final List<LocalDate> days;
+    /** Nombre de jours de la série représentés par chaque classe */
+    public final double[] weights;
+    /** Classe de chaque jour de la série (indice depuis firstDay) */
+    private final int[] assignment;
+    /**
+     * Écart relatif entre l'irradiance journalière de la série et celle reconstituée par les jours types
+     * (somme des écarts absolus jour par jour / irradiance totale)
+     */
+    public final double irradianceError;
+
+    private TypicalDays(LocalDate firstDay, List<LocalDate> days, double[] weights, int[] assignment,
+                        double irradianceError) {
+        this.firstDay = firstDay;
+        this.days = Collections.unmodifiableList(days);
+        this.weights = weights;
+        this.assignment = assignment;
+        this.irradianceError = irradianceError;
+    }
+
+    /**
+     * Nombre de jours de la série
+     */
+    public int dayCount() {
+        return assignment.length;
+    }
+
+    /**
+     * Classe du jour {@code day} de la série (indice depuis firstDay)
+     */
+    public int classOf(int day) {
+        return assignment[day];
+    }
+
+    /**
+     * Regroupe les jours complets de {@code series} en {@code count} jours types au plus
+     *
+     * @return null si la série ne contient aucun jour complet
+     */
+    public static TypicalDays cluster(WeatherSeries series, int count) {
+        if (series.isEmpty()) {
+            return null;
+        }
+        long end = series.originSecond + (long) series.span * series.stepSeconds;
+        long firstSecond = Math.floorDiv(series.originSecond + SECONDS_PER_DAY - 1, SECONDS_PER_DAY) * SECONDS_PER_DAY;
+        int dayCount = (int) Math.max(0, (end - firstSecond) / SECONDS_PER_DAY);
+        if (dayCount == 0) {
+            return null;
+        }
+        LocalDate firstDay = LocalDateTime.ofEpochSecond(firstSecond, 0, ZoneOffset.UTC).toLocalDate();
+
+        // Profils journaliers (irradiance par quart de journée, température moyenne)
+        double[] profiles = new double[dayCount * FEATURES];
+        double[] dailyIrradiance = new double[dayCount];
+        for (int day = 0; day < dayCount; day++) {
+            LocalDateTime start = firstDay.plusDays(day).atStartOfDay();
+            double temperature = 0.0;
+            for (int slot = 0; slot < SLOTS_PER_DAY; slot++) {
+                CsvMeteoReaderService.MeteoData meteo = series.resample(
+                    start.plusSeconds((long) slot * SECONDS_PER_DAY / SLOTS_PER_DAY), SECONDS_PER_DAY / SLOTS_PER_DAY);
+                profiles[day * FEATURES + slot] = meteo.irradiance;
+                dailyIrradiance[day] += meteo.irradiance;
+                temperature += meteo.temperature / SLOTS_PER_DAY;
+            }
+            profiles[day * FEATURES + SLOTS_PER_DAY] = temperature;
+        }
+        double[] features = standardize(profiles, dayCount);
+
+        int k = Math.max(1, Math.min(count, dayCount));
+        double[] centers = initialCenters(features, dayCount, k);
+        int[] assignment = new int[dayCount];
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            boolean changed = false;
+            for (int day = 0; day < dayCount; day++) {
+                int nearest = nearest(features, day, centers, k);
+                if (nearest != assignment[day]) {
+                    assignment[day] = nearest;
+                    changed = true;
+                }
+            }
+            if (!changed && iteration > 0) {
+                break;
+            }
+            updateCenters(features, assignment, dayCount, centers, k);
+        }
+
+        // Représentant : jour réel le plus proche du centre ; classes vides ignorées
+        int[] medoids = new int[k];
+        double[] best = new double[k];
+        Arrays.fill(medoids, -1);
+        Arrays.fill(best, Double.MAX_VALUE);
+        for (int day = 0; day < dayCount; day++) {
+            int cluster = assignment[day];
+            double distance = distance(features, day, centers, cluster);
+            if (distance < best[cluster]) {
+                best[cluster] = distance;
+                medoids[cluster] = day;
+            }
+        }
+        int[] renumber = new int[k];
+        List<LocalDate> days = new ArrayList<>(k);
+        List<Integer> representatives = new ArrayList<>(k);
+        for (int cluster = 0; cluster < k; cluster++) {
+            renumber[cluster] = medoids[cluster] < 0 ? -1 : days.size();
+            if (medoids[cluster] >= 0) {
+                days.add(firstDay.plusDays(medoids[cluster]));
+                representatives.add(medoids[cluster]);
+            }
+        }
+        double[] weights = new double[days.size()];
+        double totalIrradiance = 0.0;
+        double irradianceGap = 0.0;
+        for (int day = 0; day < dayCount; day++) {
+            assignment[day] = renumber[assignment[day]];
+            weights[assignment[day]]++;
+            totalIrradiance += dailyIrradiance[day];
+            irradianceGap += Math.abs(dailyIrradiance[day] - dailyIrradiance[representatives.get(assignment[day])]);
+        }
+        return new TypicalDays(firstDay, days, weights, assignment,
+            totalIrradiance > 0 ? irradianceGap / totalIrradiance : 0.0);
+    }
+
+    /**
+     * Profils centrés-réduits (une caractéristique constante sur l'année est mise à 0)
+     */
+    private static double[] standardize(double[] profiles, int dayCount) {
+        double[] features = new double[profiles.length];
+        for (int feature = 0; feature < FEATURES; feature++) {
+            double mean = 0.0;
+            for (int day = 0; day < dayCount; day++) {
+                mean += profiles[day * FEATURES + feature] / dayCount;
+            }
+            double variance = 0.0;
+            for (int day = 0; day < dayCount; day++) {
+                double deviation = profiles[day * FEATURES + feature] - mean;
+                variance += deviation * deviation / dayCount;
+            }
+            double deviation = Math.sqrt(variance);
+            for (int day = 0; day < dayCount; day++) {
+                features[day * FEATURES + feature] = deviation > 0
+                    ? (profiles[day * FEATURES + feature] - mean) / deviation
+                    : 0.0;
+            }
+        }
+        return features;
+    }
+
+    /**
+     * Centres initiaux k-means++ : chaque centre est tiré avec une probabilité proportionnelle au carré
+     * de la distance au centre le plus proche déjà choisi
+     */
+    private static double[] initialCenters(double[] features, int dayCount, int k) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        double[] centers = new double[k * FEATURES];
+        System.arraycopy(features, random.nextInt(dayCount) * FEATURES, centers, 0, FEATURES);
+        double[] nearestDistance = new double[dayCount];
+        Arrays.fill(nearestDistance, Double.MAX_VALUE);
+        for (int center = 1; center < k; center++) {
+            double total = 0.0;
+            for (int day = 0; day < dayCount; day++) {
+                nearestDistance[day] = Math.min(nearestDistance[day], distance(features, day, centers, center - 1));
+                total += nearestDistance[day];
+            }
+            int chosen = dayCount - 1;
+            double target = random.nextDouble() * total;
+            for (int day = 0; day < dayCount; day++) {
+                target -= nearestDistance[day];
+                if (target < 0) {
+                    chosen = day;
+                    break;
+                }
+            }
+            System.arraycopy(features, chosen * FEATURES, centers, center * FEATURES, FEATURES);
+        }
+        return centers;
+    }
+
+    private static void updateCenters(double[] features, int[] assignment, int dayCount, double[] centers, int k) {
+        double[] sums = new double[k * FEATURES];
+        int[] sizes = new int[k];
+        for (int day = 0; day < dayCount; day++) {
+            int cluster = assignment[day];
+            sizes[cluster]++;
+            for (int feature = 0; feature < FEATURES; feature++) {
+                sums[cluster * FEATURES + feature] += features[day * FEATURES + feature];
+            }
+        }
+        for (int cluster = 0; cluster < k; cluster++) {
+            if (sizes[cluster] > 0) { // Classe vide : centre conservé
+                for (int feature = 0; feature < FEATURES; feature++) {
+                    centers[cluster * FEATURES + feature] = sums[cluster * FEATURES + feature] / sizes[cluster];
+                }
+            }
+        }
+    }
+
+    private static int nearest(double[] features, int day, double[] centers, int k) {
+        int nearest = 0;
+        double best = Double.MAX_VALUE;
+        for (int cluster = 0; cluster < k; cluster++) {
+            double distance = distance(features, day, centers, cluster);
+            if (distance < best) {
+                best = distance;
+                nearest = cluster;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Carré de la distance euclidienne entre un jour et un centre
+     */
+    private static double distance(double[] features, int day, double[] centers, int cluster) {
+        double sum = 0.0;
+        for (int feature = 0; feature < FEATURES; feature++) {
+            double difference = features[day * FEATURES + feature] - centers[cluster * FEATURES + feature];
+            sum += difference * difference;
+        }
+        return sum;
+    }
+}
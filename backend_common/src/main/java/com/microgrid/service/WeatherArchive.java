@@ -0,0 +1,173 @@
+package com.microgrid.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Archive binaire d'une série météo, lue par mapping mémoire (FileChannel.map).
+ *
+ * Format (little-endian, sections alignées sur 8 octets) :
+ * <pre>
+ *   en-tête (64 octets) : magic, version, taille et date du CSV source, premier horodatage,
+ *                         nombre de créneaux (span), nombre de créneaux remplis, pas en secondes,
+ *                         lignes lues et doublons écrasés au chargement du CSV
+ *   temperature          double[span]
+ *   irradiance           double[span]
+ *   sommes température   double[blocs]
+ *   sommes irradiance    double[blocs]
+ *   présence             long[(span + 63) / 64]
+ *   nombre par bloc      int[blocs]
+ *   remplis              int[remplis] (triés)
+ * </pre>
+ * La série obtenue lit directement les pages du fichier (cache système partagé), sans parsing
+ * ni copie. L'archive est reconstruite quand la taille ou la date du CSV source change.
+ */
+public final class WeatherArchive {
+
+    private static final int MAGIC = 0x4D475758; // "MGWX"
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 64;
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private WeatherArchive() {
+    }
+
+    /**
+     * Écrit l'archive d'une série par blocs de 1 Mo (fichier temporaire puis renommage atomique)
+     */
+    public static void write(Path file, WeatherSeries series, long sourceSize, long sourceModified) throws IOException {
+        int span = series.span;
+        int words = WeatherSeries.presenceWords(span);
+        int blocks = WeatherSeries.blockEntries(span);
+        int filledCount = series.size();
+        long size = layoutSize(span, filledCount);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Archive météo trop grande: " + size + " octets");
+        }
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION)
+                .putLong(sourceSize).putLong(sourceModified)
+                .putLong(series.originSecond).putInt(span).putInt(filledCount).putInt(series.stepSeconds)
+                .putInt(series.rows).putInt(series.duplicates);
+            buffer.position(HEADER_BYTES);
+            for (int i = 0; i < span; i++) {
+                flushIfFull(channel, buffer, Double.BYTES).putDouble(series.temperature.get(i));
+            }
+            for (int i = 0; i < span; i++) {
+                flushIfFull(channel, buffer, Double.BYTES).putDouble(series.irradiance.get(i));
+            }
+            for (int i = 0; i < blocks; i++) {
+                flushIfFull(channel, buffer, Double.BYTES).putDouble(series.blockTemperature.get(i));
+            }
+            for (int i = 0; i < blocks; i++) {
+                flushIfFull(channel, buffer, Double.BYTES).putDouble(series.blockIrradiance.get(i));
+            }
+            for (int i = 0; i < words; i++) {
+                flushIfFull(channel, buffer, Long.BYTES).putLong(series.present.get(i));
+            }
+            for (int i = 0; i < blocks; i++) {
+                flushIfFull(channel, buffer, Integer.BYTES).putInt(series.blockCount.get(i));
+            }
+            for (int i = 0; i < filledCount; i++) {
+                flushIfFull(channel, buffer, Integer.BYTES).putInt(series.filled.get(i));
+            }
+            flushIfFull(channel, buffer, CHUNK_BYTES);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Écrit le buffer dans le fichier s'il reste moins de {@code bytes} octets libres
+     */
+    private static ByteBuffer flushIfFull(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+        return buffer;
+    }
+
+    /**
+     * Mappe une archive en lecture seule
+     *
+     * @return la série, ou null si l'archive est absente, invalide ou ne correspond plus au CSV source
+     */
+    public static WeatherSeries map(Path file, long sourceSize, long sourceModified) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            // Le mapping reste valide après la fermeture du canal
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                || buffer.getLong(8) != sourceSize || buffer.getLong(16) != sourceModified) {
+            return null;
+        }
+        long originSecond = buffer.getLong(24);
+        int span = buffer.getInt(32);
+        int filledCount = buffer.getInt(36);
+        int stepSeconds = buffer.getInt(40);
+        int rows = buffer.getInt(44);
+        int duplicates = buffer.getInt(48);
+        // En-tête corrompu (tailles incohérentes avec le fichier) : archive ignorée, reconstruite depuis le CSV
+        if (span < 0 || filledCount < 0 || filledCount > span || stepSeconds <= 0
+                || buffer.capacity() != layoutSize(span, filledCount)) {
+            return null;
+        }
+
+        int words = WeatherSeries.presenceWords(span);
+        int blocks = WeatherSeries.blockEntries(span);
+        int temperatureOffset = HEADER_BYTES;
+        int irradianceOffset = temperatureOffset + span * Double.BYTES;
+        int blockTemperatureOffset = irradianceOffset + span * Double.BYTES;
+        int blockIrradianceOffset = blockTemperatureOffset + blocks * Double.BYTES;
+        int presenceOffset = blockIrradianceOffset + blocks * Double.BYTES;
+        int blockCountOffset = presenceOffset + words * Long.BYTES;
+        int filledOffset = blockCountOffset + blocks * Integer.BYTES;
+        return new WeatherSeries(stepSeconds, originSecond, span,
+            slice(buffer, temperatureOffset, span * Double.BYTES).asDoubleBuffer(),
+            slice(buffer, irradianceOffset, span * Double.BYTES).asDoubleBuffer(),
+            slice(buffer, presenceOffset, words * Long.BYTES).asLongBuffer(),
+            slice(buffer, filledOffset, filledCount * Integer.BYTES).asIntBuffer(),
+            slice(buffer, blockTemperatureOffset, blocks * Double.BYTES).asDoubleBuffer(),
+            slice(buffer, blockIrradianceOffset, blocks * Double.BYTES).asDoubleBuffer(),
+            slice(buffer, blockCountOffset, blocks * Integer.BYTES).asIntBuffer(),
+            rows, duplicates);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        return buffer.slice(offset, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Taille du fichier en octets (en long : peut dépasser 2 Go pour un en-tête corrompu)
+     */
+    private static long layoutSize(int span, int filledCount) {
+        long blocks = WeatherSeries.blockEntries(span);
+        return HEADER_BYTES + 2L * span * Double.BYTES + 2L * blocks * Double.BYTES
+            + (long) WeatherSeries.presenceWords(span) * Long.BYTES
+            + blocks * Integer.BYTES + (long) filledCount * Integer.BYTES;
+    }
+}
@@ -0,0 +1,400 @@
+package com.microgrid.service;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Série météo d'un fichier, stockée en colonnes primitives indexées par créneau.
+ *
+ * La résolution (pas du créneau) est celle du fichier : PGCD des écarts entre horodatages
+ * (6h pour data_raw, 15 min ou 1h pour des séries de télémétrie), sur une ou plusieurs années.
+ * Le créneau d'un datetime est {@code (secondes epoch - premier horodatage) / pas} : la lecture d'un créneau présent est
+ * un simple accès par index (O(1)), sans clé LocalDateTime ni boxing. Pour un créneau absent (trou
+ * dans le fichier, date hors de la période), on prend le créneau rempli le plus proche par
+ * recherche dichotomique sur les créneaux présents (O(log n)).
+ *
+ * {@link #resample} ramène la série au pas de la simulation, quel qu'il soit : température moyenne
+ * et énergie d'irradiance de la fenêtre, pondérées par la durée de recouvrement de chaque créneau.
+ * Des sommes cumulées par blocs de 256 créneaux bornent le coût d'une fenêtre à O(256), quelle
+ * que soit sa longueur, pour 20 octets par bloc.
+ *
+ * Les colonnes sont des buffers : tableaux Java pour une série construite en mémoire, vues sur un
+ * fichier mappé pour une série lue depuis l'archive binaire (WeatherArchive), sans copie.
+ *
+ * Immuable une fois construite : partageable entre threads (lectures absolues uniquement).
+ */
+public final class WeatherSeries {
+
+    /**
+     * Résolution des fichiers data_raw (et pas de simulation historique)
+     */
+    public static final int DEFAULT_STEP_SECONDS = 6 * 3600;
+
+    /**
+     * Résolution la plus fine retenue : les secondes des horodatages sont ignorées
+     */
+    public static final int MIN_STEP_SECONDS = 60;
+
+    static final int BLOCK_SHIFT = 8;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    final int stepSeconds;
+    final long originSecond;
+    final int span;
+    final DoubleBuffer temperature;
+    final DoubleBuffer irradiance;
+    final LongBuffer present;
+    final IntBuffer filled;
+    // Sommes cumulées des créneaux présents au début de chaque bloc (dernières entrées = totaux)
+    final DoubleBuffer blockTemperature;
+    final DoubleBuffer blockIrradiance;
+    final IntBuffer blockCount;
+    // Statistiques de chargement : lignes ajoutées, lignes écrasées par une ligne du même créneau
+    final int rows;
+    final int duplicates;
+
+    /**
+     * @param present bitmap des créneaux remplis ((span + 63) / 64 mots)
+     * @param filled  index des créneaux remplis, triés
+     */
+    WeatherSeries(int stepSeconds, long originSecond, int span, DoubleBuffer temperature, DoubleBuffer irradiance,
+                  LongBuffer present, IntBuffer filled,
+                  DoubleBuffer blockTemperature, DoubleBuffer blockIrradiance, IntBuffer blockCount,
+                  int rows, int duplicates) {
+        this.stepSeconds = stepSeconds;
+        this.originSecond = originSecond;
+        this.span = span;
+        this.temperature = temperature;
+        this.irradiance = irradiance;
+        this.present = present;
+        this.filled = filled;
+        this.blockTemperature = blockTemperature;
+        this.blockIrradiance = blockIrradiance;
+        this.blockCount = blockCount;
+        this.rows = rows;
+        this.duplicates = duplicates;
+    }
+
+    /**
+     * Nombre de mots du bitmap de présence pour {@code span} créneaux
+     */
+    static int presenceWords(int span) {
+        return (span + 63) >>> 6;
+    }
+
+    /**
+     * Nombre d'entrées des sommes par bloc pour {@code span} créneaux
+     */
+    static int blockEntries(int span) {
+        return (span >>> BLOCK_SHIFT) + 2;
+    }
+
+    /**
+     * Résolution de la série en secondes
+     */
+    public int getStepSeconds() {
+        return stepSeconds;
+    }
+
+    /**
+     * Nombre de créneaux remplis
+     */
+    public int size() {
+        return filled.limit();
+    }
+
+    /**
+     * Nombre de lignes reçues par le builder (créneaux remplis + doublons)
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Nombre de lignes remplacées par une ligne plus récente du même créneau
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public boolean isEmpty() {
+        return filled.limit() == 0;
+    }
+
+    /**
+     * true si les colonnes sont lues depuis un fichier mappé en mémoire
+     */
+    public boolean isMapped() {
+        return temperature.isDirect();
+    }
+
+    /**
+     * Index du créneau rempli le plus proche de {@code datetime} (le plus ancien en cas d'égalité),
+     * ou -1 si la série est vide
+     */
+    public int indexOf(LocalDateTime datetime) {
+        return nearest(Math.floorDiv(datetime.toEpochSecond(ZoneOffset.UTC) - originSecond, stepSeconds));
+    }
+
+    public double temperatureAt(int index) {
+        return temperature.get(index);
+    }
+
+    public double irradianceAt(int index) {
+        return irradiance.get(index);
+    }
+
+    public LocalDateTime datetimeAt(int index) {
+        return LocalDateTime.ofEpochSecond(originSecond + (long) index * stepSeconds, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Température moyenne et énergie d'irradiance sur [start, start + seconds[.
+     *
+     * L'irradiance d'un créneau est une énergie sur sa durée : la fenêtre reçoit l'énergie moyenne
+     * par créneau des parties couvertes, ramenée à sa durée (6 créneaux de 1h sommés pour 6h, un
+     * sixième d'un créneau de 6h pour 1h). Sans aucun créneau présent dans la fenêtre, on prend le
+     * créneau rempli le plus proche. Retourne null si la série est vide.
+     */
+    public CsvMeteoReaderService.MeteoData resample(LocalDateTime start, long seconds) {
+        if (isEmpty()) {
+            return null;
+        }
+        double from = (double) (start.toEpochSecond(ZoneOffset.UTC) - originSecond) / stepSeconds;
+        double length = (double) seconds / stepSeconds;
+        double clippedFrom = Math.max(0.0, from);
+        double clippedTo = Math.min(span, from + length);
+
+        if (clippedTo > clippedFrom) {
+            double[] sums = new double[3];
+            accumulate(clippedFrom, clippedTo, sums);
+            double covered = sums[2];
+            if (covered > 0) {
+                return new CsvMeteoReaderService.MeteoData(sums[0] / covered, sums[1] / covered * length);
+            }
+        }
+
+        int index = nearest((long) Math.floor(from));
+        return new CsvMeteoReaderService.MeteoData(temperature.get(index), irradiance.get(index) * length);
+    }
+
+    /**
+     * Sommes (température, irradiance, recouvrement en créneaux) des créneaux présents sur [from, to[,
+     * bornes fractionnaires en créneaux, 0 <= from < to <= span
+     */
+    private void accumulate(double from, double to, double[] sums) {
+        int first = (int) from;
+        int last = (int) Math.ceil(to) - 1;
+        if (last - first < 2 * BLOCK_SIZE) {
+            for (int i = first; i <= last; i++) {
+                addSlot(i, Math.min(to, i + 1.0) - Math.max(from, i), sums);
+            }
+            return;
+        }
+
+        // Créneaux de bord (partiels), puis les créneaux entiers par sommes cumulées
+        addSlot(first, first + 1.0 - from, sums);
+        addSlot(last, to - last, sums);
+        int fullFrom = first + 1;
+        int fullTo = last;
+        sums[0] += prefix(blockTemperature, temperature, fullTo) - prefix(blockTemperature, temperature, fullFrom);
+        sums[1] += prefix(blockIrradiance, irradiance, fullTo) - prefix(blockIrradiance, irradiance, fullFrom);
+        sums[2] += count(fullTo) - count(fullFrom);
+    }
+
+    private void addSlot(int index, double weight, double[] sums) {
+        if (weight > 0 && isPresent(index)) {
+            sums[0] += weight * temperature.get(index);
+            sums[1] += weight * irradiance.get(index);
+            sums[2] += weight;
+        }
+    }
+
+    /**
+     * Somme des créneaux présents d'index < {@code index}
+     */
+    private double prefix(DoubleBuffer blocks, DoubleBuffer values, int index) {
+        int block = index >>> BLOCK_SHIFT;
+        double sum = blocks.get(block);
+        for (int i = block << BLOCK_SHIFT; i < index; i++) {
+            if (isPresent(i)) {
+                sum += values.get(i);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Nombre de créneaux présents d'index < {@code index}
+     */
+    private int count(int index) {
+        int block = index >>> BLOCK_SHIFT;
+        int count = blockCount.get(block);
+        for (int word = (block << BLOCK_SHIFT) >>> 6; word << 6 < index; word++) {
+            long bits = present.get(word);
+            if ((word + 1) << 6 > index) {
+                bits &= (1L << (index & 63)) - 1;
+            }
+            count += Long.bitCount(bits);
+        }
+        return count;
+    }
+
+    private boolean isPresent(int index) {
+        return (present.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    private int nearest(long offset) {
+        int count = filled.limit();
+        if (count == 0) {
+            return -1;
+        }
+        if (offset >= 0 && offset < span && isPresent((int) offset)) {
+            return (int) offset;
+        }
+
+        // Créneau absent : voisin rempli le plus proche (premier index rempli >= offset)
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (filled.get(middle) < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == 0) {
+            return filled.get(0);
+        }
+        if (low == count) {
+            return filled.get(count - 1);
+        }
+        int before = filled.get(low - 1);
+        int after = filled.get(low);
+        return offset - before <= after - offset ? before : after;
+    }
+
+    /**
+     * Construit une série ligne par ligne, dans n'importe quel ordre (une ligne plus récente sur
+     * le même créneau remplace l'ancienne)
+     */
+    public static final class Builder {
+        private long[] seconds = new long[1024];
+        private double[] temperatures = new double[1024];
+        private double[] irradiances = new double[1024];
+        private int size;
+
+        public Builder add(LocalDateTime datetime, double temperatureC, double irradianceKwhM2) {
+            return add(datetime.toEpochSecond(ZoneOffset.UTC), temperatureC, irradianceKwhM2);
+        }
+
+        /**
+         * @param epochSecond horodatage en secondes epoch (heure locale du fichier, lue comme UTC)
+         */
+        public Builder add(long epochSecond, double temperatureC, double irradianceKwhM2) {
+            if (size == seconds.length) {
+                seconds = Arrays.copyOf(seconds, size * 2);
+                temperatures = Arrays.copyOf(temperatures, size * 2);
+                irradiances = Arrays.copyOf(irradiances, size * 2);
+            }
+            seconds[size] = epochSecond;
+            temperatures[size] = temperatureC;
+            irradiances[size] = irradianceKwhM2;
+            size++;
+            return this;
+        }
+
+        public WeatherSeries build() {
+            if (size == 0) {
+                return assemble(DEFAULT_STEP_SECONDS, 0, new double[0], new double[0], new BitSet(), 0);
+            }
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                min = Math.min(min, seconds[i]);
+                max = Math.max(max, seconds[i]);
+            }
+
+            // Résolution : PGCD des écarts au premier horodatage (6h pour une seule ligne)
+            long step = 0;
+            for (int i = 0; i < size && step != 1; i++) {
+                step = gcd(step, seconds[i] - min);
+            }
+            if (step == 0) {
+                step = DEFAULT_STEP_SECONDS;
+            }
+            int stepSeconds = (int) Math.max(MIN_STEP_SECONDS, Math.min(step, Integer.MAX_VALUE));
+
+            long span = (max - min) / stepSeconds + 1;
+            if (span > Integer.MAX_VALUE - 2L * BLOCK_SIZE) {
+                throw new IllegalStateException("Période météo trop longue: " + span + " créneaux de " + stepSeconds + " s");
+            }
+
+            double[] temperature = new double[(int) span];
+            double[] irradiance = new double[(int) span];
+            BitSet present = new BitSet((int) span);
+            int duplicates = 0;
+            for (int i = 0; i < size; i++) {
+                int offset = (int) ((seconds[i] - min) / stepSeconds);
+                if (present.get(offset)) {
+                    duplicates++;
+                }
+                temperature[offset] = temperatures[i];
+                irradiance[offset] = irradiances[i];
+                present.set(offset);
+            }
+            return assemble(stepSeconds, min, temperature, irradiance, present, duplicates);
+        }
+
+        private static WeatherSeries assemble(int stepSeconds, long originSecond, double[] temperature,
+                                              double[] irradiance, BitSet present, int duplicates) {
+            int span = temperature.length;
+            int blocks = blockEntries(span);
+            double[] blockTemperature = new double[blocks];
+            double[] blockIrradiance = new double[blocks];
+            int[] blockCount = new int[blocks];
+            double sumTemperature = 0;
+            double sumIrradiance = 0;
+            int count = 0;
+            for (int i = 0; i < span; i++) {
+                if ((i & (BLOCK_SIZE - 1)) == 0) {
+                    blockTemperature[i >>> BLOCK_SHIFT] = sumTemperature;
+                    blockIrradiance[i >>> BLOCK_SHIFT] = sumIrradiance;
+                    blockCount[i >>> BLOCK_SHIFT] = count;
+                }
+                if (present.get(i)) {
+                    sumTemperature += temperature[i];
+                    sumIrradiance += irradiance[i];
+                    count++;
+                }
+            }
+            for (int block = (span + BLOCK_SIZE - 1) >>> BLOCK_SHIFT; block < blocks; block++) {
+                blockTemperature[block] = sumTemperature;
+                blockIrradiance[block] = sumIrradiance;
+                blockCount[block] = count;
+            }
+
+            return new WeatherSeries(stepSeconds, originSecond, span,
+                DoubleBuffer.wrap(temperature), DoubleBuffer.wrap(irradiance),
+                LongBuffer.wrap(Arrays.copyOf(present.toLongArray(), presenceWords(span))),
+                IntBuffer.wrap(present.stream().toArray()),
+                DoubleBuffer.wrap(blockTemperature), DoubleBuffer.wrap(blockIrradiance), IntBuffer.wrap(blockCount),
+                count + duplicates, duplicates);
+        }
+
+        private static long gcd(long a, long b) {
+            while (b != 0) {
+                long t = a % b;
+                a = b;
+                b = t;
+            }
+            return a;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.microgrid.benchmark;
+
+import com.microgrid.model.Establishment;
+import com.microgrid.service.SimulationService;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.autoconfigure.web.embedded.TomcatVirtualThreadsWebServerFactoryCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test de charge : {@code concurrency} simulations lancées en même temps contre un Tomcat embarqué,
+ * chaque simulation faisant des appels AI bloquants de {@code latencyMillis} (FastAPI lent).
+ *
+ * - platform : pool Tomcat classique (200 threads), le débit plafonne à 200 simulations en vol
+ * - virtual  : un thread virtuel par requête (spring.threads.virtual.enabled=true), le débit suit la concurrence
+ *
+ * Le temps mesuré est celui de la vague complète ; débit = concurrency / temps.
+ * Lancer : mvn -Pbenchmark verify -DskipTests -Dbenchmark.args=ConcurrentSimulation
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentSimulationBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"200", "800", "1600"})
+    public int concurrency;
+
+    @Param({"200"})
+    public long latencyMillis;
+
+    private WebServer webServer;
+    private ExecutorService clientExecutor;
+    private HttpClient httpClient;
+    private URI simulateUri;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimulationService simulationService =
+            new StubAiServices(TimeUnit.MILLISECONDS.toMicros(latencyMillis)).newSimulationService(true, "local");
+        Establishment establishment = StubAiServices.establishment();
+
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        // File d'attente TCP assez grande pour que les connexions en excès attendent au lieu d'être refusées
+        factory.addConnectorCustomizers(connector -> connector.setProperty("acceptCount", "4096"));
+        if ("virtual".equals(threads)) {
+            new TomcatVirtualThreadsWebServerFactoryCustomizer().customize(factory);
+        }
+        factory.addInitializers(servletContext -> servletContext.addServlet("simulate", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                SimulationService.SimulationResult result = simulationService.simulate(
+                    establishment, LocalDateTime.of(2024, 1, 1, 0, 0), 7, 500.0, 250.0);
+                response.setContentType("application/json");
+                response.getWriter().write("{\"totalGridImport\":" + result.totalGridImport + "}");
+            }
+        }).addMapping("/simulate"));
+
+        webServer = factory.getWebServer();
+        webServer.start();
+        simulateUri = URI.create("http://localhost:" + webServer.getPort() + "/simulate");
+
+        clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(clientExecutor)
+            .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        webServer.stop();
+        clientExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public int simulateConcurrently() {
+        HttpRequest request = HttpRequest.newBuilder(simulateUri).GET().build();
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            responses[i] = httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenAccept(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException("HTTP " + response.statusCode());
+                    }
+                });
+        }
+        CompletableFuture.allOf(responses).join();
+        return concurrency;
+    }
+}
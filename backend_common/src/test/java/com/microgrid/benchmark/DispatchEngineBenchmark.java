@@ -0,0 +1,104 @@
+package com.microgrid.benchmark;
+
+import com.microgrid.service.DispatchEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatch d'un horizon complet : DispatchEngine (tableaux primitifs) contre
+ * l'ancien calcul simple qui construisait une HashMap par pas.
+ *
+ * Lancer : mvn -Pbenchmark verify -DskipTests -Dbenchmark.args="DispatchEngine -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DispatchEngineBenchmark {
+
+    @Param({"365"})
+    public int days;
+
+    private final DispatchEngine dispatchEngine = new DispatchEngine();
+    private final DispatchEngine.BatteryParams params = new DispatchEngine.BatteryParams(
+        2000.0, 0.15, 0.95, 200.0, 200.0, 1.0);
+    private double[] pred;
+    private double[] pv;
+    private double[] gridImport;
+    private double[] batteryCharge;
+    private double[] batteryDischarge;
+    private double[] socNext;
+    private byte[] notes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int totalSteps = days * 4;
+        pred = new double[totalSteps];
+        pv = new double[totalSteps];
+        for (int i = 0; i < totalSteps; i++) {
+            pred[i] = 2000.0 + 100.0 * (i % 7);
+            pv[i] = new double[] {0.0, 900.0, 2600.0, 2400.0}[i % 4];
+        }
+        gridImport = new double[totalSteps];
+        batteryCharge = new double[totalSteps];
+        batteryDischarge = new double[totalSteps];
+        socNext = new double[totalSteps];
+        notes = new byte[totalSteps];
+    }
+
+    @Benchmark
+    public double[] engine() {
+        dispatchEngine.dispatch(pred, pv, 1000.0, 6.0, params,
+            gridImport, batteryCharge, batteryDischarge, socNext, notes);
+        return socNext;
+    }
+
+    @Benchmark
+    public double mapPerStep() {
+        double soc = 1000.0;
+        double totalGridImport = 0.0;
+        for (int i = 0; i < pred.length; i++) {
+            Map<String, Object> step = legacySimpleDispatch(pred[i], pv[i], soc, params.capacityKwh);
+            totalGridImport += (Double) step.get("grid_import_kWh");
+            soc = (Double) step.get("soc_next");
+        }
+        return totalGridImport;
+    }
+
+    /**
+     * Copie de l'ancien SimulationService.calculateSimpleDispatch (référence)
+     */
+    private static Map<String, Object> legacySimpleDispatch(
+            double consumption, double pvProduction, double soc, double batteryCapacity) {
+        Map<String, Object> result = new HashMap<>();
+        double demand = Math.max(consumption, 0.0);
+        double pvAvailable = Math.max(pvProduction, 0.0);
+        double pvUsed = Math.min(demand, pvAvailable);
+        double remainingDemand = demand - pvUsed;
+        double surplusPv = pvAvailable - pvUsed;
+        double batteryCharge = 0.0;
+        double batteryDischarge = 0.0;
+        double socNext = soc;
+        if (surplusPv > 0) {
+            double availableCapacity = Math.max(0.95 * batteryCapacity - socNext, 0.0);
+            batteryCharge = Math.min(surplusPv, availableCapacity);
+            socNext += batteryCharge;
+        } else {
+            double availableDischarge = Math.max(socNext - 0.15 * batteryCapacity, 0.0);
+            batteryDischarge = Math.min(remainingDemand, availableDischarge);
+            socNext -= batteryDischarge;
+            remainingDemand -= batteryDischarge;
+        }
+        result.put("grid_import_kWh", Math.max(remainingDemand, 0.0));
+        result.put("battery_charge_kWh", batteryCharge);
+        result.put("battery_discharge_kWh", batteryDischarge);
+        result.put("soc_next", Math.max(0.15 * batteryCapacity, Math.min(socNext, batteryCapacity)));
+        result.put("note", "Simple dispatch calculation");
+        return result;
+    }
+}
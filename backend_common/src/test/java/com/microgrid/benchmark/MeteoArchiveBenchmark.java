@@ -0,0 +1,80 @@
+package com.microgrid.benchmark;
+
+import com.microgrid.service.MeteoCsvLoader;
+import com.microgrid.service.WeatherArchive;
+import com.microgrid.service.WeatherSeries;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût du premier accès aux données météo d'une zone (chargement + une lecture), au pas de 6h.
+ *
+ * - csv     : parsing du CSV (MeteoCsvLoader), ce que payait la première requête /simulate de la zone
+ * - archive : mapping de l'archive binaire déjà écrite (WeatherArchive.map), pages servies par le cache système
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MeteoArchiveBenchmark {
+
+    @Param({"csv", "archive"})
+    public String source;
+
+    @Param({"1", "20"})
+    public int years;
+
+    private Path csv;
+    private Path archive;
+    private long size;
+    private long modified;
+    private final LocalDateTime query = LocalDateTime.of(2024, 7, 1, 12, 0);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csv = Files.createTempFile("meteo-6h", ".csv");
+        archive = csv.resolveSibling(csv.getFileName() + ".bin");
+        Random random = new Random(42);
+        LocalDateTime datetime = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime end = datetime.plusYears(years);
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(csv))) {
+            writer.println("datetime,temperature_C,irradiance_kWh_m2");
+            for (; datetime.isBefore(end); datetime = datetime.plusHours(6)) {
+                writer.println(String.format(Locale.ROOT, "%s,%s,%s", datetime.toString().replace('T', ' ') + ":00",
+                    10 + 20 * random.nextDouble(), 3 * random.nextDouble()));
+            }
+        }
+        size = Files.size(csv);
+        modified = Files.getLastModifiedTime(csv).toMillis();
+        WeatherArchive.write(archive, parse(), size, modified);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(archive);
+    }
+
+    @Benchmark
+    public double firstLookup() throws IOException {
+        WeatherSeries series = "archive".equals(source) ? WeatherArchive.map(archive, size, modified) : parse();
+        return series.temperatureAt(series.indexOf(query));
+    }
+
+    private WeatherSeries parse() throws IOException {
+        try (InputStream input = Files.newInputStream(csv)) {
+            return new MeteoCsvLoader(csv.getFileName().toString()).load(input);
+        }
+    }
+}
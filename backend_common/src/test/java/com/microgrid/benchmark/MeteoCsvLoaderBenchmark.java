@@ -0,0 +1,119 @@
+package com.microgrid.benchmark;
+
+import com.microgrid.service.MeteoCsvLoader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chargement d'un fichier météo synthétique au pas de 15 minutes (format yyyy-MM-dd HH:mm:ss).
+ *
+ * - legacy : ancienne version, BufferedReader + split(",") + jusqu'à 5 DateTimeFormatter créés
+ *            à chaque ligne (échecs par exception) + HashMap<LocalDateTime, MeteoData>
+ * - bytes  : MeteoCsvLoader, décodage direct des octets, format de date détecté une fois
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MeteoCsvLoaderBenchmark {
+
+    @Param({"legacy", "bytes"})
+    public String impl;
+
+    @Param({"3"})
+    public int years;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("meteo-15min", ".csv");
+        Random random = new Random(42);
+        LocalDateTime datetime = LocalDateTime.of(2022, 1, 1, 0, 0);
+        LocalDateTime end = datetime.plusYears(years);
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+            writer.println("datetime,temperature_C,irradiance_kWh_m2");
+            for (; datetime.isBefore(end); datetime = datetime.plusMinutes(15)) {
+                writer.println(String.format(Locale.ROOT, "%s,%s,%s", formatter.format(datetime),
+                    10 + 20 * random.nextDouble(), 3 * random.nextDouble()));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Object load() throws IOException {
+        if ("bytes".equals(impl)) {
+            try (InputStream input = Files.newInputStream(file)) {
+                return new MeteoCsvLoader(file.getFileName().toString()).load(input);
+            }
+        }
+        return loadLegacy();
+    }
+
+    /**
+     * Ancienne version de CsvMeteoReaderService.loadCsvFile
+     */
+    private Map<LocalDateTime, double[]> loadLegacy() throws IOException {
+        Map<LocalDateTime, double[]> data = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file.toFile()))) {
+            String line = reader.readLine();
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length < 3) {
+                    continue;
+                }
+                LocalDateTime dateTime = parseDateTime(parts[0].trim());
+                if (dateTime == null) {
+                    continue;
+                }
+                double temperature = Double.parseDouble(parts[1].trim());
+                double irradiance = Double.parseDouble(parts[2].trim());
+                LocalDateTime rounded = dateTime.withHour((dateTime.getHour() / 6) * 6)
+                    .withMinute(0).withSecond(0).withNano(0);
+                data.put(rounded, new double[] {temperature, irradiance});
+            }
+        }
+        return data;
+    }
+
+    private static LocalDateTime parseDateTime(String dateTimeStr) {
+        DateTimeFormatter[] formatters = {
+            DateTimeFormatter.ofPattern("M/d/yyyy"),
+            DateTimeFormatter.ofPattern("MM/dd/yyyy"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss"),
+            DateTimeFormatter.ISO_DATE_TIME
+        };
+        for (DateTimeFormatter formatter : formatters) {
+            try {
+                return LocalDateTime.parse(dateTimeStr, formatter);
+            } catch (DateTimeParseException e) {
+                // Essayer le suivant
+            }
+        }
+        return null;
+    }
+}
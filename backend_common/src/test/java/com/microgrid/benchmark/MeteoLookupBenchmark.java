@@ -0,0 +1,131 @@
+package com.microgrid.benchmark;
+
+import com.microgrid.model.MoroccanCity;
+import com.microgrid.service.CsvMeteoReaderService;
+import com.microgrid.service.MeteoDataService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit de CsvMeteoReaderService.getMeteoData sur une année de créneaux de 6h (fichier déjà chargé).
+ *
+ * - hashMap : ancienne version, HashMap<LocalDateTime, MeteoData> et, sur un créneau absent,
+ *             parcours de toutes les clés avec Duration.between (O(n))
+ * - series  : WeatherSeries, tableaux primitifs indexés par créneau (O(1)), plus proche voisin par dichotomie
+ *
+ * lookup=hit interroge des dates de l'année chargée, lookup=miss des dates de l'année suivante
+ * (toujours le chemin « plus proche »).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MeteoLookupBenchmark {
+
+    private static final int SLOTS = 366 * 4;
+    private static final MoroccanCity.IrradiationClass ZONE = MoroccanCity.IrradiationClass.C;
+
+    @Param({"hashMap", "series"})
+    public String impl;
+
+    @Param({"hit", "miss"})
+    public String lookup;
+
+    private CsvMeteoReaderService reader;
+    private LegacyMeteoReader legacy;
+    private LocalDateTime[] queries;
+    private int next;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        MeteoDataService meteoDataService = new MeteoDataService();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        directory = Files.createTempDirectory("meteo-bench");
+        legacy = new LegacyMeteoReader(meteoDataService);
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(
+                directory.resolve(meteoDataService.getMeteoFileName(ZONE))))) {
+            writer.println("datetime,temperature_C,irradiance_kWh_m2");
+            for (int i = 0; i < SLOTS; i++) {
+                LocalDateTime datetime = start.plusHours(6L * i);
+                double temperature = 15.0 + (i % 4);
+                double irradiance = (i % 4) * 0.8;
+                writer.println(datetime.toString().replace('T', ' ') + ":00," + temperature + "," + irradiance);
+                legacy.data.computeIfAbsent(meteoDataService.getMeteoFileName(ZONE), name -> new HashMap<>())
+                    .put(datetime, new CsvMeteoReaderService.MeteoData(temperature, irradiance));
+            }
+        }
+
+        reader = new CsvMeteoReaderService(meteoDataService);
+        ReflectionTestUtils.setField(reader, "meteoDataPath", directory.toString());
+        reader.getMeteoData(start, ZONE);
+
+        // Pas d'une heure décalé : les heures intermédiaires sont arrondies au créneau de 6h
+        LocalDateTime queryStart = "miss".equals(lookup) ? start.plusYears(1) : start;
+        queries = new LocalDateTime[SLOTS];
+        for (int i = 0; i < SLOTS; i++) {
+            queries[i] = queryStart.plusHours(6L * i + (i % 6));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve(new MeteoDataService().getMeteoFileName(ZONE)));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public CsvMeteoReaderService.MeteoData getMeteoData() {
+        LocalDateTime datetime = queries[next];
+        next = next + 1 == queries.length ? 0 : next + 1;
+        return "series".equals(impl) ? reader.getMeteoData(datetime, ZONE) : legacy.getMeteoData(datetime, ZONE);
+    }
+
+    /**
+     * Recherche de l'ancienne version (nom de fichier recalculé à chaque appel, HashMap + parcours
+     * linéaire sur un créneau absent)
+     */
+    private static class LegacyMeteoReader {
+        final Map<String, Map<LocalDateTime, CsvMeteoReaderService.MeteoData>> data = new ConcurrentHashMap<>();
+        final MeteoDataService meteoDataService;
+
+        LegacyMeteoReader(MeteoDataService meteoDataService) {
+            this.meteoDataService = meteoDataService;
+        }
+
+        CsvMeteoReaderService.MeteoData getMeteoData(LocalDateTime datetime, MoroccanCity.IrradiationClass irradiationClass) {
+            Map<LocalDateTime, CsvMeteoReaderService.MeteoData> fileData =
+                data.get(meteoDataService.getMeteoFileName(irradiationClass));
+            LocalDateTime rounded = datetime.withHour((datetime.getHour() / 6) * 6)
+                .withMinute(0).withSecond(0).withNano(0);
+            CsvMeteoReaderService.MeteoData exact = fileData.get(rounded);
+            if (exact != null) {
+                return exact;
+            }
+            LocalDateTime closest = null;
+            long minDiff = Long.MAX_VALUE;
+            for (LocalDateTime candidate : fileData.keySet()) {
+                long diff = Math.abs(Duration.between(rounded, candidate).toHours());
+                if (diff < minDiff) {
+                    minDiff = diff;
+                    closest = candidate;
+                }
+            }
+            return closest != null ? fileData.get(closest) : null;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.microgrid.benchmark;
+
+import com.microgrid.service.WeatherSeries;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rééchantillonnage d'une série de 3 ans au pas de 15 minutes : une année de simulation
+ * parcourue au pas demandé (15 min, 1h, 6h, 1 jour, 1 semaine).
+ *
+ * Le coût par fenêtre est borné par les sommes par bloc : le temps total suit le nombre de pas,
+ * pas la longueur des fenêtres.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MeteoResampleBenchmark {
+
+    @Param({"900", "3600", "21600", "86400", "604800"})
+    public long stepSeconds;
+
+    private final LocalDateTime start = LocalDateTime.of(2022, 1, 1, 0, 0);
+    private WeatherSeries series;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        WeatherSeries.Builder builder = new WeatherSeries.Builder();
+        LocalDateTime end = start.plusYears(3);
+        for (LocalDateTime datetime = start; datetime.isBefore(end); datetime = datetime.plusMinutes(15)) {
+            builder.add(datetime, 10 + 20 * random.nextDouble(), 0.75 * random.nextDouble());
+        }
+        series = builder.build();
+    }
+
+    @Benchmark
+    public double simulateOneYear() {
+        LocalDateTime datetime = start.plusYears(1);
+        LocalDateTime end = datetime.plusYears(1);
+        double energy = 0;
+        for (; datetime.isBefore(end); datetime = datetime.plusSeconds(stepSeconds)) {
+            energy += series.resample(datetime, stepSeconds).irradiance;
+        }
+        return energy;
+    }
+}
@@ -0,0 +1,77 @@
+package com.microgrid.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microgrid.service.PvHistoryWindow;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Coût d'un pas de simulation côté historique PV, en fin d'horizon :
+ * construction de l'historique + sérialisation du corps /predict/pv.
+ *
+ * - rebuild : ancienne version, tout l'historique PV recopié à chaque pas (O(n) par pas, O(n²) au total)
+ * - window  : PvHistoryWindow, buffer circulaire de 4 valeurs mis à jour en place
+ *
+ * L'allocation par pas se lit sur gc.alloc.rate.norm (B/op) avec le profiler GC :
+ * mvn -Pbenchmark verify -DskipTests -Dbenchmark.args="PvHistory -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PvHistoryBenchmark {
+
+    @Param({"7", "90", "365"})
+    public int days;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LocalDateTime datetime = LocalDateTime.of(2024, 6, 1, 12, 0);
+    private double[] pvColumn;
+    private PvHistoryWindow window;
+    private double nextPv;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int totalSteps = days * 4;
+        pvColumn = new double[totalSteps];
+        window = new PvHistoryWindow();
+        for (int i = 0; i < totalSteps; i++) {
+            pvColumn[i] = (i % 4) * 120.0;
+            window.push(pvColumn[i]);
+        }
+    }
+
+    @Benchmark
+    public byte[] rebuild() throws Exception {
+        List<Double> historicalPv = Arrays.stream(pvColumn)
+            .boxed()
+            .collect(Collectors.toList());
+        return objectMapper.writeValueAsBytes(requestBody(historicalPv));
+    }
+
+    @Benchmark
+    public byte[] window() throws Exception {
+        window.push(nextPv);
+        nextPv = nextPv >= 360.0 ? 0.0 : nextPv + 120.0;
+        return objectMapper.writeValueAsBytes(requestBody(window.toArray()));
+    }
+
+    private Map<String, Object> requestBody(Object historicalPv) {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("datetime", datetime.toString());
+        requestBody.put("irradiance_kWh_m2", 2.0);
+        requestBody.put("temperature_C", 24.0);
+        requestBody.put("surface_m2", 2000.0);
+        requestBody.put("historical_pv", historicalPv);
+        return requestBody;
+    }
+}
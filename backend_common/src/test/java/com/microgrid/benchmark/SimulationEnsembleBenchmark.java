@@ -0,0 +1,58 @@
+package com.microgrid.benchmark;
+
+import com.microgrid.model.Establishment;
+import com.microgrid.service.SimulationService;
+import com.microgrid.service.SimulationTimeGrid;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulation d'ensemble Monte-Carlo sur un an au pas de 6h : temps total pour N membres
+ * (objectif : 1000 membres en quelques secondes sur une machine multi-coeurs) et débit en
+ * membres simulés, publié dans les résultats JMH.
+ *
+ * Les appels AI (une seule préparation des entrées par ensemble) sont des doubles sans latence.
+ * Lancer : mvn -Pbenchmark verify -DskipTests -Dbenchmark.args=SimulationEnsemble
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimulationEnsembleBenchmark {
+
+    @Param({"100", "1000"})
+    public int members;
+
+    @Param({"365"})
+    public int days;
+
+    private SimulationService simulationService;
+    private Establishment establishment;
+
+    /**
+     * Nombre de membres simulés
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class MemberCounter {
+        public long members;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        simulationService = new StubAiServices(0).newSimulationService(true, "local");
+        establishment = StubAiServices.establishment();
+    }
+
+    @Benchmark
+    public SimulationService.EnsembleResult simulateEnsemble(MemberCounter counter) {
+        SimulationService.EnsembleResult result = simulationService.simulateEnsemble(establishment,
+            LocalDateTime.of(2024, 1, 1, 0, 0), days, SimulationTimeGrid.Resolution.HOUR_6, members, 42L, 500.0, 250.0);
+        counter.members += result.members;
+        return result;
+    }
+}
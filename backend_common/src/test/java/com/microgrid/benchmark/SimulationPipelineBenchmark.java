@@ -0,0 +1,76 @@
+package com.microgrid.benchmark;
+
+import com.microgrid.model.Establishment;
+import com.microgrid.service.SimulationService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare la boucle pas à pas (un appel AI par pas de 6h pour PV, consommation et dispatch) au pipeline batch
+ * (1 appel par étape pour tout l'horizon) : temps d'exécution et nombre d'appels.
+ * 
+ * Chaque appel AI coûte {@code latencyMicros} (aller-retour HTTP simulé).
+ * {@code dispatch=local} remplace /optimize par DispatchEngine (pas d'appel réseau).
+ * {@code perStepMicros} ajoute un coût serveur par pas traité ; {@code chunkSteps} découpe le pipeline
+ * batch en tranches (simulation.pipeline.chunk-steps, 0 = horizon entier).
+ * Lancer : mvn -Pbenchmark verify -DskipTests -Dbenchmark.args=SimulationPipeline
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimulationPipelineBenchmark {
+
+    @Param({"7", "30", "365"})
+    public int days;
+
+    @Param({"step", "batch"})
+    public String mode;
+
+    @Param({"remote", "local"})
+    public String dispatch;
+
+    @Param({"1000"})
+    public long latencyMicros;
+
+    @Param({"0"})
+    public long perStepMicros;
+
+    @Param({"0"})
+    public int chunkSteps;
+
+    private StubAiServices stubs;
+    private SimulationService simulationService;
+    private Establishment establishment;
+
+    /**
+     * Nombre d'appels AI par simulation, publié dans les résultats JMH
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class CallCounter {
+        public long aiCalls;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        stubs = new StubAiServices(latencyMicros, perStepMicros);
+        simulationService = stubs.newSimulationService("batch".equals(mode), dispatch);
+        ReflectionTestUtils.setField(simulationService, "pipelineChunkSteps", chunkSteps);
+        establishment = StubAiServices.establishment();
+    }
+
+    @Benchmark
+    public SimulationService.SimulationResult simulate(CallCounter counter) {
+        int before = stubs.calls.get();
+        SimulationService.SimulationResult result = simulationService.simulate(
+            establishment, LocalDateTime.of(2024, 1, 1, 0, 0), days, 500.0, 250.0);
+        counter.aiCalls += stubs.calls.get() - before;
+        return result;
+    }
+}
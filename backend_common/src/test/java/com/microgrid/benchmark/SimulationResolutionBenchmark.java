@@ -0,0 +1,61 @@
+package com.microgrid.benchmark;
+
+import com.microgrid.model.Establishment;
+import com.microgrid.service.SimulationService;
+import com.microgrid.service.SimulationTimeGrid;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulation batch (dispatch local) d'un an à chaque résolution : le temps doit rester
+ * proportionnel au nombre de pas, publié dans les résultats JMH.
+ *
+ * Les appels AI sont des doubles sans latence ({@code latencyMicros}) : seul le coût côté Java
+ * (météo rééchantillonnée, mise à l'échelle 6h, dispatch, sérialisation des lots) est mesuré.
+ * Lancer : mvn -Pbenchmark verify -DskipTests -Dbenchmark.args=SimulationResolution
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimulationResolutionBenchmark {
+
+    @Param({"MIN_15", "HOUR_1", "HOUR_6", "DAY_1", "ADAPTIVE"})
+    public SimulationTimeGrid.Resolution resolution;
+
+    @Param({"365"})
+    public int days;
+
+    @Param({"0"})
+    public long latencyMicros;
+
+    private SimulationService simulationService;
+    private Establishment establishment;
+
+    /**
+     * Nombre de pas simulés
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class StepCounter {
+        public long steps;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        simulationService = new StubAiServices(latencyMicros).newSimulationService(true, "local");
+        establishment = StubAiServices.establishment();
+    }
+
+    @Benchmark
+    public SimulationService.SimulationResult simulate(StepCounter counter) {
+        SimulationService.SimulationResult result = simulationService.simulate(
+            establishment, LocalDateTime.of(2024, 1, 1, 0, 0), days, resolution, 500.0, 250.0);
+        counter.steps += result.size;
+        return result;
+    }
+}
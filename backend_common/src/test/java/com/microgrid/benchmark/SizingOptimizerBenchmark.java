@@ -0,0 +1,70 @@
+package com.microgrid.benchmark;
+
+import com.microgrid.model.Establishment;
+import com.microgrid.service.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optimisation du dimensionnement sur un an au pas de 6h : grille de 40 PV x 30 batteries x 3 onduleurs
+ * (3600 candidats), avec élagage (top = 1) ou sans (top = taille de la grille). Débit en candidats
+ * simulés et écartés, publié dans les résultats JMH (objectif : plusieurs milliers de candidats par seconde).
+ *
+ * Les appels AI (une seule préparation des entrées par optimisation) sont des doubles sans latence.
+ * Lancer : mvn -Pbenchmark verify -DskipTests -Dbenchmark.args=SizingOptimizer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SizingOptimizerBenchmark {
+
+    @Param({"1", "3600"})
+    public int top;
+
+    @Param({"365"})
+    public int days;
+
+    private SizingOptimizerService optimizer;
+    private Establishment establishment;
+    private final List<Double> pvPowers = new ArrayList<>();
+    private final List<Double> batteries = new ArrayList<>();
+
+    /**
+     * Candidats simulés et écartés par élagage
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class CandidateCounter {
+        public long evaluated;
+        public long pruned;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        optimizer = TestServices.newSizingOptimizer(new StubAiServices(0).newSimulationService(true, "local"));
+        establishment = StubAiServices.establishment();
+        for (int k = 1; k <= 40; k++) {
+            pvPowers.add(10.0 * k); // Jusqu'à 400 kWc (surface installable de 2000 m²)
+        }
+        for (int k = 0; k < 30; k++) {
+            batteries.add(200.0 * k);
+        }
+    }
+
+    @Benchmark
+    public SizingOptimizerService.OptimizationResult optimize(CandidateCounter counter) {
+        SizingOptimizerService.OptimizationResult result = optimizer.optimize(establishment,
+            LocalDateTime.of(2024, 1, 1, 0, 0), days, SizingOptimizerService.Objective.NPV,
+            pvPowers, batteries, null, top);
+        counter.evaluated += result.evaluated;
+        counter.pruned += result.prunedByBound + result.prunedByConstraints;
+        return result;
+    }
+}
@@ -0,0 +1,192 @@
+package com.microgrid.benchmark;
+
+import com.microgrid.model.Establishment;
+import com.microgrid.model.MoroccanCity;
+import com.microgrid.service.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Doubles des services AI pour les benchmarks : pas de réseau, une latence
+ * simulée par aller-retour HTTP (fixe + optionnellement par pas traité) et un compteur d'appels.
+ */
+final class StubAiServices {
+
+    final AtomicInteger calls = new AtomicInteger();
+    private final long latencyNanos;
+    private final long perStepNanos;
+
+    StubAiServices(long latencyMicros) {
+        this(latencyMicros, 0);
+    }
+
+    StubAiServices(long latencyMicros, long perStepMicros) {
+        this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        this.perStepNanos = TimeUnit.MICROSECONDS.toNanos(perStepMicros);
+    }
+
+    private void roundTrip() {
+        roundTrip(1);
+    }
+
+    private void roundTrip(int steps) {
+        calls.incrementAndGet();
+        long nanos = latencyNanos + perStepNanos * steps;
+        if (nanos > 0) {
+            LockSupport.parkNanos(nanos);
+        }
+    }
+
+    /**
+     * Construit un SimulationService câblé sur les doubles (sans contexte Spring)
+     */
+    SimulationService newSimulationService(boolean batchEnabled, String dispatchEngineMode) {
+        MeteoDataService meteoDataService = new MeteoDataService();
+        PvCalculationService pvCalculationService = new PvCalculationService();
+        ReflectionTestUtils.setField(pvCalculationService, "meteoDataService", meteoDataService);
+
+        StubAiClient aiClient = new StubAiClient();
+        StubPvPrediction pvPrediction = new StubPvPrediction();
+        AiAsyncClient aiAsyncClient = new AiAsyncClient();
+        ReflectionTestUtils.setField(aiAsyncClient, "aiMicroserviceClient", aiClient);
+        ReflectionTestUtils.setField(aiAsyncClient, "pvPredictionService", pvPrediction);
+        ReflectionTestUtils.setField(aiAsyncClient, "anomalyDetectionService", new StubAnomalyDetection());
+
+        SimulationService service = new SimulationService();
+        ReflectionTestUtils.setField(service, "aiMicroserviceClient", aiClient);
+        ReflectionTestUtils.setField(service, "pvCalculationService", pvCalculationService);
+        ReflectionTestUtils.setField(service, "consumptionEstimationService", new ConsumptionEstimationService());
+        ReflectionTestUtils.setField(service, "meteoDataService", meteoDataService);
+        ReflectionTestUtils.setField(service, "csvMeteoReaderService", new SyntheticMeteoReader(meteoDataService));
+        ReflectionTestUtils.setField(service, "aiResultValidator", new AiResultValidator());
+        ReflectionTestUtils.setField(service, "pvPredictionService", pvPrediction);
+        ReflectionTestUtils.setField(service, "aiAsyncClient", aiAsyncClient);
+        ReflectionTestUtils.setField(service, "dispatchEngine", new DispatchEngine());
+        ReflectionTestUtils.setField(service, "batchEnabled", batchEnabled);
+        ReflectionTestUtils.setField(service, "dispatchEngineMode", dispatchEngineMode);
+        return service;
+    }
+
+    static Establishment establishment() {
+        Establishment establishment = new Establishment();
+        establishment.setId(1L);
+        establishment.setType(Establishment.EstablishmentType.CHU);
+        establishment.setNumberOfBeds(500);
+        establishment.setIrradiationClass(Establishment.IrradiationClass.C);
+        establishment.setInstallableSurfaceM2(2000.0);
+        establishment.setMonthlyConsumptionKwh(300000.0);
+        return establishment;
+    }
+
+    private class StubAiClient extends AiMicroserviceClient {
+        @Override
+        public double predictConsumption(LocalDateTime datetime, double temperatureC, double irradianceKwhM2,
+                                         double pvProdKwh, double patients, Double socBatterieKwh, String event) {
+            roundTrip();
+            return 2500.0;
+        }
+
+        @Override
+        public Map<String, Object> optimizeDispatch(double predKwh, double pvKwh, double socKwh,
+                                                    Map<String, Double> batteryParams) {
+            roundTrip();
+            return new java.util.HashMap<>(Map.of("grid_import_kWh", Math.max(predKwh - pvKwh, 0.0),
+                "battery_charge_kWh", 0.0, "battery_discharge_kWh", 0.0,
+                "soc_next", socKwh, "note", "stub"));
+        }
+
+        @Override
+        public double[] predictConsumptionBatch(List<LocalDateTime> datetimes, double[] temperatureC,
+                                                double[] irradianceKwhM2, double[] pvProdKwh,
+                                                double patients, String event) {
+            roundTrip(datetimes.size());
+            double[] predictions = new double[datetimes.size()];
+            java.util.Arrays.fill(predictions, 2500.0);
+            return predictions;
+        }
+
+        @Override
+        public DispatchBatchResult optimizeDispatchBatch(double[] predKwh, double[] pvKwh, double initialSocKwh,
+                                                         Map<String, Double> batteryParams) {
+            roundTrip(predKwh.length);
+            int size = predKwh.length;
+            double[] grid = new double[size];
+            double[] soc = new double[size];
+            List<String> notes = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                grid[i] = Math.max(predKwh[i] - pvKwh[i], 0.0);
+                soc[i] = initialSocKwh;
+                notes.add("stub");
+            }
+            return new DispatchBatchResult(grid, new double[size], new double[size], soc, notes);
+        }
+    }
+
+    private class StubPvPrediction extends PvPredictionService {
+        @Override
+        public double predictPvProduction(LocalDateTime datetime, double irradianceKwhM2, double temperatureC,
+                                          double surfaceM2, double[] historicalPv) {
+            roundTrip();
+            return surfaceM2 * irradianceKwhM2 * 0.16;
+        }
+
+        @Override
+        public double[] predictPvProductionBatch(List<LocalDateTime> datetimes, double[] irradianceKwhM2,
+                                                 double[] temperatureC, double surfaceM2, List<Double> historicalPv) {
+            roundTrip(datetimes.size());
+            double[] predictions = new double[datetimes.size()];
+            for (int i = 0; i < predictions.length; i++) {
+                predictions[i] = surfaceM2 * irradianceKwhM2[i] * 0.16;
+            }
+            return predictions;
+        }
+    }
+
+    private class StubAnomalyDetection extends AnomalyDetectionService {
+        private final AnomalyResult normal = new AnomalyResult(false, 0.0, "normal", "No action needed");
+
+        @Override
+        public AnomalyResult detectAnomaly(double consumption, double predictedConsumption, double pvProduction,
+                                           double expectedPv, double soc, double temperatureC, double irradianceKwhM2) {
+            roundTrip();
+            return normal;
+        }
+
+        @Override
+        public List<AnomalyResult> detectAnomaliesBatch(double[] consumption, double[] predictedConsumption,
+                                                        double[] pvProduction, double[] expectedPv, double[] soc,
+                                                        double[] temperatureC, double[] irradianceKwhM2) {
+            roundTrip(consumption.length);
+            List<AnomalyResult> results = new ArrayList<>(consumption.length);
+            for (int i = 0; i < consumption.length; i++) {
+                results.add(normal);
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Météo synthétique (profil jour/nuit) pour ne pas dépendre des fichiers CSV
+     */
+    private static class SyntheticMeteoReader extends CsvMeteoReaderService {
+        SyntheticMeteoReader(MeteoDataService meteoDataService) {
+            super(meteoDataService);
+        }
+
+        @Override
+        public MeteoData getMeteoData(LocalDateTime start, Duration step, MoroccanCity.IrradiationClass irradiationClass) {
+            // Profil par créneau de 6h, énergie au prorata de la durée du pas
+            int slot = start.getHour() / 6 * 6;
+            double irradiance = slot == 6 ? 0.7 : slot == 12 ? 2.0 : slot == 18 ? 2.4 : 0.0;
+            return new MeteoData(18.0 + slot / 6.0, irradiance * step.getSeconds() / WeatherSeries.DEFAULT_STEP_SECONDS);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.microgrid.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests pour AiCircuitBreaker : ouverture après N échecs, court-circuit, appel de test semi-ouvert,
+ * appels interrompus non comptés
+ */
+public class AiCircuitBreakerTest {
+
+    private final MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.POST, URI.create("http://localhost:8000/optimize"));
+    private final AtomicInteger networkCalls = new AtomicInteger();
+    private AiCircuitBreaker breaker;
+
+    private final ClientHttpRequestExecution down = (req, body) -> {
+        networkCalls.incrementAndGet();
+        throw new ConnectException("Connection refused");
+    };
+
+    private final ClientHttpRequestExecution up = (req, body) -> {
+        networkCalls.incrementAndGet();
+        return new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+    };
+
+    // Job annulé : le thread est interrompu et la socket bloquante fermée sous l'appel
+    private final ClientHttpRequestExecution cancelled = (req, body) -> {
+        networkCalls.incrementAndGet();
+        Thread.currentThread().interrupt();
+        throw new SocketException("Socket closed");
+    };
+
+    @BeforeEach
+    public void setUp() {
+        breaker = new AiCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "failureThreshold", 3);
+        ReflectionTestUtils.setField(breaker, "openMs", 1000L);
+        setTime(0);
+    }
+
+    private void setTime(long millis) {
+        ReflectionTestUtils.setField(breaker, "clock", Clock.fixed(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+    }
+
+    @Test
+    public void testOpensAfterThresholdAndFailsFast() {
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ConnectException.class, () -> breaker.intercept(request, new byte[0], down));
+        }
+        assertEquals(AiCircuitBreaker.State.OPEN, breaker.getState());
+
+        // Circuit ouvert : plus aucun appel réseau
+        for (int i = 0; i < 100; i++) {
+            assertThrows(IOException.class, () -> breaker.intercept(request, new byte[0], down));
+        }
+        assertEquals(3, networkCalls.get());
+        assertEquals(100L, breaker.snapshot().get("rejectedCalls"));
+    }
+
+    @Test
+    public void testHalfOpenProbeClosesOrReopens() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ConnectException.class, () -> breaker.intercept(request, new byte[0], down));
+        }
+
+        // Appel de test en échec : le circuit se rouvre pour une nouvelle période
+        setTime(1000);
+        assertThrows(ConnectException.class, () -> breaker.intercept(request, new byte[0], down));
+        assertEquals(AiCircuitBreaker.State.OPEN, breaker.getState());
+        setTime(1500);
+        assertThrows(IOException.class, () -> breaker.intercept(request, new byte[0], up));
+        assertEquals(4, networkCalls.get());
+
+        // Appel de test réussi : le circuit se referme
+        setTime(2000);
+        breaker.intercept(request, new byte[0], up);
+        assertEquals(AiCircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.intercept(request, new byte[0], up);
+        assertEquals(6, networkCalls.get());
+    }
+
+    @Test
+    public void testInterruptedCallsAreNotFailures() throws Exception {
+        try {
+            for (int i = 0; i < 5; i++) {
+                assertThrows(SocketException.class, () -> breaker.intercept(request, new byte[0], cancelled));
+                assertTrue(Thread.interrupted());
+            }
+            assertThrows(InterruptedIOException.class, () -> breaker.intercept(request, new byte[0], (req, body) -> {
+                throw new InterruptedIOException();
+            }));
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(AiCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.snapshot().get("consecutiveFailures"));
+
+        // Délai de lecture dépassé : échec du microservice
+        for (int i = 0; i < 3; i++) {
+            assertThrows(SocketTimeoutException.class, () -> breaker.intercept(request, new byte[0], (req, body) -> {
+                throw new SocketTimeoutException("Read timed out");
+            }));
+        }
+        assertEquals(AiCircuitBreaker.State.OPEN, breaker.getState());
+
+        // Appel de test interrompu : le suivant peut tester le microservice
+        setTime(1000);
+        try {
+            assertThrows(SocketException.class, () -> breaker.intercept(request, new byte[0], cancelled));
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(AiCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.intercept(request, new byte[0], up);
+        assertEquals(AiCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
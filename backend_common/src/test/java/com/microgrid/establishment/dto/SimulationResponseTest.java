@@ -0,0 +1,80 @@
+package com.microgrid.establishment.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.microgrid.service.SimulationService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests pour le format JSON de SimulationResponse (pas sérialisés par SimulationStepsSerializer)
+ */
+public class SimulationResponseTest {
+
+    // Même configuration des dates que l'ObjectMapper de Spring Boot
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    public void testStepsRoundTrip() throws Exception {
+        SimulationService.SimulationResult result = new SimulationService.SimulationResult(2);
+        for (int step = 0; step < 2; step++) {
+            result.setDatetime(step, LocalDateTime.of(2024, 1, 1, 6 * step, 0));
+            result.predictedConsumption[step] = 100.0 + step;
+            result.pvProduction[step] = 40.0;
+            result.socBattery[step] = 250.0;
+            result.gridImport[step] = 60.0 + step;
+            result.batteryCharge[step] = 0.0;
+            result.batteryDischarge[step] = 0.5;
+            // Même libellé sur les deux pas : un seul code interné
+            result.setNote(step, "Battery preserved due to SOC limits.");
+        }
+        result.setAnomaly(1, true, "high_consumption", 0.87, "Check HVAC schedule");
+        SimulationResponse response = new SimulationResponse(result,
+            new SimulationResponse.SimulationSummary(201, 80, 121, 39.8, 96, 50, 200));
+
+        JsonNode json = objectMapper.readTree(objectMapper.writeValueAsString(response));
+
+        JsonNode steps = json.get("steps");
+        assertEquals(2, steps.size());
+        List<String> fields = new ArrayList<>();
+        steps.get(0).fieldNames().forEachRemaining(fields::add);
+        assertEquals(List.of("datetime", "stepHours", "predictedConsumption", "pvProduction", "socBattery",
+            "gridImport", "batteryCharge", "batteryDischarge", "note", "hasAnomaly", "anomalyType", "anomalyScore",
+            "anomalyRecommendation"), fields);
+
+        JsonNode first = steps.get(0);
+        assertEquals("2024-01-01T00:00:00", first.get("datetime").asText());
+        assertEquals(6.0, first.get("stepHours").asDouble());
+        assertEquals(100.0, first.get("predictedConsumption").asDouble());
+        assertEquals(0.5, first.get("batteryDischarge").asDouble());
+        assertEquals("Battery preserved due to SOC limits.", first.get("note").asText());
+        // Pas sans anomalie : false (et non null), libellés et score (NaN) à null
+        assertFalse(first.get("hasAnomaly").asBoolean());
+        assertTrue(first.get("hasAnomaly").isBoolean());
+        assertTrue(first.get("anomalyType").isNull());
+        assertTrue(first.get("anomalyScore").isNull());
+        assertTrue(first.get("anomalyRecommendation").isNull());
+
+        JsonNode second = steps.get(1);
+        assertEquals("2024-01-01T06:00:00", second.get("datetime").asText());
+        assertEquals(61.0, second.get("gridImport").asDouble());
+        assertEquals("Battery preserved due to SOC limits.", second.get("note").asText());
+        assertTrue(second.get("hasAnomaly").asBoolean());
+        assertEquals("high_consumption", second.get("anomalyType").asText());
+        assertEquals(0.87, second.get("anomalyScore").asDouble());
+        assertEquals("Check HVAC schedule", second.get("anomalyRecommendation").asText());
+
+        JsonNode summary = json.get("summary");
+        assertEquals(201.0, summary.get("totalConsumption").asDouble());
+        assertEquals(200.0, summary.get("recommendedBatteryCapacity").asDouble());
+    }
+}
@@ -0,0 +1,94 @@
+package com.microgrid.establishment.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.microgrid.service.SimulationService;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests pour SimulationStreamWriter : cadrage exact des formats NDJSON et Server-Sent Events
+ */
+public class SimulationStreamWriterTest {
+
+    private static final String STEP_0 = "{\"datetime\":\"2024-01-01T00:00:00\",\"stepHours\":6.0,"
+        + "\"predictedConsumption\":100.0,\"pvProduction\":40.0,\"socBattery\":250.0,\"gridImport\":60.0,"
+        + "\"batteryCharge\":0.0,\"batteryDischarge\":0.0,\"note\":\"Battery preserved due to SOC limits.\","
+        + "\"hasAnomaly\":false,\"anomalyType\":null,\"anomalyScore\":null,\"anomalyRecommendation\":null}";
+    private static final String STEP_1 = "{\"datetime\":\"2024-01-01T06:00:00\",\"stepHours\":6.0,"
+        + "\"predictedConsumption\":101.0,\"pvProduction\":40.0,\"socBattery\":250.0,\"gridImport\":61.0,"
+        + "\"batteryCharge\":0.0,\"batteryDischarge\":0.0,\"note\":\"Battery preserved due to SOC limits.\","
+        + "\"hasAnomaly\":true,\"anomalyType\":\"high_consumption\",\"anomalyScore\":0.87,"
+        + "\"anomalyRecommendation\":\"Check HVAC schedule\"}";
+    private static final String SUMMARY = "{\"totalConsumption\":201.0,\"totalPvProduction\":80.0,"
+        + "\"totalGridImport\":121.0,\"averageAutonomy\":39.8,\"totalSavings\":96.0,\"recommendedPvPower\":50.0,"
+        + "\"recommendedBatteryCapacity\":200.0}";
+
+    // Même configuration des dates que l'ObjectMapper de Spring Boot
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private static SimulationService.SimulationResult twoSteps() {
+        SimulationService.SimulationResult result = new SimulationService.SimulationResult(2);
+        for (int step = 0; step < 2; step++) {
+            result.setDatetime(step, LocalDateTime.of(2024, 1, 1, 6 * step, 0));
+            result.predictedConsumption[step] = 100.0 + step;
+            result.pvProduction[step] = 40.0;
+            result.socBattery[step] = 250.0;
+            result.gridImport[step] = 60.0 + step;
+            result.setNote(step, "Battery preserved due to SOC limits.");
+        }
+        result.setAnomaly(1, true, "high_consumption", 0.87, "Check HVAC schedule");
+        return result;
+    }
+
+    private static SimulationResponse.SimulationSummary summary() {
+        return new SimulationResponse.SimulationSummary(201, 80, 121, 39.8, 96, 50, 200);
+    }
+
+    @Test
+    public void testNdjsonWritesOneLinePerStepThenSummary() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SimulationStreamWriter writer = new SimulationStreamWriter(objectMapper, output, false);
+
+        writer.writeChunk(twoSteps());
+        // Chaque tranche est envoyée avant la suivante
+        assertEquals(STEP_0 + "\n" + STEP_1 + "\n", output.toString(StandardCharsets.UTF_8));
+        writer.writeSummary(summary());
+
+        assertEquals(STEP_0 + "\n" + STEP_1 + "\n" + "{\"summary\":" + SUMMARY + "}\n",
+            output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testServerSentEventsFrameStepsAndSummary() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SimulationStreamWriter writer = new SimulationStreamWriter(objectMapper, output, true);
+
+        writer.writeChunk(twoSteps());
+        writer.writeSummary(summary());
+
+        assertEquals("event: step\ndata: " + STEP_0 + "\n\n"
+            + "event: step\ndata: " + STEP_1 + "\n\n"
+            + "event: summary\ndata: " + SUMMARY + "\n\n", output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testErrorIsTheLastRecordInBothFormats() throws Exception {
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        new SimulationStreamWriter(objectMapper, ndjson, false).writeError("AI indisponible");
+        assertEquals("{\"error\":{\"message\":\"AI indisponible\"}}\n", ndjson.toString(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream events = new ByteArrayOutputStream();
+        new SimulationStreamWriter(objectMapper, events, true).writeError(null);
+        assertEquals("event: error\ndata: {\"message\":\"Simulation interrompue\"}\n\n",
+            events.toString(StandardCharsets.UTF_8));
+    }
+}
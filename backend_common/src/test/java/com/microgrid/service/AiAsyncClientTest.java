@@ -0,0 +1,94 @@
+package com.microgrid.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests pour AiAsyncClient : regroupement des requêtes identiques en cours, annulation
+ */
+public class AiAsyncClientTest {
+
+    private final List<LocalDateTime> datetimes = List.of(LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 1, 1, 6, 0));
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AiMicroserviceClient aiMicroserviceClient;
+    private AiAsyncClient aiAsyncClient;
+
+    @BeforeEach
+    public void setUp() {
+        aiMicroserviceClient = mock(AiMicroserviceClient.class);
+        when(aiMicroserviceClient.predictConsumptionBatch(any(), any(), any(), any(), anyDouble(), any()))
+            .thenAnswer(invocation -> {
+                release.await(10, TimeUnit.SECONDS);
+                return new double[] {2500.0, 2600.0};
+            });
+        aiAsyncClient = new AiAsyncClient();
+        ReflectionTestUtils.setField(aiAsyncClient, "aiMicroserviceClient", aiMicroserviceClient);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        aiAsyncClient.shutdown();
+    }
+
+    @Test
+    public void testIdenticalInFlightRequestsShareOneCall() throws Exception {
+        CompletableFuture<double[]> first = aiAsyncClient.predictConsumptionBatch(
+            datetimes, new double[] {18.0, 20.0}, new double[] {0.0, 2.0}, new double[] {0.0, 300.0}, 400.0, null);
+        // Mêmes features, tableaux différents
+        CompletableFuture<double[]> second = aiAsyncClient.predictConsumptionBatch(
+            List.copyOf(datetimes), new double[] {18.0, 20.0}, new double[] {0.0, 2.0}, new double[] {0.0, 300.0}, 400.0, null);
+        CompletableFuture<double[]> other = aiAsyncClient.predictConsumptionBatch(
+            datetimes, new double[] {18.0, 20.0}, new double[] {0.0, 2.0}, new double[] {0.0, 310.0}, 400.0, null);
+        release.countDown();
+
+        double[] firstResult = first.get(10, TimeUnit.SECONDS);
+        double[] secondResult = second.get(10, TimeUnit.SECONDS);
+        other.get(10, TimeUnit.SECONDS);
+
+        verify(aiMicroserviceClient, times(2)).predictConsumptionBatch(any(), any(), any(), any(), anyDouble(), any());
+        assertArrayEquals(firstResult, secondResult);
+        assertNotSame(firstResult, secondResult);
+        assertEquals(0, aiAsyncClient.inFlightCount());
+    }
+
+    @Test
+    public void testCancelledCallersStopRequestOnlyWhenNoneWaits() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            try {
+                new CountDownLatch(1).await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return new double[] {2500.0, 2600.0};
+        }).when(aiMicroserviceClient).predictConsumptionBatch(any(), any(), any(), any(), anyDouble(), any());
+
+        CompletableFuture<double[]> first = aiAsyncClient.predictConsumptionBatch(
+            datetimes, new double[] {18.0, 20.0}, new double[] {0.0, 2.0}, new double[] {0.0, 300.0}, 400.0, null);
+        CompletableFuture<double[]> second = aiAsyncClient.predictConsumptionBatch(
+            datetimes, new double[] {18.0, 20.0}, new double[] {0.0, 2.0}, new double[] {0.0, 300.0}, 400.0, null);
+
+        // Un appelant attend encore : la requête continue
+        first.cancel(true);
+        assertFalse(interrupted.await(200, TimeUnit.MILLISECONDS));
+        assertFalse(second.isDone());
+
+        second.cancel(true);
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertEquals(0, aiAsyncClient.inFlightCount());
+        verify(aiMicroserviceClient, times(1)).predictConsumptionBatch(any(), any(), any(), any(), anyDouble(), any());
+    }
+}
@@ -0,0 +1,108 @@
+package com.microgrid.service;
+
+import com.microgrid.model.Establishment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests pour ComprehensiveResultsCache : réutilisation par révision, invalidation (y compris pendant un calcul)
+ * et nouveau modèle
+ */
+public class ComprehensiveResultsCacheTest {
+
+    private PredictionCache predictionCache;
+    private ComprehensiveResultsCache resultsCache;
+    private Establishment establishment;
+    private final AtomicInteger calculations = new AtomicInteger();
+    private final Supplier<Map<String, Object>> loader = () -> {
+        Map<String, Object> results = new HashMap<>();
+        results.put("calculation", calculations.incrementAndGet());
+        return results;
+    };
+
+    @BeforeEach
+    public void setUp() {
+        predictionCache = new PredictionCache();
+        predictionCache.init();
+        resultsCache = new ComprehensiveResultsCache();
+        ReflectionTestUtils.setField(resultsCache, "predictionCache", predictionCache);
+        resultsCache.init();
+
+        establishment = new Establishment();
+        establishment.setId(3L);
+        establishment.setUpdatedAt(LocalDateTime.of(2025, 3, 1, 10, 0));
+    }
+
+    @Test
+    public void testSameRevisionIsCalculatedOnce() {
+        Map<String, Object> first = resultsCache.get(establishment, loader);
+        first.put("establishmentId", 3L);
+        Map<String, Object> second = resultsCache.get(establishment, loader);
+
+        assertEquals(1, calculations.get());
+        assertEquals(1, second.get("calculation"));
+        // L'appelant complète sa copie sans modifier l'entrée en cache
+        assertFalse(second.containsKey("establishmentId"));
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void testRevisionInvalidationAndModelVersionRecalculate() {
+        resultsCache.get(establishment, loader);
+
+        establishment.setUpdatedAt(establishment.getUpdatedAt().plusSeconds(1));
+        assertEquals(2, resultsCache.get(establishment, loader).get("calculation"));
+
+        resultsCache.invalidate(establishment.getId());
+        assertEquals(3, resultsCache.get(establishment, loader).get("calculation"));
+
+        predictionCache.invalidateAll();
+        assertEquals(4, resultsCache.get(establishment, loader).get("calculation"));
+        assertEquals(4, resultsCache.get(establishment, loader).get("calculation"));
+
+        // Établissement non persisté : jamais mis en cache
+        establishment.setUpdatedAt(null);
+        resultsCache.get(establishment, loader);
+        assertEquals(6, resultsCache.get(establishment, loader).get("calculation"));
+    }
+
+    @Test
+    public void testInvalidateDoesNotWaitForCalculationInFlight() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Map<String, Object>> slowLoader = () -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return loader.get();
+        };
+        CompletableFuture<Map<String, Object>> slow =
+            CompletableFuture.supplyAsync(() -> resultsCache.get(establishment, slowLoader));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+
+        // Modification de l'établissement pendant le calcul : l'invalidation rend la main immédiatement
+        CompletableFuture.runAsync(() -> resultsCache.invalidate(establishment.getId())).get(5, TimeUnit.SECONDS);
+        assertFalse(slow.isDone());
+
+        release.countDown();
+        assertEquals(1, slow.get(10, TimeUnit.SECONDS).get("calculation"));
+        // Le résultat du calcul invalidé n'est pas conservé
+        assertEquals(2, resultsCache.get(establishment, loader).get("calculation"));
+        assertEquals(2, resultsCache.get(establishment, loader).get("calculation"));
+    }
+}
@@ -0,0 +1,99 @@
+package com.microgrid.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de parité entre DispatchEngine et l'optimiseur Python.
+ *
+ * Les fixtures (src/test/resources/dispatch) sont générées par
+ * ai_microservices/scripts/export_dispatch_fixtures.py à partir des CSV de data_raw.
+ */
+public class DispatchEngineTest {
+
+    private static final double TOLERANCE_KWH = 1e-4;
+
+    private final DispatchEngine dispatchEngine = new DispatchEngine();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"casablanca", "zone_a_sahara"})
+    public void testDispatch_MatchesPythonOptimizer(String scenario) throws Exception {
+        Map<String, Double> params = new HashMap<>();
+        List<String[]> rows = new ArrayList<>();
+        try (InputStream input = getClass().getResourceAsStream("/dispatch/" + scenario + ".csv");
+             BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            for (String entry : reader.readLine().substring(2).split(",")) {
+                String[] keyValue = entry.split("=");
+                params.put(keyValue[0], Double.parseDouble(keyValue[1]));
+            }
+            reader.readLine(); // en-tête des colonnes
+            String line;
+            while ((line = reader.readLine()) != null) {
+                rows.add(line.split(",", 7));
+            }
+        }
+
+        int size = rows.size();
+        double[] pred = new double[size];
+        double[] pv = new double[size];
+        for (int i = 0; i < size; i++) {
+            pred[i] = Double.parseDouble(rows.get(i)[0]);
+            pv[i] = Double.parseDouble(rows.get(i)[1]);
+        }
+
+        double[] gridImport = new double[size];
+        double[] batteryCharge = new double[size];
+        double[] batteryDischarge = new double[size];
+        double[] socNext = new double[size];
+        byte[] notes = new byte[size];
+        dispatchEngine.dispatch(pred, pv, params.get("INITIAL_SOC_KWH"), 6.0,
+            DispatchEngine.BatteryParams.fromMap(params),
+            gridImport, batteryCharge, batteryDischarge, socNext, notes);
+
+        for (int i = 0; i < size; i++) {
+            String[] expected = rows.get(i);
+            String step = scenario + " pas " + i;
+            assertEquals(Double.parseDouble(expected[2]), gridImport[i], TOLERANCE_KWH, step);
+            assertEquals(Double.parseDouble(expected[3]), batteryCharge[i], TOLERANCE_KWH, step);
+            assertEquals(Double.parseDouble(expected[4]), batteryDischarge[i], TOLERANCE_KWH, step);
+            assertEquals(Double.parseDouble(expected[5]), socNext[i], TOLERANCE_KWH, step);
+            assertEquals(expected[6], DispatchEngine.NOTES[notes[i]], step);
+        }
+    }
+
+    @Test
+    public void testDispatch_RoundTripEfficiencyLosesEnergyOnChargeAndDischarge() {
+        // 81 % aller-retour : 90 % à la charge, 90 % à la décharge
+        DispatchEngine.BatteryParams params = new DispatchEngine.BatteryParams(100, 0.15, 0.95, 200, 200, 0.81);
+        double[] pred = {0, 40, 10};
+        double[] pv = {50, 0, 0};
+        double[] gridImport = new double[3];
+        double[] batteryCharge = new double[3];
+        double[] batteryDischarge = new double[3];
+        double[] socNext = new double[3];
+
+        dispatchEngine.dispatch(pred, pv, 20, 1.0, params, gridImport, batteryCharge, batteryDischarge, socNext, null);
+
+        assertEquals(50, batteryCharge[0], TOLERANCE_KWH);
+        assertEquals(65, socNext[0], TOLERANCE_KWH);
+        assertEquals(40, batteryDischarge[1], TOLERANCE_KWH);
+        assertEquals(65 - 40 / 0.9, socNext[1], TOLERANCE_KWH);
+        assertEquals(0, gridImport[1], TOLERANCE_KWH);
+        // Reste (65 - 40 / 0.9 - 15) kWh au-dessus du plancher, soit 5 kWh délivrables
+        assertEquals(5, batteryDischarge[2], TOLERANCE_KWH);
+        assertEquals(5, gridImport[2], TOLERANCE_KWH);
+        assertEquals(15, socNext[2], TOLERANCE_KWH);
+    }
+}
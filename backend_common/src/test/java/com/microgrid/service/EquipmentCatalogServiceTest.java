@@ -0,0 +1,109 @@
+package com.microgrid.service;
+
+import com.microgrid.model.Establishment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests pour EquipmentCatalogService : index du catalogue, nomenclature la moins chère et équipements sélectionnés
+ */
+public class EquipmentCatalogServiceTest {
+
+    private EquipmentCatalogService catalog;
+
+    @BeforeEach
+    public void setUp() {
+        catalog = new EquipmentCatalogService();
+        catalog.init();
+    }
+
+    private static List<String> ids(List<EquipmentCatalogService.Item> items) {
+        return items.stream().map(item -> item.id).toList();
+    }
+
+    private static EquipmentCatalogService.Line line(EquipmentCatalogService.BillOfMaterials bom, String id) {
+        return bom.lines.stream().filter(line -> line.item.id.equals(id)).findFirst().orElse(null);
+    }
+
+    @Test
+    public void testCatalogIsIndexed() {
+        assertTrue(catalog.isLoaded());
+        assertEquals(List.of("panel2", "panel1", "panel4", "panel3"), ids(catalog.items(EquipmentCatalogService.Category.PANEL)));
+        assertEquals(0.38, catalog.find("panel2").orElseThrow().rating, 1e-9);
+        assertEquals("panel2", catalog.itemsByUnitPrice(EquipmentCatalogService.Category.PANEL).get(0).id);
+        assertEquals(List.of("inv3", "inv2"), ids(catalog.itemsByRating(EquipmentCatalogService.Category.INVERTER, 8, 10)));
+        assertEquals(List.of("inv1", "inv2", "inv4"), ids(catalog.itemsOfType(EquipmentCatalogService.Category.INVERTER, "HYBRID")));
+        assertTrue(catalog.itemsByRating(EquipmentCatalogService.Category.BATTERY, 30, 40).isEmpty());
+    }
+
+    @Test
+    public void testBillOfMaterialsIsCheapestCompatibleSet() {
+        EquipmentCatalogService.BillOfMaterials bom = catalog.solve(10, 25, 25, null);
+
+        // 27 x 380 W (19 440 DH) < 25 x 400 W (21 250 DH) ; AGM exclue (profondeur de décharge 50 %)
+        assertEquals(27, line(bom, "panel2").quantity);
+        assertEquals(2, line(bom, "battery2").quantity);
+        assertNull(line(bom, "battery4"));
+        // Onduleurs hybrides combinés : 15 kW + 10 kW
+        assertEquals(1, line(bom, "inv4").quantity);
+        assertEquals(1, line(bom, "inv2").quantity);
+        assertEquals(19_440 + 130_000 + 54_000, bom.equipmentCost, 1e-6);
+        assertEquals(25, bom.installedInverterKw, 1e-9);
+
+        // Couverture onduleurs optimale : comparaison à l'énumération des combinaisons
+        List<EquipmentCatalogService.Item> inverters = catalog.items(EquipmentCatalogService.Category.INVERTER);
+        int[] max = inverters.stream().mapToInt(item -> (int) Math.ceil(60 / item.rating)).toArray();
+        for (int target = 1; target <= 60; target++) {
+            for (double battery : new double[] {0.0, 10.0}) {
+                double best = Double.POSITIVE_INFINITY;
+                for (int a = 0; a <= max[0]; a++) {
+                    for (int b = 0; b <= max[1]; b++) {
+                        for (int c = 0; c <= max[2]; c++) {
+                            for (int d = 0; d <= max[3]; d++) {
+                                int[] counts = {a, b, c, d};
+                                double power = 0.0;
+                                double cost = 0.0;
+                                for (int model = 0; model < counts.length; model++) {
+                                    EquipmentCatalogService.Item item = inverters.get(model);
+                                    if (counts[model] > 0 && battery > 0 && !"HYBRID".equals(item.type)) {
+                                        cost = Double.POSITIVE_INFINITY;
+                                    }
+                                    power += counts[model] * item.rating;
+                                    cost += counts[model] * item.priceDh;
+                                }
+                                if (power >= target) {
+                                    best = Math.min(best, cost);
+                                }
+                            }
+                        }
+                    }
+                }
+                assertEquals(best, catalog.solve(0, battery, target, null).invertersCost, 1e-6,
+                    target + " kW, batterie " + battery);
+            }
+        }
+    }
+
+    @Test
+    public void testSelectedEquipmentIsImposedAtItsPrice() {
+        Establishment establishment = new Establishment();
+        establishment.setSelectedPanelId("panel1");
+        establishment.setSelectedPanelPrice(800.0);
+        establishment.setSelectedBatteryId("battery4");
+        establishment.setSelectedInverterId("inv1");
+        establishment.setSelectedControllerId("ctrl1");
+
+        EquipmentCatalogService.BillOfMaterials bom = catalog.solve(10, 25, 12, establishment);
+
+        assertEquals(4, bom.lines.size());
+        assertEquals(25 * 800.0, bom.panelsCost, 1e-6);
+        assertEquals(2 * 38_000.0, bom.batteriesCost, 1e-6);
+        assertEquals(3, line(bom, "inv1").quantity);
+        assertEquals(3_500.0, bom.controllersCost, 1e-6);
+        assertTrue(catalog.solve(0, 0, 0, null).lines.isEmpty());
+    }
+}
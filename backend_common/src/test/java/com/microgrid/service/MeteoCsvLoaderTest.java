@@ -0,0 +1,119 @@
+package com.microgrid.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests pour MeteoCsvLoader : formats de date, créneaux des dates sans heure, décodage des nombres, lignes invalides
+ */
+public class MeteoCsvLoaderTest {
+
+    private WeatherSeries load(MeteoCsvLoader loader, String csv) throws Exception {
+        return loader.load(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testIsoAndUsDateFormats() throws Exception {
+        WeatherSeries iso = load(new MeteoCsvLoader("iso.csv"),
+            "datetime,temperature_C,irradiance_kWh_m2\r\n"
+                + "2024-02-29 12:00:00,15.5,2.0\r\n"
+                + "2024-03-01T18:30:00,-3.25,0\r\n");
+        assertEquals(2, iso.size());
+        int index = iso.indexOf(LocalDateTime.of(2024, 2, 29, 13, 0));
+        assertEquals(15.5, iso.temperatureAt(index));
+        assertEquals(2.0, iso.irradianceAt(index));
+        assertEquals(-3.25, iso.temperatureAt(iso.indexOf(LocalDateTime.of(2024, 3, 1, 18, 45))));
+
+        // Date sans heure : minuit
+        WeatherSeries us = load(new MeteoCsvLoader("us.csv"),
+            "datetime,temperature_C,irradiance_kWh_m2\n01/02/2024,12.0,0.5\n1/3/2024,13.0,0.6");
+        assertEquals(LocalDateTime.of(2024, 1, 2, 0, 0), us.datetimeAt(us.indexOf(LocalDateTime.of(2024, 1, 2, 0, 0))));
+        assertEquals(13.0, us.temperatureAt(us.indexOf(LocalDateTime.of(2024, 1, 3, 0, 0))));
+    }
+
+    @Test
+    public void testDateOnlyRowsFillSlotsInRowOrder() throws Exception {
+        // Format data_raw : quatre lignes par date ; le 3 janvier a une ligne de trop, le 4 une de moins
+        StringBuilder csv = new StringBuilder("datetime,temperature_C,irradiance_kWh_m2\n");
+        int[] rowsByDay = {4, 4, 5, 3};
+        for (int day = 0; day < rowsByDay.length; day++) {
+            for (int row = 0; row < rowsByDay[day]; row++) {
+                csv.append("1/").append(day + 1).append("/2024,").append(day * 10 + row).append(",0.5\n");
+            }
+        }
+        MeteoCsvLoader loader = new MeteoCsvLoader("zone_6h.csv");
+
+        WeatherSeries series = load(loader, csv.toString());
+
+        assertEquals(4, loader.getRowsPerDay());
+        assertEquals(21600, series.getStepSeconds());
+        assertEquals(16, series.getRows());
+        assertEquals(15, series.size());
+        assertEquals(1, series.getDuplicates());
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        assertEquals(3.0, series.temperatureAt(series.indexOf(start.plusHours(18))));
+        assertEquals(12.0, series.temperatureAt(series.indexOf(start.plusDays(1).plusHours(12))));
+        // Cinquième ligne du 3 janvier : écrase le créneau de 18h
+        assertEquals(24.0, series.temperatureAt(series.indexOf(start.plusDays(2).plusHours(18))));
+        assertEquals(start.plusDays(3).plusHours(12), series.datetimeAt(series.indexOf(start.plusDays(3).plusHours(13))));
+    }
+
+    @Test
+    public void testInvalidRowsAreSkipped() throws Exception {
+        MeteoCsvLoader loader = new MeteoCsvLoader("invalid.csv");
+        WeatherSeries series = load(loader,
+            "datetime,temperature_C,irradiance_kWh_m2\n"
+                + "2024-13-01 00:00:00,10.0,0\n"
+                + "2024-01-01 00:00:00,abc,0\n"
+                + "incomplete\n"
+                + "2024-01-01 06:00:00,11.0,1e-1\n");
+
+        assertEquals(3, loader.getRows());
+        assertEquals(2, loader.getInvalidRows());
+        assertEquals(1, series.size());
+        assertEquals(0.1, series.irradianceAt(series.indexOf(LocalDateTime.of(2024, 1, 1, 6, 0))));
+    }
+
+    @Test
+    public void testNumbersMatchDoubleParseDouble() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            String value = Double.toString((random.nextDouble() - 0.3) * Math.pow(10, random.nextInt(6)));
+            if (i % 2 == 1) {
+                // 19 chiffres significatifs (au-delà de la division exacte : repli sur Double.parseDouble)
+                String digits = Long.toUnsignedString(Long.remainderUnsigned(random.nextLong(), -8446744073709551616L));
+                int dot = random.nextInt(digits.length() + 1);
+                value = digits.substring(0, dot) + "." + digits.substring(dot) + "0";
+            }
+            byte[] bytes = (" " + value + " ").getBytes(StandardCharsets.US_ASCII);
+            assertEquals(Double.parseDouble(value), MeteoCsvLoader.parseDouble(bytes, 0, bytes.length), value);
+        }
+    }
+
+    @Test
+    public void testLinesAcrossBufferBoundaries() throws Exception {
+        StringBuilder csv = new StringBuilder("datetime,temperature_C,irradiance_kWh_m2\n");
+        LocalDate start = LocalDate.of(1999, 12, 1);
+        int days = 5000;
+        for (int i = 0; i < days; i++) {
+            csv.append(start.plusDays(i)).append(" 06:00:00,").append(i).append(".123456789012,0\n");
+        }
+
+        WeatherSeries series = load(new MeteoCsvLoader("long.csv"), csv.toString());
+
+        assertEquals(days, series.size());
+        assertEquals(86400, series.getStepSeconds());
+        for (int i = 0; i < days; i += 97) {
+            int index = series.indexOf(start.plusDays(i).atTime(6, 0));
+            assertEquals(start.plusDays(i).atTime(6, 0), series.datetimeAt(index));
+            assertEquals(i + 0.123456789012, series.temperatureAt(index));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.microgrid.service;
+
+import com.microgrid.exception.ValidationException;
+import com.microgrid.model.Establishment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests pour ParetoFrontService : tri non dominé, front cohérent et cache par révision de l'établissement
+ */
+public class ParetoFrontServiceTest {
+
+    private final LocalDateTime startDate = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private SizingOptimizerService sizingOptimizerService;
+    private PredictionCache predictionCache;
+    private ParetoFrontService paretoFrontService;
+    private Establishment establishment;
+
+    @BeforeEach
+    public void setUp() {
+        sizingOptimizerService = mock(SizingOptimizerService.class);
+        // {PV, batterie, coût, import annuel} pour une consommation annuelle de 1 000 000 kWh
+        double[][] designs = {
+            {100, 0, 300_000, 800_000},
+            {200, 0, 600_000, 600_000},
+            {200, 500, 3_300_000, 550_000},
+            {100, 500, 3_000_000, 800_000}, // Moins cher que {200, 500}, même batterie : gardé
+            {200, 0, 700_000, 600_000},     // Dominé par {200, 0} à 600 000 DH
+            {300, 0, 900_000, 700_000},     // Dominé par {200, 0} à 600 000 DH
+        };
+        when(sizingOptimizerService.evaluateAll(any(), any(), anyInt(), any(), any(), any()))
+            .thenAnswer(invocation -> Arrays.stream(designs)
+                .map(design -> new SizingOptimizerService.Candidate(0, design[0], design[1], design[0], design[0] * 5,
+                    design[2], 1_000_000, design[3], SizingOptimizerService.Objective.NPV))
+                .toList());
+        predictionCache = new PredictionCache();
+        predictionCache.init();
+        paretoFrontService = new ParetoFrontService();
+        ReflectionTestUtils.setField(paretoFrontService, "predictionCache", predictionCache);
+        ReflectionTestUtils.setField(paretoFrontService, "sizingOptimizerService", sizingOptimizerService);
+        ReflectionTestUtils.setField(paretoFrontService, "comprehensiveResultsService", new ComprehensiveResultsService());
+        paretoFrontService.init();
+
+        establishment = new Establishment();
+        establishment.setId(7L);
+        establishment.setMonthlyConsumptionKwh(1_000_000 / 12.0);
+        establishment.setUpdatedAt(LocalDateTime.of(2025, 3, 1, 10, 0));
+    }
+
+    @Test
+    public void testNonDominatedKeepsOnlyFrontAndFirstDuplicate() {
+        double[][] objectives = {
+            {1, 1, 1, 1},
+            {2, 0, 1, 1},
+            {1, 1, 1, 1}, // Identique au premier
+            {0, 0, 1, 1}, // Dominé
+            {1, 2, 0, 0},
+        };
+
+        int[] front = ParetoFrontService.nonDominated(objectives);
+        Arrays.sort(front);
+
+        assertArrayEquals(new int[] {0, 1, 4}, front);
+    }
+
+    @Test
+    public void testFrontIsNonDominatedAndCachedPerRevision() {
+        ParetoFrontService.ParetoFront front = paretoFrontService.paretoFront(
+            establishment, startDate, 365, null, null, null);
+
+        assertEquals(6, front.candidates);
+        assertEquals(4, front.designs.size());
+        assertEquals(300_000, front.designs.get(0).installationCost);
+        for (int i = 0; i < front.designs.size(); i++) {
+            for (int j = 0; j < front.designs.size(); j++) {
+                ParetoFrontService.Design a = front.designs.get(i);
+                ParetoFrontService.Design b = front.designs.get(j);
+                assertFalse(i != j && a.installationCost <= b.installationCost && a.autonomy >= b.autonomy
+                    && a.criticalAutonomyHours >= b.criticalAutonomyHours && a.co2Avoided >= b.co2Avoided,
+                    "le dimensionnement " + j + " est dominé");
+            }
+        }
+
+        // Même révision : front en cache ; établissement modifié ou nouveau modèle : recalcul
+        assertSame(front, paretoFrontService.paretoFront(establishment, startDate, 365, null, null, null));
+        verify(sizingOptimizerService, times(1)).evaluateAll(any(), any(), anyInt(), any(), any(), any());
+        establishment.setUpdatedAt(establishment.getUpdatedAt().plusMinutes(1));
+        assertNotSame(front, paretoFrontService.paretoFront(establishment, startDate, 365, null, null, null));
+        assertNotSame(front, paretoFrontService.paretoFront(establishment, startDate, 365, List.of(100.0), null, null));
+        verify(sizingOptimizerService, times(3)).evaluateAll(any(), any(), anyInt(), any(), any(), any());
+        ParetoFrontService.ParetoFront current = paretoFrontService.paretoFront(establishment, startDate, 365, null, null, null);
+        predictionCache.invalidateAll();
+        assertNotSame(current, paretoFrontService.paretoFront(establishment, startDate, 365, null, null, null));
+        verify(sizingOptimizerService, times(4)).evaluateAll(any(), any(), anyInt(), any(), any(), any());
+    }
+
+    @Test
+    public void testFailedEvaluationIsRethrownAndNotCached() {
+        when(sizingOptimizerService.evaluateAll(any(), any(), anyInt(), any(), any(), any()))
+            .thenThrow(new ValidationException("Trop de candidats"))
+            .thenReturn(List.of());
+
+        assertThrows(ValidationException.class,
+            () -> paretoFrontService.paretoFront(establishment, startDate, 365, null, null, null));
+        assertEquals(0, paretoFrontService.paretoFront(establishment, startDate, 365, null, null, null).candidates);
+        verify(sizingOptimizerService, times(2)).evaluateAll(any(), any(), anyInt(), any(), any(), any());
+    }
+}
@@ -0,0 +1,123 @@
+package com.microgrid.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests pour PredictionCache : clé quantifiée, échecs non mis en cache, invalidation au réentraînement,
+ * appel AI hors du verrou du cache
+ */
+public class PredictionCacheTest {
+
+    private final LocalDateTime datetime = LocalDateTime.of(2024, 6, 1, 12, 0);
+    private final AtomicInteger calls = new AtomicInteger();
+    private PredictionCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new PredictionCache();
+        cache.init();
+    }
+
+    private double predict(double temperature) {
+        PredictionCache.FeatureKey key = cache.key("/predict", 1).add(datetime).add(temperature).label(null).build();
+        return cache.get(key, () -> {
+            calls.incrementAndGet();
+            return 2500.0;
+        });
+    }
+
+    @Test
+    public void testQuantisedFeaturesHitTheCache() {
+        predict(24.1);
+        predict(24.1000001);
+        predict(24.2);
+
+        assertEquals(2, calls.get());
+        assertEquals(1L, cache.stats().get("hits"));
+        assertEquals(2L, cache.stats().get("misses"));
+    }
+
+    @Test
+    public void testFailuresAreNotCached() {
+        PredictionCache.FeatureKey key = cache.key("/predict", 1).add(datetime).build();
+        assertThrows(RuntimeException.class, () -> cache.get(key, () -> {
+            throw new RuntimeException("AI microservice down");
+        }));
+        assertEquals(3.0, (double) cache.get(key, () -> 3.0));
+    }
+
+    @Test
+    public void testRetrainInvalidatesPredictions() {
+        predict(24.1);
+        cache.invalidateAll();
+        predict(24.1);
+
+        assertEquals(2, calls.get());
+        assertEquals(1L, cache.stats().get("modelVersion"));
+    }
+
+    /**
+     * Prédiction lente en cours sur un autre thread (libérée par {@code release})
+     */
+    private CompletableFuture<Double> slowPrediction(PredictionCache.FeatureKey key, CountDownLatch release)
+            throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Double> slow = CompletableFuture.supplyAsync(() -> cache.get(key, () -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            calls.incrementAndGet();
+            return 1.0;
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        return slow;
+    }
+
+    @Test
+    public void testSlowPredictionDoesNotBlockOtherKeys() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PredictionCache.FeatureKey slowKey = cache.key("/predict", 1).add(datetime).add(30.0).build();
+        CompletableFuture<Double> slow = slowPrediction(slowKey, release);
+        // Même clé : attend la prédiction en cours sans rappeler le microservice
+        CompletableFuture<Double> waiting = CompletableFuture.supplyAsync(() -> cache.get(slowKey, () -> {
+            calls.incrementAndGet();
+            return 2.0;
+        }));
+
+        assertEquals(2500.0, CompletableFuture.supplyAsync(() -> predict(24.1)).get(5, TimeUnit.SECONDS));
+        assertFalse(slow.isDone());
+
+        release.countDown();
+        assertEquals(1.0, slow.get(10, TimeUnit.SECONDS));
+        assertEquals(1.0, waiting.get(10, TimeUnit.SECONDS));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testInvalidationDoesNotWaitForSlowPrediction() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PredictionCache.FeatureKey slowKey = cache.key("/predict", 1).add(datetime).add(30.0).build();
+        CompletableFuture<Double> slow = slowPrediction(slowKey, release);
+
+        CompletableFuture.runAsync(cache::invalidateAll).get(5, TimeUnit.SECONDS);
+        assertFalse(slow.isDone());
+
+        release.countDown();
+        assertEquals(1.0, slow.get(10, TimeUnit.SECONDS));
+        // Prédiction de l'ancien modèle non conservée
+        assertEquals(1L, cache.stats().get("modelVersion"));
+        assertEquals(0L, cache.stats().get("entries"));
+    }
+}
@@ -0,0 +1,42 @@
+package com.microgrid.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests pour PvHistoryWindow : remplissage partiel, ordre après rotation et copies indépendantes
+ */
+public class PvHistoryWindowTest {
+
+    @Test
+    public void testPartialFillKeepsInsertionOrder() {
+        PvHistoryWindow window = new PvHistoryWindow();
+        assertTrue(window.isEmpty());
+        assertNull(window.toArray());
+
+        window.push(1.0);
+        window.push(2.0);
+
+        assertEquals(2, window.size());
+        assertArrayEquals(new double[] {1.0, 2.0}, window.toArray());
+    }
+
+    @Test
+    public void testWraparoundReturnsOldestFirstInFreshArrays() {
+        PvHistoryWindow window = new PvHistoryWindow();
+        for (int k = 1; k <= 6; k++) {
+            window.push(k);
+        }
+
+        double[] first = window.toArray();
+        assertEquals(PvHistoryWindow.CAPACITY, window.size());
+        assertArrayEquals(new double[] {3.0, 4.0, 5.0, 6.0}, first);
+
+        // Le tableau retourné n'est pas modifié par les push suivants
+        window.push(7.0);
+        assertArrayEquals(new double[] {3.0, 4.0, 5.0, 6.0}, first);
+        assertArrayEquals(new double[] {4.0, 5.0, 6.0, 7.0}, window.toArray());
+        assertNotSame(window.toArray(), window.toArray());
+    }
+}
@@ -0,0 +1,136 @@
+package com.microgrid.service;
+
+import com.microgrid.exception.CapacityExceededException;
+import com.microgrid.model.Establishment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests pour SimulationJobService : avancement par tranche, résultat conservé, file bornée, annulation
+ */
+public class SimulationJobServiceTest {
+
+    private final LocalDateTime startDate = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private SimulationService simulationService;
+    private SimulationJobService jobService;
+    private Establishment establishment;
+
+    @BeforeEach
+    public void setUp() {
+        simulationService = mock(SimulationService.class);
+        establishment = new Establishment();
+        establishment.setId(7L);
+
+        jobService = new SimulationJobService();
+        ReflectionTestUtils.setField(jobService, "simulationService", simulationService);
+        ReflectionTestUtils.setField(jobService, "parallelism", 1);
+        ReflectionTestUtils.setField(jobService, "queueCapacity", 1);
+        jobService.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jobService.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testJob_ReportsProgressAndKeepsResult() throws Exception {
+        CountDownLatch subscribed = new CountDownLatch(1);
+        when(simulationService.simulateInChunks(any(), any(), eq(3), any(), anyDouble(), anyDouble(), any()))
+            .thenAnswer(invocation -> {
+                Consumer<SimulationService.SimulationResult> onChunk = invocation.getArgument(6);
+                subscribed.await(10, TimeUnit.SECONDS); // Progression observée dès la première tranche
+                SimulationService.SimulationTotals totals = new SimulationService.SimulationTotals();
+                for (int size : new int[] {4, 8}) { // 1 puis 2 jours au pas de 6h
+                    SimulationService.SimulationResult chunk = new SimulationService.SimulationResult(size);
+                    chunk.socBattery[size - 1] = size;
+                    totals.steps += size;
+                    onChunk.accept(chunk);
+                }
+                totals.totalConsumption = 1200.0;
+                return totals;
+            });
+        List<SimulationJobService.JobStatus> events = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch finished = new CountDownLatch(1);
+
+        SimulationJobService.JobStatus submitted = jobService.submit(
+            establishment, "owner@example.com", startDate, 3, SimulationTimeGrid.Resolution.HOUR_6, 500.0, 250.0);
+        jobService.subscribe(submitted.jobId, 7L, "owner@example.com", status -> {
+            events.add(status);
+            if (status.status.isFinished()) {
+                finished.countDown();
+            }
+        });
+        subscribed.countDown();
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+
+        SimulationJobService.JobStatus done = jobService.getStatus(submitted.jobId, 7L, "owner@example.com");
+        assertEquals(SimulationJobService.Status.COMPLETED, done.status);
+        assertEquals(3, done.completedDays);
+        assertEquals(12, done.completedSteps);
+        assertEquals(1.0, done.progress);
+        assertNotNull(done.expiresAt);
+        assertTrue(events.stream().anyMatch(status -> status.completedDays == 1));
+
+        SimulationService.SimulationResult result = jobService.getResult(submitted.jobId, 7L, "owner@example.com");
+        assertEquals(12, result.size);
+        assertEquals(4.0, result.socBattery[3]);
+        assertEquals(8.0, result.socBattery[11]);
+        assertEquals(1200.0, result.totalConsumption);
+
+        // Job d'un autre utilisateur ou d'un autre établissement : introuvable
+        assertThrows(RuntimeException.class, () -> jobService.getStatus(submitted.jobId, 7L, "other@example.com"));
+        assertThrows(RuntimeException.class, () -> jobService.getStatus(submitted.jobId, 8L, "owner@example.com"));
+    }
+
+    @Test
+    public void testJob_QueueIsBoundedAndCancelInterruptsSimulation() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(simulationService.simulateInChunks(any(), any(), anyInt(), any(), anyDouble(), anyDouble(), any()))
+            .thenAnswer(invocation -> {
+                started.countDown();
+                try {
+                    new CountDownLatch(1).await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw new CancellationException("Simulation interrompue");
+                }
+                return new SimulationService.SimulationTotals();
+            });
+
+        SimulationJobService.JobStatus running = jobService.submit(
+            establishment, "owner@example.com", startDate, 30, SimulationTimeGrid.Resolution.HOUR_6, 500.0, 250.0);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        SimulationJobService.JobStatus queued = jobService.submit(
+            establishment, "owner@example.com", startDate, 30, SimulationTimeGrid.Resolution.HOUR_6, 500.0, 250.0);
+        assertEquals(SimulationJobService.Status.QUEUED, queued.status);
+        // Un job en cours, un en file : le suivant est refusé
+        assertThrows(CapacityExceededException.class, () -> jobService.submit(
+            establishment, "owner@example.com", startDate, 30, SimulationTimeGrid.Resolution.HOUR_6, 500.0, 250.0));
+
+        assertEquals(SimulationJobService.Status.CANCELLED,
+            jobService.cancel(queued.jobId, 7L, "owner@example.com").status);
+        assertEquals(SimulationJobService.Status.CANCELLED,
+            jobService.cancel(running.jobId, 7L, "owner@example.com").status);
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertNull(jobService.getResult(running.jobId, 7L, "owner@example.com"));
+        verify(simulationService, times(1)).simulateInChunks(any(), any(), anyInt(), any(), anyDouble(), anyDouble(), any());
+    }
+}
@@ -0,0 +1,358 @@
+package com.microgrid.service;
+
+import com.microgrid.model.Establishment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests pour SimulationService : la détection d'anomalies est une seule étape du pipeline,
+ * grille de pas fixe ou adaptative, simulation par tranches, ensemble Monte-Carlo, aperçu par jours types
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class SimulationServiceTest {
+
+    @Mock
+    private AiMicroserviceClient aiMicroserviceClient;
+
+    @Mock
+    private PvCalculationService pvCalculationService;
+
+    @Mock
+    private ConsumptionEstimationService consumptionEstimationService;
+
+    @Mock
+    private MeteoDataService meteoDataService;
+
+    @Mock
+    private CsvMeteoReaderService csvMeteoReaderService;
+
+    @Mock
+    private AiResultValidator aiResultValidator;
+
+    @Mock
+    private PvPredictionService pvPredictionService;
+
+    @Mock
+    private AnomalyDetectionService anomalyDetectionService;
+
+    @Spy
+    private DispatchEngine dispatchEngine = new DispatchEngine();
+
+    @InjectMocks
+    private SimulationService simulationService;
+
+    @BeforeEach
+    public void setUp() {
+        AiAsyncClient aiAsyncClient = new AiAsyncClient();
+        ReflectionTestUtils.setField(aiAsyncClient, "aiMicroserviceClient", aiMicroserviceClient);
+        ReflectionTestUtils.setField(aiAsyncClient, "pvPredictionService", pvPredictionService);
+        ReflectionTestUtils.setField(aiAsyncClient, "anomalyDetectionService", anomalyDetectionService);
+        ReflectionTestUtils.setField(simulationService, "aiAsyncClient", aiAsyncClient);
+    }
+
+    /**
+     * Établissement de 200 lits consommant 120 000 kWh par mois (1000 kWh par pas de 6h)
+     */
+    private static Establishment establishment(double installableSurfaceM2) {
+        Establishment establishment = new Establishment();
+        establishment.setNumberOfBeds(200);
+        establishment.setInstallableSurfaceM2(installableSurfaceM2);
+        establishment.setMonthlyConsumptionKwh(120000.0);
+        return establishment;
+    }
+
+    /**
+     * Aucune anomalie détectée
+     */
+    private void stubNoAnomalies() {
+        when(anomalyDetectionService.detectAnomaliesBatch(any(), any(), any(), any(), any(), any(), any()))
+            .thenAnswer(invocation -> {
+                double[] consumption = invocation.getArgument(0);
+                List<AnomalyDetectionService.AnomalyResult> results = new ArrayList<>();
+                for (int step = 0; step < consumption.length; step++) {
+                    results.add(new AnomalyDetectionService.AnomalyResult(false, 0.1, "normal", "No action needed"));
+                }
+                return results;
+            });
+    }
+
+    /**
+     * PV AI de {@code kwh} sur les pas de 6h et 12h, nulle sur les autres
+     */
+    private void stubPv(double kwh) {
+        when(pvPredictionService.predictPvProductionBatch(any(), any(), any(), anyDouble(), any()))
+            .thenAnswer(invocation -> {
+                List<LocalDateTime> datetimes = invocation.getArgument(0);
+                double[] predictions = new double[datetimes.size()];
+                for (int step = 0; step < predictions.length; step++) {
+                    int hour = datetimes.get(step).getHour();
+                    predictions[step] = hour == 6 || hour == 12 ? kwh : 0.0;
+                }
+                return predictions;
+            });
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void testSimulate_DetectsAnomaliesOncePerStep(boolean batchEnabled) {
+        ReflectionTestUtils.setField(simulationService, "batchEnabled", batchEnabled);
+        when(anomalyDetectionService.detectAnomaliesBatch(any(), any(), any(), any(), any(), any(), any()))
+            .thenAnswer(invocation -> {
+                double[] consumption = invocation.getArgument(0);
+                List<AnomalyDetectionService.AnomalyResult> results = new ArrayList<>();
+                for (int step = 0; step < consumption.length; step++) {
+                    results.add(step == 2
+                        ? new AnomalyDetectionService.AnomalyResult(true, -0.4, "pv_malfunction", "Check PV panels")
+                        : new AnomalyDetectionService.AnomalyResult(false, 0.1, "normal", "No action needed"));
+                }
+                return results;
+            });
+
+        Establishment establishment = establishment(1000.0);
+        establishment.setType(Establishment.EstablishmentType.CHU);
+
+        SimulationService.SimulationResult result = simulationService.simulate(
+            establishment, LocalDateTime.of(2024, 1, 1, 0, 0), 2, 500.0, 250.0);
+
+        // Un seul passage de détection, couvrant chaque pas une fois
+        verify(anomalyDetectionService, times(1)).detectAnomaliesBatch(
+            argThat(values -> values.length == 8), any(), any(), any(), any(), any(), any());
+        verify(anomalyDetectionService, never()).detectAnomaly(
+            anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble());
+
+        assertEquals(8, result.size);
+        assertEquals(1, result.anomalies.cardinality());
+        assertTrue(result.hasAnomaly(2));
+        assertEquals("pv_malfunction", result.anomalyType(2));
+        assertTrue(result.note(2).contains("Anomaly detected: pv_malfunction"));
+        assertEquals("normal", result.anomalyType(3));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void testSimulate_TimeStepSetsGrid(boolean batchEnabled) {
+        ReflectionTestUtils.setField(simulationService, "batchEnabled", batchEnabled);
+        stubNoAnomalies();
+        Establishment establishment = establishment(0.0);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        SimulationService.SimulationResult hourly = simulationService.simulate(
+            establishment, start, 2, SimulationTimeGrid.Resolution.HOUR_1, 500.0, 250.0);
+        assertEquals(48, hourly.size);
+        assertEquals(start.plusHours(47), hourly.datetime(47));
+        assertEquals(1.0, hourly.stepHours[0]);
+
+        // Sans PV, la batterie se vide pendant le premier pas de 6h (175 kWh au-dessus de SOC_MIN) :
+        // ce pas et son voisin sont découpés au quart d'heure, les 6 autres restent à 6h
+        SimulationTimeGrid adaptive = simulationService.timeGrid(
+            establishment, start, 2, SimulationTimeGrid.Resolution.ADAPTIVE, 500.0, 250.0);
+        assertEquals(2 * 24 + 6, adaptive.size);
+        assertEquals(0.25, adaptive.stepHours(0));
+        assertEquals(start.plusHours(12), adaptive.datetime(48));
+        assertEquals(6.0, adaptive.stepHours(48));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void testSimulate_OtherTimeStepsQueryModelsOnSixHourSlots(boolean batchEnabled) {
+        stubNoAnomalies();
+        stubPv(1200.0);
+        when(meteoDataService.getAverageIrradiance(any())).thenReturn(6.0);
+        Establishment establishment = establishment(1000.0);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        SimulationService.SimulationResult sixHours = simulationService.simulate(
+            establishment, start, 3, SimulationTimeGrid.Resolution.HOUR_6, 500.0, 250.0);
+        ReflectionTestUtils.setField(simulationService, "batchEnabled", batchEnabled);
+        SimulationService.SimulationResult daily = simulationService.simulate(
+            establishment, start, 3, SimulationTimeGrid.Resolution.DAY_1, 500.0, 250.0);
+        SimulationService.SimulationResult hourly = simulationService.simulate(
+            establishment, start, 3, SimulationTimeGrid.Resolution.HOUR_1, 500.0, 250.0);
+
+        // 2 créneaux de 1200 kWh de PV et 4 créneaux de 1000 kWh de consommation par jour
+        assertEquals(3 * 2400.0, sixHours.totalPvProduction, 1e-6);
+        assertEquals(3 * 4000.0, sixHours.totalConsumption, 1e-6);
+        assertEquals(sixHours.totalPvProduction, daily.totalPvProduction, 1e-6);
+        assertEquals(sixHours.totalConsumption, daily.totalConsumption, 1e-6);
+        assertEquals(2400.0, daily.pvProduction[1], 1e-6);
+        assertEquals(sixHours.totalPvProduction, hourly.totalPvProduction, 1e-6);
+        assertEquals(sixHours.totalConsumption, hourly.totalConsumption, 1e-6);
+        // PV du créneau 6h-12h répartie sur ses heures, aucune la nuit
+        assertEquals(200.0, hourly.pvProduction[7], 1e-6);
+        assertEquals(0.0, hourly.pvProduction[3], 1e-6);
+
+        // Le modèle PV ne voit que des débuts de créneaux de 6h
+        verify(pvPredictionService, atLeastOnce()).predictPvProductionBatch(any(), any(), any(), anyDouble(), any());
+        verify(pvPredictionService, never()).predictPvProductionBatch(
+            argThat(datetimes -> datetimes.stream().anyMatch(
+                datetime -> datetime.getHour() % 6 != 0 || datetime.getMinute() != 0)),
+            any(), any(), anyDouble(), any());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    public void testSimulateInChunks_MatchesSingleRun(boolean batchEnabled) {
+        ReflectionTestUtils.setField(simulationService, "batchEnabled", batchEnabled);
+        stubNoAnomalies();
+        Establishment establishment = establishment(0.0);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+        SimulationService.SimulationResult single = simulationService.simulate(
+            establishment, start, 5, 500.0, 250.0);
+
+        // Tranches de 1, 2 puis 2 jours (4, 8 et 8 pas de 6h), état batterie repris d'une tranche à l'autre
+        List<Integer> sizes = new ArrayList<>();
+        List<Double> socs = new ArrayList<>();
+        SimulationService.SimulationTotals totals = simulationService.simulateInChunks(
+            establishment, start, 5, SimulationTimeGrid.Resolution.HOUR_6, 500.0, 250.0, chunk -> {
+                sizes.add(chunk.size);
+                for (int step = 0; step < chunk.size; step++) {
+                    socs.add(chunk.socBattery[step]);
+                }
+            });
+
+        assertEquals(List.of(4, 8, 8), sizes);
+        assertEquals(single.size, totals.steps);
+        for (int step = 0; step < single.size; step++) {
+            assertEquals(single.socBattery[step], socs.get(step), 1e-9);
+        }
+        assertEquals(single.totalConsumption, totals.totalConsumption, 1e-6);
+        assertEquals(single.totalGridImport, totals.totalGridImport, 1e-6);
+        assertEquals(single.averageAutonomy, totals.averageAutonomy, 1e-9);
+        assertEquals(single.socBattery[single.size - 1], totals.finalSocKwh, 1e-9);
+    }
+
+    @Test
+    public void testSimulateEnsemble_BandsAroundDeterministicRun() {
+        ReflectionTestUtils.setField(simulationService, "batchEnabled", true);
+        stubNoAnomalies();
+        // PV de 1200 kWh sur les pas de 6h et 12h, consommation estimée à 1000 kWh par pas
+        stubPv(1200.0);
+        Establishment establishment = establishment(1000.0);
+        LocalDateTime start = LocalDateTime.of(2024, 6, 1, 0, 0);
+        SimulationService.SimulationResult single = simulationService.simulate(establishment, start, 10, 500.0, 250.0);
+
+        // Sans tirage ni perturbation, tous les membres reproduisent la simulation déterministe
+        ReflectionTestUtils.setField(simulationService, "ensembleWindowDays", 0);
+        ReflectionTestUtils.setField(simulationService, "ensembleIrradianceSigma", 0.0);
+        SimulationService.EnsembleResult identical = simulationService.simulateEnsemble(
+            establishment, start, 10, SimulationTimeGrid.Resolution.HOUR_6, 20, 1L, 500.0, 250.0);
+        assertEquals(10, identical.dates.size());
+        assertEquals(single.totalGridImport, identical.totalGridImportKwh.p10, 1e-6);
+        assertEquals(single.totalGridImport, identical.totalGridImportKwh.p90, 1e-6);
+        assertEquals(single.socBattery[single.size - 1], identical.finalSocKwh.p50, 1e-9);
+        assertEquals(Math.min(Math.min(single.socBattery[4], single.socBattery[5]),
+            Math.min(single.socBattery[6], single.socBattery[7])), identical.minSocKwh.p50[1], 1e-9);
+
+        ReflectionTestUtils.setField(simulationService, "ensembleWindowDays", 3);
+        ReflectionTestUtils.setField(simulationService, "ensembleIrradianceSigma", 0.3);
+        SimulationService.EnsembleResult ensemble = simulationService.simulateEnsemble(
+            establishment, start, 10, SimulationTimeGrid.Resolution.HOUR_6, 200, 1L, 500.0, 250.0);
+        for (int day = 0; day < 10; day++) {
+            assertTrue(ensemble.gridImportKwh.p10[day] <= ensemble.gridImportKwh.p50[day]);
+            assertTrue(ensemble.gridImportKwh.p50[day] <= ensemble.gridImportKwh.p90[day]);
+            assertTrue(ensemble.minSocKwh.p10[day] <= ensemble.minSocKwh.p90[day]);
+        }
+        assertTrue(ensemble.totalGridImportKwh.p10 < ensemble.totalGridImportKwh.p90);
+        assertTrue(ensemble.autonomy.p10 < ensemble.autonomy.p90);
+        // Même graine, mêmes bandes
+        assertEquals(ensemble.totalGridImportKwh.p50, simulationService.simulateEnsemble(
+            establishment, start, 10, SimulationTimeGrid.Resolution.HOUR_6, 200, 1L, 500.0, 250.0)
+            .totalGridImportKwh.p50);
+        assertThrows(com.microgrid.exception.ValidationException.class, () -> simulationService.simulateEnsemble(
+            establishment, start, 10, SimulationTimeGrid.Resolution.ADAPTIVE, 200, 1L, 500.0, 250.0));
+    }
+
+    @Test
+    public void testEnsembleSourceDay_BoundaryDaysNotOversampled() {
+        // 7 jours, fenêtre de 15 : chaque jour simulé tire uniformément parmi les 7 jours
+        SplittableRandom random = new SplittableRandom(1L);
+        int[] draws = new int[7];
+        for (int member = 0; member < 7000; member++) {
+            for (int day = 0; day < 7; day++) {
+                draws[SimulationService.ensembleSourceDay(random, day, 7, 15)]++;
+            }
+        }
+        for (int count : draws) {
+            assertEquals(7000, count, 7000 * 0.05);
+        }
+
+        // 60 jours, fenêtre de 15 : les bords ne sont pas plus tirés que l'intérieur
+        int[] yearDraws = new int[60];
+        for (int member = 0; member < 2000; member++) {
+            for (int day = 0; day < 60; day++) {
+                int source = SimulationService.ensembleSourceDay(random, day, 60, 15);
+                assertTrue(Math.abs(source - day) <= 15);
+                yearDraws[source]++;
+            }
+        }
+        assertTrue(yearDraws[0] < yearDraws[30]);
+        assertTrue(yearDraws[59] < yearDraws[30]);
+    }
+
+    @Test
+    public void testSimulatePreview_IdenticalDaysReduceToOneWeightedDay() {
+        ReflectionTestUtils.setField(simulationService, "batchEnabled", true);
+        stubNoAnomalies();
+        stubPv(1200.0);
+        // 20 jours identiques : un seul jour type, de poids 20
+        LocalDateTime start = LocalDateTime.of(2024, 6, 1, 0, 0);
+        WeatherSeries.Builder builder = new WeatherSeries.Builder();
+        for (int slot = 0; slot < 80; slot++) {
+            builder.add(start.plusHours(6L * slot), 25.0, slot % 4 == 1 || slot % 4 == 2 ? 2.0 : 0.0);
+        }
+        WeatherSeries series = builder.build();
+        when(csvMeteoReaderService.typicalDays(any(), anyInt()))
+            .thenAnswer(invocation -> TypicalDays.cluster(series, invocation.getArgument(1)));
+        when(csvMeteoReaderService.getMeteoData(any(LocalDateTime.class), any(Duration.class), any()))
+            .thenAnswer(invocation -> series.resample(invocation.getArgument(0),
+                (int) ((Duration) invocation.getArgument(1)).getSeconds()));
+        when(pvCalculationService.calculatePvProductionFromIrradiance(anyDouble(), anyDouble()))
+            .thenAnswer(invocation -> (double) invocation.getArgument(0) * (double) invocation.getArgument(1) * 0.2);
+        Establishment establishment = establishment(1000.0);
+
+        SimulationService.PreviewResult preview = simulationService.simulatePreview(establishment, 12, 500.0);
+
+        assertEquals(1, preview.typicalDays.size());
+        assertEquals(20, preview.days);
+        assertEquals(20.0, preview.weights[0]);
+        assertEquals(4, preview.simulatedSteps);
+        assertEquals(20 * 4000.0, preview.totalConsumption, 1e-6);
+        assertEquals(20 * 2400.0, preview.totalPvProduction, 1e-6);
+        assertTrue(preview.totalGridImport > 0 && preview.totalGridImport < preview.totalConsumption);
+        assertEquals(60.0, preview.averageAutonomy, 1e-9);
+        assertEquals(0.0, preview.surrogateError.irradiancePercent, 1e-9);
+        assertEquals(0.0, preview.surrogateError.pvProductionPercent, 1e-9);
+        assertEquals(0.0, preview.surrogateError.autonomyPoints, 1e-9);
+        // Seul le premier jour de l'année complète part d'un SOC différent du régime établi
+        assertTrue(preview.surrogateError.gridImportPercent < 100.0 / 20);
+        assertThrows(com.microgrid.exception.ValidationException.class,
+            () -> simulationService.simulatePreview(establishment, 0, 500.0));
+
+        // Écart de substitution en cache : seul le jour type repasse par la météo
+        clearInvocations(csvMeteoReaderService);
+        assertSame(preview.surrogateError, simulationService.simulatePreview(establishment, 12, 500.0).surrogateError);
+        verify(csvMeteoReaderService, times(4)).getMeteoData(any(LocalDateTime.class), any(Duration.class), any());
+    }
+}
@@ -0,0 +1,133 @@
+package com.microgrid.service;
+
+import com.microgrid.exception.CapacityExceededException;
+import com.microgrid.model.Establishment;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests pour SimulationSweepService : entrées partagées, résultats transmis au fil de l'eau, limite de concurrence
+ */
+public class SimulationSweepServiceTest {
+
+    private final LocalDateTime startDate = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private SimulationService simulationService;
+    private SimulationSweepService sweepService;
+    private SimulationService.SimulationInputs inputs;
+
+    @BeforeEach
+    public void setUp() {
+        simulationService = mock(SimulationService.class);
+        inputs = new SimulationService.SimulationInputs(
+            new ArrayList<>(), new long[0], new double[0], new double[0], new double[0], new double[0], new double[0]);
+        when(simulationService.simulate(same(inputs), anyDouble(), anyDouble(), eq(false)))
+            .thenAnswer(invocation -> new SimulationService.SimulationResult(0));
+
+        sweepService = new SimulationSweepService();
+        ReflectionTestUtils.setField(sweepService, "simulationService", simulationService);
+        ReflectionTestUtils.setField(sweepService, "parallelism", 4);
+        ReflectionTestUtils.setField(sweepService, "maxConcurrentSweeps", 1);
+        sweepService.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        sweepService.shutdown();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void testSweep_SharesInputsAndStreamsEveryScenario(boolean virtualThreads) throws Exception {
+        sweepService.shutdown();
+        ReflectionTestUtils.setField(sweepService, "virtualThreads", virtualThreads);
+        sweepService.init();
+        when(simulationService.prepareInputs(any(), any(), anyInt())).thenReturn(inputs);
+        List<SimulationSweepService.ScenarioResult> received = Collections.synchronizedList(new ArrayList<>());
+
+        sweepService.sweep(new Establishment(), startDate, 7, List.of(200.0, 500.0, 1000.0), List.of(0.2, 0.8),
+            received::add).get(10, TimeUnit.SECONDS);
+
+        assertEquals(6, received.size());
+        verify(simulationService, times(1)).prepareInputs(any(), any(), anyInt());
+        verify(simulationService, times(6)).simulate(same(inputs), anyDouble(), anyDouble(), eq(false));
+        assertTrue(received.stream().anyMatch(r -> r.batteryCapacityKwh == 1000.0 && r.initialSocKwh == 800.0));
+    }
+
+    @Test
+    public void testSweep_RejectsWhenConcurrencyLimitReached() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(simulationService.prepareInputs(any(), any(), anyInt())).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return inputs;
+        });
+
+        CompletableFuture<Void> running = sweepService.sweep(
+            new Establishment(), startDate, 7, List.of(500.0), List.of(0.5), result -> { });
+        assertThrows(CapacityExceededException.class, () -> sweepService.sweep(
+            new Establishment(), startDate, 7, List.of(500.0), List.of(0.5), result -> { }));
+
+        release.countDown();
+        running.get(10, TimeUnit.SECONDS);
+        // Le permis est libéré à la fin du sweep
+        sweepService.sweep(new Establishment(), startDate, 7, List.of(500.0), List.of(0.5), result -> { })
+            .get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSweep_PermitHeldUntilRunningScenariosFinishAfterFailure() throws Exception {
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(simulationService.prepareInputs(any(), any(), anyInt())).thenReturn(inputs);
+        when(simulationService.simulate(same(inputs), eq(500.0), anyDouble(), eq(false))).thenAnswer(invocation -> {
+            slowStarted.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return new SimulationService.SimulationResult(0);
+        });
+
+        CompletableFuture<Void> failed = sweepService.sweep(new Establishment(), startDate, 7, List.of(200.0, 500.0),
+            List.of(0.5), result -> {
+                if (result.batteryCapacityKwh == 200.0) {
+                    try {
+                        slowStarted.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new IllegalStateException("client déconnecté");
+                }
+            });
+        assertThrows(Exception.class, () -> failed.get(10, TimeUnit.SECONDS));
+
+        // Le scénario à 500 kWh tourne encore : le permis n'est pas rendu
+        assertThrows(CapacityExceededException.class, () -> sweepService.sweep(
+            new Establishment(), startDate, 7, List.of(500.0), List.of(0.5), result -> { }));
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        CompletableFuture<Void> next = null;
+        while (next == null) {
+            try {
+                next = sweepService.sweep(new Establishment(), startDate, 7, List.of(200.0), List.of(0.5), result -> { });
+            } catch (CapacityExceededException e) {
+                assertTrue(System.nanoTime() < deadline, "permis jamais libéré");
+                Thread.sleep(10);
+            }
+        }
+        next.get(10, TimeUnit.SECONDS);
+    }
+}
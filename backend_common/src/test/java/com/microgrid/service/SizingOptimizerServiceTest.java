@@ -0,0 +1,104 @@
+package com.microgrid.service;
+
+import com.microgrid.exception.ValidationException;
+import com.microgrid.model.Establishment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests pour SizingOptimizerService : l'élagage ne change pas l'optimum, contraintes de budget et de surface
+ */
+public class SizingOptimizerServiceTest {
+
+    private final LocalDateTime startDate = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private final List<Double> pvPowers = List.of(20.0, 50.0, 100.0, 150.0, 200.0, 300.0);
+    private final List<Double> batteries = List.of(0.0, 250.0, 500.0, 1000.0, 2000.0);
+    private SizingOptimizerService optimizer;
+    private Establishment establishment;
+
+    @BeforeEach
+    public void setUp() {
+        // 30 jours au pas de 6h : 1000 kWh par pas, PV de 1000 m² (200 kWc)
+        double[] irradianceProfile = {0.0, 0.7, 2.0, 2.4};
+        int steps = 30 * 4;
+        List<LocalDateTime> datetimes = new ArrayList<>();
+        long[] epochs = new long[steps];
+        double[] temperature = new double[steps];
+        double[] irradiance = new double[steps];
+        double[] pv = new double[steps];
+        double[] consumption = new double[steps];
+        for (int step = 0; step < steps; step++) {
+            datetimes.add(startDate.plusHours(6L * step));
+            irradiance[step] = irradianceProfile[step % 4] * (1.0 + 0.02 * (step / 4 % 7));
+            pv[step] = 1000.0 * irradiance[step] * 0.16;
+            consumption[step] = 1000.0;
+        }
+        SimulationService.SimulationInputs inputs = new SimulationService.SimulationInputs(
+            datetimes, epochs, temperature, irradiance, pv, pv.clone(), consumption);
+        SimulationService simulationService = mock(SimulationService.class);
+        when(simulationService.prepareInputs(any(), any(LocalDateTime.class), anyInt())).thenReturn(inputs);
+
+        optimizer = TestServices.newSizingOptimizer(simulationService);
+
+        establishment = new Establishment();
+        establishment.setNumberOfBeds(200);
+        establishment.setInstallableSurfaceM2(1000.0);
+        establishment.setMonthlyConsumptionKwh(120000.0);
+    }
+
+    @Test
+    public void testPruningKeepsTheOptimum() {
+        for (SizingOptimizerService.Objective objective : SizingOptimizerService.Objective.values()) {
+            // Liste aussi grande que la grille : aucun élagage par borne
+            SizingOptimizerService.OptimizationResult exhaustive = optimizer.optimize(
+                establishment, startDate, 30, objective, pvPowers, batteries, null, 1000);
+            SizingOptimizerService.OptimizationResult pruned = optimizer.optimize(
+                establishment, startDate, 30, objective, pvPowers, batteries, null, 1);
+
+            assertEquals(90, exhaustive.candidates);
+            assertEquals(0, exhaustive.prunedByBound);
+            assertEquals(exhaustive.candidates,
+                pruned.evaluated + pruned.prunedByBound + pruned.prunedByConstraints);
+            assertTrue(pruned.prunedByBound > 0, objective + " sans élagage");
+            assertEquals(exhaustive.best.pvPowerKwc, pruned.best.pvPowerKwc);
+            assertEquals(exhaustive.best.batteryCapacityKwh, pruned.best.batteryCapacityKwh);
+            assertEquals(exhaustive.best.inverterPowerKw, pruned.best.inverterPowerKw);
+            assertEquals(exhaustive.best.npv, pruned.best.npv, 1e-6);
+            for (int rank = 1; rank < exhaustive.top.size(); rank++) {
+                assertTrue(objective == SizingOptimizerService.Objective.NPV
+                    ? exhaustive.top.get(rank - 1).npv >= exhaustive.top.get(rank).npv
+                    : exhaustive.top.get(rank - 1).lcoe <= exhaustive.top.get(rank).lcoe);
+            }
+        }
+    }
+
+    @Test
+    public void testBudgetAndSurfaceAreRespected() {
+        establishment.setProjectBudgetDh(1_500_000.0);
+
+        SizingOptimizerService.OptimizationResult result = optimizer.optimize(
+            establishment, startDate, 30, SizingOptimizerService.Objective.NPV, pvPowers, batteries, List.of(1.0), 5);
+
+        // 300 kWc demande 1500 m² > 1000 m²
+        assertTrue(result.prunedByConstraints >= batteries.size());
+        assertFalse(result.top.isEmpty());
+        for (SizingOptimizerService.Candidate candidate : result.top) {
+            assertTrue(candidate.installationCost <= 1_500_000.0);
+            assertTrue(candidate.pvSurfaceM2 <= 1000.0);
+        }
+        assertNotNull(result.recommended);
+
+        ReflectionTestUtils.setField(optimizer, "maxCandidates", 10);
+        assertThrows(ValidationException.class, () -> optimizer.optimize(
+            establishment, startDate, 30, SizingOptimizerService.Objective.NPV, pvPowers, batteries, null, 5));
+    }
+}
@@ -0,0 +1,37 @@
+package com.microgrid.service;
+
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Câblage des services sans contexte Spring, partagé entre tests et benchmarks
+ */
+public final class TestServices {
+
+    private TestServices() {
+    }
+
+    /**
+     * Construit un SizingOptimizerService (catalogue d'équipements chargé) sur le service de simulation donné
+     */
+    public static SizingOptimizerService newSizingOptimizer(SimulationService simulationService) {
+        MeteoDataService meteoDataService = new MeteoDataService();
+        PvCalculationService pvCalculationService = new PvCalculationService();
+        ReflectionTestUtils.setField(pvCalculationService, "meteoDataService", meteoDataService);
+        SizingService sizingService = new SizingService();
+        ReflectionTestUtils.setField(sizingService, "pvCalculationService", pvCalculationService);
+        ReflectionTestUtils.setField(sizingService, "meteoDataService", meteoDataService);
+        EquipmentCatalogService equipmentCatalogService = new EquipmentCatalogService();
+        equipmentCatalogService.init();
+        ComprehensiveResultsService comprehensiveResultsService = new ComprehensiveResultsService();
+        ReflectionTestUtils.setField(comprehensiveResultsService, "equipmentCatalogService", equipmentCatalogService);
+
+        SizingOptimizerService optimizer = new SizingOptimizerService();
+        ReflectionTestUtils.setField(optimizer, "simulationService", simulationService);
+        ReflectionTestUtils.setField(optimizer, "comprehensiveResultsService", comprehensiveResultsService);
+        ReflectionTestUtils.setField(optimizer, "pvCalculationService", pvCalculationService);
+        ReflectionTestUtils.setField(optimizer, "sizingService", sizingService);
+        ReflectionTestUtils.setField(optimizer, "consumptionEstimationService", new ConsumptionEstimationService());
+        ReflectionTestUtils.setField(optimizer, "dispatchEngine", new DispatchEngine());
+        return optimizer;
+    }
+}
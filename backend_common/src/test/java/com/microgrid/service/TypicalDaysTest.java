@@ -0,0 +1,66 @@
+package com.microgrid.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests pour TypicalDays : regroupement des jours, pondération, écart de reconstitution
+ */
+public class TypicalDaysTest {
+
+    private final LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    /**
+     * 30 jours ensoleillés puis 30 jours couverts, légères variations d'un jour à l'autre
+     */
+    private WeatherSeries twoRegimes() {
+        double[] sunny = {0.0, 1.0, 3.0, 1.0};
+        double[] cloudy = {0.0, 0.3, 0.8, 0.3};
+        WeatherSeries.Builder builder = new WeatherSeries.Builder();
+        for (int day = 0; day < 60; day++) {
+            double[] profile = day < 30 ? sunny : cloudy;
+            double variation = 1.0 + 0.01 * (day % 5);
+            for (int slot = 0; slot < 4; slot++) {
+                builder.add(start.plusDays(day).plusHours(6L * slot),
+                    day < 30 ? 25.0 : 15.0, profile[slot] * variation);
+            }
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testTwoRegimesGiveOneWeightedDayEach() {
+        TypicalDays typicalDays = TypicalDays.cluster(twoRegimes(), 2);
+
+        assertNotNull(typicalDays);
+        assertEquals(LocalDate.of(2024, 1, 1), typicalDays.firstDay);
+        assertEquals(60, typicalDays.dayCount());
+        assertEquals(2, typicalDays.days.size());
+        assertEquals(30.0, typicalDays.weights[0]);
+        assertEquals(30.0, typicalDays.weights[1]);
+        // Un représentant par régime, chaque jour rattaché à la classe de son régime
+        assertNotEquals(typicalDays.days.get(0).isBefore(LocalDate.of(2024, 1, 31)),
+            typicalDays.days.get(1).isBefore(LocalDate.of(2024, 1, 31)));
+        for (int day = 0; day < 60; day++) {
+            assertEquals(typicalDays.classOf(day < 30 ? 0 : 59), typicalDays.classOf(day));
+        }
+        assertTrue(typicalDays.irradianceError < 0.03, "écart " + typicalDays.irradianceError);
+    }
+
+    @Test
+    public void testCountIsCappedByDaysAndWeightsCoverSeries() {
+        TypicalDays typicalDays = TypicalDays.cluster(twoRegimes(), 100);
+
+        assertTrue(typicalDays.days.size() <= 60);
+        double total = 0.0;
+        for (double weight : typicalDays.weights) {
+            total += weight;
+        }
+        assertEquals(60.0, total);
+        assertNull(TypicalDays.cluster(new WeatherSeries.Builder().build(), 12));
+    }
+}
@@ -0,0 +1,79 @@
+package com.microgrid.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests pour WeatherArchive : relecture mappée identique à la série en mémoire, archive périmée ou corrompue ignorée
+ */
+public class WeatherArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testMappedSeriesMatchesHeapSeries() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        WeatherSeries.Builder builder = new WeatherSeries.Builder();
+        for (int i = 0; i < 500; i++) {
+            if (i % 7 != 3) { // Quelques trous
+                builder.add(start.plusHours(6L * i), 10.0 + i * 0.01, (i % 4) * 0.7);
+            }
+        }
+        builder.add(start, 9.0, 0.0); // Doublon du premier créneau
+        WeatherSeries heap = builder.build();
+
+        Path file = directory.resolve("zone.bin");
+        WeatherArchive.write(file, heap, 1234, 5678);
+        WeatherSeries mapped = WeatherArchive.map(file, 1234, 5678);
+
+        assertNotNull(mapped);
+        assertTrue(mapped.isMapped());
+        assertFalse(heap.isMapped());
+        assertEquals(heap.size(), mapped.size());
+        assertEquals(heap.getRows(), mapped.getRows());
+        assertEquals(heap.getDuplicates(), mapped.getDuplicates());
+        for (int hours = -48; hours < 6 * 520; hours += 5) {
+            LocalDateTime datetime = start.plusHours(hours);
+            int index = heap.indexOf(datetime);
+            assertEquals(index, mapped.indexOf(datetime));
+            assertEquals(heap.temperatureAt(index), mapped.temperatureAt(index));
+            assertEquals(heap.irradianceAt(index), mapped.irradianceAt(index));
+        }
+    }
+
+    @Test
+    public void testStaleOrMissingArchiveIsIgnored() throws Exception {
+        Path file = directory.resolve("zone.bin");
+        assertNull(WeatherArchive.map(file, 1, 1));
+
+        WeatherArchive.write(file, new WeatherSeries.Builder().add(LocalDateTime.of(2024, 1, 1, 0, 0), 1.0, 0.0).build(), 100, 200);
+
+        assertNull(WeatherArchive.map(file, 101, 200));
+        assertNull(WeatherArchive.map(file, 100, 201));
+        assertEquals(1, WeatherArchive.map(file, 100, 200).size());
+    }
+
+    @Test
+    public void testCorruptHeaderIsIgnored() throws Exception {
+        Path file = directory.resolve("zone.bin");
+        WeatherArchive.write(file, new WeatherSeries.Builder().add(LocalDateTime.of(2024, 1, 1, 0, 0), 1.0, 0.0).build(), 100, 200);
+
+        // Nombre de créneaux (offset 32) dont la taille d'archive dépasse 2 Go
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(0, Integer.MAX_VALUE), 32);
+        }
+
+        assertNull(WeatherArchive.map(file, 100, 200));
+    }
+}
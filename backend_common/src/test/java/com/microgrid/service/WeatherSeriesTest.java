@@ -0,0 +1,122 @@
+package com.microgrid.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests pour WeatherSeries : créneau exact, plus proche voisin, bornes de la période, rééchantillonnage
+ */
+public class WeatherSeriesTest {
+
+    private final LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private WeatherSeries series() {
+        // 1er janvier complet, puis trou jusqu'au 3 janvier 12h
+        return new WeatherSeries.Builder()
+            .add(start, 10.0, 0.0)
+            .add(start.plusHours(6), 12.0, 0.7)
+            .add(start.plusHours(12), 15.0, 2.0)
+            .add(start.plusHours(18), 13.0, 2.4)
+            .add(start.plusDays(2).plusHours(12), 16.0, 2.1)
+            .build();
+    }
+
+    @Test
+    public void testExactSlotIsRoundedDownTo6Hours() {
+        WeatherSeries series = series();
+
+        int index = series.indexOf(start.plusHours(14).plusMinutes(30));
+
+        assertEquals(15.0, series.temperatureAt(index));
+        assertEquals(2.0, series.irradianceAt(index));
+        assertEquals(start.plusHours(12), series.datetimeAt(index));
+    }
+
+    @Test
+    public void testMissingSlotFallsBackToNearestFilledSlot() {
+        WeatherSeries series = series();
+
+        // 2 janvier 0h : à 6h du 1er janvier 18h, à 36h du 3 janvier 12h
+        assertEquals(13.0, series.temperatureAt(series.indexOf(start.plusDays(1))));
+        // 3 janvier 6h : plus proche du 3 janvier 12h
+        assertEquals(16.0, series.temperatureAt(series.indexOf(start.plusDays(2).plusHours(6))));
+        // Hors période : bornes
+        assertEquals(10.0, series.temperatureAt(series.indexOf(start.minusYears(1))));
+        assertEquals(16.0, series.temperatureAt(series.indexOf(start.plusYears(1))));
+    }
+
+    @Test
+    public void testLaterRowReplacesSameSlotAndEmptySeries() {
+        WeatherSeries series = new WeatherSeries.Builder()
+            .add(start, 10.0, 0.0)
+            .add(start.plusHours(6), 12.0, 0.5)
+            .add(start, 11.0, 0.1)
+            .build();
+
+        assertEquals(2, series.size());
+        assertEquals(11.0, series.temperatureAt(series.indexOf(start)));
+        assertEquals(-1, new WeatherSeries.Builder().build().indexOf(start));
+        assertNull(new WeatherSeries.Builder().build().resample(start, 3600));
+    }
+
+    @Test
+    public void testResampleToCoarserAndFinerSteps() {
+        // 15 min sur 2 jours : température = index, irradiance 0.25 kWh/m² par quart d'heure
+        WeatherSeries quarterHours = quarterHourSeries(2 * 96, -1);
+        assertEquals(900, quarterHours.getStepSeconds());
+
+        CsvMeteoReaderService.MeteoData sixHours = quarterHours.resample(start.plusHours(6), 6 * 3600);
+        assertEquals(24 + 11.5, sixHours.temperature, 1e-9); // moyenne des index 24..47
+        assertEquals(24 * 0.25, sixHours.irradiance, 1e-9);
+
+        // 6h vers 1h : un sixième de l'énergie du créneau, même température
+        CsvMeteoReaderService.MeteoData oneHour = series().resample(start.plusHours(13), 3600);
+        assertEquals(15.0, oneHour.temperature, 1e-9);
+        assertEquals(2.0 / 6, oneHour.irradiance, 1e-9);
+
+        // Pas de 6h aligné sur une série 6h : valeurs d'origine
+        CsvMeteoReaderService.MeteoData aligned = series().resample(start.plusHours(12), 6 * 3600);
+        assertEquals(15.0, aligned.temperature);
+        assertEquals(2.0, aligned.irradiance);
+    }
+
+    @Test
+    public void testLongWindowsMatchDirectSumWithGaps() {
+        int slots = 5000;
+        int gap = 1234; // Créneau manquant
+        WeatherSeries series = quarterHourSeries(slots, gap);
+
+        for (int[] window : new int[][] {{0, slots}, {7, 4100}, {300, 1800}, {1000, 1300}, {255, 257}}) {
+            double sumTemperature = 0;
+            int count = 0;
+            for (int i = window[0]; i < window[1]; i++) {
+                if (i != gap) {
+                    sumTemperature += i;
+                    count++;
+                }
+            }
+            int length = window[1] - window[0];
+            CsvMeteoReaderService.MeteoData data = series.resample(start.plusMinutes(15L * window[0]), 900L * length);
+            assertEquals(sumTemperature / count, data.temperature, 1e-6);
+            assertEquals(0.25 * length, data.irradiance, 1e-9);
+        }
+
+        // Fenêtre entièrement hors période : créneau le plus proche, énergie ramenée à la durée
+        CsvMeteoReaderService.MeteoData after = series.resample(start.plusDays(200), 1800);
+        assertEquals(slots - 1, after.temperature);
+        assertEquals(0.5, after.irradiance, 1e-9);
+    }
+
+    private WeatherSeries quarterHourSeries(int slots, int gap) {
+        WeatherSeries.Builder builder = new WeatherSeries.Builder();
+        for (int i = 0; i < slots; i++) {
+            if (i != gap) {
+                builder.add(start.plusMinutes(15L * i), i, 0.25);
+            }
+        }
+        return builder.build();
+    }
+}